@@ -17,8 +17,11 @@ import static org.springframework.http.HttpHeaders.CONTENT_TYPE;
 @RunWith(SpringIntegrationSerenityRunner.class)
 public class SendToPayhubTest extends FunctionalTest {
 
+    private static final long JOB_TIMEOUT_MILLIS = 60_000;
+    private static final long JOB_POLL_INTERVAL_MILLIS = 500;
+
     @Test
-    public void testSendPaymentToPayhub() throws JSONException {
+    public void testSendPaymentToPayhub() throws JSONException, InterruptedException {
         String token = authenticatorClient.authenticate(users.get(Roles.DELIVERY_MANAGER_Y431), password);
 
         // create payment
@@ -31,19 +34,13 @@ public class SendToPayhubTest extends FunctionalTest {
         changeStatus("/cards/", "TTB", token, createdPayment);
 
         // send to payhub
-        Response response = given()
-            .relaxedHTTPSValidation()
-            .header(CONTENT_TYPE, "application/json")
-            .header("Authorization", token)
-            .header("SiteId", Sites.Y431.name())
-            .when()
-            .get("/payment-instructions/send-to-payhub");
-        response.then().statusCode(200);
-        Map resp = response.as(HashMap.class);
-        Assert.assertEquals(1, resp.get("success"));
+        Map job = sendToPayhub(token);
+        Assert.assertEquals("COMPLETED", job.get("status"));
+        Assert.assertEquals(1, job.get("total"));
+        Assert.assertEquals(1, job.get("success"));
     }
 
-    public void testSendFullRemissionToPayhub() throws JSONException {
+    public void testSendFullRemissionToPayhub() throws JSONException, InterruptedException {
         String token = authenticatorClient.authenticate(users.get(Roles.DELIVERY_MANAGER_Y431), password);
         // create full-remission
         Map createdFullRemission = createFullRemission(token);
@@ -55,6 +52,13 @@ public class SendToPayhubTest extends FunctionalTest {
         changeStatus("/remissions/", "TTB", token, createdFullRemission);
 
         // send to payhub
+        Map job = sendToPayhub(token);
+        Assert.assertEquals("COMPLETED", job.get("status"));
+        Assert.assertEquals(1, job.get("total"));
+        Assert.assertEquals(1, job.get("success"));
+    }
+
+    private Map sendToPayhub(String token) throws InterruptedException {
         Response response = given()
             .relaxedHTTPSValidation()
             .header(CONTENT_TYPE, "application/json")
@@ -62,9 +66,24 @@ public class SendToPayhubTest extends FunctionalTest {
             .header("SiteId", Sites.Y431.name())
             .when()
             .get("/payment-instructions/send-to-payhub");
-        response.then().statusCode(200);
-        Map resp = response.as(HashMap.class);
-        Assert.assertEquals(1, resp.get("success"));
+        response.then().statusCode(202);
+        Map job = response.as(HashMap.class);
+
+        long deadline = System.currentTimeMillis() + JOB_TIMEOUT_MILLIS;
+        while ("RUNNING".equals(job.get("status"))) {
+            Assert.assertTrue("send-to-payhub job did not finish in time", System.currentTimeMillis() < deadline);
+            Thread.sleep(JOB_POLL_INTERVAL_MILLIS);
+            response = given()
+                .relaxedHTTPSValidation()
+                .header(CONTENT_TYPE, "application/json")
+                .header("Authorization", token)
+                .header("SiteId", Sites.Y431.name())
+                .when()
+                .get("/payment-instructions/send-to-payhub/jobs/" + job.get("id"));
+            response.then().statusCode(200);
+            job = response.as(HashMap.class);
+        }
+        return job;
     }
 
     private Map createPayment(String token) throws JSONException {
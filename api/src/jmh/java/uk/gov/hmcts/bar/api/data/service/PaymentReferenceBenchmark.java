@@ -0,0 +1,175 @@
+package uk.gov.hmcts.bar.api.data.service;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import uk.gov.hmcts.bar.api.data.model.PaymentReference;
+import uk.gov.hmcts.bar.api.data.repository.PaymentReferenceRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Measures how many payment instructions per second a single site gets through with a growing number of clients.
+ * The site's payment_reference row lock is simulated with a lock held until the transaction that took it ends, each
+ * statement costs a database round trip and a create transaction takes a fixed time. The baseline holds the row lock
+ * for the whole create transaction, as the references used to be taken. Every invocation has each client create one
+ * payment instruction, the creates per second are reported as the {@code creates} counter. Run it with
+ * {@code ./gradlew :bar-api:jmh -Pjmh.include=PaymentReferenceBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class PaymentReferenceBenchmark {
+
+    @Param({"1", "2", "4", "8", "16"})
+    public int clients;
+
+    @Param({"1"})
+    public long roundTripMs;
+
+    @Param({"20"})
+    public long createMs;
+
+    private ExecutorService executor;
+    private SimulatedSite site;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(clients);
+        site = new SimulatedSite(roundTripMs);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @State(Scope.Benchmark)
+    public static class BlockReservation {
+
+        @Param({"1", "20", "100"})
+        public int blockSize;
+
+        private PaymentReferenceService paymentReferenceService;
+
+        @Setup(Level.Trial)
+        public void setUp(PaymentReferenceBenchmark benchmark) {
+            paymentReferenceService = new SimulatedSite(benchmark.roundTripMs).paymentReferenceService(blockSize);
+        }
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Creates {
+        public long creates;
+    }
+
+    @Benchmark
+    public void rowLockPerCreate(Creates creates) throws Exception {
+        createOnEveryClient(creates, () -> {
+            site.rowLock.lock();
+            try {
+                site.increment();
+                pause(createMs);
+            } finally {
+                site.rowLock.unlock();
+            }
+        });
+    }
+
+    @Benchmark
+    public void blockPerSite(BlockReservation blockReservation, Creates creates) throws Exception {
+        createOnEveryClient(creates, () -> {
+            blockReservation.paymentReferenceService.getNextPaymentReference("Y431");
+            pause(createMs);
+        });
+    }
+
+    private void createOnEveryClient(Creates creates, Runnable create) throws InterruptedException, ExecutionException {
+        List<Future<?>> results = new ArrayList<>(clients);
+        for (int i = 0; i < clients; i++) {
+            results.add(executor.submit(create));
+        }
+        for (Future<?> result : results) {
+            result.get();
+        }
+        creates.creates += clients;
+    }
+
+    private static void pause(long millis) {
+        LockSupport.parkNanos(millis * 1_000_000);
+    }
+
+    private static final class SimulatedSite {
+        private final ReentrantLock rowLock = new ReentrantLock();
+        private final AtomicReference<PaymentReference> row = new AtomicReference<>();
+        private final long roundTripMs;
+
+        private SimulatedSite(long roundTripMs) {
+            this.roundTripMs = roundTripMs;
+        }
+
+        private void increment() {
+            pause(roundTripMs);
+            pause(roundTripMs);
+        }
+
+        private PaymentReferenceService paymentReferenceService(int blockSize) {
+            PaymentReferenceRepository repository = mock(PaymentReferenceRepository.class);
+            when(repository.findOneForUpdate(anyString())).thenAnswer(invocation -> {
+                rowLock.lock();
+                pause(roundTripMs);
+                return Optional.ofNullable(row.get());
+            });
+            when(repository.save(any(PaymentReference.class))).thenAnswer(invocation -> {
+                pause(roundTripMs);
+                row.set(invocation.getArgument(0));
+                return invocation.getArgument(0);
+            });
+            return new PaymentReferenceService(repository, new PlatformTransactionManager() {
+                @Override
+                public TransactionStatus getTransaction(TransactionDefinition definition) {
+                    return new SimpleTransactionStatus();
+                }
+
+                @Override
+                public void commit(TransactionStatus status) {
+                    pause(roundTripMs);
+                    rowLock.unlock();
+                }
+
+                @Override
+                public void rollback(TransactionStatus status) {
+                    rowLock.unlock();
+                }
+            }, blockSize);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package uk.gov.hmcts.bar.api.integration.payhub.service;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import uk.gov.hmcts.bar.api.data.TestUtils;
+import uk.gov.hmcts.bar.api.data.model.BarUser;
+import uk.gov.hmcts.bar.api.data.model.PaymentType;
+import uk.gov.hmcts.bar.api.data.service.PaymentInstructionStatsCache;
+import uk.gov.hmcts.bar.api.integration.payhub.data.PayhubPaymentInstruction;
+import uk.gov.hmcts.bar.api.integration.payhub.repository.PayhubResultRepository;
+import uk.gov.hmcts.reform.authorisation.generators.AuthTokenGenerator;
+
+import javax.persistence.EntityManager;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Measures how many payment instructions per second send-to-payhub gets through against a local PayHub stub with a
+ * fixed response latency, for a range of dispatch parallelism settings. Run it with
+ * {@code ./gradlew :bar-api:jmh -Pjmh.include=PayHubDispatchBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class PayHubDispatchBenchmark {
+
+    private static final int INSTRUCTIONS = 200;
+
+    @Param({"1", "2", "4", "8", "16"})
+    public int parallelism;
+
+    @Param({"50"})
+    public int latencyMs;
+
+    private WireMockServer payHub;
+    private CloseableHttpClient httpClient;
+    private PayHubDispatcher dispatcher;
+    private PayHubService payHubService;
+    private BarUser barUser;
+    private List<PayhubPaymentInstruction> paymentInstructions;
+
+    @Setup(Level.Trial)
+    public void startPayHub() {
+        payHub = new WireMockServer(options().dynamicPort());
+        payHub.start();
+        payHub.stubFor(post(urlPathEqualTo("/payment-records"))
+            .willReturn(aResponse()
+                .withStatus(201)
+                .withFixedDelay(latencyMs)
+                .withHeader("Content-Type", "application/json")
+                .withBody("{\"reference\": \"RC-1534-8634-8352-6509\", \"payment_group_reference\": \"2018-15348634835\"}")));
+
+        barUser = BarUser.builder().id("54321").email("dm@hmcts.net").build();
+        AuthTokenGenerator tokenGenerator = mock(AuthTokenGenerator.class);
+        when(tokenGenerator.generate()).thenReturn("this_is_a_one_time_password");
+
+        httpClient = HttpClientBuilder.create().setMaxConnPerRoute(32).setMaxConnTotal(32).build();
+        dispatcher = new PayHubDispatcher(parallelism);
+        payHubService = new PayHubService(tokenGenerator, httpClient, "http://localhost:" + payHub.port(),
+            mock(EntityManager.class), CircuitBreakerRegistry.ofDefaults(), new SimpleMeterRegistry(), dispatcher,
+            mock(PayhubResultRepository.class), mock(PaymentInstructionStatsCache.class));
+    }
+
+    @Setup(Level.Invocation)
+    public void createPaymentInstructions() {
+        paymentInstructions = new ArrayList<>(INSTRUCTIONS);
+        for (int i = 1; i <= INSTRUCTIONS; i++) {
+            PayhubPaymentInstruction paymentInstruction = TestUtils.createSamplePayhuPaymentInstruction(10000, new int[][] {{10000, 0, 0}});
+            paymentInstruction.setId(i);
+            paymentInstruction.setPaymentType(new PaymentType("CASH", "Cash"));
+            paymentInstruction.setStatus("TTB");
+            paymentInstruction.setSiteId("Y431");
+            paymentInstruction.setDailySequenceId(String.format("13A%04d", i));
+            paymentInstructions.add(paymentInstruction);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stopPayHub() throws InterruptedException, IOException {
+        dispatcher.destroy();
+        httpClient.close();
+        payHub.stop();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(INSTRUCTIONS)
+    public PayHubResponseReport sendToPayHub() {
+        return payHubService.sendToPayHub(barUser, "1234ABCD", LocalDateTime.now(), paymentInstructions,
+            Collections.emptyList());
+    }
+}
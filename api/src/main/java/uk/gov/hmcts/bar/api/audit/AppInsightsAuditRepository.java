@@ -17,15 +17,16 @@ import java.util.Map;
 @Component
 public class AppInsightsAuditRepository implements AuditRepository{
 
-    private final TelemetryClient telemetry;
+    private final AuditEventDispatcher dispatcher;
 
 
     @Autowired
     public AppInsightsAuditRepository(@Value("${azure.application-insights.instrumentation-key}") String instrumentationKey,
-                                      TelemetryClient telemetry) {
+                                      TelemetryClient telemetry,
+                                      AuditEventDispatcher dispatcher) {
         TelemetryConfiguration.getActive().setInstrumentationKey(instrumentationKey);
         telemetry.getContext().getComponent().setVersion(getClass().getPackage().getImplementationVersion());
-        this.telemetry = telemetry;
+        this.dispatcher = dispatcher;
     }
 
     public void trackPaymentInstructionEvent(String name, PaymentInstruction paymentInstruction, BarUser barUser){
@@ -47,7 +48,7 @@ public class AppInsightsAuditRepository implements AuditRepository{
             properties.put("BGC Number",paymentInstruction.getBgcNumber());
         }
 
-        telemetry.trackEvent(name, ImmutableMap.copyOf(properties),null);
+        dispatcher.submit(new AuditEvent(name, ImmutableMap.copyOf(properties)));
     }
 
     public void trackCaseEvent(String name, CaseFeeDetailRequest caseFeeDetailRequest, BarUser barUser){
@@ -57,12 +58,12 @@ public class AppInsightsAuditRepository implements AuditRepository{
             .put("Case reference", caseFeeDetailRequest.getCaseReference())
             .put("Fee code", caseFeeDetailRequest.getFeeCode())
             .build();
-        telemetry.trackEvent(name, properties,null);
+        dispatcher.submit(new AuditEvent(name, properties));
     }
 
     @Override
     public void trackEvent(String name, Map<String, String> properties) {
-        telemetry.trackEvent(name, properties,null);
+        dispatcher.submit(new AuditEvent(name, new HashMap<>(properties)));
     }
 
 }
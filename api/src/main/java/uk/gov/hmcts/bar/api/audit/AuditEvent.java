@@ -0,0 +1,21 @@
+package uk.gov.hmcts.bar.api.audit;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.Map;
+
+/**
+ * Telemetry event captured on the request thread, its properties are already resolved so it can be published later
+ * without touching any entity.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class AuditEvent {
+
+    private final String name;
+
+    private final Map<String, String> properties;
+}
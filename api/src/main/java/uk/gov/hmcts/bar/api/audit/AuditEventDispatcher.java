@@ -0,0 +1,130 @@
+package uk.gov.hmcts.bar.api.audit;
+
+import com.microsoft.applicationinsights.TelemetryClient;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hands audit events over to Application Insights off the request thread. Events are kept in a bounded queue and
+ * passed to the telemetry client by a single dedicated thread; the client's channel buffers them and does the actual
+ * batching on the wire. When the queue is full or the dispatcher is closed the event is dropped and counted
+ * (bar.audit.events{result=dropped}) rather than slowing down the caller. On shutdown whatever is still queued is
+ * published, or counted as dropped when the dispatcher did not stop in time, and the telemetry channel is flushed.
+ */
+@Slf4j
+@Component
+public class AuditEventDispatcher implements DisposableBean {
+
+    private static final long POLL_TIMEOUT_MS = 500;
+
+    private final TelemetryClient telemetry;
+    private final BlockingQueue<AuditEvent> queue;
+    private final int batchSize;
+    private final long shutdownTimeoutMs;
+    private final ExecutorService executor;
+    private final Counter published;
+    private final Counter dropped;
+    private final Counter failed;
+
+    private volatile boolean running = true;
+
+    @Autowired
+    public AuditEventDispatcher(TelemetryClient telemetry,
+                                MeterRegistry meterRegistry,
+                                @Value("${audit.queue.capacity:10000}") int capacity,
+                                @Value("${audit.batch-size:100}") int batchSize,
+                                @Value("${audit.shutdown-timeout-ms:5000}") long shutdownTimeoutMs) {
+        this.telemetry = telemetry;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.shutdownTimeoutMs = shutdownTimeoutMs;
+        this.published = meterRegistry.counter("bar.audit.events", "result", "published");
+        this.dropped = meterRegistry.counter("bar.audit.events", "result", "dropped");
+        this.failed = meterRegistry.counter("bar.audit.events", "result", "failed");
+        meterRegistry.gaugeCollectionSize("bar.audit.queue.size", Collections.emptyList(), queue);
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "audit-dispatcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor.execute(this::dispatchLoop);
+    }
+
+    public void submit(AuditEvent event) {
+        if (!running || !queue.offer(event)) {
+            drop(event);
+        } else if (!running && queue.remove(event)) {
+            // closed while the event went in and the final drain has missed it
+            drop(event);
+        }
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        running = false;
+        executor.shutdown();
+        boolean finished = executor.awaitTermination(shutdownTimeoutMs, TimeUnit.MILLISECONDS);
+        if (!finished) {
+            executor.shutdownNow();
+        }
+        List<AuditEvent> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (finished) {
+            publish(remaining);
+        } else if (!remaining.isEmpty()) {
+            log.warn("Audit dispatcher did not finish in {} ms, {} events are lost", shutdownTimeoutMs, remaining.size());
+            dropped.increment(remaining.size());
+        }
+        telemetry.flush();
+    }
+
+    private void drop(AuditEvent event) {
+        dropped.increment();
+        log.debug("Audit queue is full or closed, dropping event {}", event.getName());
+    }
+
+    private void dispatchLoop() {
+        List<AuditEvent> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                AuditEvent first = queue.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - 1);
+                    publish(batch);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void publish(List<AuditEvent> batch) {
+        for (AuditEvent event : batch) {
+            try {
+                telemetry.trackEvent(event.getName(), event.getProperties(), null);
+                published.increment();
+            } catch (RuntimeException e) {
+                failed.increment();
+                log.warn("Failed to publish audit event {}", event.getName(), e);
+            }
+        }
+    }
+}
@@ -1,13 +1,14 @@
 package uk.gov.hmcts.bar.api.audit;
 
-import org.springframework.scheduling.annotation.Async;
 import uk.gov.hmcts.bar.api.data.model.BarUser;
 import uk.gov.hmcts.bar.api.data.model.CaseFeeDetailRequest;
 import uk.gov.hmcts.bar.api.data.model.PaymentInstruction;
 
 import java.util.Map;
 
-@Async
+/**
+ * Records audit events. Implementations must not block the caller, the events are published asynchronously.
+ */
 public interface AuditRepository {
 
 
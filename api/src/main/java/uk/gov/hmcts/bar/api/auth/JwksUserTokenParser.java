@@ -0,0 +1,129 @@
+package uk.gov.hmcts.bar.api.auth;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.source.DefaultJWKSetCache;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.jwk.source.RemoteJWKSet;
+import com.nimbusds.jose.proc.BadJOSEException;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jose.util.DefaultResourceRetriever;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.proc.ConfigurableJWTProcessor;
+import com.nimbusds.jwt.proc.DefaultJWTClaimsVerifier;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import uk.gov.hmcts.reform.auth.parser.idam.core.user.token.UserTokenParser;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Resolves signed IDAM tokens locally, verifying the signature against IDAM's published keys and reading the user
+ * from the claims. Only tokens issued by the configured issuer, and for the configured audience when one is set, are
+ * resolved locally. Tokens that cannot be verified or that don't carry the user's id and roles are resolved by the
+ * remote parser. A locally resolved token is trusted until it expires, IDAM is not asked whether it has been revoked.
+ */
+public class JwksUserTokenParser implements UserTokenParser<UserTokenDetails> {
+
+    public static final String METRIC_NAME = "bar.auth.token.resolutions";
+    public static final String LOCAL = "local";
+    public static final String REMOTE = "remote";
+
+    private static final Logger LOG = getLogger(JwksUserTokenParser.class);
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private final ConfigurableJWTProcessor<SecurityContext> jwtProcessor;
+    private final UserTokenParser<UserTokenDetails> remoteParser;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * @param issuer   the issuer a token must name to be resolved locally
+     * @param audience the audience a token must be for to be resolved locally, not checked when blank
+     */
+    public JwksUserTokenParser(JWKSource<SecurityContext> keySource,
+                               String issuer,
+                               String audience,
+                               UserTokenParser<UserTokenDetails> remoteParser,
+                               MeterRegistry meterRegistry) {
+        if (StringUtils.isBlank(issuer)) {
+            throw new IllegalArgumentException("the issuer of IDAM tokens must be set to resolve them locally");
+        }
+        boolean audienceChecked = StringUtils.isNotBlank(audience);
+        Set<String> requiredClaims = new HashSet<>(Arrays.asList("exp", "iss"));
+        if (audienceChecked) {
+            requiredClaims.add("aud");
+        }
+        this.jwtProcessor = new DefaultJWTProcessor<>();
+        this.jwtProcessor.setJWSKeySelector(new JWSVerificationKeySelector<>(JWSAlgorithm.RS256, keySource));
+        this.jwtProcessor.setJWTClaimsSetVerifier(new DefaultJWTClaimsVerifier<>(
+            audienceChecked ? Collections.singleton(audience) : null,
+            new JWTClaimsSet.Builder().issuer(issuer).build(),
+            requiredClaims,
+            null));
+        this.remoteParser = remoteParser;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * IDAM's key set, refetched in the background of a lookup once older than refreshAfter and straight away when a
+     * token is signed with a key it doesn't know yet.
+     */
+    public static JWKSource<SecurityContext> remoteKeySource(String jwksUrl, Duration lifespan, Duration refreshAfter,
+                                                             Duration timeout) {
+        try {
+            int timeoutMillis = (int) timeout.toMillis();
+            return new RemoteJWKSet<>(new URL(jwksUrl),
+                new DefaultResourceRetriever(timeoutMillis, timeoutMillis),
+                new DefaultJWKSetCache(lifespan.getSeconds(), refreshAfter.getSeconds(), TimeUnit.SECONDS));
+        } catch (MalformedURLException e) {
+            throw new IllegalArgumentException("invalid jwks url: " + jwksUrl, e);
+        }
+    }
+
+    @Override
+    public UserTokenDetails parse(String jwt) {
+        UserTokenDetails details = parseLocally(jwt);
+        if (details != null) {
+            meterRegistry.counter(METRIC_NAME, "source", LOCAL).increment();
+            return details;
+        }
+        meterRegistry.counter(METRIC_NAME, "source", REMOTE).increment();
+        return remoteParser.parse(jwt);
+    }
+
+    private UserTokenDetails parseLocally(String jwt) {
+        String token = jwt.startsWith(BEARER_PREFIX) ? jwt.substring(BEARER_PREFIX.length()) : jwt;
+        try {
+            JWTClaimsSet claims = jwtProcessor.process(token, null);
+            String id = claims.getStringClaim("uid");
+            List<String> roles = claims.getStringListClaim("roles");
+            if (id == null || roles == null) {
+                return null;
+            }
+            return UserTokenDetails.builder()
+                .id(id)
+                .roles(new HashSet<>(roles))
+                .email(claims.getSubject())
+                .forename(claims.getStringClaim("given_name"))
+                .surname(claims.getStringClaim("family_name"))
+                .build();
+        } catch (ParseException | BadJOSEException | JOSEException e) {
+            LOG.debug("Token can not be resolved locally: {}", e.getMessage());
+            return null;
+        }
+    }
+}
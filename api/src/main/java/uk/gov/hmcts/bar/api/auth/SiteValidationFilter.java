@@ -9,6 +9,7 @@ import org.springframework.util.AntPathMatcher;
 import org.springframework.web.filter.GenericFilterBean;
 import uk.gov.hmcts.bar.api.data.model.BarUser;
 import uk.gov.hmcts.bar.api.data.service.BarUserService;
+import uk.gov.hmcts.bar.multisite.service.SiteMembershipResolver;
 
 import javax.servlet.*;
 import javax.servlet.http.HttpServletRequest;
@@ -21,16 +22,24 @@ import java.util.Arrays;
 @Order(Ordered.LOWEST_PRECEDENCE)
 public class SiteValidationFilter extends GenericFilterBean {
 
+    /**
+     * Request attribute holding the site the user has been validated against, only set for accepted requests.
+     */
+    public static final String VALIDATED_SITE_ATTRIBUTE = SiteValidationFilter.class.getName() + ".site";
+
     private final BarUserService barUserService;
 
+    private final SiteMembershipResolver siteMembershipResolver;
+
     private static final String[] excludeUrlPatterns = {"/swagger-ui.html", "/webjars/springfox-swagger-ui/**", "/swagger-resources/**",
-        "/v2/**", "/health","/health/liveness", "/health/readiness", "/payment-types", "/info", "/sites/**"};
+        "/v2/**", "/health","/health/liveness", "/health/readiness", "/payment-types", "/info", "/metrics", "/metrics/**", "/prometheus", "/sites/**"};
 
     private static AntPathMatcher pathMatcher = new AntPathMatcher();
 
     @Autowired
-    public SiteValidationFilter(BarUserService barUserService) {
+    public SiteValidationFilter(BarUserService barUserService, SiteMembershipResolver siteMembershipResolver) {
         this.barUserService = barUserService;
+        this.siteMembershipResolver = siteMembershipResolver;
     }
 
     @Override
@@ -43,10 +52,10 @@ public class SiteValidationFilter extends GenericFilterBean {
         }
         try {
             BarUser barUser = barUserService.getBarUser().orElseThrow(() -> new UserValidationException("Failed to retrieve authenticated user"));
-            String authHeader = httpServletRequest.getHeader("Authorization");
             String siteId = httpServletRequest.getHeader("SiteId");
-            if (barUserService.validateUserAgainstSite(barUser.getEmail(), authHeader, siteId)) {
+            if (siteMembershipResolver.isUserAssignedToSite(siteId, barUser.getEmail())) {
                 barUser.setSelectedSiteId(siteId);
+                request.setAttribute(VALIDATED_SITE_ATTRIBUTE, siteId);
                 chain.doFilter(new BarWrappedHttpRequest(((HttpServletRequest) request), barUser), response);
             } else {
                 throw new UserValidationException("Failed to validate user against the given site");
@@ -0,0 +1,18 @@
+package uk.gov.hmcts.bar.api.cache;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "bar.cache")
+public class BarCacheProperties {
+
+    private Map<String, CacheSpec> specs = new LinkedHashMap<>();
+
+    public CacheSpec getSpec(String cacheName) {
+        return specs.getOrDefault(cacheName, new CacheSpec());
+    }
+}
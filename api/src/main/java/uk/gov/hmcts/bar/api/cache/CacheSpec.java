@@ -0,0 +1,31 @@
+package uk.gov.hmcts.bar.api.cache;
+
+import lombok.Data;
+
+import java.time.Duration;
+
+/**
+ * Sizing and expiry settings of a single named cache, bound from bar.cache.specs.&lt;name&gt;.*
+ */
+@Data
+public class CacheSpec {
+
+    private long maximumSize = 1000;
+
+    private Duration expireAfterWrite;
+
+    private Duration expireAfterAccess;
+
+    /**
+     * Entries older than this are reloaded in the background on the next read, the stale value is served meanwhile.
+     * Only applies to reads that supply a value loader ({@code Cache.get(key, Callable)} or {@code @Cacheable(sync = true)}).
+     */
+    private Duration refreshAfterWrite;
+
+    private boolean allowNullValues = false;
+
+    /**
+     * How long a cached null (negative) result stays valid, when null values are allowed.
+     */
+    private Duration expireNullValuesAfter;
+}
@@ -0,0 +1,171 @@
+package uk.gov.hmcts.bar.api.cache;
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+import org.springframework.cache.support.NullValue;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Spring {@link org.springframework.cache.Cache} on top of a bounded Guava cache. Besides size and expiry limits it
+ * supports refresh-ahead for loader based reads and a separate, usually shorter, lifetime for cached null results.
+ */
+@Slf4j
+public class GuavaCache extends AbstractValueAdaptingCache {
+
+    private final String name;
+    private final Cache<Object, CacheEntry> store;
+    private final Ticker ticker;
+    private final Executor refreshExecutor;
+    private final long refreshAfterWriteNanos;
+    private final long expireNullValuesAfterNanos;
+    private final Set<Object> refreshing = ConcurrentHashMap.newKeySet();
+
+    public GuavaCache(String name, CacheSpec spec) {
+        this(name, spec, ForkJoinPool.commonPool(), Ticker.systemTicker());
+    }
+
+    public GuavaCache(String name, CacheSpec spec, Executor refreshExecutor, Ticker ticker) {
+        super(spec.isAllowNullValues());
+        this.name = name;
+        this.ticker = ticker;
+        this.refreshExecutor = refreshExecutor;
+        this.refreshAfterWriteNanos = toNanos(spec.getRefreshAfterWrite());
+        this.expireNullValuesAfterNanos = toNanos(spec.getExpireNullValuesAfter());
+
+        CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder()
+            .maximumSize(spec.getMaximumSize())
+            .ticker(ticker)
+            .recordStats();
+        if (spec.getExpireAfterWrite() != null) {
+            builder.expireAfterWrite(spec.getExpireAfterWrite().toNanos(), TimeUnit.NANOSECONDS);
+        }
+        if (spec.getExpireAfterAccess() != null) {
+            builder.expireAfterAccess(spec.getExpireAfterAccess().toNanos(), TimeUnit.NANOSECONDS);
+        }
+        this.store = builder.build();
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Cache<?, ?> getNativeCache() {
+        return store;
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        CacheEntry entry = store.getIfPresent(key);
+        if (entry == null) {
+            return null;
+        }
+        if (isExpiredNullValue(entry)) {
+            store.asMap().remove(key, entry);
+            return null;
+        }
+        return entry.value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        CacheEntry entry = store.asMap().get(key);
+        if (entry != null && isExpiredNullValue(entry)) {
+            store.asMap().remove(key, entry);
+        }
+        try {
+            entry = store.get(key, () -> newEntry(valueLoader.call()));
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            throw new ValueRetrievalException(key, valueLoader, e.getCause());
+        }
+        if (refreshAfterWriteNanos > 0 && age(entry) >= refreshAfterWriteNanos) {
+            refreshInBackground(key, entry, valueLoader);
+        }
+        return (T) fromStoreValue(entry.value);
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        store.put(key, newEntry(value));
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        CacheEntry existing = store.asMap().putIfAbsent(key, newEntry(value));
+        return existing == null ? null : toValueWrapper(existing.value);
+    }
+
+    @Override
+    public void evict(Object key) {
+        store.invalidate(key);
+    }
+
+    @Override
+    public void clear() {
+        store.invalidateAll();
+    }
+
+    /**
+     * Reloads the entry and swaps it in only if the stale entry is still the cached one, so a refresh that was under
+     * way when the key got evicted or rewritten does not bring its value back.
+     */
+    private void refreshInBackground(Object key, CacheEntry stale, Callable<?> valueLoader) {
+        if (!refreshing.add(key)) {
+            return;
+        }
+        refreshExecutor.execute(() -> {
+            try {
+                Object value = valueLoader.call();
+                if (value == null && !isAllowNullValues()) {
+                    store.asMap().remove(key, stale);
+                } else {
+                    store.asMap().replace(key, stale, newEntry(value));
+                }
+            } catch (Exception e) {
+                log.warn("Failed to refresh entry of cache {}, keeping the current value until it expires", name, e);
+            } finally {
+                refreshing.remove(key);
+            }
+        });
+    }
+
+    private CacheEntry newEntry(Object value) {
+        return new CacheEntry(toStoreValue(value), ticker.read());
+    }
+
+    private boolean isExpiredNullValue(CacheEntry entry) {
+        return entry.value == NullValue.INSTANCE && expireNullValuesAfterNanos > 0 && age(entry) >= expireNullValuesAfterNanos;
+    }
+
+    private long age(CacheEntry entry) {
+        return ticker.read() - entry.writtenAt;
+    }
+
+    private static long toNanos(Duration duration) {
+        return duration == null ? 0 : duration.toNanos();
+    }
+
+    private static final class CacheEntry {
+        private final Object value;
+        private final long writtenAt;
+
+        private CacheEntry(Object value, long writtenAt) {
+            this.value = value;
+            this.writtenAt = writtenAt;
+        }
+    }
+}
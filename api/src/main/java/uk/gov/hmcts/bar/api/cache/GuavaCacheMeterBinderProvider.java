@@ -0,0 +1,17 @@
+package uk.gov.hmcts.bar.api.cache;
+
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import org.springframework.boot.actuate.metrics.cache.CacheMeterBinderProvider;
+
+/**
+ * Lets the actuator cache metrics registrar publish size, hit, miss and eviction counts of every {@link GuavaCache}.
+ */
+public class GuavaCacheMeterBinderProvider implements CacheMeterBinderProvider<GuavaCache> {
+
+    @Override
+    public MeterBinder getMeterBinder(GuavaCache cache, Iterable<Tag> tags) {
+        return new GuavaCacheMetrics(cache.getNativeCache(), cache.getName(), tags);
+    }
+}
@@ -1,12 +1,11 @@
 package uk.gov.hmcts.bar.api.configuration;
 
-import org.apache.http.client.config.RequestConfig;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClientBuilder;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
-import org.springframework.cache.concurrent.ConcurrentMapCache;
 import org.springframework.cache.support.SimpleCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -16,39 +15,82 @@ import org.springframework.http.converter.HttpMessageConverter;
 import org.springframework.plugin.core.OrderAwarePluginRegistry;
 import org.springframework.plugin.core.PluginRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import uk.gov.hmcts.bar.api.cache.BarCacheProperties;
+import uk.gov.hmcts.bar.api.cache.GuavaCache;
+import uk.gov.hmcts.bar.api.cache.GuavaCacheMeterBinderProvider;
 import uk.gov.hmcts.bar.api.converters.PaymentInstructionsCsvConverter;
+import uk.gov.hmcts.bar.api.converters.StatusDisplayValueFilter;
+import uk.gov.hmcts.bar.api.data.repository.SqlDialect;
+import uk.gov.hmcts.bar.api.integration.http.HttpClientProperties;
+import uk.gov.hmcts.bar.api.integration.http.PooledHttpClientFactory;
 
+import javax.sql.DataSource;
 import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Configuration
 @EnableCaching
+@EnableConfigurationProperties({BarCacheProperties.class, HttpClientProperties.class})
 public class AppConfig implements WebMvcConfigurer {
 
+    /**
+     * Caches the application looks up by name, they are created with default settings when not configured.
+     */
+    private static final List<String> REQUIRED_CACHES = Arrays.asList("barusers", "paymentTypes", "siteMembership",
+        "paymentInstructionStats");
+
+    private static final String PAYHUB_POOL = "payhub";
+    private static final String IDAM_POOL = "idam";
+
     @Override
     public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
         converters.add(new PaymentInstructionsCsvConverter());
     }
 
     @Bean
-    public CloseableHttpClient httpClient(@Value("${http.client.timeout}") int timeout) {
-        RequestConfig config = RequestConfig.custom()
-            .setConnectTimeout(timeout * 1000)
-            .setConnectionRequestTimeout(timeout * 1000)
-            .setSocketTimeout(timeout * 1000).build();
-        return HttpClientBuilder.create().setDefaultRequestConfig(config).build();
+    public Jackson2ObjectMapperBuilderCustomizer statusFilterCustomizer() {
+        return builder -> builder.filters(StatusDisplayValueFilter.STATUS_CODES);
+    }
+
+    @Bean
+    public PooledHttpClientFactory pooledHttpClientFactory(HttpClientProperties httpClientProperties, MeterRegistry meterRegistry) {
+        return new PooledHttpClientFactory(httpClientProperties, meterRegistry);
     }
 
     @Bean
-    public CacheManager cacheManager() {
+    public CloseableHttpClient payHubHttpClient(PooledHttpClientFactory pooledHttpClientFactory) {
+        return pooledHttpClientFactory.create(PAYHUB_POOL);
+    }
+
+    @Bean
+    public CloseableHttpClient idamHttpClient(PooledHttpClientFactory pooledHttpClientFactory) {
+        return pooledHttpClientFactory.create(IDAM_POOL);
+    }
+
+    @Bean
+    public CacheManager cacheManager(BarCacheProperties cacheProperties) {
+        Set<String> cacheNames = new LinkedHashSet<>(REQUIRED_CACHES);
+        cacheNames.addAll(cacheProperties.getSpecs().keySet());
         SimpleCacheManager cacheManager = new SimpleCacheManager();
-        cacheManager.setCaches(Arrays.asList(
-            new ConcurrentMapCache("barusers"),
-            new ConcurrentMapCache("paymentTypes")
-        ));
+        cacheManager.setCaches(cacheNames.stream()
+            .map(name -> new GuavaCache(name, cacheProperties.getSpec(name)))
+            .collect(Collectors.toList()));
         return cacheManager;
     }
 
+    @Bean
+    public SqlDialect sqlDialect(DataSource dataSource) {
+        return SqlDialect.of(dataSource);
+    }
+
+    @Bean
+    public GuavaCacheMeterBinderProvider guavaCacheMeterBinderProvider() {
+        return new GuavaCacheMeterBinderProvider();
+    }
+
     @Bean
     public PluginRegistry<LinkDiscoverer, MediaType> discoverers(
         OrderAwarePluginRegistry<LinkDiscoverer, MediaType> relProviderPluginRegistry) {
@@ -1,13 +1,17 @@
 package uk.gov.hmcts.bar.api.configuration;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.apache.http.client.HttpClient;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
+import uk.gov.hmcts.bar.api.auth.JwksUserTokenParser;
 import uk.gov.hmcts.bar.api.auth.UserResolver;
 import uk.gov.hmcts.bar.api.auth.UserTokenDetails;
 import uk.gov.hmcts.bar.api.data.service.BarUserService;
+import uk.gov.hmcts.bar.api.metrics.TimedUserTokenParser;
 import uk.gov.hmcts.reform.auth.checker.core.CachingSubjectResolver;
 import uk.gov.hmcts.reform.auth.checker.core.SubjectResolver;
 import uk.gov.hmcts.reform.auth.checker.core.user.User;
@@ -18,6 +22,7 @@ import uk.gov.hmcts.reform.auth.parser.idam.core.user.token.HttpComponentsBasedU
 import uk.gov.hmcts.reform.auth.parser.idam.core.user.token.UserTokenParser;
 
 import javax.servlet.http.HttpServletRequest;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
@@ -38,9 +43,24 @@ public class AuthCheckerConfiguration {
     }
 
     @Bean
-    public UserTokenParser<UserTokenDetails> fullUserTokenParser(HttpClient userTokenParserHttpClient,
-                                                                 @Value("${auth.idam.client.baseUrl}") String baseUrl) {
-        return new HttpComponentsBasedUserTokenParser<>(userTokenParserHttpClient, baseUrl, UserTokenDetails.class);
+    public UserTokenParser<UserTokenDetails> fullUserTokenParser(@Qualifier("idamHttpClient") HttpClient idamHttpClient,
+                                                                 @Value("${auth.idam.client.baseUrl}") String baseUrl,
+                                                                 @Value("${auth.idam.jwks.enabled:false}") boolean jwksEnabled,
+                                                                 @Value("${auth.idam.jwks.url:}") String jwksUrl,
+                                                                 @Value("${auth.idam.jwks.lifespan:24h}") Duration jwksLifespan,
+                                                                 @Value("${auth.idam.jwks.refresh-after:1h}") Duration jwksRefreshAfter,
+                                                                 @Value("${auth.idam.jwks.timeout:2s}") Duration jwksTimeout,
+                                                                 @Value("${auth.idam.jwks.issuer:}") String jwksIssuer,
+                                                                 @Value("${auth.idam.jwks.audience:}") String jwksAudience,
+                                                                 MeterRegistry meterRegistry) {
+        UserTokenParser<UserTokenDetails> remoteParser = new TimedUserTokenParser<>(
+            new HttpComponentsBasedUserTokenParser<>(idamHttpClient, baseUrl, UserTokenDetails.class), meterRegistry);
+        if (!jwksEnabled) {
+            return remoteParser;
+        }
+        return new JwksUserTokenParser(
+            JwksUserTokenParser.remoteKeySource(jwksUrl, jwksLifespan, jwksRefreshAfter, jwksTimeout),
+            jwksIssuer, jwksAudience, remoteParser, meterRegistry);
     }
 
     @Bean
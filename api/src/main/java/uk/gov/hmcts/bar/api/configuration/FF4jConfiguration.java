@@ -1,9 +1,12 @@
 package uk.gov.hmcts.bar.api.configuration;
 
 import org.ff4j.FF4j;
+import org.ff4j.cache.FF4JCacheManager;
+import org.ff4j.cache.InMemoryCacheManager;
 import org.ff4j.springjdbc.store.FeatureStoreSpringJdbc;
 import org.ff4j.web.ApiConfig;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
@@ -22,22 +25,38 @@ public class FF4jConfiguration {
     DataSource dataSource;
 
     @Bean
-    public FF4j getFf4j() {
+    public FF4JCacheManager ff4jCacheManager() {
+        return new InMemoryCacheManager();
+    }
+
+    @Bean
+    public FeatureCacheRefresher featureCacheRefresher(FF4JCacheManager ff4jCacheManager,
+                                                       @Value("${ff4j.cache.refresh-interval-ms:5000}") long refreshIntervalMs) {
+        return new FeatureCacheRefresher(ff4jCacheManager, refreshIntervalMs);
+    }
+
+    /**
+     * Feature checks are served from memory, the database is only read again when a feature has been toggled or the
+     * cache has been refreshed.
+     */
+    @Bean
+    public FF4j getFf4j(FF4JCacheManager ff4jCacheManager) {
 
         FF4j ff4j = new FF4j();
         FeatureStoreSpringJdbc featureStore= new FeatureStoreSpringJdbc();
         featureStore.setDataSource(dataSource);
         ff4j.setFeatureStore(featureStore);
         ff4j.autoCreate(true);
+        ff4j.cache(ff4jCacheManager);
         return ff4j;
     }
 
     @Bean
-    public ApiConfig getApiConfig() {
+    public ApiConfig getApiConfig(FF4j ff4j) {
         ApiConfig apiConfig = new ApiConfig();
 
         apiConfig.setWebContext("/api");
-        apiConfig.setFF4j(getFf4j());
+        apiConfig.setFF4j(ff4j);
         return apiConfig;
     }
 
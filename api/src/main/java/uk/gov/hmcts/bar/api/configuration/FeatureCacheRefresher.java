@@ -0,0 +1,37 @@
+package uk.gov.hmcts.bar.api.configuration;
+
+import org.ff4j.cache.FF4JCacheManager;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drops the cached feature flags every refresh interval so that a toggle made on another instance, or straight in the
+ * database, is picked up within the interval. Toggles made through this instance's FF4j API evict the cache at once.
+ */
+public class FeatureCacheRefresher implements DisposableBean {
+
+    private final FF4JCacheManager cacheManager;
+    private final ScheduledExecutorService executor;
+
+    public FeatureCacheRefresher(FF4JCacheManager cacheManager, long refreshIntervalMs) {
+        this.cacheManager = cacheManager;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ff4j-cache-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor.scheduleWithFixedDelay(this::refresh, refreshIntervalMs, refreshIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    public void refresh() {
+        cacheManager.clearFeatures();
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,12 @@
+package uk.gov.hmcts.bar.api.controllers.errors;
+
+import lombok.Data;
+
+/**
+ * An error with one item of a bulk request, the index being the item's position in the request.
+ */
+@Data
+public class ItemError {
+    private final int index;
+    private final String message;
+}
@@ -1,5 +1,6 @@
 package uk.gov.hmcts.bar.api.controllers.payment;
 
+import com.google.common.collect.ImmutableMap;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
 import io.swagger.annotations.ApiResponse;
@@ -13,23 +14,41 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.WebDataBinder;
 import org.springframework.web.bind.annotation.*;
 import uk.gov.hmcts.bar.api.auth.BarWrappedHttpRequest;
+import uk.gov.hmcts.bar.api.controllers.errors.Error;
+import uk.gov.hmcts.bar.api.controllers.errors.ItemError;
+import uk.gov.hmcts.bar.api.converters.PaymentInstructionsCsvConverter;
+import uk.gov.hmcts.bar.api.converters.PaymentInstructionsCsvWriter;
+import uk.gov.hmcts.bar.api.converters.StatusDisplayValues;
 import uk.gov.hmcts.bar.api.data.enums.PaymentStatusEnum;
 import uk.gov.hmcts.bar.api.data.exceptions.PaymentProcessException;
 import uk.gov.hmcts.bar.api.data.model.*;
 import uk.gov.hmcts.bar.api.data.service.*;
 import uk.gov.hmcts.bar.api.data.utils.PaymentStatusEnumConverter;
 import uk.gov.hmcts.bar.api.data.utils.Util;
-import uk.gov.hmcts.bar.api.integration.payhub.service.PayHubService;
+import uk.gov.hmcts.bar.api.integration.payhub.service.PayHubJobService;
 import uk.gov.hmcts.reform.auth.checker.core.user.UserRequestAuthorizer;
 
+import javax.servlet.http.HttpServletResponse;
+import javax.validation.ConstraintViolation;
 import javax.validation.Valid;
+import javax.validation.Validator;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.*;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
@@ -40,6 +59,19 @@ import static org.springframework.hateoas.EntityModel.of;
 @Validated
 public class PaymentInstructionController {
 
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    public static final int MAX_BULK_SIZE = 200;
+
+    private static final Map<Class<? extends PaymentInstructionRequest>, Function<PaymentInstructionRequest, PaymentInstruction>> BULK_CONVERTERS =
+        ImmutableMap.<Class<? extends PaymentInstructionRequest>, Function<PaymentInstructionRequest, PaymentInstruction>>builder()
+            .put(Cash.class, item -> toCashInstruction((Cash) item))
+            .put(Card.class, item -> toCardInstruction((Card) item))
+            .put(Cheque.class, item -> toChequeInstruction((Cheque) item))
+            .put(PostalOrder.class, item -> toPostalOrderInstruction((PostalOrder) item))
+            .put(AllPay.class, item -> toAllPayInstruction((AllPay) item))
+            .build();
+
     private final PaymentInstructionService paymentInstructionService;
 
     private final CaseFeeDetailService caseFeeDetailService;
@@ -48,23 +80,27 @@ public class PaymentInstructionController {
 
     private final BarUserService barUserService;
 
-    private final PayHubService payHubService;
+    private final PayHubJobService payHubJobService;
 
     private final FullRemissionService fullRemissionService;
 
+    private final Validator validator;
+
     @Autowired
     public PaymentInstructionController(PaymentInstructionService paymentInstructionService,
                                         CaseFeeDetailService caseFeeDetailService,
                                         UnallocatedAmountService unallocatedAmountService,
                                         BarUserService barUserService,
-                                        PayHubService payHubService,
-                                        FullRemissionService fullRemissionService) {
+                                        PayHubJobService payHubJobService,
+                                        FullRemissionService fullRemissionService,
+                                        Validator validator) {
         this.paymentInstructionService = paymentInstructionService;
         this.caseFeeDetailService = caseFeeDetailService;
         this.unallocatedAmountService = unallocatedAmountService;
         this.barUserService = barUserService;
-        this.payHubService = payHubService;
+        this.payHubJobService = payHubJobService;
         this.fullRemissionService = fullRemissionService;
+        this.validator = validator;
     }
 
     @ApiOperation(value = "Get all current payment instructions", notes = "Get all current payment instructions for a given site.",
@@ -73,6 +109,7 @@ public class PaymentInstructionController {
         @ApiResponse(code = 404, message = "Payment instructions not found"),
         @ApiResponse(code = 500, message = "Internal server error")})
     @ResponseStatus(HttpStatus.OK)
+    @StatusDisplayValues
     @GetMapping("/payment-instructions")
     public List<PaymentInstruction> getPaymentInstructions(
         BarWrappedHttpRequest request,
@@ -90,22 +127,29 @@ public class PaymentInstructionController {
         @RequestParam(name = "action", required = false) String action,
         @RequestParam(name = "authorizationCode", required = false) String authorizationCode,
         @RequestParam(name = "oldStatus", required = false) String oldStatus,
-        @RequestParam(name = "payhubReference", required = false) String payhubReference) {
+        @RequestParam(name = "payhubReference", required = false) String payhubReference,
+        @RequestParam(name = "cursor", required = false) String cursor,
+        @RequestParam(name = "pageSize", required = false)
+        @Min(1) @Max(PaymentInstructionService.MAX_RECORDS_PER_PAGE) Integer pageSize,
+        HttpServletResponse response) throws IOException {
 
         List<PaymentInstruction> paymentInstructionList = null;
 
         if (checkAcceptHeaderForCsv(headers)){
-            paymentInstructionList =  paymentInstructionService.getAllPaymentInstructionsByTTB(startDate,endDate,request.getBarUser().getSelectedSiteId());
+            // the report is written while it is read, the response is complete when the handler returns
+            response.setContentType(PaymentInstructionsCsvConverter.CSV_MEDIA_TYPE.toString());
+            response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+            PaymentInstructionsCsvWriter csvWriter = new PaymentInstructionsCsvWriter(response.getOutputStream());
+            paymentInstructionService.forEachPaymentInstructionByTTB(startDate, endDate, request.getBarUser().getSelectedSiteId(), csvWriter);
+            csvWriter.flush();
         } else {
             PaymentInstructionSearchCriteriaDto paymentInstructionSearchCriteriaDto =
                 createPaymentInstructionCriteria(status, startDate, endDate, payerName, chequeNumber, postalOrderNumber,
                     dailySequenceId, allPayInstructionId, paymentType, action, caseReference, null, null,
                     authorizationCode, oldStatus, payhubReference);
-
-            paymentInstructionList = paymentInstructionService
-                .getAllPaymentInstructions(request.getBarUser(), paymentInstructionSearchCriteriaDto);
+            paymentInstructionList = getPage(request, paymentInstructionSearchCriteriaDto, cursor, pageSize, response);
         }
-        return Util.updateStatusAndActionDisplayValue(paymentInstructionList);
+        return paymentInstructionList;
     }
 
     @ApiOperation(value = "Get all current payment instructions", notes = "Get all current payment instructions for a given site.",
@@ -114,6 +158,7 @@ public class PaymentInstructionController {
         @ApiResponse(code = 404, message = "Payment instructions not found"),
         @ApiResponse(code = 500, message = "Internal server error")})
     @ResponseStatus(HttpStatus.OK)
+    @StatusDisplayValues
     @GetMapping("/users/{id}/payment-instructions")
     public List<PaymentInstruction> getPaymentInstructionsByIdamId (
         BarWrappedHttpRequest request,
@@ -132,7 +177,11 @@ public class PaymentInstructionController {
         @RequestParam(name = "piIds", required = false) String piIds,
         @RequestParam(name = "bgcNumber", required = false) String bgcNumber,
         @RequestParam(name = "oldStatus", required = false) String oldStatus,
-        @RequestParam(name = "payhubReference", required = false) String payhubReference)  {
+        @RequestParam(name = "payhubReference", required = false) String payhubReference,
+        @RequestParam(name = "cursor", required = false) String cursor,
+        @RequestParam(name = "pageSize", required = false)
+        @Min(1) @Max(PaymentInstructionService.MAX_RECORDS_PER_PAGE) Integer pageSize,
+        HttpServletResponse response)  {
 
         List<PaymentInstruction> paymentInstructionList = null;
 
@@ -140,11 +189,9 @@ public class PaymentInstructionController {
 				status, startDate, endDate, payerName, chequeNumber, postalOrderNumber, dailySequenceId,
 				allPayInstructionId, paymentType, action, caseReference, piIds, bgcNumber, null, oldStatus, payhubReference);
 
-		paymentInstructionList = paymentInstructionService
-				.getAllPaymentInstructions(request.getBarUser(), paymentInstructionSearchCriteriaDto);
+		paymentInstructionList = getPage(request, paymentInstructionSearchCriteriaDto, cursor, pageSize, response);
 
-
-        return Util.updateStatusAndActionDisplayValue(paymentInstructionList);
+        return paymentInstructionList;
     }
 
     @ApiOperation(value = "Get the payment instruction", notes = "Get the payment instruction for the given id.")
@@ -180,14 +227,7 @@ public class PaymentInstructionController {
     public PaymentInstruction saveCardInstruction(
         BarWrappedHttpRequest request,
         @Valid @RequestBody Card card) {
-        CardPaymentInstruction cardPaymentInstruction = CardPaymentInstruction.cardPaymentInstructionWith()
-            .payerName(card.getPayerName())
-            .amount(card.getAmount())
-            .currency(card.getCurrency())
-            .status(card.getStatus())
-            .authorizationCode(card.getAuthorizationCode())
-            .build();
-        return paymentInstructionService.createPaymentInstruction(request.getBarUser(), cardPaymentInstruction);
+        return paymentInstructionService.createPaymentInstruction(request.getBarUser(), toCardInstruction(card));
     }
 
     @ApiOperation(value = "Update card payment instruction", notes = "Update card payment instruction with the given values.")
@@ -213,13 +253,7 @@ public class PaymentInstructionController {
     @PostMapping("/cheques")
     public PaymentInstruction saveChequeInstruction(BarWrappedHttpRequest request,
                                                     @Valid @RequestBody Cheque cheque) {
-        ChequePaymentInstruction chequePaymentInstruction = ChequePaymentInstruction.chequePaymentInstructionWith()
-            .payerName(cheque.getPayerName())
-            .amount(cheque.getAmount())
-            .currency(cheque.getCurrency())
-            .status(cheque.getStatus())
-            .chequeNumber(cheque.getChequeNumber()).build();
-        return paymentInstructionService.createPaymentInstruction(request.getBarUser(), chequePaymentInstruction);
+        return paymentInstructionService.createPaymentInstruction(request.getBarUser(), toChequeInstruction(cheque));
     }
 
     @ApiOperation(value = "Update cheque payment instruction", notes = "Update cheque payment instruction with the given values.")
@@ -271,12 +305,7 @@ public class PaymentInstructionController {
     @PostMapping("/cash")
     public PaymentInstruction saveCashInstruction(BarWrappedHttpRequest request,
                                                   @ApiParam(value="Cash request",required=true) @Valid @RequestBody Cash cash) {
-        CashPaymentInstruction cashPaymentInstruction = CashPaymentInstruction.cashPaymentInstructionWith()
-            .payerName(cash.getPayerName())
-            .amount(cash.getAmount())
-            .status(cash.getStatus())
-            .currency(cash.getCurrency()).build();
-        return paymentInstructionService.createPaymentInstruction(request.getBarUser(), cashPaymentInstruction);
+        return paymentInstructionService.createPaymentInstruction(request.getBarUser(), toCashInstruction(cash));
     }
 
     @ApiOperation(value = "Create remission", notes = "Create a full remission with the given values.")
@@ -329,13 +358,7 @@ public class PaymentInstructionController {
     public PaymentInstruction savePostalOrderInstruction(
         BarWrappedHttpRequest request,
         @ApiParam(value="Postal Order request",required=true) @Valid @RequestBody PostalOrder postalOrder) {
-        PostalOrderPaymentInstruction postalOrderPaymentInstruction = PostalOrderPaymentInstruction.postalOrderPaymentInstructionWith()
-            .payerName(postalOrder.getPayerName())
-            .amount(postalOrder.getAmount())
-            .currency(postalOrder.getCurrency())
-            .status(postalOrder.getStatus())
-            .postalOrderNumber(postalOrder.getPostalOrderNumber()).build();
-        return paymentInstructionService.createPaymentInstruction(request.getBarUser(), postalOrderPaymentInstruction);
+        return paymentInstructionService.createPaymentInstruction(request.getBarUser(), toPostalOrderInstruction(postalOrder));
     }
 
     @ApiOperation(value = "Update postal order payment instruction", notes = "Update postal order payment instruction with the given values.")
@@ -361,13 +384,61 @@ public class PaymentInstructionController {
     public PaymentInstruction saveAllPayInstruction(
         BarWrappedHttpRequest request,
         @ApiParam(value="All Pay request", required=true) @Valid @RequestBody AllPay allPay) {
-        AllPayPaymentInstruction allPayPaymentInstruction = AllPayPaymentInstruction.allPayPaymentInstructionWith()
-            .payerName(allPay.getPayerName())
-            .amount(allPay.getAmount())
-            .currency(allPay.getCurrency())
-            .status(allPay.getStatus())
-            .allPayTransactionId(allPay.getAllPayTransactionId()).build();
-        return paymentInstructionService.createPaymentInstruction(request.getBarUser(), allPayPaymentInstruction);
+        return paymentInstructionService.createPaymentInstruction(request.getBarUser(), toAllPayInstruction(allPay));
+    }
+
+    @ApiOperation(value = "Create payment instructions in bulk", notes = "Create cash, card, cheque, postal order and allpay " +
+        "payment instructions in one go. Either all of them are created or, when any of them is invalid, none and the errors " +
+        "are returned per item.")
+    @ApiResponses(value = {@ApiResponse(code = 201, message = "Payment instructions created"),
+        @ApiResponse(code = 400, message = "Bad request"),
+        @ApiResponse(code = 500, message = "Internal server error")})
+    @PostMapping("/payment-instructions/bulk")
+    public ResponseEntity<Object> savePaymentInstructions(
+        BarWrappedHttpRequest request,
+        @ApiParam(value = "Payment instructions", required = true) @RequestBody List<PaymentInstructionBulkItem> items) {
+        if (items.isEmpty() || items.size() > MAX_BULK_SIZE) {
+            return new ResponseEntity<>(new Error("between 1 and " + MAX_BULK_SIZE + " payment instructions can be created at once"),
+                HttpStatus.BAD_REQUEST);
+        }
+        List<ItemError> errors = new ArrayList<>();
+        List<PaymentInstruction> paymentInstructions = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            PaymentInstructionRequest item = items.get(i) == null ? null : items.get(i).getPaymentInstruction();
+            if (item == null) {
+                errors.add(new ItemError(i, "payment_instruction: must not be null"));
+                continue;
+            }
+            Set<ConstraintViolation<PaymentInstructionRequest>> requestViolations = validator.validate(item);
+            for (ConstraintViolation<PaymentInstructionRequest> violation : requestViolations) {
+                errors.add(new ItemError(i, violation.getPropertyPath() + ": " + violation.getMessage()));
+            }
+            Function<PaymentInstructionRequest, PaymentInstruction> converter = BULK_CONVERTERS.get(item.getClass());
+            if (converter == null) {
+                errors.add(new ItemError(i, "payment_instruction: unsupported payment type"));
+                continue;
+            }
+            if (!requestViolations.isEmpty()) {
+                continue;
+            }
+            PaymentInstruction paymentInstruction;
+            try {
+                paymentInstruction = converter.apply(item);
+            } catch (NullPointerException | IllegalArgumentException e) {
+                errors.add(new ItemError(i, String.valueOf(e.getMessage())));
+                continue;
+            }
+            // the entity's own constraints would only fail once it is flushed, with no telling which item it was
+            for (ConstraintViolation<PaymentInstruction> violation : validator.validate(paymentInstruction)) {
+                errors.add(new ItemError(i, violation.getPropertyPath() + ": " + violation.getMessage()));
+            }
+            paymentInstructions.add(paymentInstruction);
+        }
+        if (!errors.isEmpty()) {
+            return new ResponseEntity<>(Collections.singletonMap("errors", errors), HttpStatus.BAD_REQUEST);
+        }
+        return new ResponseEntity<>(paymentInstructionService.createPaymentInstructions(request.getBarUser(), paymentInstructions),
+            HttpStatus.CREATED);
     }
 
     @ApiOperation(value = "Update allpay payment instruction", notes = "Update allpay payment instruction with the given values.")
@@ -409,6 +480,21 @@ public class PaymentInstructionController {
         return response;
     }
 
+    @ApiOperation(value = "Move payment instructions on in bulk", notes = "Apply the same status and action to the payment " +
+        "instructions with the given ids, or to the ones matching the selector used by the stats links. Each payment instruction " +
+        "is validated as on a single update and the outcome is returned per id.")
+    @ApiResponses(value = {
+        @ApiResponse(code = 200, message = "Outcome per payment instruction"),
+        @ApiResponse(code = 400, message = "Bad request"),
+        @ApiResponse(code = 500, message = "Internal server error")
+    })
+    @PostMapping("/payment-instructions/transitions")
+    public List<PaymentInstructionTransitionResult> transitionPaymentInstructions(
+        BarWrappedHttpRequest request,
+        @ApiParam(value = "Payment instructions and the transition", required = true) @RequestBody PaymentInstructionTransitionRequest transitionRequest) {
+        return paymentInstructionService.transitionPaymentInstructions(request.getBarUser(), transitionRequest);
+    }
+
     @ApiOperation(value = "Create case fee detail for a payment instruction", notes = "Create case fee detail for a payment instruction.")
     @ApiResponses(value = {@ApiResponse(code = 201, message = "Case fee detail for a payment instruction created"),
         @ApiResponse(code = 400, message = "Bad request"),
@@ -518,6 +604,17 @@ public class PaymentInstructionController {
         return count;
     }
 
+    @ApiOperation(value = "Rebuild the status counters", notes = "Re-derive the status counters behind the count endpoints from the status history.")
+    @ApiResponses(value = {@ApiResponse(code = 204, message = "Status counters rebuilt"),
+        @ApiResponse(code = 403, message = "Forbidden"),
+        @ApiResponse(code = 500, message = "Internal server error")})
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    @PostMapping("/payment-instructions/counters/rebuild")
+    @PreAuthorize("hasAuthority(T(uk.gov.hmcts.bar.api.data.enums.BarUserRoleEnum).BAR_DELIVERY_MANAGER.getIdamRole())")
+    public void rebuildStatusCounters() {
+        paymentInstructionService.rebuildStatusCounters();
+    }
+
     @ApiOperation(value = "collect stats for a user", notes = "Collect all payment instruction stats for a user grouped by type for a given status")
     @ApiResponses(value = {@ApiResponse(code = 200, message = "Return stats for a given user"),
         @ApiResponse(code = 400, message = "Bad request"),
@@ -555,16 +652,16 @@ public class PaymentInstructionController {
     }
 
 
-    @ApiOperation(value = "Send to payhub", notes = "Send all payment-instructions with TTB status to payhub")
-    @ApiResponses(value = {@ApiResponse(code = 200, message = ""),
+    @ApiOperation(value = "Send to payhub", notes = "Starts sending all payment-instructions with TTB status to payhub " +
+        "in the background, or returns the job already running for the site")
+    @ApiResponses(value = {@ApiResponse(code = 202, message = "The send-to-payhub job"),
         @ApiResponse(code = 400, message = "Bad request"),
         @ApiResponse(code = 500, message = "Internal server error")})
-    @ResponseStatus(HttpStatus.OK)
     @GetMapping({"/payment-instructions/send-to-payhub", "/payment-instructions/send-to-payhub/{timestamp}"})
-	public ResponseEntity<PayHubResponseReport> sendToPayHub(@RequestHeader HttpHeaders headers,
-                                                             @PathVariable(name = "timestamp", required = false)
-                                                             Optional<Long> reportTimestamp,
-                                                             BarWrappedHttpRequest request)  {
+	public ResponseEntity<PayHubJob> sendToPayHub(@RequestHeader HttpHeaders headers,
+                                                  @PathVariable(name = "timestamp", required = false)
+                                                  Optional<Long> reportTimestamp,
+                                                  BarWrappedHttpRequest request)  {
         String bearerToken = headers.getFirst(UserRequestAuthorizer.AUTHORISATION);
         LocalDateTime reportDate;
         if (!reportTimestamp.isPresent()) {
@@ -572,8 +669,17 @@ public class PaymentInstructionController {
         } else {
             reportDate = LocalDateTime.ofInstant(Instant.ofEpochMilli(reportTimestamp.get()), ZoneId.of("Europe/London"));
         }
-        PayHubResponseReport report = payHubService.sendPaymentInstructionToPayHub(request.getBarUser(), bearerToken, reportDate);
-        return ResponseEntity.ok(report);
+        PayHubJob job = payHubJobService.startOrAttach(request.getBarUser(), bearerToken, reportDate);
+        return ResponseEntity.accepted().body(job);
+    }
+
+    @ApiOperation(value = "Send to payhub progress", notes = "Get the progress of a send-to-payhub job")
+    @ApiResponses(value = {@ApiResponse(code = 200, message = "The send-to-payhub job"),
+        @ApiResponse(code = 404, message = "Job not found"),
+        @ApiResponse(code = 500, message = "Internal server error")})
+    @GetMapping("/payment-instructions/send-to-payhub/jobs/{id}")
+    public PayHubJob getSendToPayHubJob(@PathVariable("id") Integer id, BarWrappedHttpRequest request) {
+        return payHubJobService.getJob(id, request.getBarUser().getSelectedSiteId());
     }
 
     private PaymentInstructionSearchCriteriaDto createPaymentInstructionCriteria(
@@ -627,6 +733,65 @@ public class PaymentInstructionController {
                 .authorizationCode(authorizationCode).oldStatus(oldStatus).payhubReference(payhubReference).build();
     }
 
+    private List<PaymentInstruction> getPage(BarWrappedHttpRequest request,
+                                             PaymentInstructionSearchCriteriaDto paymentInstructionSearchCriteriaDto,
+                                             String cursor, Integer pageSize, HttpServletResponse response) {
+        if (cursor != null) {
+            paymentInstructionSearchCriteriaDto.setCursor(PaymentInstructionCursor.decode(cursor));
+        }
+        PaymentInstructionPage page = paymentInstructionService.getPaymentInstructionsPage(request.getBarUser(),
+            paymentInstructionSearchCriteriaDto, pageSize == null ? PaymentInstructionService.MAX_RECORDS_PER_PAGE : pageSize);
+        if (page.getNextCursor() != null) {
+            response.setHeader(NEXT_CURSOR_HEADER, page.getNextCursor().encode());
+        }
+        return page.getContent();
+    }
+
+    private static CashPaymentInstruction toCashInstruction(Cash cash) {
+        return CashPaymentInstruction.cashPaymentInstructionWith()
+            .payerName(cash.getPayerName())
+            .amount(cash.getAmount())
+            .status(cash.getStatus())
+            .currency(cash.getCurrency()).build();
+    }
+
+    private static CardPaymentInstruction toCardInstruction(Card card) {
+        return CardPaymentInstruction.cardPaymentInstructionWith()
+            .payerName(card.getPayerName())
+            .amount(card.getAmount())
+            .currency(card.getCurrency())
+            .status(card.getStatus())
+            .authorizationCode(card.getAuthorizationCode())
+            .build();
+    }
+
+    private static ChequePaymentInstruction toChequeInstruction(Cheque cheque) {
+        return ChequePaymentInstruction.chequePaymentInstructionWith()
+            .payerName(cheque.getPayerName())
+            .amount(cheque.getAmount())
+            .currency(cheque.getCurrency())
+            .status(cheque.getStatus())
+            .chequeNumber(cheque.getChequeNumber()).build();
+    }
+
+    private static PostalOrderPaymentInstruction toPostalOrderInstruction(PostalOrder postalOrder) {
+        return PostalOrderPaymentInstruction.postalOrderPaymentInstructionWith()
+            .payerName(postalOrder.getPayerName())
+            .amount(postalOrder.getAmount())
+            .currency(postalOrder.getCurrency())
+            .status(postalOrder.getStatus())
+            .postalOrderNumber(postalOrder.getPostalOrderNumber()).build();
+    }
+
+    private static AllPayPaymentInstruction toAllPayInstruction(AllPay allPay) {
+        return AllPayPaymentInstruction.allPayPaymentInstructionWith()
+            .payerName(allPay.getPayerName())
+            .amount(allPay.getAmount())
+            .currency(allPay.getCurrency())
+            .status(allPay.getStatus())
+            .allPayTransactionId(allPay.getAllPayTransactionId()).build();
+    }
+
     private boolean checkAcceptHeaderForCsv(HttpHeaders headers){
         return headers.getAccept().contains(new MediaType("text","csv"));
     }
@@ -0,0 +1,121 @@
+package uk.gov.hmcts.bar.api.converters;
+
+import uk.gov.hmcts.bar.api.data.model.PaymentInstruction;
+import uk.gov.hmcts.bar.api.data.model.PaymentInstructionReportLine;
+import uk.gov.hmcts.bar.api.data.utils.Util;
+
+import java.io.BufferedWriter;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.format.DateTimeFormatter;
+import java.util.function.Consumer;
+
+/**
+ * Writes the TTB report as UTF-8 csv to a stream, the header when it is created and the report lines of each payment
+ * instruction as it is accepted. Lines go through a small buffer, so nothing but the current payment instruction is
+ * held while the report is written. Failures to write are thrown as {@link UncheckedIOException}.
+ */
+public class PaymentInstructionsCsvWriter implements Consumer<PaymentInstruction>, Flushable {
+
+    public static final String SEPARATOR = ",";
+    public static final String EOL = "\n";
+    private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("dd MMM yyyy HH:mm:ss");
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("dd MMM yyyy");
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Writer writer;
+
+    public PaymentInstructionsCsvWriter(OutputStream outputStream) {
+        this.writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), BUFFER_SIZE);
+        writeLine(PaymentInstruction.CSV_TABLE_HEADER);
+    }
+
+    @Override
+    public void accept(PaymentInstruction paymentInstruction) {
+        for (PaymentInstructionReportLine reportLine : paymentInstruction.flattenPaymentInstruction()) {
+            writeLine(convertReportCellToString(reportLine));
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    private String[] convertReportCellToString(PaymentInstructionReportLine line){
+        String[] csvRow = new String[28];
+        csvRow[0] = line.getDailyId() == null ? null : line.getDailyId().toString();
+        csvRow[1] = Util.getFormattedDateTime(line.getDate(),DATE_FORMATTER);
+        csvRow[2] = line.getName();
+        csvRow[3] = formatNumber(line.getCheckAmount());
+        csvRow[4] = formatNumber(line.getPostalOrderAmount());
+        csvRow[5] = formatNumber(line.getCashAmount());
+        csvRow[6] = formatNumber(line.getCardAmount());
+        csvRow[7] = formatNumber(line.getAllPayAmount());
+        csvRow[8] = line.getAction();
+        csvRow[9] = line.getCaseRef();
+        csvRow[10] = line.getBgcNumber();
+        csvRow[11] = (formatNumber(line.getFeeAmount()));
+        csvRow[12] = line.getFeeCode();
+        csvRow[13] = line.getFeeDescription();
+        csvRow[14] = formatNumber(line.getRemissionAmount());
+        csvRow[15] = line.getRemissionReference();
+        csvRow[16] = line.getRecordedUser();
+        csvRow[17] = Util.getFormattedDateTime(line.getRecordedTime(),DATE_TIME_FORMATTER);
+        csvRow[18] = line.getValidatedUser();
+        csvRow[19] = Util.getFormattedDateTime(line.getValidatedTime(),DATE_TIME_FORMATTER);
+        csvRow[20] = line.getApprovedUser();
+        csvRow[21] = Util.getFormattedDateTime(line.getApprovedTime(),DATE_TIME_FORMATTER);
+        csvRow[22] = line.getTransferredToBarUser();
+        csvRow[23] = Util.getFormattedDateTime(line.getTransferredToBarTime(),DATE_TIME_FORMATTER);
+        csvRow[24] = (line.getSentToPayhub());
+        csvRow[25] = line.getDmUser();
+        csvRow[26] = Util.getFormattedDateTime(line.getDtSentToPayhub(),DATE_TIME_FORMATTER);
+        csvRow[27] = Util.getFormattedDateTime(line.getDtTrxReportReporting(),DATE_TIME_FORMATTER);
+        return csvRow;
+    }
+
+    private String formatNumber(Integer amount){
+        return amount == null ? null : BigDecimal.valueOf(amount, 2).toPlainString();
+    }
+
+    private void writeLine(String[] line) {
+        try {
+            for (int i = 0; i < line.length; i++) {
+                if (i > 0) {
+                    writer.write(SEPARATOR);
+                }
+                writeCell(line[i]);
+            }
+            writer.write(EOL);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * We need to use comma as separator to be able to open correctly in Excel, So we have to double quote the content
+     * and escape the double quotes inside
+     * @param source
+     */
+    private void writeCell(String source) throws IOException {
+        writer.write('"');
+        if (source != null) {
+            int start = 0;
+            int quote;
+            while ((quote = source.indexOf('"', start)) != -1) {
+                writer.write(source, start, quote - start + 1);
+                writer.write('"');
+                start = quote + 1;
+            }
+            writer.write(source, start, source.length() - start);
+        }
+        writer.write('"');
+    }
+}
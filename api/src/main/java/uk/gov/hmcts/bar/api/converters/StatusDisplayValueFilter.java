@@ -0,0 +1,42 @@
+package uk.gov.hmcts.bar.api.converters;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.FilterProvider;
+import com.fasterxml.jackson.databind.ser.PropertyWriter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import uk.gov.hmcts.bar.api.data.enums.PaymentStatusEnum;
+import uk.gov.hmcts.bar.api.data.model.BasePaymentInstruction;
+
+/**
+ * Writes the status of a payment instruction as its display value, e.g. "Draft" instead of "D", while it is being
+ * serialised. The entity itself keeps its status code, so nothing is left for Hibernate to write back.
+ */
+public class StatusDisplayValueFilter extends SimpleBeanPropertyFilter {
+
+    public static final String FILTER_ID = "paymentInstructionStatus";
+
+    /**
+     * Writes the status codes as they are, the default for every response.
+     */
+    public static final FilterProvider STATUS_CODES = new SimpleFilterProvider()
+        .addFilter(FILTER_ID, SimpleBeanPropertyFilter.serializeAll());
+
+    public static final FilterProvider STATUS_DISPLAY_VALUES = new SimpleFilterProvider()
+        .addFilter(FILTER_ID, new StatusDisplayValueFilter());
+
+    private static final String STATUS = "status";
+
+    @Override
+    public void serializeAsField(Object pojo, JsonGenerator jgen, SerializerProvider provider, PropertyWriter writer) throws Exception {
+        if (STATUS.equals(writer.getName()) && pojo instanceof BasePaymentInstruction) {
+            PaymentStatusEnum paymentStatus = PaymentStatusEnum.getPaymentStatusEnum(((BasePaymentInstruction) pojo).getStatus());
+            if (paymentStatus != null) {
+                jgen.writeStringField(writer.getName(), paymentStatus.displayValue());
+                return;
+            }
+        }
+        super.serializeAsField(pojo, jgen, provider, writer);
+    }
+}
@@ -0,0 +1,18 @@
+package uk.gov.hmcts.bar.api.converters;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a handler method whose JSON response shows the payment instruction statuses by their display value.
+ *
+ * @see StatusDisplayValueFilter
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface StatusDisplayValues {
+}
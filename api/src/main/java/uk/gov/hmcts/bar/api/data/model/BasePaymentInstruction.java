@@ -8,6 +8,9 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.NonNull;
+import org.hibernate.annotations.Fetch;
+import org.hibernate.annotations.FetchMode;
+import org.hibernate.annotations.GenericGenerator;
 import org.hibernate.validator.constraints.Length;
 import org.springframework.data.jpa.convert.threeten.Jsr310JpaConverters;
 
@@ -38,12 +41,15 @@ public abstract class BasePaymentInstruction {
     public abstract List<? extends BaseCaseFeeDetail> getCaseFeeDetails();
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = "payment_instruction_id")
+    @GenericGenerator(name = "payment_instruction_id", strategy = "uk.gov.hmcts.bar.api.data.utils.PaymentInstructionIdGenerator")
     @JsonProperty(access = JsonProperty.Access.READ_ONLY)
     private Integer id;
     @NonNull
+    @NotNull
     private String payerName;
     @NonNull
+    @NotNull
     private Integer amount;
     @NotNull
     @Pattern(regexp = "(?:GBP)", message = "invalid currency")
@@ -76,7 +82,14 @@ public abstract class BasePaymentInstruction {
     @Length(max = 1024)
     private String payhubError;
 
+    // the send-to-payhub job that is sending the payment instruction, written by the job only
+    @JsonIgnore
+    @Column(insertable = false, updatable = false)
+    private Integer payhubJobId;
+
+    // loaded by id rather than joined, so it is served from the second level cache
     @ManyToOne(fetch = FetchType.EAGER, optional = false)
+    @Fetch(FetchMode.SELECT)
     @JoinColumn(name = "payment_type_id", referencedColumnName = "id", insertable = false, updatable = false)
     @JsonProperty(access = JsonProperty.Access.READ_ONLY)
     private PaymentType paymentType;
@@ -0,0 +1,61 @@
+package uk.gov.hmcts.bar.api.data.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.PropertyNamingStrategy;
+import com.fasterxml.jackson.databind.annotation.JsonNaming;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * A send-to-payhub run of a site. Every committed chunk moves {@code lastProcessedId} forward, so a run that was cut
+ * short carries on from there. {@code activeSiteId} is only set while the job is running, its unique constraint
+ * keeps a site down to one running job.
+ */
+@Data
+@Entity
+@Table(name = "payhub_job")
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonNaming(PropertyNamingStrategy.SnakeCaseStrategy.class)
+public class PayHubJob {
+
+    public enum Status {
+        RUNNING, COMPLETED, FAILED
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    private String siteId;
+
+    @JsonIgnore
+    private String activeSiteId;
+
+    private String barUserId;
+
+    private LocalDateTime reportDate;
+
+    @Enumerated(EnumType.STRING)
+    private Status status;
+
+    private int total;
+
+    private int success;
+
+    private int lastProcessedId;
+
+    private String error;
+
+    private LocalDateTime startTime;
+
+    private LocalDateTime updateTime;
+
+    private LocalDateTime endTime;
+}
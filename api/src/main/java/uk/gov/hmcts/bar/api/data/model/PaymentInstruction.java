@@ -1,5 +1,6 @@
 package uk.gov.hmcts.bar.api.data.model;
 
+import com.fasterxml.jackson.annotation.JsonFilter;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.databind.PropertyNamingStrategy;
@@ -8,6 +9,7 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.hibernate.validator.constraints.Length;
+import uk.gov.hmcts.bar.api.converters.StatusDisplayValueFilter;
 
 import javax.persistence.*;
 import java.time.LocalDateTime;
@@ -24,6 +26,7 @@ import java.util.List;
 @JsonIgnoreProperties(value = {"case_references"}, allowGetters = true)
 @DiscriminatorColumn(name = "payment_type_id")
 @JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonFilter(StatusDisplayValueFilter.FILTER_ID)
 public abstract class PaymentInstruction extends BasePaymentInstruction {
     private static final String FULL_REMISSION_ID = "FULL_REMISSION";
     @OneToMany(cascade = CascadeType.ALL)
@@ -0,0 +1,29 @@
+package uk.gov.hmcts.bar.api.data.model;
+
+import com.fasterxml.jackson.annotation.JsonSubTypes;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.databind.PropertyNamingStrategy;
+import com.fasterxml.jackson.databind.annotation.JsonNaming;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One payment instruction of a bulk create, the payment_type next to it telling which kind it is.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonNaming(PropertyNamingStrategy.SnakeCaseStrategy.class)
+public class PaymentInstructionBulkItem {
+
+    @JsonTypeInfo(use = JsonTypeInfo.Id.NAME, include = JsonTypeInfo.As.EXTERNAL_PROPERTY, property = "payment_type")
+    @JsonSubTypes({
+        @JsonSubTypes.Type(value = Cash.class, name = "CASH"),
+        @JsonSubTypes.Type(value = Card.class, name = "CARD"),
+        @JsonSubTypes.Type(value = Cheque.class, name = "CHEQUE"),
+        @JsonSubTypes.Type(value = PostalOrder.class, name = "POSTAL_ORDER"),
+        @JsonSubTypes.Type(value = AllPay.class, name = "ALLPAY")
+    })
+    private PaymentInstructionRequest paymentInstruction;
+}
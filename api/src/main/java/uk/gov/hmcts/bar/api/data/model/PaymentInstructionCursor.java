@@ -0,0 +1,46 @@
+package uk.gov.hmcts.bar.api.data.model;
+
+import lombok.Value;
+import uk.gov.hmcts.bar.api.data.exceptions.BadRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position of the last payment instruction returned on a page. Payment instructions are listed by payment date and id
+ * descending, so the next page starts with the rows that sort strictly after this pair. The value is handed to the
+ * client as an opaque token.
+ */
+@Value
+public class PaymentInstructionCursor {
+
+    private static final String SEPARATOR = "|";
+
+    private final LocalDateTime paymentDate;
+    private final Integer id;
+
+    public static PaymentInstructionCursor after(BasePaymentInstruction paymentInstruction) {
+        return new PaymentInstructionCursor(paymentInstruction.getPaymentDate(), paymentInstruction.getId());
+    }
+
+    public String encode() {
+        String raw = paymentDate + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static PaymentInstructionCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf(SEPARATOR);
+            if (separator < 0) {
+                throw new BadRequestException("invalid cursor: " + token);
+            }
+            return new PaymentInstructionCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                Integer.valueOf(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new BadRequestException("invalid cursor: " + token);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package uk.gov.hmcts.bar.api.data.model;
+
+import lombok.Value;
+
+import java.util.List;
+
+@Value
+public class PaymentInstructionPage {
+
+    private final List<PaymentInstruction> content;
+
+    /**
+     * Cursor for the following page, or null when this is the last one.
+     */
+    private final PaymentInstructionCursor nextCursor;
+}
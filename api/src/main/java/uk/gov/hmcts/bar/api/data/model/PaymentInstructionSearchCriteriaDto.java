@@ -37,5 +37,6 @@ public class PaymentInstructionSearchCriteriaDto {
     private String authorizationCode;
     private String oldStatus;
     private String payhubReference;
+    private PaymentInstructionCursor cursor;
 
 }
@@ -0,0 +1,25 @@
+package uk.gov.hmcts.bar.api.data.model;
+
+import com.fasterxml.jackson.databind.PropertyNamingStrategy;
+import com.fasterxml.jackson.databind.annotation.JsonNaming;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Selects payment instructions of the user's site the way the stat-details links of the stats endpoints do.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder(builderMethodName = "paymentInstructionSelectorWith")
+@JsonNaming(PropertyNamingStrategy.SnakeCaseStrategy.class)
+public class PaymentInstructionSelector {
+    private String userId;
+    private String status;
+    private String paymentType;
+    private String action;
+    private String bgcNumber;
+    private String oldStatus;
+}
@@ -24,7 +24,11 @@ public class PaymentInstructionStatus {
     private PaymentInstruction paymentInstruction;
 
 	public PaymentInstructionStatus(String barUserId, PaymentInstruction pi) {
-		this.paymentInstructionStatusReferenceKey = new PaymentInstructionStatusReferenceKey(pi.getId(), pi.getStatus());
+		this(barUserId, pi, pi.getStatus());
+	}
+
+	public PaymentInstructionStatus(String barUserId, PaymentInstruction pi, String status) {
+		this.paymentInstructionStatusReferenceKey = new PaymentInstructionStatusReferenceKey(pi.getId(), status);
 		this.barUserId = barUserId;
 		this.paymentInstruction = pi;
 	}
@@ -0,0 +1,24 @@
+package uk.gov.hmcts.bar.api.data.model;
+
+import com.fasterxml.jackson.databind.PropertyNamingStrategy;
+import com.fasterxml.jackson.databind.annotation.JsonNaming;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Moves many payment instructions through the same transition, given either by their ids or by a selector.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder(builderMethodName = "paymentInstructionTransitionRequestWith")
+@JsonNaming(PropertyNamingStrategy.SnakeCaseStrategy.class)
+public class PaymentInstructionTransitionRequest {
+    private List<Integer> ids;
+    private PaymentInstructionSelector selector;
+    private PaymentInstructionUpdateRequest transition;
+}
@@ -0,0 +1,27 @@
+package uk.gov.hmcts.bar.api.data.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.PropertyNamingStrategy;
+import com.fasterxml.jackson.databind.annotation.JsonNaming;
+import lombok.Value;
+
+/**
+ * The outcome of a bulk transition for one payment instruction, with the reason when it was left as it was.
+ */
+@Value
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonNaming(PropertyNamingStrategy.SnakeCaseStrategy.class)
+public class PaymentInstructionTransitionResult {
+
+    private final Integer id;
+    private final boolean success;
+    private final String errorMessage;
+
+    public static PaymentInstructionTransitionResult succeeded(Integer id) {
+        return new PaymentInstructionTransitionResult(id, true, null);
+    }
+
+    public static PaymentInstructionTransitionResult failed(Integer id, String errorMessage) {
+        return new PaymentInstructionTransitionResult(id, false, errorMessage);
+    }
+}
@@ -1,12 +1,17 @@
 package uk.gov.hmcts.bar.api.data.model;
 
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Entity;
 import javax.persistence.Id;
 
 @Data
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_ONLY)
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder(builderMethodName = "paymentTypeWith")
@@ -1,9 +1,12 @@
 package uk.gov.hmcts.bar.api.data.repository;
 
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.repository.NoRepositoryBean;
 
 import java.io.Serializable;
+import java.util.List;
 
 @NoRepositoryBean
 public interface BaseRepository<T,ID extends Serializable> extends JpaRepository<T,ID> {
@@ -15,5 +18,22 @@ public interface BaseRepository<T,ID extends Serializable> extends JpaRepository
     }
 
     void refresh(T t);
+
+    /**
+     * Makes new entities persistent. Unlike {@code saveAll}, which merges entities with an assigned id, it does not
+     * look them up first; they are inserted with the next flush.
+     */
+    void persistAll(Iterable<T> entities);
+
+    /**
+     * Stops tracking the entities, so changes made to them afterwards are not written with the next flush.
+     */
+    void detachAll(Iterable<T> entities);
+
+    /**
+     * Returns at most {@code limit} rows matching the specification without issuing the count query that a
+     * {@link org.springframework.data.domain.Page} needs.
+     */
+    List<T> findAll(Specification<T> spec, Sort sort, int limit);
 }
 
@@ -1,5 +1,7 @@
 package uk.gov.hmcts.bar.api.data.repository;
 
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.support.JpaEntityInformation;
 import org.springframework.data.jpa.repository.support.SimpleJpaRepository;
 import org.springframework.data.repository.NoRepositoryBean;
@@ -7,6 +9,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
 import java.io.Serializable;
+import java.util.List;
 
 @NoRepositoryBean
 public class BaseRepositoryImpl<T, ID extends Serializable>
@@ -27,4 +30,20 @@ public class BaseRepositoryImpl<T, ID extends Serializable>
         entityManager.refresh(t);
     }
 
+    @Override
+    @Transactional
+    public void persistAll(Iterable<T> entities) {
+        entities.forEach(entityManager::persist);
+    }
+
+    @Override
+    public void detachAll(Iterable<T> entities) {
+        entities.forEach(entityManager::detach);
+    }
+
+    @Override
+    public List<T> findAll(Specification<T> spec, Sort sort, int limit) {
+        return getQuery(spec, sort).setMaxResults(limit).getResultList();
+    }
+
 }
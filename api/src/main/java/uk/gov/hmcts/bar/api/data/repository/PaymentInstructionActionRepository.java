@@ -1,10 +1,19 @@
 package uk.gov.hmcts.bar.api.data.repository;
 
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import uk.gov.hmcts.bar.api.data.model.PaymentInstructionAction;
 
+import javax.persistence.QueryHint;
+import java.util.List;
+
+import static org.hibernate.annotations.QueryHints.CACHEABLE;
+
 @Repository
 public interface PaymentInstructionActionRepository extends BaseRepository<PaymentInstructionAction, String> {
 
+    @Override
+    @QueryHints(@QueryHint(name = CACHEABLE, value = "true"))
+    List<PaymentInstructionAction> findAll();
 }
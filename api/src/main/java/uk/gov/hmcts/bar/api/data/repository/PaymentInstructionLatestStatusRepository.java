@@ -0,0 +1,76 @@
+package uk.gov.hmcts.bar.api.data.repository;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+import uk.gov.hmcts.bar.api.data.model.PaymentInstructionStatus;
+import uk.gov.hmcts.bar.api.data.model.PaymentInstructionStatusReferenceKey;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * Keeps the payment_instruction_latest_status read model, which holds the most recent entry for every (payment
+ * instruction, status) pair and flags the payment instruction's current status. The stats queries read from it
+ * instead of grouping the whole status history. The entry is written with a single upsert, so two transactions
+ * moving the same payment instruction into a status for the first time do not both try to insert it. Runs in the
+ * caller's transaction.
+ */
+@Repository
+public class PaymentInstructionLatestStatusRepository {
+
+    private static final String CLEAR_CURRENT_STATUS = "UPDATE payment_instruction_latest_status SET is_current = false "
+        + "WHERE payment_instruction_id IN (:ids) AND is_current = true";
+
+    private static final String UPSERT_POSTGRESQL = "INSERT INTO payment_instruction_latest_status "
+        + "(payment_instruction_id, status, bar_user_id, update_time, is_current) VALUES (:id, :status, :barUserId, :updateTime, true) "
+        + "ON CONFLICT (payment_instruction_id, status) DO UPDATE "
+        + "SET bar_user_id = EXCLUDED.bar_user_id, update_time = EXCLUDED.update_time, is_current = true";
+
+    private static final String UPSERT_HSQLDB = "MERGE INTO payment_instruction_latest_status l "
+        + "USING (VALUES (CAST(:id AS INT), CAST(:status AS VARCHAR(5)), CAST(:barUserId AS VARCHAR(255)), CAST(:updateTime AS TIMESTAMP))) "
+        + "AS v (payment_instruction_id, status, bar_user_id, update_time) "
+        + "ON l.payment_instruction_id = v.payment_instruction_id AND l.status = v.status "
+        + "WHEN MATCHED THEN UPDATE SET l.bar_user_id = v.bar_user_id, l.update_time = v.update_time, l.is_current = true "
+        + "WHEN NOT MATCHED THEN INSERT (payment_instruction_id, status, bar_user_id, update_time, is_current) "
+        + "VALUES (v.payment_instruction_id, v.status, v.bar_user_id, v.update_time, true)";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final String upsert;
+
+    public PaymentInstructionLatestStatusRepository(NamedParameterJdbcTemplate jdbcTemplate, SqlDialect sqlDialect) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.upsert = sqlDialect == SqlDialect.POSTGRESQL ? UPSERT_POSTGRESQL : UPSERT_HSQLDB;
+    }
+
+    /**
+     * Records a status row that has just been saved as the payment instruction's current status. Must be called
+     * whenever a status row is saved.
+     */
+    public void recordLatestStatus(PaymentInstructionStatus paymentInstructionStatus) {
+        PaymentInstructionStatusReferenceKey key = paymentInstructionStatus.getPaymentInstructionStatusReferenceKey();
+        recordLatestStatus(Collections.singletonList(key.getPaymentInstructionId()), key.getStatus(),
+            paymentInstructionStatus.getBarUserId(), key.getUpdateTime());
+    }
+
+    /**
+     * Records the status, written by the same user at the same time, as the current status of each of the payment
+     * instructions.
+     */
+    public void recordLatestStatus(Collection<Integer> paymentInstructionIds, String status, String barUserId, LocalDateTime updateTime) {
+        if (paymentInstructionIds.isEmpty()) {
+            return;
+        }
+        Timestamp timestamp = Timestamp.valueOf(updateTime);
+        jdbcTemplate.update(CLEAR_CURRENT_STATUS, new MapSqlParameterSource("ids", paymentInstructionIds));
+        jdbcTemplate.batchUpdate(upsert, paymentInstructionIds.stream()
+            .map(id -> new MapSqlParameterSource("id", id)
+                .addValue("status", status)
+                .addValue("barUserId", barUserId)
+                .addValue("updateTime", timestamp))
+            .toArray(SqlParameterSource[]::new));
+    }
+}
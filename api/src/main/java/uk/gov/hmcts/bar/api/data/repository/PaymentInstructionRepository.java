@@ -3,12 +3,15 @@ package uk.gov.hmcts.bar.api.data.repository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import uk.gov.hmcts.bar.api.data.model.CaseFeeDetail;
 import uk.gov.hmcts.bar.api.data.model.PaymentInstruction;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -25,6 +28,14 @@ public interface PaymentInstructionRepository extends BaseRepository<PaymentInst
     
 	@Query("SELECT cfd FROM CaseFeeDetail cfd  WHERE cfd.paymentInstructionId = :piId")
 	List<CaseFeeDetail> getCaseFeeDetails(@Param("piId") int piId);
+
+    /**
+     * Loads the payment instructions of a report together with their fees in one statement. The payment type is not
+     * joined, it comes from the second level cache.
+     */
+    @Query("SELECT DISTINCT pi FROM PaymentInstruction pi LEFT JOIN FETCH pi.caseFeeDetails WHERE pi.id IN :ids")
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_PASS_DISTINCT_THROUGH, value = "false"))
+    List<PaymentInstruction> findAllWithCaseFeeDetailsByIdIn(@Param("ids") Collection<Integer> ids);
     
     @Modifying
     @Query(value = "UPDATE payment_instruction SET transferred_to_payhub = :status, payhub_error = :errorMessage " +
@@ -0,0 +1,255 @@
+package uk.gov.hmcts.bar.api.data.repository;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import uk.gov.hmcts.bar.api.data.model.PaymentInstruction;
+import uk.gov.hmcts.bar.api.data.model.PaymentInstructionStatus;
+import uk.gov.hmcts.bar.api.data.model.PaymentInstructionStatusReferenceKey;
+import uk.gov.hmcts.bar.api.data.model.PaymentInstructionUserStatsWithRole;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the payment_instruction_status_counter read model, the number and amount of status history rows per site,
+ * status, user and day. It is maintained as the status rows are written, so the dashboard counts are read from a
+ * handful of counter rows instead of counting the status history. Status rows written without a user are counted
+ * under an empty user id. Like a rebuild, the counters hold the current amount of a payment instruction for each of
+ * its status rows, so a change of amount is applied to the counters of all of them. A counter is added to with a
+ * single upsert, so two transactions opening the same counter do not both try to insert it. Runs in the caller's
+ * transaction.
+ */
+@Repository
+public class PaymentInstructionStatusCounterRepository {
+
+    private static final String NO_USER = "";
+
+    private static final String ADD = "UPDATE payment_instruction_status_counter "
+        + "SET status_count = status_count + :count, total_amount = total_amount + :amount "
+        + "WHERE site_id = :siteId AND status = :status AND bar_user_id = :barUserId AND status_date = :statusDate";
+
+    private static final String UPSERT_POSTGRESQL = "INSERT INTO payment_instruction_status_counter "
+        + "(site_id, status, bar_user_id, status_date, status_count, total_amount) "
+        + "VALUES (:siteId, :status, :barUserId, :statusDate, :count, :amount) "
+        + "ON CONFLICT (site_id, status, bar_user_id, status_date) DO UPDATE "
+        + "SET status_count = payment_instruction_status_counter.status_count + EXCLUDED.status_count, "
+        + "total_amount = payment_instruction_status_counter.total_amount + EXCLUDED.total_amount";
+
+    private static final String UPSERT_HSQLDB = "MERGE INTO payment_instruction_status_counter c "
+        + "USING (VALUES (CAST(:siteId AS VARCHAR(50)), CAST(:status AS VARCHAR(5)), CAST(:barUserId AS VARCHAR(255)), "
+        + "CAST(:statusDate AS DATE), CAST(:count AS BIGINT), CAST(:amount AS BIGINT))) "
+        + "AS v (site_id, status, bar_user_id, status_date, status_count, total_amount) "
+        + "ON c.site_id = v.site_id AND c.status = v.status AND c.bar_user_id = v.bar_user_id AND c.status_date = v.status_date "
+        + "WHEN MATCHED THEN UPDATE SET c.status_count = c.status_count + v.status_count, c.total_amount = c.total_amount + v.total_amount "
+        + "WHEN NOT MATCHED THEN INSERT (site_id, status, bar_user_id, status_date, status_count, total_amount) "
+        + "VALUES (v.site_id, v.status, v.bar_user_id, v.status_date, v.status_count, v.total_amount)";
+
+    private static final String TOTALS_BY_SITE = "SELECT site_id, COUNT(*) AS status_count, COALESCE(SUM(amount), 0) AS total_amount "
+        + "FROM payment_instruction WHERE id IN (:ids) GROUP BY site_id";
+
+    private static final String HISTORY_OF_PAYMENT_INSTRUCTION = "SELECT pi.site_id, pis.status, COALESCE(pis.bar_user_id, '') AS bar_user_id, "
+        + "CAST(pis.update_time AS DATE) AS status_date, COUNT(*) AS status_count, COALESCE(SUM(pi.amount), 0) AS total_amount "
+        + "FROM payment_instruction_status pis JOIN payment_instruction pi ON pi.id = pis.payment_instruction_id "
+        + "WHERE pi.id = :id AND pi.site_id = :siteId "
+        + "GROUP BY pi.site_id, pis.status, COALESCE(pis.bar_user_id, ''), CAST(pis.update_time AS DATE)";
+
+    private static final String STATUS_ROWS_OF_PAYMENT_INSTRUCTION = "SELECT status, COALESCE(bar_user_id, '') AS bar_user_id, "
+        + "CAST(update_time AS DATE) AS status_date, COUNT(*) AS status_count FROM payment_instruction_status "
+        + "WHERE payment_instruction_id = :id GROUP BY status, COALESCE(bar_user_id, ''), CAST(update_time AS DATE)";
+
+    private static final String COUNT = "SELECT COALESCE(SUM(status_count), 0) FROM payment_instruction_status_counter "
+        + "WHERE site_id = :siteId AND status = :status AND status_date BETWEEN :startDate AND :endDate";
+
+    private static final String COUNT_BY_USER = "SELECT bu.id, bu.roles, CONCAT(CONCAT(bu.forename, ' '), bu.surname) AS full_name, "
+        + "SUM(c.status_count) AS status_count FROM payment_instruction_status_counter c JOIN bar_user bu ON bu.id = c.bar_user_id "
+        + "WHERE c.site_id = :siteId AND c.status = :status AND c.status_date BETWEEN :startDate AND :endDate "
+        + "GROUP BY bu.id, bu.roles, bu.forename, bu.surname";
+
+    // blocks the writers of the counters until the rebuild commits, readers carry on with the old counters
+    private static final String LOCK_POSTGRESQL = "LOCK TABLE payment_instruction_status_counter IN EXCLUSIVE MODE";
+
+    private static final String LOCK_HSQLDB = "LOCK TABLE payment_instruction_status_counter WRITE";
+
+    private static final String DELETE_ALL = "DELETE FROM payment_instruction_status_counter";
+
+    private static final String REBUILD = "INSERT INTO payment_instruction_status_counter "
+        + "(site_id, status, bar_user_id, status_date, status_count, total_amount) "
+        + "SELECT pi.site_id, pis.status, COALESCE(pis.bar_user_id, ''), CAST(pis.update_time AS DATE), COUNT(*), COALESCE(SUM(pi.amount), 0) "
+        + "FROM payment_instruction_status pis JOIN payment_instruction pi ON pi.id = pis.payment_instruction_id "
+        + "GROUP BY pi.site_id, pis.status, COALESCE(pis.bar_user_id, ''), CAST(pis.update_time AS DATE)";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final String upsert;
+    private final String lock;
+
+    public PaymentInstructionStatusCounterRepository(NamedParameterJdbcTemplate jdbcTemplate, SqlDialect sqlDialect) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.upsert = sqlDialect == SqlDialect.POSTGRESQL ? UPSERT_POSTGRESQL : UPSERT_HSQLDB;
+        this.lock = sqlDialect == SqlDialect.POSTGRESQL ? LOCK_POSTGRESQL : LOCK_HSQLDB;
+    }
+
+    /**
+     * Counts a status row that has just been inserted. Must be called whenever a status row is inserted, next to
+     * {@link PaymentInstructionLatestStatusRepository#recordLatestStatus(PaymentInstructionStatus)}.
+     */
+    public void recordStatus(PaymentInstructionStatus paymentInstructionStatus) {
+        PaymentInstruction pi = paymentInstructionStatus.getPaymentInstruction();
+        add(pi.getSiteId(), paymentInstructionStatus.getPaymentInstructionStatusReferenceKey().getStatus(),
+            paymentInstructionStatus.getBarUserId(),
+            paymentInstructionStatus.getPaymentInstructionStatusReferenceKey().getUpdateTime().toLocalDate(),
+            1, pi.getAmount() == null ? 0 : pi.getAmount());
+    }
+
+    /**
+     * Moves a status row that has just been written again, by another user, from the counter of the user who wrote it
+     * before to the counter of the one who wrote it now.
+     */
+    public void recordStatusReassigned(PaymentInstructionStatus paymentInstructionStatus, String previousBarUserId) {
+        PaymentInstruction pi = paymentInstructionStatus.getPaymentInstruction();
+        PaymentInstructionStatusReferenceKey key = paymentInstructionStatus.getPaymentInstructionStatusReferenceKey();
+        long amount = pi.getAmount() == null ? 0 : pi.getAmount();
+        add(pi.getSiteId(), key.getStatus(), previousBarUserId, key.getUpdateTime().toLocalDate(), -1, -amount);
+        add(pi.getSiteId(), key.getStatus(), paymentInstructionStatus.getBarUserId(), key.getUpdateTime().toLocalDate(), 1, amount);
+    }
+
+    /**
+     * Applies a change of a payment instruction's amount to the counters of the status rows it already has. Must be
+     * called before a status row is saved with the new amount.
+     */
+    public void recordAmountChange(Integer paymentInstructionId, String siteId, long amountDifference) {
+        if (amountDifference == 0) {
+            return;
+        }
+        List<MapSqlParameterSource> counters = jdbcTemplate.query(STATUS_ROWS_OF_PAYMENT_INSTRUCTION,
+            new MapSqlParameterSource("id", paymentInstructionId),
+            (rs, rowNum) -> key(siteId, rs.getString("status"), rs.getString("bar_user_id"), rs.getDate("status_date").toLocalDate())
+                .addValue("count", 0)
+                .addValue("amount", rs.getLong("status_count") * amountDifference));
+        if (!counters.isEmpty()) {
+            jdbcTemplate.batchUpdate(ADD, counters.toArray(new MapSqlParameterSource[0]));
+        }
+    }
+
+    /**
+     * Counts status rows that have just been saved, with one update per counter they fall into rather than per row.
+     */
+    public void recordStatuses(Collection<PaymentInstructionStatus> paymentInstructionStatuses) {
+        Map<List<Object>, long[]> totals = new LinkedHashMap<>();
+        for (PaymentInstructionStatus paymentInstructionStatus : paymentInstructionStatuses) {
+            PaymentInstruction pi = paymentInstructionStatus.getPaymentInstruction();
+            PaymentInstructionStatusReferenceKey key = paymentInstructionStatus.getPaymentInstructionStatusReferenceKey();
+            long[] total = totals.computeIfAbsent(Arrays.asList(pi.getSiteId(), key.getStatus(),
+                paymentInstructionStatus.getBarUserId(), key.getUpdateTime().toLocalDate()), counter -> new long[2]);
+            total[0]++;
+            total[1] += pi.getAmount() == null ? 0 : pi.getAmount();
+        }
+        totals.forEach((counter, total) -> add((String) counter.get(0), (String) counter.get(1), (String) counter.get(2),
+            (LocalDate) counter.get(3), total[0], total[1]));
+    }
+
+    /**
+     * Counts one status row, written by the same user on the same day, for each of the payment instructions.
+     */
+    public void recordStatus(Collection<Integer> paymentInstructionIds, String status, String barUserId, LocalDate statusDate) {
+        addStatus(paymentInstructionIds, status, barUserId, statusDate, 1);
+    }
+
+    /**
+     * Takes one status row, written by the same user on the same day, out of the counters for each of the payment
+     * instructions.
+     */
+    public void removeStatus(Collection<Integer> paymentInstructionIds, String status, String barUserId, LocalDate statusDate) {
+        addStatus(paymentInstructionIds, status, barUserId, statusDate, -1);
+    }
+
+    /**
+     * Takes the status history of a payment instruction out of the counters. Must be called before the history
+     * is deleted.
+     */
+    public void removePaymentInstruction(Integer paymentInstructionId, String siteId) {
+        List<MapSqlParameterSource> counters = jdbcTemplate.query(HISTORY_OF_PAYMENT_INSTRUCTION,
+            new MapSqlParameterSource("id", paymentInstructionId).addValue("siteId", siteId),
+            (rs, rowNum) -> key(rs.getString("site_id"), rs.getString("status"), rs.getString("bar_user_id"),
+                rs.getDate("status_date").toLocalDate())
+                .addValue("count", -rs.getLong("status_count"))
+                .addValue("amount", -rs.getLong("total_amount")));
+        if (!counters.isEmpty()) {
+            jdbcTemplate.batchUpdate(ADD, counters.toArray(new MapSqlParameterSource[0]));
+        }
+    }
+
+    /**
+     * Number of status rows in the given status on the given days, of all users when userId is null.
+     */
+    public long count(String siteId, String status, String userId, LocalDate startDate, LocalDate endDate) {
+        MapSqlParameterSource params = period(siteId, status, startDate, endDate);
+        String sql = COUNT;
+        if (userId != null) {
+            sql += " AND bar_user_id = :barUserId";
+            params.addValue("barUserId", userId);
+        }
+        Long count = jdbcTemplate.queryForObject(sql, params, Long.class);
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * Number of status rows in the given status on the given days per user.
+     */
+    public List<PaymentInstructionUserStatsWithRole> countByUser(String siteId, String status, LocalDate startDate, LocalDate endDate) {
+        return jdbcTemplate.query(COUNT_BY_USER, period(siteId, status, startDate, endDate),
+            (rs, rowNum) -> new PaymentInstructionUserStatsWithRole(rs.getString("id"), rs.getString("roles"),
+                rs.getString("full_name"), rs.getLong("status_count")));
+    }
+
+    /**
+     * Re-derives all counters from the status history, correcting any drift. The counters are locked against writes
+     * first, so a status row counted while the rebuild runs is neither lost nor counted twice; the lock is held until
+     * the caller's transaction ends.
+     */
+    public void rebuild() {
+        jdbcTemplate.update(lock, new MapSqlParameterSource());
+        jdbcTemplate.update(DELETE_ALL, new MapSqlParameterSource());
+        jdbcTemplate.update(REBUILD, new MapSqlParameterSource());
+    }
+
+    private void addStatus(Collection<Integer> paymentInstructionIds, String status, String barUserId, LocalDate statusDate, int sign) {
+        if (paymentInstructionIds.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.query(TOTALS_BY_SITE, new MapSqlParameterSource("ids", paymentInstructionIds),
+            (rs, rowNum) -> key(rs.getString("site_id"), status, barUserId, statusDate)
+                .addValue("count", sign * rs.getLong("status_count"))
+                .addValue("amount", sign * rs.getLong("total_amount")))
+            .forEach(this::add);
+    }
+
+    private void add(String siteId, String status, String barUserId, LocalDate statusDate, long count, long amount) {
+        add(key(siteId, status, barUserId, statusDate)
+            .addValue("count", count)
+            .addValue("amount", amount));
+    }
+
+    private void add(MapSqlParameterSource params) {
+        jdbcTemplate.update(upsert, params);
+    }
+
+    private static MapSqlParameterSource key(String siteId, String status, String barUserId, LocalDate statusDate) {
+        return new MapSqlParameterSource("siteId", siteId)
+            .addValue("status", status)
+            .addValue("barUserId", barUserId == null ? NO_USER : barUserId)
+            .addValue("statusDate", Date.valueOf(statusDate));
+    }
+
+    private static MapSqlParameterSource period(String siteId, String status, LocalDate startDate, LocalDate endDate) {
+        return new MapSqlParameterSource("siteId", siteId)
+            .addValue("status", status)
+            .addValue("startDate", Date.valueOf(startDate))
+            .addValue("endDate", Date.valueOf(endDate));
+    }
+}
@@ -4,15 +4,18 @@ import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import uk.gov.hmcts.bar.api.data.model.*;
 
 import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
 import javax.transaction.Transactional;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface PaymentInstructionStatusRepository
@@ -29,18 +32,6 @@ public interface PaymentInstructionStatusRepository
                                                                                   @Param("sentToPayhub") boolean sentToPayhub,
                                                                                   @Param("siteId") String siteId);
 
-    @Query(name = "PIByUserGroupWithCount", value = "SELECT new uk.gov.hmcts.bar.api.data.model.PaymentInstructionUserStatsWithRole"
-        + "(bu.id, bu.roles, CONCAT(bu.forename,' ',bu.surname), COUNT(bu.id)) FROM BarUser bu, PaymentInstruction pi, PaymentInstructionStatus pis WHERE "
-        + "bu.id = pis.barUserId  AND "
-        + "pis.paymentInstructionStatusReferenceKey.status= :status AND "
-        + "pi.id = pis.paymentInstructionStatusReferenceKey.paymentInstructionId AND "
-        + "pi.siteId = :siteId AND "
-        + "pis.paymentInstructionStatusReferenceKey.updateTime >= :startDate AND "
-        + "pis.paymentInstructionStatusReferenceKey.updateTime <= :endDate GROUP BY bu.forename,bu.surname,bu.id")
-    List<PaymentInstructionUserStatsWithRole> getPaymentInstructionsByStatusGroupedByUserWithCount(@Param("status") String status,
-                                                                                           @Param("siteId") String siteId, @Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
-
-
     @Query(name = "PIRejectedByDM", value = "SELECT new uk.gov.hmcts.bar.api.data.model.PaymentInstructionStaticsByUser "
         + "(bu.id, CONCAT(bu.forename,' ',bu.surname), pis.paymentInstructionStatusReferenceKey.paymentInstructionId, pis.paymentInstructionStatusReferenceKey.updateTime) "
         + "FROM PaymentInstructionStatus pis, PaymentInstruction pi, BarUser bu WHERE "
@@ -60,16 +51,13 @@ public interface PaymentInstructionStatusRepository
         + " AND pis1.paymentInstructionStatusReferenceKey.updateTime >= :historyStartDate "
         + " AND pis1.paymentInstructionStatusReferenceKey.updateTime <= :historyEndDate ) ORDER BY "
         + " pis.paymentInstructionStatusReferenceKey.paymentInstructionId,pis.paymentInstructionStatusReferenceKey.updateTime")
-    List<PaymentInstructionStatusHistory>  getPaymentInstructionStatusHistoryForTTB
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "1000"))
+    Stream<PaymentInstructionStatusHistory> streamPaymentInstructionStatusHistoryForTTB
         (@Param("historyStartDate") LocalDateTime historyStartDate, @Param("historyEndDate") LocalDateTime historyEndDate, @Param("siteId") String siteId);
 
     @Query(value = "SELECT CONCAT(bu.forename,' ',bu.surname) as name, count(pi.id) as count, pi.status, sum(pi.amount) as totalAmount, pi.payment_type_id as PaymentType, pi.bgc_number as bgc, pis.bar_user_id " +
-        "from payment_instruction pi " +
-        "join (" +
-        "select pis1.payment_instruction_id, pis1.status, pis1.bar_user_id, pis1.update_time from payment_instruction_status pis1 inner join ( " +
-        "select payment_instruction_id, status, max(update_time) as update_time from payment_instruction_status group by payment_instruction_id, status) pis2 " +
-        "on pis1.payment_instruction_id = pis2.payment_instruction_id and pis1.status = pis2.status and pis1.update_time = pis2.update_time" +
-        ") pis on pi.id = pis.payment_instruction_id " +
+        "from payment_instruction_latest_status pis " +
+        "join payment_instruction pi on pi.id = pis.payment_instruction_id " +
         "join bar_user bu on pis.bar_user_id = bu.id " +
         "where pi.status = :paymentStatus and pi.transferred_to_payhub = :sentToPayhub and pis.status = :oldPaymentStatus and pis.bar_user_id = :userId and pi.site_id = :siteId " +
         "group by bgc_number, payment_type_id, pi.status, pis.bar_user_id, name order by bgc_number", nativeQuery = true)
@@ -80,24 +68,19 @@ public interface PaymentInstructionStatusRepository
         @Param("sentToPayhub") boolean sentToPayhub,
         @Param("siteId") String siteId);
 
-    @Query(name = "PIStatsRejectedByDMByType", value = "SELECT user_id as userId, count(id) as count, status, sum(amount) as totalAmount, payment_type_id as PaymentType, "
-        + "bgc_number as bgc FROM payment_instruction pi, bar_user bu, payment_instruction_status pis where pi.status = :currentStatus AND pis.payment_instruction_id = pi.id AND "
-        + "pis.update_time in (select max(update_time) FROM payment_instruction_status WHERE status = :oldStatus GROUP BY payment_instruction_id) AND "
+    @Query(name = "PIStatsRejectedByDMByType", value = "SELECT pi.user_id as userId, count(pi.id) as count, pi.status, sum(pi.amount) as totalAmount, pi.payment_type_id as PaymentType, "
+        + "pi.bgc_number as bgc FROM payment_instruction pi, bar_user bu, payment_instruction_latest_status pis where pi.status = :currentStatus AND pis.payment_instruction_id = pi.id AND "
+        + "pis.status = :oldStatus AND "
         + "pis.bar_user_id = bu.id and pis.bar_user_id = :userId GROUP BY pi.bgc_number, pi.payment_type_id, pi.status, pi.user_id order by pi.bgc_number", nativeQuery = true)
     List<PaymentInstructionStats> getRejectedStatsByUserGroupByType(@Param("userId") String userId, @Param("currentStatus") String currentStatus, @Param("oldStatus") String oldStatus);
 
-    @Query(name = "PICountByStatus", value = "SELECT count(*) from (select payment_instruction_id, max(update_time) as max_update_time from payment_instruction_status group by payment_instruction_id) "
-        + " as x inner join payment_instruction_status as f on f.payment_instruction_id = x.payment_instruction_id and f.update_time = x.max_update_time and f.status = :status "
-        + "join payment_instruction as pi on pi.id = f.payment_instruction_id where pi.site_id = :siteId", nativeQuery = true)
+    @Query(name = "PICountByStatus", value = "SELECT count(*) from payment_instruction_latest_status as f "
+        + "join payment_instruction as pi on pi.id = f.payment_instruction_id where f.is_current = true and f.status = :status and pi.site_id = :siteId", nativeQuery = true)
     long getNonResetCountByStatus(@Param("status") String status, @Param("siteId") String siteId);
 
     @Query(value = "SELECT CONCAT(bu.forename,' ',bu.surname) as name, count(pi.id) as count, sum(pi.amount) as totalAmount, pi.payment_type_id as PaymentType, pi.bgc_number as bgc, pi.action as action, pis.bar_user_id " +
-        "from payment_instruction pi " +
-        "join (" +
-        "select pis1.payment_instruction_id, pis1.status, pis1.bar_user_id, pis1.update_time from payment_instruction_status pis1 inner join ( " +
-        "select payment_instruction_id, status, max(update_time) as update_time from payment_instruction_status group by payment_instruction_id, status) pis2 " +
-        "on pis1.payment_instruction_id = pis2.payment_instruction_id and pis1.status = pis2.status and pis1.update_time = pis2.update_time" +
-        ") pis on pi.id = pis.payment_instruction_id " +
+        "from payment_instruction_latest_status pis " +
+        "join payment_instruction pi on pi.id = pis.payment_instruction_id " +
         "join bar_user bu on pis.bar_user_id = bu.id " +
         "where pi.status = :paymentStatus and pi.transferred_to_payhub = :sentToPayhub and pis.status = :oldPaymentStatus and pis.bar_user_id = :userId and pi.action is not null and pi.site_id = :siteId " +
         "group by bgc_number, payment_type_id, action, pis.bar_user_id, name order by bgc_number",
@@ -109,6 +92,30 @@ public interface PaymentInstructionStatusRepository
         @Param("sentToPayhub") boolean sentToPayhub,
         @Param("siteId") String siteId);
 
+    /**
+     * Records the statuses a payment instruction was created with in the payment_instruction_latest_status read model,
+     * the last one being its current status. There is nothing recorded for a new payment instruction yet, so the rows
+     * are inserted without looking for existing ones. Later statuses are recorded by
+     * {@link PaymentInstructionLatestStatusRepository#recordLatestStatus(PaymentInstructionStatus)}.
+     */
+    default void recordInitialStatuses(List<PaymentInstructionStatus> paymentInstructionStatuses) {
+        for (int i = 0; i < paymentInstructionStatuses.size(); i++) {
+            PaymentInstructionStatus paymentInstructionStatus = paymentInstructionStatuses.get(i);
+            PaymentInstructionStatusReferenceKey key = paymentInstructionStatus.getPaymentInstructionStatusReferenceKey();
+            insertLatestStatus(key.getPaymentInstructionId(), key.getStatus(), paymentInstructionStatus.getBarUserId(),
+                key.getUpdateTime(), i == paymentInstructionStatuses.size() - 1);
+        }
+    }
+
+    @Modifying
+    @Query(value = "INSERT INTO payment_instruction_latest_status (payment_instruction_id, status, bar_user_id, update_time, is_current) " +
+        "VALUES (:paymentInstructionId, :status, :barUserId, :updateTime, :isCurrent)", nativeQuery = true)
+    int insertLatestStatus(@Param("paymentInstructionId") Integer paymentInstructionId,
+                           @Param("status") String status,
+                           @Param("barUserId") String barUserId,
+                           @Param("updateTime") LocalDateTime updateTime,
+                           @Param("isCurrent") boolean isCurrent);
+
     @Transactional
     @Modifying
     @Query(value = "DELETE from payment_instruction_status where payment_instruction_id = :paymentInstructionId and " +
@@ -0,0 +1,111 @@
+package uk.gov.hmcts.bar.api.data.repository;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Moves a batch of payment instructions to a new status with a fixed number of statements per batch: the payment
+ * instructions are updated, the status history and the latest status read model get their rows and the status
+ * counters are moved on. Status history rows are keyed to the second, so a payment instruction moved into the same
+ * status twice within a second keeps one row written by the latest user, as recording a single status does, and is
+ * counted once, under that user. Runs in the caller's transaction.
+ */
+@Repository
+public class PaymentInstructionTransitionRepository {
+
+    private static final String SET_STATUS = "UPDATE payment_instruction SET status = :status, user_id = :barUserId, "
+        + "action_reason = :actionReason, action_comment = :actionComment WHERE id IN (:ids)";
+
+    private static final String SET_ACTION = "UPDATE payment_instruction SET action = :action WHERE id IN (:ids)";
+
+    private static final String EXISTING_STATUS = "SELECT payment_instruction_id, COALESCE(bar_user_id, '') AS bar_user_id "
+        + "FROM payment_instruction_status "
+        + "WHERE payment_instruction_id IN (:ids) AND status = :status AND update_time = :updateTime";
+
+    private static final String UPSERT_STATUS_POSTGRESQL = "INSERT INTO payment_instruction_status "
+        + "(payment_instruction_id, status, bar_user_id, update_time) VALUES (:id, :status, :barUserId, :updateTime) "
+        + "ON CONFLICT (payment_instruction_id, status, update_time) DO UPDATE SET bar_user_id = EXCLUDED.bar_user_id";
+
+    private static final String UPSERT_STATUS_HSQLDB = "MERGE INTO payment_instruction_status s "
+        + "USING (VALUES (CAST(:id AS INT), CAST(:status AS VARCHAR(5)), CAST(:barUserId AS VARCHAR(255)), CAST(:updateTime AS TIMESTAMP))) "
+        + "AS v (payment_instruction_id, status, bar_user_id, update_time) "
+        + "ON s.payment_instruction_id = v.payment_instruction_id AND s.status = v.status AND s.update_time = v.update_time "
+        + "WHEN MATCHED THEN UPDATE SET s.bar_user_id = v.bar_user_id "
+        + "WHEN NOT MATCHED THEN INSERT (payment_instruction_id, status, bar_user_id, update_time) "
+        + "VALUES (v.payment_instruction_id, v.status, v.bar_user_id, v.update_time)";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final PaymentInstructionStatusCounterRepository statusCounterRepository;
+    private final PaymentInstructionLatestStatusRepository latestStatusRepository;
+    private final String upsertStatus;
+
+    public PaymentInstructionTransitionRepository(NamedParameterJdbcTemplate jdbcTemplate,
+                                                  PaymentInstructionStatusCounterRepository statusCounterRepository,
+                                                  PaymentInstructionLatestStatusRepository latestStatusRepository,
+                                                  SqlDialect sqlDialect) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.statusCounterRepository = statusCounterRepository;
+        this.latestStatusRepository = latestStatusRepository;
+        this.upsertStatus = sqlDialect == SqlDialect.POSTGRESQL ? UPSERT_STATUS_POSTGRESQL : UPSERT_STATUS_HSQLDB;
+    }
+
+    /**
+     * Sets the status, user, action reason and action comment of the payment instructions, and their action too
+     * when {@code updateAction} is set, then records the new status as written by the user now.
+     */
+    public void transition(Collection<Integer> ids, String status, boolean updateAction, String action,
+                           Integer actionReason, String actionComment, String barUserId) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        // status history keys are kept to the second, like PaymentInstructionStatusReferenceKey does
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        Timestamp updateTime = Timestamp.valueOf(now);
+
+        jdbcTemplate.update(SET_STATUS, new MapSqlParameterSource("ids", ids)
+            .addValue("status", status)
+            .addValue("barUserId", barUserId)
+            .addValue("actionReason", actionReason)
+            .addValue("actionComment", actionComment));
+        if (updateAction) {
+            jdbcTemplate.update(SET_ACTION, new MapSqlParameterSource("ids", ids).addValue("action", action));
+        }
+
+        SqlParameterSource[] statusRows = ids.stream()
+            .map(id -> new MapSqlParameterSource("id", id)
+                .addValue("status", status)
+                .addValue("barUserId", barUserId)
+                .addValue("updateTime", updateTime))
+            .toArray(SqlParameterSource[]::new);
+        // the user who wrote each row this second already, the counters move those rows over to the user writing them now
+        Map<Integer, String> previousUserIds = new HashMap<>();
+        jdbcTemplate.query(EXISTING_STATUS,
+            new MapSqlParameterSource("ids", ids).addValue("status", status).addValue("updateTime", updateTime),
+            rs -> {
+                previousUserIds.put(rs.getInt("payment_instruction_id"), rs.getString("bar_user_id"));
+            });
+        jdbcTemplate.batchUpdate(upsertStatus, statusRows);
+        latestStatusRepository.recordLatestStatus(ids, status, barUserId, now);
+
+        String userId = barUserId == null ? "" : barUserId;
+        previousUserIds.entrySet().stream()
+            .filter(previousUserId -> !previousUserId.getValue().equals(userId))
+            .collect(Collectors.groupingBy(Map.Entry::getValue, Collectors.mapping(Map.Entry::getKey, Collectors.toList())))
+            .forEach((previousUserId, reassigned) -> {
+                statusCounterRepository.removeStatus(reassigned, status, previousUserId, now.toLocalDate());
+                statusCounterRepository.recordStatus(reassigned, status, barUserId, now.toLocalDate());
+            });
+        statusCounterRepository.recordStatus(ids.stream().filter(id -> !previousUserIds.containsKey(id)).collect(Collectors.toList()),
+            status, barUserId, now.toLocalDate());
+    }
+}
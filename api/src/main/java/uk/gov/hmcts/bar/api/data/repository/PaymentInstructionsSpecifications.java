@@ -32,6 +32,7 @@ public class PaymentInstructionsSpecifications<T extends BasePaymentInstruction>
     protected Specification<T> authorizationCodeSpec = null;
     protected Specification<T> statusJoinSpec = null;
     protected Specification<T> payhubReferenceSpec = null;
+    protected Specification<T> seekSpec = null;
 
     public PaymentInstructionsSpecifications(PaymentInstructionSearchCriteriaDto paymentInstructionSearchCriteriaDto, PaymentTypeService paymentTypeService) {
         this.paymentInstructionSearchCriteriaDto = paymentInstructionSearchCriteriaDto;
@@ -56,6 +57,7 @@ public class PaymentInstructionsSpecifications<T extends BasePaymentInstruction>
         authorizationCodeSpec = new ReferenceIdSpec("authorizationCode", paymentInstructionSearchCriteriaDto.getAuthorizationCode());
         statusJoinSpec = new StatusJoinSpec();
         payhubReferenceSpec = new PayhubReferenceSpec();
+        seekSpec = new SeekSpec();
     }
 
     public Specification<T> getPaymentInstructionsSpecification() {
@@ -65,11 +67,11 @@ public class PaymentInstructionsSpecifications<T extends BasePaymentInstruction>
 		Specification<T> orSpecs = Specification.where(payerNameSpec).or(allPayTransactionIdSpec)
 				.or(chequeNumberSpec).or(postalOrderNumerSpec).or(dailySequenceIdSpec)
 				.or(caseReferenceSpec).or(authorizationCodeSpec).or(payhubReferenceSpec);
-        return Specification.where(statusJoinSpec).and(andSpecs).and(orSpecs);
+        return Specification.where(statusJoinSpec).and(andSpecs).and(orSpecs).and(seekSpec);
     }
 
     public Specification<T> getPaymentInstructionsMultipleIdSpecification() {
-    	return Specification.where(multiplsIdSpec);
+    	return Specification.where(multiplsIdSpec).and(seekSpec);
     }
 
     private class MultiIdSpec implements Specification<T> {
@@ -343,6 +345,28 @@ public class PaymentInstructionsSpecifications<T extends BasePaymentInstruction>
         }
     }
 
+    private class SeekSpec implements Specification<T> {
+
+        @Override
+        public Predicate toPredicate(Root<T> root, CriteriaQuery<?> query, CriteriaBuilder builder) {
+
+            Predicate predicate = null;
+            PaymentInstructionCursor cursor = paymentInstructionSearchCriteriaDto.getCursor();
+
+            if (cursor != null) {
+                Path<LocalDateTime> paymentDate = root.get("paymentDate");
+                predicate = builder.or(
+                    builder.lessThan(paymentDate, cursor.getPaymentDate()),
+                    builder.and(
+                        builder.equal(paymentDate, cursor.getPaymentDate()),
+                        builder.lessThan(root.<Integer>get("id"), cursor.getId())
+                    )
+                );
+            }
+            return predicate;
+        }
+    }
+
     private class ReferenceIdSpec implements Specification<T> {
 
         private final String propName;
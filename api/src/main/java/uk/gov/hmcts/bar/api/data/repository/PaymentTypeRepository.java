@@ -1,8 +1,18 @@
 package uk.gov.hmcts.bar.api.data.repository;
 
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 import uk.gov.hmcts.bar.api.data.model.PaymentType;
 
+import javax.persistence.QueryHint;
+import java.util.List;
+
+import static org.hibernate.annotations.QueryHints.CACHEABLE;
+
 @Repository
 public interface PaymentTypeRepository extends BaseRepository<PaymentType, String> {
+
+    @Override
+    @QueryHints(@QueryHint(name = CACHEABLE, value = "true"))
+    List<PaymentType> findAll();
 }
@@ -0,0 +1,33 @@
+package uk.gov.hmcts.bar.api.data.repository;
+
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+
+import javax.sql.DataSource;
+import java.sql.DatabaseMetaData;
+
+/**
+ * The databases the application runs on: PostgreSQL in every environment and HSQLDB in the tests. Used to pick the
+ * upsert statement, which the two spell differently.
+ */
+public enum SqlDialect {
+    POSTGRESQL,
+    HSQLDB;
+
+    public static SqlDialect of(DataSource dataSource) {
+        String productName;
+        try {
+            productName = JdbcUtils.commonDatabaseName(
+                (String) JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName));
+        } catch (MetaDataAccessException e) {
+            throw new IllegalStateException("Could not tell the database product", e);
+        }
+        if ("PostgreSQL".equals(productName)) {
+            return POSTGRESQL;
+        }
+        if (productName != null && productName.startsWith("HSQL")) {
+            return HSQLDB;
+        }
+        throw new IllegalStateException("Unsupported database " + productName);
+    }
+}
@@ -1,11 +1,6 @@
 package uk.gov.hmcts.bar.api.data.service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import org.apache.http.client.methods.CloseableHttpResponse;
-import org.apache.http.client.methods.HttpGet;
-import org.apache.http.impl.client.CloseableHttpClient;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
 import org.springframework.security.access.AccessDeniedException;
@@ -16,11 +11,9 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import uk.gov.hmcts.bar.api.data.model.BarUser;
 import uk.gov.hmcts.bar.api.data.repository.BarUserRepository;
-import uk.gov.hmcts.bar.api.data.utils.Util;
 import uk.gov.hmcts.reform.auth.checker.spring.useronly.UserDetails;
 
 import javax.validation.constraints.NotNull;
-import java.io.IOException;
 import java.util.Optional;
 
 @Service
@@ -28,27 +21,32 @@ import java.util.Optional;
 public class BarUserService {
 
     private final BarUserRepository barUserRepository;
-    private final CloseableHttpClient httpClient;
-    private final String siteApiUrl;
     private final Cache cache;
+    private final BarUserWriteBehind barUserWriteBehind;
 
     @Autowired
     public BarUserService(BarUserRepository barUserRepository,
-                          CloseableHttpClient httpClient,
-                          @Value("${site.api.url}") String siteApiUrl,
-                          CacheManager cacheManager){
+                          CacheManager cacheManager,
+                          BarUserWriteBehind barUserWriteBehind){
         this.barUserRepository = barUserRepository;
-        this.httpClient = httpClient;
-        this.siteApiUrl = siteApiUrl;
         this.cache = cacheManager.getCache("barusers");
+        this.barUserWriteBehind = barUserWriteBehind;
     }
 
+    /**
+     * New users are saved straight away as the status history references them, changes to an existing user's profile
+     * are written behind.
+     */
     public BarUser saveUser(@NotNull BarUser barUser) {
         BarUser existingUser = getBarUser(barUser.getId());
-        if (existingUser == null || !existingUser.equals(barUser)){
+        if (existingUser == null) {
             BarUser savedUser = barUserRepository.save(barUser);
             cache.put(savedUser.getId(), savedUser);
             return savedUser;
+        } else if (!existingUser.equals(barUser)) {
+            cache.put(barUser.getId(), barUser);
+            barUserWriteBehind.enqueue(barUser);
+            return barUser;
         } else {
             return existingUser;
         }
@@ -73,21 +71,11 @@ public class BarUserService {
         BarUser user = cache.get(id, BarUser.class);
         if (user == null) {
             user = barUserRepository.findBarUserById(id);
-            cache.put(id, user);
+            if (user != null) {
+                cache.put(id, user);
+            }
         }
         return user;
     }
 
-    public Boolean validateUserAgainstSite(String email, String userToken, String siteId) throws IOException {
-        if(Util.StringUtils.isAnyBlank(email, userToken, siteId)) {
-            return false;
-        }
-        ObjectMapper objectMapper = new ObjectMapper();
-        HttpGet httpGet = new HttpGet(siteApiUrl + "/sites/" + siteId + "/users/" + email);
-        httpGet.setHeader("Content-type", "application/json");
-        httpGet.setHeader("Authorization", userToken);
-        CloseableHttpResponse response = httpClient.execute(httpGet);
-        return objectMapper.readValue(response.getEntity().getContent(), Boolean.class);
-    }
-
 }
@@ -0,0 +1,122 @@
+package uk.gov.hmcts.bar.api.data.service;
+
+import org.slf4j.Logger;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Component;
+import uk.gov.hmcts.bar.api.data.model.BarUser;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Collects profile changes of existing users and writes them in one batch every flush interval, so that logging in
+ * never waits for a database write. Several changes to the same user within an interval are coalesced into the
+ * latest one. When the batch fails the changes are written one by one, a change that still fails is retried with the
+ * next flush and dropped once it has failed {@code bar.user.write-behind.max-attempts} times, the user's next login
+ * queues it again.
+ */
+@Component
+public class BarUserWriteBehind implements DisposableBean {
+
+    private static final Logger LOG = getLogger(BarUserWriteBehind.class);
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 10;
+
+    private static final String UPDATE_USER = "UPDATE bar_user SET forename = :forename, surname = :surname, "
+        + "email = :email, roles = :roles WHERE id = :id";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final Map<String, BarUser> pending = new ConcurrentHashMap<>();
+    private final Map<String, Integer> failedAttempts = new HashMap<>();
+    private final int maxAttempts;
+    private final ScheduledExecutorService executor;
+
+    public BarUserWriteBehind(NamedParameterJdbcTemplate jdbcTemplate,
+                              @Value("${bar.user.write-behind.interval-ms:2000}") long intervalMs,
+                              @Value("${bar.user.write-behind.max-attempts:3}") int maxAttempts) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.maxAttempts = maxAttempts;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "baruser-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor.scheduleWithFixedDelay(this::flush, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    public void enqueue(BarUser barUser) {
+        pending.put(barUser.getId(), barUser);
+    }
+
+    public synchronized void flush() {
+        List<BarUser> batch = new ArrayList<>(pending.size());
+        for (String id : new ArrayList<>(pending.keySet())) {
+            BarUser barUser = pending.remove(id);
+            if (barUser != null) {
+                batch.add(barUser);
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            jdbcTemplate.batchUpdate(UPDATE_USER, batch.stream().map(BarUserWriteBehind::row).toArray(SqlParameterSource[]::new));
+            batch.forEach(barUser -> failedAttempts.remove(barUser.getId()));
+        } catch (Exception e) {
+            LOG.warn("Failed to write " + batch.size() + " user profiles in one batch, writing them one by one: " + e.getMessage());
+            batch.forEach(this::write);
+        }
+    }
+
+    private void write(BarUser barUser) {
+        try {
+            jdbcTemplate.update(UPDATE_USER, row(barUser));
+            failedAttempts.remove(barUser.getId());
+        } catch (Exception e) {
+            int attempts = failedAttempts.merge(barUser.getId(), 1, Integer::sum);
+            // a newer change queued meanwhile wins over the failed one and gets attempts of its own
+            if (attempts >= maxAttempts || pending.putIfAbsent(barUser.getId(), barUser) != null) {
+                failedAttempts.remove(barUser.getId());
+            }
+            if (attempts >= maxAttempts) {
+                LOG.error("Failed to write the profile of user " + barUser.getId() + " " + attempts + " times, dropping it: "
+                    + e.getMessage(), e);
+            } else {
+                LOG.warn("Failed to write the profile of user " + barUser.getId() + ", retrying with the next flush: "
+                    + e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                LOG.warn("The user profile flush did not finish in time, writing what is left anyway");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    private static SqlParameterSource row(BarUser barUser) {
+        return new MapSqlParameterSource("id", barUser.getId())
+            .addValue("forename", barUser.getForename())
+            .addValue("surname", barUser.getSurname())
+            .addValue("email", barUser.getEmail())
+            .addValue("roles", barUser.getRoles());
+    }
+}
@@ -1,6 +1,5 @@
 package uk.gov.hmcts.bar.api.data.service;
 
-import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -13,6 +12,7 @@ import uk.gov.hmcts.bar.api.data.model.CaseFeeDetailRequest;
 import uk.gov.hmcts.bar.api.data.model.PaymentInstruction;
 import uk.gov.hmcts.bar.api.data.repository.CaseFeeDetailRepository;
 import uk.gov.hmcts.bar.api.data.repository.PaymentInstructionRepository;
+import uk.gov.hmcts.bar.api.data.utils.PropertyCopier;
 
 import java.util.Optional;
 
@@ -59,7 +59,7 @@ public class CaseFeeDetailService {
             throw new PaymentInstructionNotFoundException(caseFeeDetailRequest.getPaymentInstructionId(), barUser.getSelectedSiteId());
         Optional<CaseFeeDetail> optExistingCaseFeeDetail = caseFeeDetailRepository.findById(feeId);
         CaseFeeDetail existingCaseFeeDetail = optExistingCaseFeeDetail.orElseThrow(() ->  new CaseFeeDetailNotFoundException(feeId));
-        BeanUtils.copyProperties(caseFeeDetailRequest, existingCaseFeeDetail);
+        PropertyCopier.copyProperties(caseFeeDetailRequest, existingCaseFeeDetail);
 
         return caseFeeDetailRepository.saveAndRefresh(existingCaseFeeDetail);
     }
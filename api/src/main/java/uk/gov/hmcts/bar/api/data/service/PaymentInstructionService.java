@@ -1,15 +1,12 @@
 package uk.gov.hmcts.bar.api.data.service;
 
 
-import com.google.common.collect.Lists;
 import org.apache.commons.collections.MultiMap;
 import org.apache.commons.collections.map.MultiValueMap;
 import org.ff4j.FF4j;
 import org.ff4j.exception.FeatureAccessException;
 import org.slf4j.Logger;
-import org.springframework.beans.BeanUtils;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
+import org.springframework.core.annotation.AnnotationUtils;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.hateoas.EntityModel;
@@ -21,20 +18,26 @@ import uk.gov.hmcts.bar.api.controllers.payment.PaymentInstructionController;
 import uk.gov.hmcts.bar.api.data.enums.BarUserRoleEnum;
 import uk.gov.hmcts.bar.api.data.enums.PaymentActionEnum;
 import uk.gov.hmcts.bar.api.data.enums.PaymentStatusEnum;
+import uk.gov.hmcts.bar.api.data.exceptions.BadRequestException;
 import uk.gov.hmcts.bar.api.data.exceptions.PaymentInstructionNotFoundException;
 import uk.gov.hmcts.bar.api.data.exceptions.PaymentProcessException;
 import uk.gov.hmcts.bar.api.data.model.*;
 import uk.gov.hmcts.bar.api.data.repository.*;
+import uk.gov.hmcts.bar.api.data.utils.PropertyCopier;
 import uk.gov.hmcts.bar.api.data.utils.Util;
 import uk.gov.hmcts.bar.api.integration.payhub.data.PayhubFullRemission;
 import uk.gov.hmcts.bar.api.integration.payhub.data.PayhubPaymentInstruction;
 import uk.gov.hmcts.bar.api.integration.payhub.repository.PayhubFullRemissionRepository;
 import uk.gov.hmcts.bar.api.integration.payhub.repository.PayhubPaymentInstructionRepository;
 
+import javax.persistence.DiscriminatorValue;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.slf4j.LoggerFactory.getLogger;
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
@@ -54,8 +57,11 @@ public class PaymentInstructionService {
 
     private static final List<String> GROUPED_TYPES = Arrays.asList("CHEQUE", "POSTAL_ORDER");
 
-    private static final int PAGE_NUMBER = 0;
-    private static final int MAX_RECORDS_PER_PAGE = 200;
+    public static final int MAX_RECORDS_PER_PAGE = 200;
+    public static final int MAX_TRANSITION_SIZE = 200;
+    private static final Sort PAGE_SORT = Sort.by(Sort.Direction.DESC, "paymentDate", "id");
+    private static final int REPORT_FETCH_SIZE = 1000;
+    private static final Sort PAYHUB_CHUNK_SORT = Sort.by(Sort.Direction.ASC, "id");
     private PaymentInstructionRepository paymentInstructionRepository;
     private PaymentInstructionStatusRepository paymentInstructionStatusRepository;
     private PaymentReferenceService paymentReferenceService;
@@ -65,7 +71,11 @@ public class PaymentInstructionService {
     private final PayhubPaymentInstructionRepository payhubPaymentInstructionRepository;
     private final PayhubFullRemissionRepository payhubFullRemissionRepository;
     private final AuditRepository auditRepository;
+    private final PaymentInstructionStatusCounterRepository statusCounterRepository;
+    private final PaymentInstructionStatsCache statsCache;
     private final PaymentInstructionUpdateValidatorService updateValidatorService;
+    private final PaymentInstructionTransitionRepository transitionRepository;
+    private final PaymentInstructionStatusRecorder statusRecorder;
 
 
     public PaymentInstructionService(PaymentReferenceService paymentReferenceService, PaymentInstructionRepository paymentInstructionRepository,
@@ -76,7 +86,11 @@ public class PaymentInstructionService {
                                      PaymentInstructionUpdateValidatorService updateValidatorService,
                                      PayhubPaymentInstructionRepository payhubPaymentInstructionRepository,
                                      PayhubFullRemissionRepository payhubFullRemissionRepository,
-                                     AuditRepository auditRepository
+                                     AuditRepository auditRepository,
+                                     PaymentInstructionStatusCounterRepository statusCounterRepository,
+                                     PaymentInstructionStatsCache statsCache,
+                                     PaymentInstructionTransitionRepository transitionRepository,
+                                     PaymentInstructionStatusRecorder statusRecorder
 
     ) {
         this.paymentReferenceService = paymentReferenceService;
@@ -89,30 +103,75 @@ public class PaymentInstructionService {
         this.auditRepository = auditRepository;
         this.updateValidatorService = updateValidatorService;
         this.payhubFullRemissionRepository = payhubFullRemissionRepository;
+        this.statusCounterRepository = statusCounterRepository;
+        this.statsCache = statsCache;
+        this.transitionRepository = transitionRepository;
+        this.statusRecorder = statusRecorder;
     }
 
+    /**
+     * Creates the payment instruction straight in its initial status, pending when a fee clerk records it and draft
+     * otherwise, and writes its status history along with it. The id comes back with the insert and the payment type
+     * from the second level cache, so the new instruction is not read back.
+     */
     public PaymentInstruction createPaymentInstruction(BarUser barUser, PaymentInstruction paymentInstruction)  {
         PaymentReference nextPaymentReference = paymentReferenceService.getNextPaymentReference(barUser.getSelectedSiteId());
         paymentInstruction.setSiteId(barUser.getSelectedSiteId());
         paymentInstruction.setDailySequenceId(getDailySequentialPaymentId(nextPaymentReference));
-        paymentInstruction.setStatus(PaymentStatusEnum.DRAFT.dbKey());
         paymentInstruction.setUserId(barUser.getId());
-        PaymentInstruction savedPaymentInstruction = paymentInstructionRepository.saveAndRefresh(paymentInstruction);
-        savePaymentInstructionStatus(savedPaymentInstruction, barUser.getId());
-        if ((barUser.getRoles().contains(BarUserRoleEnum.BAR_FEE_CLERK.getIdamRole()))) {
-            savedPaymentInstruction.setStatus(PaymentStatusEnum.PENDING.dbKey());
-            paymentInstructionRepository.saveAndRefresh(savedPaymentInstruction);
-            savePaymentInstructionStatus(savedPaymentInstruction,barUser.getId());
-        }
+        List<String> initialStatuses = getInitialStatuses(barUser);
+        paymentInstruction.setStatus(initialStatuses.get(initialStatuses.size() - 1));
+        prepareForInsert(paymentInstruction);
+        PaymentInstruction savedPaymentInstruction = paymentInstructionRepository.save(paymentInstruction);
+        saveInitialStatuses(Collections.singletonList(savedPaymentInstruction), initialStatuses, barUser.getId());
         auditRepository.trackPaymentInstructionEvent("CREATE_PAYMENT_INSTRUCTION_EVENT", paymentInstruction, barUser);
         return savedPaymentInstruction;
     }
 
+    /**
+     * Creates the payment instructions in one transaction, as {@link #createPaymentInstruction} does one by one. The
+     * daily sequence ids are taken in one go and the ids come from the sequence, so the payment instructions and
+     * their status rows are written with batched inserts when the transaction flushes.
+     */
+    public List<PaymentInstruction> createPaymentInstructions(BarUser barUser, List<PaymentInstruction> paymentInstructions) {
+        List<PaymentReference> paymentReferences = paymentReferenceService.getNextPaymentReferences(barUser.getSelectedSiteId(),
+            paymentInstructions.size());
+        List<String> initialStatuses = getInitialStatuses(barUser);
+        for (int i = 0; i < paymentInstructions.size(); i++) {
+            PaymentInstruction paymentInstruction = paymentInstructions.get(i);
+            paymentInstruction.setSiteId(barUser.getSelectedSiteId());
+            paymentInstruction.setDailySequenceId(getDailySequentialPaymentId(paymentReferences.get(i)));
+            paymentInstruction.setUserId(barUser.getId());
+            paymentInstruction.setStatus(initialStatuses.get(initialStatuses.size() - 1));
+            prepareForInsert(paymentInstruction);
+        }
+        paymentInstructionRepository.persistAll(paymentInstructions);
+        saveInitialStatuses(paymentInstructions, initialStatuses, barUser.getId());
+        paymentInstructions.forEach(paymentInstruction ->
+            auditRepository.trackPaymentInstructionEvent("CREATE_PAYMENT_INSTRUCTION_EVENT", paymentInstruction, barUser));
+        return paymentInstructions;
+    }
+
+    private static List<String> getInitialStatuses(BarUser barUser) {
+        return barUser.getRoles().contains(BarUserRoleEnum.BAR_FEE_CLERK.getIdamRole())
+            ? Arrays.asList(PaymentStatusEnum.DRAFT.dbKey(), PaymentStatusEnum.PENDING.dbKey())
+            : Collections.singletonList(PaymentStatusEnum.DRAFT.dbKey());
+    }
+
+    @Transactional(readOnly = true)
     public List<PaymentInstruction> getAllPaymentInstructions(BarUser barUser,  PaymentInstructionSearchCriteriaDto paymentInstructionSearchCriteriaDto)  {
+        return getPaymentInstructionsPage(barUser, paymentInstructionSearchCriteriaDto, MAX_RECORDS_PER_PAGE).getContent();
+    }
+
+    /**
+     * Returns up to {@code pageSize} payment instructions, newest first, that sort after the cursor held in the search
+     * criteria. The page is located with a seek predicate on (paymentDate, id) rather than an offset. It is served
+     * from the (site_id, payment_date, id) index, so later pages cost the same as the first one. The instructions are loaded read-only, they are neither dirty checked nor flushed.
+     */
+    @Transactional(readOnly = true)
+    public PaymentInstructionPage getPaymentInstructionsPage(BarUser barUser, PaymentInstructionSearchCriteriaDto paymentInstructionSearchCriteriaDto, int pageSize) {
         paymentInstructionSearchCriteriaDto.setSiteId(barUser.getSelectedSiteId());
         PaymentInstructionsSpecifications<PaymentInstruction> paymentInstructionsSpecification = new PaymentInstructionsSpecifications<>(paymentInstructionSearchCriteriaDto,paymentTypeService);
-        Sort sort = Sort.by(Sort.Direction.DESC, "paymentDate");
-        Pageable pageDetails = PageRequest.of(PAGE_NUMBER, MAX_RECORDS_PER_PAGE, sort);
 
         Specification<PaymentInstruction> piSpecification = null;
         if (paymentInstructionSearchCriteriaDto.getMultiplePiIds() != null) {
@@ -121,10 +180,27 @@ public class PaymentInstructionService {
             piSpecification = paymentInstructionsSpecification.getPaymentInstructionsSpecification();
         }
 
-        return Lists.newArrayList(paymentInstructionRepository.findAll(piSpecification, pageDetails).iterator());
+        // one extra row tells us whether there is a next page without counting the whole result set
+        List<PaymentInstruction> paymentInstructions = paymentInstructionRepository.findAll(piSpecification, PAGE_SORT, pageSize + 1);
+        if (paymentInstructions.size() <= pageSize) {
+            return new PaymentInstructionPage(paymentInstructions, null);
+        }
+        List<PaymentInstruction> content = new ArrayList<>(paymentInstructions.subList(0, pageSize));
+        return new PaymentInstructionPage(content, PaymentInstructionCursor.after(content.get(pageSize - 1)));
     }
 
+    /**
+     * Counts status rows. A query over whole days is answered from the status counters, the time of day of the start
+     * and end date is not looked at then.
+     */
     public long getPaymentInstructionsCount(PaymentInstructionStatusCriteriaDto paymentInstructionStatusCriteriaDto) {
+        if (paymentInstructionStatusCriteriaDto.getStartDate() != null && paymentInstructionStatusCriteriaDto.getEndDate() != null
+            && paymentInstructionStatusCriteriaDto.getSiteId() != null && paymentInstructionStatusCriteriaDto.getStatus() != null) {
+            return statusCounterRepository.count(paymentInstructionStatusCriteriaDto.getSiteId(),
+                paymentInstructionStatusCriteriaDto.getStatus(), paymentInstructionStatusCriteriaDto.getUserId(),
+                paymentInstructionStatusCriteriaDto.getStartDate().toLocalDate(),
+                paymentInstructionStatusCriteriaDto.getEndDate().toLocalDate());
+        }
         PaymentInstructionStatusSpecifications<PaymentInstructionStatus> paymentInstructionStatusSpecification = new PaymentInstructionStatusSpecifications(paymentInstructionStatusCriteriaDto);
         Specification<PaymentInstructionStatus>  pisSpecification = paymentInstructionStatusSpecification.getPaymentInstructionStatusSpecification();
         return paymentInstructionStatusRepository.count(pisSpecification);
@@ -136,26 +212,42 @@ public class PaymentInstructionService {
         return paymentInstructionStatusRepository.getNonResetCountByStatus(status, siteId);
     }
 
-    public List<PayhubPaymentInstruction> getAllPaymentInstructionsForPayhub(
-        BarUser barUser,
-        PaymentInstructionSearchCriteriaDto paymentInstructionSearchCriteriaDto
-    )  {
-        paymentInstructionSearchCriteriaDto.setSiteId(barUser.getSelectedSiteId());
+    public List<PayhubPaymentInstruction> getPaymentInstructionsForPayhub(String siteId,
+                                                                          PaymentInstructionSearchCriteriaDto paymentInstructionSearchCriteriaDto,
+                                                                          int afterId,
+                                                                          int limit) {
+        paymentInstructionSearchCriteriaDto.setSiteId(siteId);
         PaymentInstructionsSpecifications<PayhubPaymentInstruction> paymentInstructionsSpecification =
             new PaymentInstructionsSpecifications<>(paymentInstructionSearchCriteriaDto, paymentTypeService);
 
         Specification<PayhubPaymentInstruction> piForPayhubSpecification = paymentInstructionsSpecification.getPaymentInstructionsSpecification();
-        return payhubPaymentInstructionRepository.findAll(piForPayhubSpecification);
+        List<PayhubPaymentInstruction> chunk = payhubPaymentInstructionRepository.findAll(piForPayhubSpecification.and(idAfter(afterId)).and(notBeingSent()), PAYHUB_CHUNK_SORT, limit);
+        return chunk.isEmpty() ? chunk : payhubPaymentInstructionRepository.findAllWithCaseFeeDetailsByIdIn(ids(chunk));
     }
 
-    public List<PayhubFullRemission> getAllRemissionsForPayhub(BarUser barUser,
-                                                                    PaymentInstructionSearchCriteriaDto paymentInstructionSearchCriteriaDto)  {
-        paymentInstructionSearchCriteriaDto.setSiteId(barUser.getSelectedSiteId());
+    public List<PayhubFullRemission> getRemissionsForPayhub(String siteId,
+                                                            PaymentInstructionSearchCriteriaDto paymentInstructionSearchCriteriaDto,
+                                                            int afterId,
+                                                            int limit) {
+        paymentInstructionSearchCriteriaDto.setSiteId(siteId);
         PaymentInstructionsSpecifications<PayhubFullRemission> paymentInstructionsSpecification =
             new PaymentInstructionsSpecifications<>(paymentInstructionSearchCriteriaDto, paymentTypeService);
 
         Specification<PayhubFullRemission> piForPayhubSpecification = paymentInstructionsSpecification.getPaymentInstructionsSpecification();
-        return payhubFullRemissionRepository.findAll(piForPayhubSpecification);
+        List<PayhubFullRemission> chunk = payhubFullRemissionRepository.findAll(piForPayhubSpecification.and(idAfter(afterId)).and(notBeingSent()), PAYHUB_CHUNK_SORT, limit);
+        return chunk.isEmpty() ? chunk : payhubFullRemissionRepository.findAllWithCaseFeeDetailsByIdIn(ids(chunk));
+    }
+
+    private static <T> Specification<T> idAfter(int id) {
+        return (root, query, cb) -> cb.greaterThan(root.get("id"), id);
+    }
+
+    private static <T> Specification<T> notBeingSent() {
+        return (root, query, cb) -> cb.isNull(root.get("payhubJobId"));
+    }
+
+    private static List<Integer> ids(List<? extends BasePaymentInstruction> paymentInstructions) {
+        return paymentInstructions.stream().map(BasePaymentInstruction::getId).collect(Collectors.toList());
     }
 
     public PaymentInstruction getPaymentInstruction(Integer id, String siteId) {
@@ -164,6 +256,8 @@ public class PaymentInstructionService {
     }
 
     public void deletePaymentInstruction(Integer id, String siteId) {
+        statusCounterRepository.removePaymentInstruction(id, siteId);
+        statsCache.evictSite(siteId);
         paymentInstructionStatusRepository.deleteByPaymentInstructionId(id, siteId);
         int deletedPayment = paymentInstructionRepository.deleteByIdAndSiteId(id, siteId);
         if (deletedPayment <= 0){
@@ -186,6 +280,7 @@ public class PaymentInstructionService {
             paymentInstructionUpdateRequest.setStatus(PaymentStatusEnum.PENDING.dbKey());
         }
 
+        Integer previousAmount = existingPaymentInstruction.getAmount();
         updatePaymentInstructionsProps(existingPaymentInstruction, paymentInstructionUpdateRequest);
 		if (PaymentStatusEnum.PENDING.dbKey().equals(paymentInstructionUpdateRequest.getStatus())) {
 			existingPaymentInstruction.setAction(null);
@@ -193,7 +288,7 @@ public class PaymentInstructionService {
 			existingPaymentInstruction.setActionComment(null);
 		}
         existingPaymentInstruction.setUserId(barUser.getId());
-        savePaymentInstructionStatus(existingPaymentInstruction, barUser.getId());
+        statusRecorder.recordStatus(existingPaymentInstruction, previousAmount, barUser.getId());
         PaymentInstruction paymentInstruction = paymentInstructionRepository.saveAndRefresh(existingPaymentInstruction);
 
         auditRepository.trackPaymentInstructionEvent("PAYMENT_INSTRUCTION_UPDATE_EVENT",existingPaymentInstruction, barUser);
@@ -201,6 +296,91 @@ public class PaymentInstructionService {
         return paymentInstruction;
     }
 
+    /**
+     * Moves many payment instructions of the user's site through the same transition that
+     * {@link #submitPaymentInstruction} applies to one. They are loaded with their fees in one query and validated one
+     * by one; the ones that pass are moved on with set-based statements and their status history is written with batch
+     * inserts, the others are left as they are. Returns the outcome per payment instruction, in the order of the ids
+     * or of the selection.
+     */
+    public List<PaymentInstructionTransitionResult> transitionPaymentInstructions(BarUser barUser, PaymentInstructionTransitionRequest request) {
+        PaymentInstructionUpdateRequest transition = request.getTransition();
+        if (transition == null || transition.getStatus() == null) {
+            throw new BadRequestException("the transition must have a status");
+        }
+        if (!checkIfActionEnabled(transition)) {
+            throw new FeatureAccessException(transition.getAction() + " is not allowed");
+        }
+        String siteId = barUser.getSelectedSiteId();
+        List<Integer> ids = request.getIds() != null ? request.getIds().stream().distinct().collect(Collectors.toList())
+            : selectPaymentInstructionIds(siteId, request.getSelector());
+        if (ids.size() > MAX_TRANSITION_SIZE) {
+            throw new BadRequestException("at most " + MAX_TRANSITION_SIZE + " payment instructions can be moved on at once");
+        }
+        Map<Integer, PaymentInstruction> paymentInstructions = ids.isEmpty() ? Collections.emptyMap()
+            : paymentInstructionRepository.findAllWithCaseFeeDetailsByIdIn(ids).stream()
+                .filter(pi -> siteId.equals(pi.getSiteId()))
+                .collect(Collectors.toMap(PaymentInstruction::getId, Function.identity()));
+
+        List<PaymentInstructionTransitionResult> results = new ArrayList<>(ids.size());
+        List<PaymentInstruction> valid = new ArrayList<>();
+        for (Integer id : ids) {
+            PaymentInstruction pi = paymentInstructions.get(id);
+            if (pi == null) {
+                results.add(PaymentInstructionTransitionResult.failed(id, new PaymentInstructionNotFoundException(id, siteId).getMessage()));
+                continue;
+            }
+            try {
+                updateValidatorService.validateAll(pi, transition);
+                valid.add(pi);
+                results.add(PaymentInstructionTransitionResult.succeeded(id));
+            } catch (PaymentProcessException e) {
+                results.add(PaymentInstructionTransitionResult.failed(id, e.getErrorMessage()));
+            }
+        }
+        if (valid.isEmpty()) {
+            return results;
+        }
+
+        // Assign post clerk payments to fee clerk
+        String status = transition.getStatus().equals(PaymentStatusEnum.DRAFT.dbKey()) ? PaymentStatusEnum.PENDING.dbKey() : transition.getStatus();
+        boolean pending = PaymentStatusEnum.PENDING.dbKey().equals(status);
+        String action = pending ? null : transition.getAction();
+        Integer actionReason = pending ? null : transition.getActionReason();
+        String actionComment = pending ? null : transition.getActionComment();
+        // the rows are written with SQL, the loaded entities only carry the new values on to the audit
+        paymentInstructionRepository.detachAll(valid);
+        transitionRepository.transition(valid.stream().map(PaymentInstruction::getId).collect(Collectors.toList()),
+            status, pending || action != null, action, actionReason, actionComment, barUser.getId());
+        statsCache.evictSite(siteId);
+        for (PaymentInstruction pi : valid) {
+            pi.setStatus(status);
+            if (pending || action != null) {
+                pi.setAction(action);
+            }
+            pi.setActionReason(actionReason);
+            pi.setActionComment(actionComment);
+            pi.setUserId(barUser.getId());
+            auditRepository.trackPaymentInstructionEvent("PAYMENT_INSTRUCTION_UPDATE_EVENT", pi, barUser);
+        }
+        return results;
+    }
+
+    private List<Integer> selectPaymentInstructionIds(String siteId, PaymentInstructionSelector selector) {
+        if (selector == null) {
+            throw new BadRequestException("either ids or a selector must be given");
+        }
+        PaymentInstructionSearchCriteriaDto criteria = PaymentInstructionSearchCriteriaDto.paymentInstructionSearchCriteriaDto()
+            .siteId(siteId).userId(selector.getUserId()).status(selector.getStatus()).paymentType(selector.getPaymentType())
+            .action(selector.getAction()).bgcNumber(selector.getBgcNumber()).oldStatus(selector.getOldStatus()).build();
+        Specification<PaymentInstruction> specification = new PaymentInstructionsSpecifications<PaymentInstruction>(criteria, paymentTypeService)
+            .getPaymentInstructionsSpecification();
+        // one more than allowed tells a selection that is too large apart
+        return paymentInstructionRepository.findAll(specification, PAYHUB_CHUNK_SORT, MAX_TRANSITION_SIZE + 1).stream()
+            .map(PaymentInstruction::getId)
+            .collect(Collectors.toList());
+    }
+
     public PaymentInstruction updatePaymentInstruction(BarUser barUser, Integer id, PaymentInstructionRequest paymentInstructionRequest)  {
         Optional<PaymentInstruction> optionalPaymentInstruction = paymentInstructionRepository.findByIdAndSiteId(id, barUser.getSelectedSiteId());
         PaymentInstruction existingPaymentInstruction = optionalPaymentInstruction
@@ -213,9 +393,10 @@ public class PaymentInstructionService {
             existingPaymentInstruction.setBgcNumber(bgc.getBgcNumber());
         }
 
+        Integer previousAmount = existingPaymentInstruction.getAmount();
         updatePaymentInstructionsProps(existingPaymentInstruction, paymentInstructionRequest);
         existingPaymentInstruction.setUserId(barUser.getId());
-        savePaymentInstructionStatus(existingPaymentInstruction, barUser.getId());
+        statusRecorder.recordStatus(existingPaymentInstruction, previousAmount, barUser.getId());
         PaymentInstruction paymentInstruction = paymentInstructionRepository.saveAndRefresh(existingPaymentInstruction);
         auditRepository.trackPaymentInstructionEvent("PAYMENT_INSTRUCTION_UPDATE_EVENT",existingPaymentInstruction,barUser);
         return paymentInstruction;
@@ -227,29 +408,37 @@ public class PaymentInstructionService {
 
 
     public MultiMap getPaymentInstructionStats(String status,boolean sentToPayhub, String siteId) {
-        List<PaymentInstructionUserStats> paymentInstructionInStatusList = paymentInstructionStatusRepository
-            .getPaymentInstructionsByStatusGroupedByUser(status,sentToPayhub, siteId);
+        List<PaymentInstructionUserStats> paymentInstructionInStatusList = statsCache.get(siteId, "byUser",
+            () -> Collections.unmodifiableList(paymentInstructionStatusRepository
+                .getPaymentInstructionsByStatusGroupedByUser(status, sentToPayhub, siteId)),
+            status, sentToPayhub);
 
         return Util.createMultimapFromList(paymentInstructionInStatusList);
     }
     public MultiMap getPaymentInstructionStatsWithCount(String status, String siteId, LocalDateTime startDate, LocalDateTime endDate) {
-        List<PaymentInstructionUserStatsWithRole> paymentInstructionInStatusWithRoleList = paymentInstructionStatusRepository
-            .getPaymentInstructionsByStatusGroupedByUserWithCount(status, siteId,startDate,endDate);
+        List<PaymentInstructionUserStatsWithRole> paymentInstructionInStatusWithRoleList = statusCounterRepository
+            .countByUser(siteId, status, startDate.toLocalDate(), endDate.toLocalDate());
 
         return Util.createMultimapFromListWithRole(paymentInstructionInStatusWithRoleList);
     }
     public MultiMap getPaymentInstructionStatsByCurrentStatusGroupedByOldStatus(String currentStatus,
                                                                                 String oldStatus,
                                                                                 String siteId) {
-        List<PaymentInstructionStaticsByUser> paymentInstructionStaticsByUserObjects = paymentInstructionStatusRepository
-            .getPaymentInstructionStatsByCurrentStatusAndByOldStatus(currentStatus, oldStatus, siteId);
+        List<PaymentInstructionStaticsByUser> paymentInstructionStaticsByUserObjects = statsCache.get(siteId, "byOldStatus",
+            () -> Collections.unmodifiableList(paymentInstructionStatusRepository
+                .getPaymentInstructionStatsByCurrentStatusAndByOldStatus(currentStatus, oldStatus, siteId)),
+            currentStatus, oldStatus);
         paymentInstructionStaticsByUserObjects = Util.getFilteredPisList(paymentInstructionStaticsByUserObjects);
         return Util.createMultimapFromPisByUserList(paymentInstructionStaticsByUserObjects);
     }
 
     public MultiMap getPaymentStatsByUserGroupByType(String userId, String status, Optional<String> oldStatus, boolean sentToPayhub, String siteId) {
         String oldPaymentStatus = oldStatus.orElse(status);
-        List<PaymentInstructionStats> results = paymentInstructionStatusRepository.getStatsByUserGroupByType(userId, status, oldPaymentStatus, sentToPayhub, siteId);
+        // only the query result is cached, the links are built for the current request
+        List<PaymentInstructionStats> results = statsCache.get(siteId, "byType",
+            () -> Collections.unmodifiableList(paymentInstructionStatusRepository
+                .getStatsByUserGroupByType(userId, status, oldPaymentStatus, sentToPayhub, siteId)),
+            userId, status, oldPaymentStatus, sentToPayhub);
 
         return createHateoasResponse(results, userId, status, oldStatus.orElse(null));
     }
@@ -287,20 +476,64 @@ public class PaymentInstructionService {
         return linkTo(methodOn(PaymentInstructionController.class)
             .getPaymentInstructionsByIdamId(null, userId, status,
                 null, null, null, null, null,
-                null, null, null, paymentType, action, null, bgcNumber, oldStatus,null)
+                null, null, null, paymentType, action, null, bgcNumber, oldStatus, null,
+                null, null, null)
         ).withRel(rel);
     }
 
-    public void savePaymentInstructionStatus(PaymentInstruction pi, String userId) {
-        PaymentInstructionStatus pis = new PaymentInstructionStatus(userId, pi);
-        paymentInstructionStatusRepository.save(pis);
+    private void saveInitialStatuses(List<PaymentInstruction> paymentInstructions, List<String> statuses, String userId) {
+        List<PaymentInstructionStatus> allStatuses = new ArrayList<>();
+        for (PaymentInstruction pi : paymentInstructions) {
+            List<PaymentInstructionStatus> paymentInstructionStatuses = statuses.stream()
+                .map(status -> new PaymentInstructionStatus(userId, pi, status))
+                .collect(Collectors.toList());
+            paymentInstructionStatusRepository.persistAll(paymentInstructionStatuses);
+            allStatuses.addAll(paymentInstructionStatuses);
+        }
+        // the native inserts of the latest statuses flush the session, by now holding every row to insert in batches
+        for (int i = 0; i < allStatuses.size(); i += statuses.size()) {
+            paymentInstructionStatusRepository.recordInitialStatuses(allStatuses.subList(i, i + statuses.size()));
+        }
+        statusCounterRepository.recordStatuses(allStatuses);
+        paymentInstructions.stream().map(PaymentInstruction::getSiteId).distinct().forEach(statsCache::evictSite);
+    }
+
+    /**
+     * Fills in what reading the new payment instruction back used to: its payment type and empty collections.
+     */
+    private void prepareForInsert(PaymentInstruction paymentInstruction) {
+        DiscriminatorValue paymentTypeId = AnnotationUtils.findAnnotation(paymentInstruction.getClass(), DiscriminatorValue.class);
+        if (paymentInstruction.getPaymentType() == null && paymentTypeId != null) {
+            paymentInstruction.setPaymentType(paymentTypeService.findPaymentType(paymentTypeId.value()));
+        }
+        if (paymentInstruction.getCaseFeeDetails() == null) {
+            paymentInstruction.setCaseFeeDetails(new ArrayList<>());
+        }
+        if (paymentInstruction.getStatuses() == null) {
+            paymentInstruction.setStatuses(new ArrayList<>());
+        }
+        if (paymentInstruction.getPayhubReferences() == null) {
+            paymentInstruction.setPayhubReferences(new ArrayList<>());
+        }
+    }
+
+    public void rebuildStatusCounters() {
+        statusCounterRepository.rebuild();
     }
 
-    public Map<Integer, List<PaymentInstructionStatusHistory>> getStatusHistoryMapForTTB(LocalDate startDate,  LocalDate endDate, String siteId) {
+    /**
+     * Hands the payment instructions of the TTB report to the consumer one by one, in the order of their ids, with
+     * their status history set. The status history is read as a stream and the payment instructions are loaded with
+     * their fees {@value #REPORT_FETCH_SIZE} at a time, then detached once the consumer is done with them, so the
+     * memory used does not grow with the report period.
+     */
+    @Transactional(readOnly = true)
+    public void forEachPaymentInstructionByTTB(LocalDate startDate, LocalDate endDate, String siteId,
+                                               Consumer<PaymentInstruction> consumer) {
 
         if (null != endDate && startDate.isAfter(endDate)) {
             LOG.error("PaymentInstructionService - Error while generating daily fees csv file. Incorrect start and end dates ");
-            return Collections.emptyMap();
+            return;
         }
         LocalDate searchEndDate;
 
@@ -310,35 +543,45 @@ public class PaymentInstructionService {
             searchEndDate = endDate.plusDays(1);
         }
 
-        List<PaymentInstructionStatusHistory> statusHistoryList = paymentInstructionStatusRepository.getPaymentInstructionStatusHistoryForTTB
-            (startDate.atStartOfDay(), searchEndDate.atStartOfDay(),siteId);
-
-        final Map<Integer, List<PaymentInstructionStatusHistory>> statusHistoryMapByPaymentInstructionId = new HashMap<>();
-        for (final PaymentInstructionStatusHistory statusHistory : statusHistoryList) {
-            if (statusHistoryMapByPaymentInstructionId.get(statusHistory.getPaymentInstructionId()) == null) {
-                List<PaymentInstructionStatusHistory> listByPaymentInstructionId = new ArrayList<>();
-                listByPaymentInstructionId.add(statusHistory);
-                statusHistoryMapByPaymentInstructionId.put(statusHistory.getPaymentInstructionId(), listByPaymentInstructionId);
-            } else {
-                statusHistoryMapByPaymentInstructionId.get(statusHistory.getPaymentInstructionId()).add(statusHistory);
+        // the history comes ordered by payment instruction id, so an instruction's rows arrive together
+        Map<Integer, List<PaymentInstructionStatusHistory>> statusHistoryByPaymentInstructionId = new LinkedHashMap<>();
+        try (Stream<PaymentInstructionStatusHistory> statusHistoryStream = paymentInstructionStatusRepository
+            .streamPaymentInstructionStatusHistoryForTTB(startDate.atStartOfDay(), searchEndDate.atStartOfDay(), siteId)) {
+            Iterator<PaymentInstructionStatusHistory> statusHistories = statusHistoryStream.iterator();
+            while (statusHistories.hasNext()) {
+                PaymentInstructionStatusHistory statusHistory = statusHistories.next();
+                List<PaymentInstructionStatusHistory> history = statusHistoryByPaymentInstructionId.get(statusHistory.getPaymentInstructionId());
+                if (history == null) {
+                    if (statusHistoryByPaymentInstructionId.size() == REPORT_FETCH_SIZE) {
+                        forEachReportChunk(statusHistoryByPaymentInstructionId, consumer);
+                        statusHistoryByPaymentInstructionId.clear();
+                    }
+                    history = new ArrayList<>();
+                    statusHistoryByPaymentInstructionId.put(statusHistory.getPaymentInstructionId(), history);
+                }
+                history.add(statusHistory);
             }
-
         }
-        return statusHistoryMapByPaymentInstructionId;
+        forEachReportChunk(statusHistoryByPaymentInstructionId, consumer);
     }
 
-    public List<PaymentInstruction> getAllPaymentInstructionsByTTB(LocalDate startDate, LocalDate endDate, String siteId) {
-        Map<Integer, List<PaymentInstructionStatusHistory>> statusHistortMapForTTB = getStatusHistoryMapForTTB(startDate, endDate,siteId);
-        Iterator<Map.Entry<Integer, List<PaymentInstructionStatusHistory>>> iterator = statusHistortMapForTTB.entrySet().iterator();
-        List<PaymentInstruction> paymentInstructionsList = new ArrayList<>();
-        while (iterator.hasNext()) {
-            Map.Entry<Integer, List<PaymentInstructionStatusHistory>> entry = iterator.next();
-            PaymentInstruction paymentInstruction = paymentInstructionRepository.getOne(entry.getKey());
-            paymentInstruction.setPaymentInstructionStatusHistory(entry.getValue());
-            paymentInstructionsList.add(paymentInstruction);
-
+    private void forEachReportChunk(Map<Integer, List<PaymentInstructionStatusHistory>> statusHistoryByPaymentInstructionId,
+                                    Consumer<PaymentInstruction> consumer) {
+        if (statusHistoryByPaymentInstructionId.isEmpty()) {
+            return;
+        }
+        List<PaymentInstruction> paymentInstructions = paymentInstructionRepository
+            .findAllWithCaseFeeDetailsByIdIn(statusHistoryByPaymentInstructionId.keySet());
+        Map<Integer, PaymentInstruction> paymentInstructionsById = paymentInstructions.stream()
+            .collect(Collectors.toMap(PaymentInstruction::getId, Function.identity()));
+        for (Map.Entry<Integer, List<PaymentInstructionStatusHistory>> statusHistory : statusHistoryByPaymentInstructionId.entrySet()) {
+            PaymentInstruction paymentInstruction = paymentInstructionsById.get(statusHistory.getKey());
+            if (paymentInstruction != null) {
+                paymentInstruction.setPaymentInstructionStatusHistory(statusHistory.getValue());
+                consumer.accept(paymentInstruction);
+            }
         }
-        return paymentInstructionsList;
+        paymentInstructionRepository.detachAll(paymentInstructions);
     }
 
     private boolean checkIfActionEnabled(PaymentInstructionUpdateRequest paymentInstructionUpdateRequest){
@@ -350,11 +593,7 @@ public class PaymentInstructionService {
     }
 
     private void updatePaymentInstructionsProps(PaymentInstruction existingPi, Object updateRequest) {
-        String[] nullPropertiesNamesToIgnore = Util.getNullPropertyNames(updateRequest);
-        String[] propNamesToIgnore = Arrays.stream(nullPropertiesNamesToIgnore)
-            .filter(s -> Arrays.stream(ALWAYS_UPDATE).noneMatch(s::equals))
-            .toArray(String[]::new);
-        BeanUtils.copyProperties(updateRequest, existingPi, propNamesToIgnore);
+        PropertyCopier.copyNonNullProperties(updateRequest, existingPi, ALWAYS_UPDATE);
     }
 
     private String getDailySequentialPaymentId(PaymentReference paymentReference){
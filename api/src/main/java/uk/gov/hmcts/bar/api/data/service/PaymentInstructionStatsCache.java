@@ -0,0 +1,97 @@
+package uk.gov.hmcts.bar.api.data.service;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the results of the dashboard stats queries in the paymentInstructionStats cache for a few seconds, per site
+ * and query parameters. Concurrent identical requests wait for the one computation already in flight instead of
+ * running the query again. Any write to a site's payment instructions starts a new generation of that site's entries,
+ * once right away and once more after the writing transaction commits, so a user always sees their own change; the
+ * entries of the old generation are never read again and expire with the cache's ttl. Other nodes see the change once
+ * their entries expire.
+ */
+@Component
+public class PaymentInstructionStatsCache {
+
+    public static final String CACHE_NAME = "paymentInstructionStats";
+
+    private final Cache cache;
+    private final ConcurrentMap<String, AtomicLong> generations = new ConcurrentHashMap<>();
+
+    public PaymentInstructionStatsCache(CacheManager cacheManager) {
+        this.cache = cacheManager.getCache(CACHE_NAME);
+    }
+
+    public <T> T get(String siteId, String query, Callable<T> loader, Object... params) {
+        return cache.get(new StatsKey(siteId, generation(siteId).get(), query, params), loader);
+    }
+
+    public void evictSite(String siteId) {
+        if (siteId == null) {
+            return;
+        }
+        AtomicLong generation = generation(siteId);
+        generation.incrementAndGet();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // a read between now and the commit may have cached the old state again
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    generation.incrementAndGet();
+                }
+            });
+        }
+    }
+
+    public void evictAll() {
+        cache.clear();
+    }
+
+    private AtomicLong generation(String siteId) {
+        return generations.computeIfAbsent(siteId, id -> new AtomicLong());
+    }
+
+    private static final class StatsKey {
+        private final String siteId;
+        private final long generation;
+        private final String query;
+        private final List<Object> params;
+
+        private StatsKey(String siteId, long generation, String query, Object... params) {
+            this.siteId = siteId;
+            this.generation = generation;
+            this.query = query;
+            this.params = Arrays.asList(params);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            StatsKey that = (StatsKey) o;
+            return generation == that.generation && Objects.equals(siteId, that.siteId)
+                && query.equals(that.query) && params.equals(that.params);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(siteId, generation, query, params);
+        }
+    }
+}
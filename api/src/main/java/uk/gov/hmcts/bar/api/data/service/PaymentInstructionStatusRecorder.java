@@ -0,0 +1,62 @@
+package uk.gov.hmcts.bar.api.data.service;
+
+import org.springframework.stereotype.Component;
+import uk.gov.hmcts.bar.api.data.model.PaymentInstruction;
+import uk.gov.hmcts.bar.api.data.model.PaymentInstructionStatus;
+import uk.gov.hmcts.bar.api.data.repository.PaymentInstructionLatestStatusRepository;
+import uk.gov.hmcts.bar.api.data.repository.PaymentInstructionStatusCounterRepository;
+import uk.gov.hmcts.bar.api.data.repository.PaymentInstructionStatusRepository;
+
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Records the current status of a single payment instruction as written by a user: the status history row, the
+ * latest status read model and the status counters, and starts a new generation of the site's dashboard stats. Status
+ * history rows are keyed to the second, so a status recorded again within the same second updates its row instead of
+ * adding one; the row stays counted once, under the user who wrote it last, as a rebuild of the counters would count
+ * it. Runs in the caller's transaction.
+ */
+@Component
+public class PaymentInstructionStatusRecorder {
+
+    private final PaymentInstructionStatusRepository paymentInstructionStatusRepository;
+    private final PaymentInstructionLatestStatusRepository latestStatusRepository;
+    private final PaymentInstructionStatusCounterRepository statusCounterRepository;
+    private final PaymentInstructionStatsCache statsCache;
+
+    public PaymentInstructionStatusRecorder(PaymentInstructionStatusRepository paymentInstructionStatusRepository,
+                                            PaymentInstructionLatestStatusRepository latestStatusRepository,
+                                            PaymentInstructionStatusCounterRepository statusCounterRepository,
+                                            PaymentInstructionStatsCache statsCache) {
+        this.paymentInstructionStatusRepository = paymentInstructionStatusRepository;
+        this.latestStatusRepository = latestStatusRepository;
+        this.statusCounterRepository = statusCounterRepository;
+        this.statsCache = statsCache;
+    }
+
+    /**
+     * Records the status the payment instruction is in now. {@code previousAmount} is the amount it had before the
+     * change being recorded; when it differs from the current one, the counters of the status rows it already has are
+     * moved on to the current amount first.
+     */
+    public void recordStatus(PaymentInstruction pi, Integer previousAmount, String userId) {
+        statusCounterRepository.recordAmountChange(pi.getId(), pi.getSiteId(), amountOf(pi.getAmount()) - amountOf(previousAmount));
+
+        PaymentInstructionStatus pis = new PaymentInstructionStatus(userId, pi);
+        Optional<String> previousUserId = paymentInstructionStatusRepository.findById(pis.getPaymentInstructionStatusReferenceKey())
+            .map(PaymentInstructionStatus::getBarUserId);
+        paymentInstructionStatusRepository.save(pis);
+        latestStatusRepository.recordLatestStatus(pis);
+        if (!previousUserId.isPresent()) {
+            statusCounterRepository.recordStatus(pis);
+        } else if (!Objects.equals(previousUserId.get(), userId)) {
+            statusCounterRepository.recordStatusReassigned(pis, previousUserId.get());
+        }
+        statsCache.evictSite(pi.getSiteId());
+    }
+
+    private static long amountOf(Integer amount) {
+        return amount == null ? 0 : amount;
+    }
+}
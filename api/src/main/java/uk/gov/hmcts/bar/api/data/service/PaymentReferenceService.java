@@ -1,63 +1,116 @@
 package uk.gov.hmcts.bar.api.data.service;
 
-import com.google.common.primitives.Chars;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 import uk.gov.hmcts.bar.api.data.model.PaymentReference;
 import uk.gov.hmcts.bar.api.data.repository.PaymentReferenceRepository;
 
-import java.util.Optional;
-
-
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Hands out the payment references of a site, A0001 to A9999, then B0001 and so on up to Z9999, after which it starts
+ * again at A0001.
+ *
+ * <p>References are reserved from the site's payment_reference row in blocks, in a short transaction of their own
+ * that holds the row lock only while the row is moved on by a block, and are then handed out from memory. Creating a
+ * payment instruction therefore doesn't lock the row for the length of its transaction. As a consequence:
+ * <ul>
+ *     <li>every node hands out references from blocks of its own, so references are unique but do not follow the
+ *     order in which the payment instructions were created across nodes</li>
+ *     <li>the references left in a node's block when it stops, and those taken by a create that rolls back, are never
+ *     used, leaving gaps in the sequence</li>
+ * </ul>
+ * With a block size of 1 every reference is reserved on its own and only rolled back creates leave gaps.
+ */
 @Service
-@Transactional
 public class PaymentReferenceService {
     private static final char[] SEQUENCE_CHARACTERS = "ABCDEFGHIJKLMNOPQRSTUVWXYZ".toCharArray();
-
-    private PaymentReferenceRepository paymentReferenceRepository;
-
-    public PaymentReferenceService(PaymentReferenceRepository paymentReferenceRepository) {
+    private static final int MAX_SEQUENCE_ID = 9999;
+    private static final int SEQUENCE_LENGTH = SEQUENCE_CHARACTERS.length * MAX_SEQUENCE_ID;
+
+    private final PaymentReferenceRepository paymentReferenceRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int blockSize;
+    private final ConcurrentMap<String, ReferenceBlock> blocks = new ConcurrentHashMap<>();
+
+    @Autowired
+    public PaymentReferenceService(PaymentReferenceRepository paymentReferenceRepository,
+                                   PlatformTransactionManager transactionManager,
+                                   @Value("${bar.payment-reference.block-size:20}") int blockSize) {
+        if (blockSize < 1 || blockSize > SEQUENCE_LENGTH) {
+            throw new IllegalArgumentException("Payment reference block size must be between 1 and " + SEQUENCE_LENGTH);
+        }
         this.paymentReferenceRepository = paymentReferenceRepository;
-
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.blockSize = blockSize;
     }
 
-    @Transactional
     public PaymentReference getNextPaymentReference(String siteId) {
+        return getNextPaymentReferences(siteId, 1).get(0);
+    }
 
-        PaymentReference nextPaymentReference;
-
-        Optional<PaymentReference> optionalCurrentPaymentReference = paymentReferenceRepository.findOneForUpdate(siteId);
-        if (optionalCurrentPaymentReference.isPresent()) {
-            PaymentReference currentPaymentReference = optionalCurrentPaymentReference.get();
-            nextPaymentReference = constructNextPaymentReference(currentPaymentReference);
-        } else {
-            nextPaymentReference = new PaymentReference(siteId,1,SEQUENCE_CHARACTERS[0]);
-
+    /**
+     * Hands out the given number of references at once. When the site's block runs out on the way, the next block
+     * reserved is large enough for the rest of them.
+     */
+    public List<PaymentReference> getNextPaymentReferences(String siteId, int count) {
+        if (count < 1 || count > SEQUENCE_LENGTH) {
+            throw new IllegalArgumentException("Number of payment references must be between 1 and " + SEQUENCE_LENGTH);
         }
-
-        paymentReferenceRepository.save(nextPaymentReference);
-        return nextPaymentReference;
+        List<PaymentReference> paymentReferences = new ArrayList<>(count);
+        ReferenceBlock block = blocks.computeIfAbsent(siteId, id -> new ReferenceBlock());
+        synchronized (block) {
+            while (paymentReferences.size() < count) {
+                if (block.remaining == 0) {
+                    int size = Math.max(blockSize, count - paymentReferences.size());
+                    block.lastPosition = reserveBlock(siteId, size);
+                    block.remaining = size;
+                }
+                block.lastPosition = nextPosition(block.lastPosition);
+                block.remaining--;
+                paymentReferences.add(toPaymentReference(siteId, block.lastPosition));
+            }
+        }
+        return paymentReferences;
     }
 
-    private PaymentReference constructNextPaymentReference(PaymentReference paymentReference) {
-
-        int currentSequenceId = paymentReference.getSequenceId();
-        int nextSequenceId = (currentSequenceId == 9999) ?  1 : currentSequenceId + 1;
-        char currentSequenceCharacter = paymentReference.getSequenceCharacter();
-
-        char nextSequenceCharacter = currentSequenceCharacter;
-        if(currentSequenceCharacter == SEQUENCE_CHARACTERS[25] && currentSequenceId == 9999)
-        {
-            nextSequenceCharacter = SEQUENCE_CHARACTERS[0];
+    /**
+     * Moves the site's payment_reference row on by a block and returns the position the block starts after.
+     */
+    private int reserveBlock(String siteId, int size) {
+        Integer lastPosition = transactionTemplate.execute(status -> {
+            int position = paymentReferenceRepository.findOneForUpdate(siteId)
+                .map(PaymentReferenceService::toPosition)
+                .orElse(-1);
+            paymentReferenceRepository.save(toPaymentReference(siteId, (position + size) % SEQUENCE_LENGTH));
+            return position;
+        });
+        return lastPosition;
+    }
 
-        }
-        else if (currentSequenceId == 9999 && currentSequenceCharacter !=SEQUENCE_CHARACTERS[25]) {
-            int index = Chars.indexOf(SEQUENCE_CHARACTERS,currentSequenceCharacter);
-            nextSequenceCharacter = SEQUENCE_CHARACTERS[index+1];
-        }
+    private static int nextPosition(int position) {
+        return (position + 1) % SEQUENCE_LENGTH;
+    }
 
-        return new PaymentReference(paymentReference.getSiteId(),nextSequenceId,nextSequenceCharacter);
+    private static int toPosition(PaymentReference paymentReference) {
+        int characterIndex = paymentReference.getSequenceCharacter() - SEQUENCE_CHARACTERS[0];
+        return characterIndex * MAX_SEQUENCE_ID + paymentReference.getSequenceId() - 1;
     }
 
+    private static PaymentReference toPaymentReference(String siteId, int position) {
+        return new PaymentReference(siteId, position % MAX_SEQUENCE_ID + 1, SEQUENCE_CHARACTERS[position / MAX_SEQUENCE_ID]);
+    }
 
+    private static final class ReferenceBlock {
+        private int lastPosition;
+        private int remaining;
+    }
 }
@@ -36,4 +36,11 @@ public class PaymentTypeService {
 		return paymentTypeRepository.getOne(id);
 	}
 
+	/**
+	 * Loads the payment type into the current persistence context, from the second level cache once it has been read.
+	 */
+	public PaymentType findPaymentType(String id) {
+		return paymentTypeRepository.findById(id).orElse(null);
+	}
+
 }
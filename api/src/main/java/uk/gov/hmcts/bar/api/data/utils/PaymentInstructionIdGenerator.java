@@ -0,0 +1,34 @@
+package uk.gov.hmcts.bar.api.data.utils;
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.config.spi.StandardConverters;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.util.Properties;
+
+/**
+ * Takes payment instruction ids from the payment_instruction_id_seq sequence. Unlike an identity column this lets
+ * Hibernate know the id before the insert, so inserts can be batched. Each nextval hands out a block of ids, the
+ * first one being the value returned (pooled-lo), so rows inserted outside Hibernate that take their id from the
+ * sequence never collide with it. The block size is the {@value #INCREMENT_SIZE_SETTING} setting and must match the
+ * increment of the sequence.
+ */
+public class PaymentInstructionIdGenerator extends SequenceStyleGenerator {
+
+    public static final String INCREMENT_SIZE_SETTING = "bar.payment_instruction.id_increment_size";
+    public static final String SEQUENCE_NAME = "payment_instruction_id_seq";
+    private static final int DEFAULT_INCREMENT_SIZE = 50;
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+        Integer incrementSize = serviceRegistry.getService(ConfigurationService.class)
+            .getSetting(INCREMENT_SIZE_SETTING, StandardConverters.INTEGER, DEFAULT_INCREMENT_SIZE);
+        params.setProperty(SEQUENCE_PARAM, SEQUENCE_NAME);
+        params.setProperty(INCREMENT_PARAM, String.valueOf(incrementSize));
+        params.setProperty(OPT_PARAM, "pooled-lo");
+        super.configure(type, params, serviceRegistry);
+    }
+}
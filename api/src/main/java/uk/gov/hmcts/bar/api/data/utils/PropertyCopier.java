@@ -0,0 +1,126 @@
+package uk.gov.hmcts.bar.api.data.utils;
+
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.FatalBeanException;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Copies bean properties the way {@link BeanUtils#copyProperties(Object, Object)} does: each writable property of the
+ * target is set from the readable property of the source with the same name and an assignable type. The properties to
+ * copy are worked out once per source and target class and kept as method handles, so a copy is one pass over them
+ * with no introspection, wrapper or name arrays.
+ */
+public final class PropertyCopier {
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private static final ClassValue<Map<Class<?>, CopyPlan>> PLANS = new ClassValue<Map<Class<?>, CopyPlan>>() {
+        @Override
+        protected Map<Class<?>, CopyPlan> computeValue(Class<?> sourceClass) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    private PropertyCopier() {
+    }
+
+    /**
+     * Copies every matching property, nulls included.
+     */
+    public static void copyProperties(Object source, Object target) {
+        for (PropertyAccessor accessor : planFor(source, target).accessors) {
+            accessor.set(target, accessor.get(source));
+        }
+    }
+
+    /**
+     * Copies the matching properties that are not null on the source, leaving the target's value in place otherwise.
+     * The properties named in {@code alwaysCopied} are copied even when null.
+     */
+    public static void copyNonNullProperties(Object source, Object target, String... alwaysCopied) {
+        for (PropertyAccessor accessor : planFor(source, target).accessors) {
+            Object value = accessor.get(source);
+            if (value != null || accessor.isOneOf(alwaysCopied)) {
+                accessor.set(target, value);
+            }
+        }
+    }
+
+    private static CopyPlan planFor(Object source, Object target) {
+        return PLANS.get(source.getClass()).computeIfAbsent(target.getClass(), targetClass -> new CopyPlan(source.getClass(), targetClass));
+    }
+
+    private static final class CopyPlan {
+        private final PropertyAccessor[] accessors;
+
+        private CopyPlan(Class<?> sourceClass, Class<?> targetClass) {
+            List<PropertyAccessor> found = new ArrayList<>();
+            for (PropertyDescriptor targetProperty : BeanUtils.getPropertyDescriptors(targetClass)) {
+                Method writeMethod = targetProperty.getWriteMethod();
+                PropertyDescriptor sourceProperty = BeanUtils.getPropertyDescriptor(sourceClass, targetProperty.getName());
+                Method readMethod = sourceProperty == null ? null : sourceProperty.getReadMethod();
+                if (writeMethod != null && readMethod != null
+                    && ClassUtils.isAssignable(writeMethod.getParameterTypes()[0], readMethod.getReturnType())) {
+                    found.add(new PropertyAccessor(targetProperty.getName(), readMethod, writeMethod));
+                }
+            }
+            this.accessors = found.toArray(new PropertyAccessor[0]);
+        }
+    }
+
+    private static final class PropertyAccessor {
+        private final String name;
+        private final MethodHandle getter;
+        private final MethodHandle setter;
+
+        private PropertyAccessor(String name, Method readMethod, Method writeMethod) {
+            this.name = name;
+            ReflectionUtils.makeAccessible(readMethod);
+            ReflectionUtils.makeAccessible(writeMethod);
+            try {
+                MethodHandles.Lookup lookup = MethodHandles.lookup();
+                this.getter = lookup.unreflect(readMethod).asType(GETTER_TYPE);
+                this.setter = lookup.unreflect(writeMethod).asType(SETTER_TYPE);
+            } catch (IllegalAccessException e) {
+                throw new FatalBeanException("Could not access property '" + name + "'", e);
+            }
+        }
+
+        private Object get(Object source) {
+            try {
+                return getter.invokeExact(source);
+            } catch (Throwable e) {
+                throw new FatalBeanException("Could not copy property '" + name + "' from source to target", e);
+            }
+        }
+
+        private void set(Object target, Object value) {
+            try {
+                setter.invokeExact(target, value);
+            } catch (Throwable e) {
+                throw new FatalBeanException("Could not copy property '" + name + "' from source to target", e);
+            }
+        }
+
+        private boolean isOneOf(String[] names) {
+            for (String candidate : names) {
+                if (name.equals(candidate)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -2,46 +2,19 @@ package uk.gov.hmcts.bar.api.data.utils;
 
 import org.apache.commons.collections.MultiMap;
 import org.apache.commons.collections.map.MultiValueMap;
-import org.springframework.beans.BeanWrapper;
-import org.springframework.beans.BeanWrapperImpl;
 import uk.gov.hmcts.bar.api.data.enums.BarUserRoleEnum;
-import uk.gov.hmcts.bar.api.data.enums.PaymentStatusEnum;
-import uk.gov.hmcts.bar.api.data.model.PaymentInstruction;
 import uk.gov.hmcts.bar.api.data.model.PaymentInstructionStaticsByUser;
 import uk.gov.hmcts.bar.api.data.model.PaymentInstructionUserStats;
 import uk.gov.hmcts.bar.api.data.model.PaymentInstructionUserStatsWithRole;
 
 import javax.persistence.criteria.CriteriaBuilder.In;
-import java.beans.FeatureDescriptor;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 
 public interface Util {
 
-    static String[] getNullPropertyNames(Object source) {
-        final BeanWrapper wrappedSource = new BeanWrapperImpl(source);
-        return Stream.of(wrappedSource.getPropertyDescriptors())
-            .map(FeatureDescriptor::getName)
-            .filter(propertyName -> wrappedSource.getPropertyValue(propertyName) == null)
-            .toArray(String[]::new);
-    }
-
-    static List<PaymentInstruction> updateStatusAndActionDisplayValue(
-        final List<PaymentInstruction> paymentInstructions) {
-        return paymentInstructions.stream().map(paymentInstruction -> {
-            paymentInstruction
-                .setStatus(PaymentStatusEnum.getPaymentStatusEnum(paymentInstruction.getStatus()).displayValue());
-            if (paymentInstruction.getAction() != null) {
-                paymentInstruction.setAction(paymentInstruction.getAction());
-            }
-            return paymentInstruction;
-        }).collect(Collectors.toList());
-    }
-
     static In<String> getInCriteriaWithStringValues(In<String> inCriteria, String columnName) {
         if (inCriteria == null) {
             return null;
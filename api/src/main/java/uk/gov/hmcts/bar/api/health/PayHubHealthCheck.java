@@ -1,6 +1,7 @@
 package uk.gov.hmcts.bar.api.health;
 
 import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
 import io.vavr.control.Try;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -18,19 +19,23 @@ import java.util.function.Supplier;
 @Component
 public class PayHubHealthCheck implements HealthIndicator {
 
+    public static final String CIRCUIT_BREAKER_NAME = "checkPayHub";
+
     private final RestTemplate restTemplate;
     private final String payHubUrl;
     private static final String LIVENESS_ENDPOINT = "/health/liveness";
     private final Supplier<PayHubStatus> decoratedSupplier;
 
     @Autowired
-    public PayHubHealthCheck(RestTemplateBuilder restTemplateBuilder, @Value("${payment.api.url}") String payHubUrl) {
+    public PayHubHealthCheck(RestTemplateBuilder restTemplateBuilder,
+                             CircuitBreakerRegistry circuitBreakerRegistry,
+                             @Value("${payment.api.url}") String payHubUrl) {
         this.payHubUrl = payHubUrl;
         this.restTemplate = restTemplateBuilder
             .setConnectTimeout(Duration.ofSeconds(2))
             .setReadTimeout(Duration.ofSeconds(2))
             .build();
-        CircuitBreaker circuitBreaker = CircuitBreaker.ofDefaults("checkPayHub");
+        CircuitBreaker circuitBreaker = circuitBreakerRegistry.circuitBreaker(CIRCUIT_BREAKER_NAME);
         decoratedSupplier = CircuitBreaker.decorateSupplier(circuitBreaker, this::check);
     }
 
@@ -0,0 +1,42 @@
+package uk.gov.hmcts.bar.api.integration.http;
+
+import lombok.Data;
+
+import java.time.Duration;
+
+/**
+ * Connection pool and timeout settings of the http client used for a single destination, bound from
+ * http.client.pools.&lt;name&gt;.*
+ */
+@Data
+public class HttpClientPoolSpec {
+
+    private Duration connectTimeout = Duration.ofSeconds(5);
+
+    /**
+     * How long a call waits for a connection to be leased from the pool.
+     */
+    private Duration connectionRequestTimeout = Duration.ofSeconds(5);
+
+    private Duration socketTimeout = Duration.ofSeconds(5);
+
+    private int maxConnectionsPerRoute = 20;
+
+    private int maxConnections = 50;
+
+    /**
+     * How long an idle connection is kept for reuse when the server does not send a Keep-Alive timeout, also the cap
+     * on the timeout the server sends.
+     */
+    private Duration keepAlive = Duration.ofSeconds(30);
+
+    /**
+     * Connections idle for longer than this are closed by a background evictor.
+     */
+    private Duration idleTimeout = Duration.ofSeconds(30);
+
+    /**
+     * Pooled connections unused for longer than this are checked before they are handed out again.
+     */
+    private Duration validateAfterInactivity = Duration.ofSeconds(2);
+}
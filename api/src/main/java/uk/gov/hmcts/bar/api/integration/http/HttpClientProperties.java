@@ -0,0 +1,18 @@
+package uk.gov.hmcts.bar.api.integration.http;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "http.client")
+public class HttpClientProperties {
+
+    private Map<String, HttpClientPoolSpec> pools = new LinkedHashMap<>();
+
+    public HttpClientPoolSpec getPool(String name) {
+        return pools.getOrDefault(name, new HttpClientPoolSpec());
+    }
+}
@@ -0,0 +1,60 @@
+package uk.gov.hmcts.bar.api.integration.http;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.httpcomponents.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds one pooled http client per outbound destination so that a slow destination can only exhaust its own
+ * connections. The pool gauges (leased, pending, available, max) are published as
+ * httpcomponents.httpclient.pool.* tagged with the pool name.
+ */
+public class PooledHttpClientFactory {
+
+    private final HttpClientProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    public PooledHttpClientFactory(HttpClientProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public CloseableHttpClient create(String name) {
+        HttpClientPoolSpec spec = properties.getPool(name);
+
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(spec.getMaxConnections());
+        connectionManager.setDefaultMaxPerRoute(spec.getMaxConnectionsPerRoute());
+        connectionManager.setValidateAfterInactivity((int) spec.getValidateAfterInactivity().toMillis());
+        new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, name).bindTo(meterRegistry);
+
+        RequestConfig config = RequestConfig.custom()
+            .setConnectTimeout((int) spec.getConnectTimeout().toMillis())
+            .setConnectionRequestTimeout((int) spec.getConnectionRequestTimeout().toMillis())
+            .setSocketTimeout((int) spec.getSocketTimeout().toMillis())
+            .build();
+        return HttpClientBuilder.create()
+            .setConnectionManager(connectionManager)
+            .setDefaultRequestConfig(config)
+            .setKeepAliveStrategy(keepAliveStrategy(spec.getKeepAlive()))
+            .evictExpiredConnections()
+            .evictIdleConnections(spec.getIdleTimeout().toMillis(), TimeUnit.MILLISECONDS)
+            .build();
+    }
+
+    static ConnectionKeepAliveStrategy keepAliveStrategy(Duration keepAlive) {
+        long max = keepAlive.toMillis();
+        return (response, context) -> {
+            long requested = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+            return requested > 0 ? Math.min(requested, max) : max;
+        };
+    }
+}
@@ -0,0 +1,28 @@
+package uk.gov.hmcts.bar.api.integration.payhub.data;
+
+import lombok.Value;
+import uk.gov.hmcts.bar.api.data.model.PaymentInstructionPayhubReference;
+
+/**
+ * Outcome of sending one payment instruction to PayHub. Accepted payment instructions carry the reference PayHub
+ * returned, rejected ones the error.
+ */
+@Value
+public class PayhubResult {
+
+    private final int paymentInstructionId;
+    private final PaymentInstructionPayhubReference reference;
+    private final String error;
+
+    public static PayhubResult accepted(int paymentInstructionId, PaymentInstructionPayhubReference reference) {
+        return new PayhubResult(paymentInstructionId, reference, null);
+    }
+
+    public static PayhubResult rejected(int paymentInstructionId, String error) {
+        return new PayhubResult(paymentInstructionId, null, error);
+    }
+
+    public boolean isAccepted() {
+        return reference != null;
+    }
+}
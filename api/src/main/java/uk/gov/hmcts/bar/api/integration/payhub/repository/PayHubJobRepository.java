@@ -0,0 +1,24 @@
+package uk.gov.hmcts.bar.api.integration.payhub.repository;
+
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import uk.gov.hmcts.bar.api.data.model.PayHubJob;
+import uk.gov.hmcts.bar.api.data.repository.BaseRepository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+public interface PayHubJobRepository extends BaseRepository<PayHubJob, Integer> {
+
+    Optional<PayHubJob> findByActiveSiteId(String siteId);
+
+    Optional<PayHubJob> findByIdAndSiteId(Integer id, String siteId);
+
+    /**
+     * Takes over a running job, only succeeds if nobody else touched it since it was read.
+     */
+    @Modifying
+    @Query("UPDATE PayHubJob j SET j.updateTime = :now WHERE j.id = :id AND j.updateTime = :seen")
+    int claim(@Param("id") Integer id, @Param("seen") LocalDateTime seen, @Param("now") LocalDateTime now);
+}
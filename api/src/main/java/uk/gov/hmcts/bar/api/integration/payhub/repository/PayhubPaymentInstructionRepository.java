@@ -1,8 +1,22 @@
 package uk.gov.hmcts.bar.api.integration.payhub.repository;
 
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import uk.gov.hmcts.bar.api.data.repository.BaseRepository;
 import uk.gov.hmcts.bar.api.integration.payhub.data.PayhubPaymentInstruction;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
+
 public interface PayhubPaymentInstructionRepository extends BaseRepository<PayhubPaymentInstruction, Integer>, JpaSpecificationExecutor<PayhubPaymentInstruction> {
+
+    /**
+     * Loads the given payment instructions together with their fees in one statement, ordered by id.
+     */
+    @Query("SELECT DISTINCT pi FROM PayhubPaymentInstruction pi LEFT JOIN FETCH pi.caseFeeDetails WHERE pi.id IN :ids ORDER BY pi.id")
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_PASS_DISTINCT_THROUGH, value = "false"))
+    List<PayhubPaymentInstruction> findAllWithCaseFeeDetailsByIdIn(@Param("ids") Collection<Integer> ids);
 }
@@ -0,0 +1,127 @@
+package uk.gov.hmcts.bar.api.integration.payhub.repository;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+import uk.gov.hmcts.bar.api.data.repository.PaymentInstructionStatusCounterRepository;
+import uk.gov.hmcts.bar.api.integration.payhub.data.PayhubResult;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Writes the PayHub outcome of a batch of payment instructions back with a fixed number of statements per batch:
+ * the payment instructions move to STP, the status history, the latest status read model and the status counters get
+ * their rows and the PayHub references are stored. Writing the outcome also clears the send-to-payhub job's marker,
+ * which is committed on the payment instructions before they are sent so an interrupted send is never repeated. Runs
+ * in the caller's transaction.
+ */
+@Repository
+public class PayhubResultRepository {
+
+    private static final String STATUS = "STP";
+
+    private static final String MARK_ACCEPTED = "UPDATE payment_instruction SET status = :status, report_date = :reportDate, "
+        + "transferred_to_payhub = true, payhub_error = NULL, payhub_job_id = NULL WHERE id IN (:ids)";
+
+    private static final String MARK_REJECTED = "UPDATE payment_instruction SET status = :status, report_date = :reportDate, "
+        + "transferred_to_payhub = false, payhub_error = :error, payhub_job_id = NULL WHERE id = :id";
+
+    private static final String MARK_SENDING = "UPDATE payment_instruction SET payhub_job_id = :jobId WHERE id IN (:ids)";
+
+    private static final String FIND_INTERRUPTED = "SELECT id FROM payment_instruction "
+        + "WHERE site_id = :siteId AND payhub_job_id IS NOT NULL AND status = 'TTB' ORDER BY id";
+
+    private static final String INSERT_REFERENCE = "INSERT INTO payment_instruction_payhub_reference "
+        + "(payment_instruction_id, reference, payment_group_reference) VALUES (:id, :reference, :groupReference)";
+
+    private static final String INSERT_STATUS = "INSERT INTO payment_instruction_status "
+        + "(payment_instruction_id, status, bar_user_id, update_time) VALUES (:id, :status, :barUserId, :updateTime)";
+
+    private static final String CLEAR_CURRENT_STATUS = "UPDATE payment_instruction_latest_status SET is_current = false "
+        + "WHERE payment_instruction_id IN (:ids) AND is_current = true";
+
+    private static final String DELETE_LATEST_STATUS = "DELETE FROM payment_instruction_latest_status "
+        + "WHERE payment_instruction_id IN (:ids) AND status = :status";
+
+    private static final String INSERT_LATEST_STATUS = "INSERT INTO payment_instruction_latest_status "
+        + "(payment_instruction_id, status, bar_user_id, update_time, is_current) VALUES (:id, :status, :barUserId, :updateTime, true)";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final PaymentInstructionStatusCounterRepository statusCounterRepository;
+
+    public PayhubResultRepository(NamedParameterJdbcTemplate jdbcTemplate,
+                                  PaymentInstructionStatusCounterRepository statusCounterRepository) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.statusCounterRepository = statusCounterRepository;
+    }
+
+    /**
+     * Marks the payment instructions as being sent by the job. The caller commits the marker before the first call to
+     * PayHub goes out.
+     */
+    public void markSending(Collection<Integer> paymentInstructionIds, Integer jobId) {
+        if (paymentInstructionIds.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.update(MARK_SENDING, new MapSqlParameterSource("ids", paymentInstructionIds).addValue("jobId", jobId));
+    }
+
+    /**
+     * The payment instructions of the site that were marked as being sent but never got an outcome written back.
+     * PayHub may or may not have taken them.
+     */
+    public List<Integer> findInterrupted(String siteId) {
+        return jdbcTemplate.queryForList(FIND_INTERRUPTED, new MapSqlParameterSource("siteId", siteId), Integer.class);
+    }
+
+    public void save(List<PayhubResult> results, String barUserId, LocalDateTime reportDate) {
+        if (results.isEmpty()) {
+            return;
+        }
+        List<PayhubResult> accepted = results.stream().filter(PayhubResult::isAccepted).collect(Collectors.toList());
+        List<PayhubResult> rejected = results.stream().filter(result -> !result.isAccepted()).collect(Collectors.toList());
+        List<Integer> ids = results.stream().map(PayhubResult::getPaymentInstructionId).collect(Collectors.toList());
+        Timestamp reportTime = reportDate == null ? null : Timestamp.valueOf(reportDate);
+        // status history keys are kept to the second, like PaymentInstructionStatusReferenceKey does
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        Timestamp updateTime = Timestamp.valueOf(now);
+
+        if (!accepted.isEmpty()) {
+            jdbcTemplate.update(MARK_ACCEPTED, new MapSqlParameterSource("ids", accepted.stream()
+                .map(PayhubResult::getPaymentInstructionId).collect(Collectors.toList()))
+                .addValue("status", STATUS)
+                .addValue("reportDate", reportTime));
+            jdbcTemplate.batchUpdate(INSERT_REFERENCE, batch(accepted, result -> new MapSqlParameterSource("id", result.getPaymentInstructionId())
+                .addValue("reference", result.getReference().getReference())
+                .addValue("groupReference", result.getReference().getPaymentGroupReference())));
+        }
+        if (!rejected.isEmpty()) {
+            jdbcTemplate.batchUpdate(MARK_REJECTED, batch(rejected, result -> new MapSqlParameterSource("id", result.getPaymentInstructionId())
+                .addValue("status", STATUS)
+                .addValue("reportDate", reportTime)
+                .addValue("error", result.getError())));
+        }
+
+        SqlParameterSource[] statusRows = batch(results, result -> new MapSqlParameterSource("id", result.getPaymentInstructionId())
+            .addValue("status", STATUS)
+            .addValue("barUserId", barUserId)
+            .addValue("updateTime", updateTime));
+        jdbcTemplate.batchUpdate(INSERT_STATUS, statusRows);
+        MapSqlParameterSource byIds = new MapSqlParameterSource("ids", ids).addValue("status", STATUS);
+        jdbcTemplate.update(CLEAR_CURRENT_STATUS, byIds);
+        jdbcTemplate.update(DELETE_LATEST_STATUS, byIds);
+        jdbcTemplate.batchUpdate(INSERT_LATEST_STATUS, statusRows);
+        statusCounterRepository.recordStatus(ids, STATUS, barUserId, now.toLocalDate());
+    }
+
+    private static SqlParameterSource[] batch(List<PayhubResult> results, Function<PayhubResult, SqlParameterSource> row) {
+        return results.stream().map(row).toArray(SqlParameterSource[]::new);
+    }
+}
@@ -0,0 +1,84 @@
+package uk.gov.hmcts.bar.api.integration.payhub.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Runs calls to PayHub on a shared, fixed size pool so that at most {@code payhub.dispatch.parallelism} requests are
+ * in flight across the application. The caller blocks until all of its calls have finished and receives the results
+ * in the order of the input, so anything that needs the request's persistence context stays on the calling thread.
+ */
+@Slf4j
+@Component
+public class PayHubDispatcher implements DisposableBean {
+
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 30;
+
+    private final ExecutorService executor;
+
+    @Autowired
+    public PayHubDispatcher(@Value("${payhub.dispatch.parallelism:8}") int parallelism) {
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "payhub-dispatch-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public <T, R> List<R> dispatch(List<T> items, Function<T, R> call) {
+        List<Future<R>> futures = items.stream()
+            .map(item -> executor.submit(() -> call.apply(item)))
+            .collect(Collectors.toList());
+        List<R> results = new ArrayList<>(futures.size());
+        try {
+            for (Future<R> future : futures) {
+                results.add(await(future));
+            }
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+        return results;
+    }
+
+    private static <R> R await(Future<R> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for PayHub", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            log.warn("PayHub calls still running after {}s, abandoning them", SHUTDOWN_TIMEOUT_SECONDS);
+            executor.shutdownNow();
+        }
+    }
+}
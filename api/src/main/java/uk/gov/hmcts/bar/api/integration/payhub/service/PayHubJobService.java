@@ -0,0 +1,400 @@
+package uk.gov.hmcts.bar.api.integration.payhub.service;
+
+import com.nimbusds.jwt.JWTParser;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import uk.gov.hmcts.bar.api.aop.features.Featured;
+import uk.gov.hmcts.bar.api.data.exceptions.BadRequestException;
+import uk.gov.hmcts.bar.api.data.exceptions.ResourceNotFoundException;
+import uk.gov.hmcts.bar.api.data.model.BarUser;
+import uk.gov.hmcts.bar.api.data.model.BasePaymentInstruction;
+import uk.gov.hmcts.bar.api.data.model.PayHubJob;
+import uk.gov.hmcts.bar.api.data.model.PayHubResponseReport;
+import uk.gov.hmcts.bar.api.data.model.PaymentInstructionSearchCriteriaDto;
+import uk.gov.hmcts.bar.api.data.service.PaymentInstructionService;
+import uk.gov.hmcts.bar.api.integration.payhub.data.PayhubFullRemission;
+import uk.gov.hmcts.bar.api.integration.payhub.data.PayhubPaymentInstruction;
+import uk.gov.hmcts.bar.api.integration.payhub.repository.PayHubJobRepository;
+import uk.gov.hmcts.bar.api.integration.payhub.repository.PayhubResultRepository;
+
+import java.text.ParseException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Runs send-to-payhub as a background job. The TTB payment instructions of the site are sent in chunks ordered by
+ * id. A chunk is marked as being sent and the job's checkpoint moved past it before it is sent, so a job that dies
+ * half way never sends anything twice: the payment instructions it was sending are marked as failed by the next job
+ * run for the site. A site has at most one running job: asking for another one returns the running job, and a job that
+ * has not made progress for {@code payhub.job.stale-after-seconds} is taken over and carried on from its last
+ * committed chunk.
+ */
+@Service
+public class PayHubJobService implements DisposableBean {
+
+    private static final Logger LOG = getLogger(PayHubJobService.class);
+    private static final String PAYHUB_FEATURE_KEY = "send-to-payhub";
+    private static final int MAX_ERROR_LENGTH = 1024;
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 30;
+    private static final long TOKEN_EXPIRY_MARGIN_SECONDS = 60;
+    private static final String BEARER_PREFIX = "Bearer ";
+    static final String TOKEN_EXPIRED_ERROR = "The user's token has expired, start sending to PayHub again to send the rest";
+
+    private final PayHubJobRepository payHubJobRepository;
+    private final PaymentInstructionService paymentInstructionService;
+    private final PayHubService payHubService;
+    private final PayhubResultRepository payhubResultRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final long staleAfterSeconds;
+    private final ExecutorService executor;
+    private final Set<Integer> runningJobs = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public PayHubJobService(PayHubJobRepository payHubJobRepository,
+                            PaymentInstructionService paymentInstructionService,
+                            PayHubService payHubService,
+                            PayhubResultRepository payhubResultRepository,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${payhub.job.chunk-size:50}") int chunkSize,
+                            @Value("${payhub.job.stale-after-seconds:300}") long staleAfterSeconds,
+                            @Value("${payhub.job.threads:2}") int threads) {
+        this.payHubJobRepository = payHubJobRepository;
+        this.paymentInstructionService = paymentInstructionService;
+        this.payHubService = payHubService;
+        this.payhubResultRepository = payhubResultRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.chunkSize = chunkSize;
+        this.staleAfterSeconds = staleAfterSeconds;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "payhub-job-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreAuthorize("hasAuthority(T(uk.gov.hmcts.bar.api.data.enums.BarUserRoleEnum).BAR_DELIVERY_MANAGER.getIdamRole())")
+    @Featured(featureKey = PAYHUB_FEATURE_KEY)
+    public PayHubJob startOrAttach(BarUser barUser, String userToken, LocalDateTime reportDate) {
+        validateReportDate(reportDate);
+        String siteId = barUser.getSelectedSiteId();
+
+        PayHubJob runningJob = payHubJobRepository.findByActiveSiteId(siteId).orElse(null);
+        if (runningJob != null) {
+            LocalDateTime now = now();
+            if (isAbandoned(runningJob, now) && claim(runningJob, now)) {
+                LOG.info("Resuming send-to-payhub job {} of site {} after payment instruction {}",
+                    runningJob.getId(), siteId, runningJob.getLastProcessedId());
+                runningJob.setUpdateTime(now);
+                submit(runningJob, barUser, userToken);
+            }
+            return runningJob;
+        }
+
+        PayHubJob job;
+        try {
+            job = transactionTemplate.execute(status -> payHubJobRepository.saveAndFlush(newJob(barUser, reportDate)));
+        } catch (DataIntegrityViolationException e) {
+            // another request has just started a job for the site
+            return payHubJobRepository.findByActiveSiteId(siteId).orElseThrow(() -> e);
+        }
+        submit(job, barUser, userToken);
+        return job;
+    }
+
+    @PreAuthorize("hasAuthority(T(uk.gov.hmcts.bar.api.data.enums.BarUserRoleEnum).BAR_DELIVERY_MANAGER.getIdamRole())")
+    public PayHubJob getJob(Integer id, String siteId) {
+        return payHubJobRepository.findByIdAndSiteId(id, siteId)
+            .orElseThrow(() -> new ResourceNotFoundException("send-to-payhub job", "id", id));
+    }
+
+    private PayHubJob newJob(BarUser barUser, LocalDateTime reportDate) {
+        LocalDateTime now = now();
+        return PayHubJob.builder()
+            .siteId(barUser.getSelectedSiteId())
+            .activeSiteId(barUser.getSelectedSiteId())
+            .barUserId(barUser.getId())
+            .reportDate(reportDate)
+            .status(PayHubJob.Status.RUNNING)
+            .startTime(now)
+            .updateTime(now)
+            .build();
+    }
+
+    private boolean isAbandoned(PayHubJob job, LocalDateTime now) {
+        return !runningJobs.contains(job.getId()) && job.getUpdateTime().isBefore(now.minusSeconds(staleAfterSeconds));
+    }
+
+    private boolean claim(PayHubJob job, LocalDateTime now) {
+        Integer claimed = transactionTemplate.execute(status -> payHubJobRepository.claim(job.getId(), job.getUpdateTime(), now));
+        return claimed != null && claimed == 1;
+    }
+
+    private void submit(PayHubJob job, BarUser barUser, String userToken) {
+        runningJobs.add(job.getId());
+        executor.submit(new Worker(job.getId(), job.getSiteId(), barUser, userToken, job.getUpdateTime()));
+    }
+
+    private void validateReportDate(LocalDateTime reportDate) {
+        LocalDateTime now = LocalDate.now().atTime(23, 59, 59);
+        if (reportDate.isAfter(now)) {
+            LOG.error("transfer date validation failed. It can not be in a future date.");
+            throw new BadRequestException("The transfer date can not be a future date: " + reportDate.toString());
+        }
+    }
+
+    private static LocalDateTime now() {
+        return LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            LOG.warn("send-to-payhub jobs {} still running, they will be resumed on the next request", runningJobs);
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * The expiry of a signed user token, or null when the token is not a JWT and carries no expiry we can read.
+     */
+    static Instant expiryOf(String userToken) {
+        if (userToken == null) {
+            return null;
+        }
+        String token = userToken.startsWith(BEARER_PREFIX) ? userToken.substring(BEARER_PREFIX.length()) : userToken;
+        try {
+            Date expiry = JWTParser.parse(token).getJWTClaimsSet().getExpirationTime();
+            return expiry == null ? null : expiry.toInstant();
+        } catch (ParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Works through a single job. The update time written with each step doubles as the worker's lease: when it has
+     * changed under the worker somebody else has taken the job over and the worker stops. The calls to PayHub are made
+     * on behalf of the user who started or resumed the job, the job fails before a chunk when the user's token is
+     * about to expire and the rest is left for the next job.
+     */
+    private class Worker implements Runnable {
+
+        private final Integer jobId;
+        private final String siteId;
+        private final BarUser barUser;
+        private final String userToken;
+        private final Instant tokenExpiry;
+        private LocalDateTime lease;
+
+        Worker(Integer jobId, String siteId, BarUser barUser, String userToken, LocalDateTime lease) {
+            this.jobId = jobId;
+            this.siteId = siteId;
+            this.barUser = barUser;
+            this.userToken = userToken;
+            this.tokenExpiry = expiryOf(userToken);
+            this.lease = lease;
+        }
+
+        @Override
+        public void run() {
+            try {
+                Boolean more = transactionTemplate.execute(status -> rejectInterrupted());
+                while (Boolean.TRUE.equals(more) && !Thread.currentThread().isInterrupted()) {
+                    if (isTokenExpiring()) {
+                        LOG.warn("The token of send-to-payhub job {} is about to expire, stopping", jobId);
+                        finish(PayHubJob.Status.FAILED, TOKEN_EXPIRED_ERROR);
+                        return;
+                    }
+                    more = processChunk();
+                }
+                if (more == null) {
+                    LOG.warn("send-to-payhub job {} has been taken over, stopping", jobId);
+                } else if (!more) {
+                    finish(PayHubJob.Status.COMPLETED, null);
+                }
+            } catch (Exception e) {
+                LOG.error("send-to-payhub job " + jobId + " failed: " + e.getMessage(), e);
+                String message = String.valueOf(e.getMessage());
+                finish(PayHubJob.Status.FAILED, message.substring(0, Math.min(message.length(), MAX_ERROR_LENGTH)));
+            } finally {
+                runningJobs.remove(jobId);
+            }
+        }
+
+        private boolean isTokenExpiring() {
+            return tokenExpiry != null && tokenExpiry.isBefore(Instant.now().plusSeconds(TOKEN_EXPIRY_MARGIN_SECONDS));
+        }
+
+        /**
+         * Fails the payment instructions a previous run of the job marked as being sent but never got an answer for.
+         *
+         * @return true when the job is still ours, null when it is not
+         */
+        private Boolean rejectInterrupted() {
+            PayHubJob job = ownJob();
+            if (job == null) {
+                return null;
+            }
+            int interrupted = payHubService.rejectInterrupted(barUser, siteId, job.getReportDate());
+            if (interrupted > 0) {
+                job.setTotal(job.getTotal() + interrupted);
+                saveProgress(job);
+            }
+            return true;
+        }
+
+        /**
+         * Claims the next chunk and sends it. The chunk's payment instructions are marked as being sent and the
+         * checkpoint moved past them in a transaction of its own, committed before any call to PayHub goes out. A run
+         * that dies while sending leaves the marker behind, so the chunk is not picked up again, and the next run fails
+         * the marked payment instructions instead of sending them twice.
+         *
+         * @return true when there may be more to send, false when the job is done and null when it is no longer ours
+         */
+        private Boolean processChunk() {
+            Chunk chunk = transactionTemplate.execute(status -> claimChunk());
+            if (chunk == null) {
+                return null;
+            }
+            if (chunk.isEmpty()) {
+                return false;
+            }
+            return transactionTemplate.execute(status -> sendChunk(chunk));
+        }
+
+        private Chunk claimChunk() {
+            PayHubJob job = ownJob();
+            if (job == null) {
+                return null;
+            }
+
+            List<PayhubPaymentInstruction> payments = paymentInstructionService.getPaymentInstructionsForPayhub(
+                siteId, paymentCriteria(), job.getLastProcessedId(), chunkSize);
+            List<PayhubFullRemission> remissions = paymentInstructionService.getRemissionsForPayhub(
+                siteId, remissionCriteria(), job.getLastProcessedId(), chunkSize);
+            if (payments.isEmpty() && remissions.isEmpty()) {
+                return new Chunk(job.getReportDate(), payments, remissions);
+            }
+
+            // both lists are ordered by id, only the lowest ids of the two make up the chunk so that nothing below
+            // the checkpoint is left behind
+            List<Integer> ids = Stream.concat(payments.stream(), remissions.stream())
+                .map(BasePaymentInstruction::getId)
+                .sorted()
+                .limit(chunkSize)
+                .collect(Collectors.toList());
+            int checkpoint = ids.get(ids.size() - 1);
+            payments = payments.stream().filter(it -> it.getId() <= checkpoint).collect(Collectors.toList());
+            remissions = remissions.stream().filter(it -> it.getId() <= checkpoint).collect(Collectors.toList());
+
+            payhubResultRepository.markSending(ids, jobId);
+            job.setLastProcessedId(checkpoint);
+            saveProgress(job);
+            return new Chunk(job.getReportDate(), payments, remissions);
+        }
+
+        private Boolean sendChunk(Chunk chunk) {
+            PayHubResponseReport report = payHubService.sendToPayHub(barUser, userToken, chunk.reportDate,
+                chunk.payments, chunk.remissions);
+
+            // the outcome is written back even when the job has been taken over meanwhile, only the counts are not
+            PayHubJob job = ownJob();
+            if (job == null) {
+                return null;
+            }
+            job.setTotal(job.getTotal() + report.getTotal());
+            job.setSuccess(job.getSuccess() + report.getSuccess());
+            saveProgress(job);
+            return true;
+        }
+
+        private PayHubJob ownJob() {
+            PayHubJob job = payHubJobRepository.findById(jobId)
+                .orElseThrow(() -> new ResourceNotFoundException("send-to-payhub job", "id", jobId));
+            return job.getUpdateTime().equals(lease) ? job : null;
+        }
+
+        private void saveProgress(PayHubJob job) {
+            lease = now();
+            job.setUpdateTime(lease);
+            payHubJobRepository.save(job);
+        }
+
+        private void finish(PayHubJob.Status status, String error) {
+            try {
+                transactionTemplate.execute(transactionStatus -> payHubJobRepository.findById(jobId)
+                    .filter(job -> job.getUpdateTime().equals(lease))
+                    .map(job -> {
+                        LocalDateTime now = now();
+                        job.setStatus(status);
+                        job.setError(error);
+                        job.setActiveSiteId(null);
+                        job.setUpdateTime(now);
+                        job.setEndTime(now);
+                        return payHubJobRepository.save(job);
+                    })
+                    .orElse(null));
+            } catch (Exception e) {
+                // the job stays active and is resumed once it goes stale
+                LOG.error("Failed to close send-to-payhub job " + jobId + ": " + e.getMessage(), e);
+            }
+        }
+
+        private PaymentInstructionSearchCriteriaDto paymentCriteria() {
+            PaymentInstructionSearchCriteriaDto criteriaDto = new PaymentInstructionSearchCriteriaDto();
+            criteriaDto.setStatus("TTB");
+            criteriaDto.setTransferredToPayhub(false);
+            criteriaDto.setPaymentType("CARD,CHEQUE,CASH,POSTAL_ORDER");
+            return criteriaDto;
+        }
+
+        private PaymentInstructionSearchCriteriaDto remissionCriteria() {
+            PaymentInstructionSearchCriteriaDto criteriaDto = new PaymentInstructionSearchCriteriaDto();
+            criteriaDto.setStatus("TTB");
+            criteriaDto.setTransferredToPayhub(false);
+            criteriaDto.setPaymentType("FULL_REMISSION");
+            return criteriaDto;
+        }
+    }
+
+    private static class Chunk {
+        private final LocalDateTime reportDate;
+        private final List<PayhubPaymentInstruction> payments;
+        private final List<PayhubFullRemission> remissions;
+
+        Chunk(LocalDateTime reportDate, List<PayhubPaymentInstruction> payments, List<PayhubFullRemission> remissions) {
+            this.reportDate = reportDate;
+            this.payments = payments;
+            this.remissions = remissions;
+        }
+
+        boolean isEmpty() {
+            return payments.isEmpty() && remissions.isEmpty();
+        }
+    }
+}
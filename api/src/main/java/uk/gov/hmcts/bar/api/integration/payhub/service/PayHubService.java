@@ -4,6 +4,9 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.apache.http.HttpStatus;
 import org.apache.http.StatusLine;
 import org.apache.http.client.methods.CloseableHttpResponse;
@@ -13,17 +16,18 @@ import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.util.EntityUtils;
 import org.slf4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
-import uk.gov.hmcts.bar.api.aop.features.Featured;
-import uk.gov.hmcts.bar.api.data.exceptions.BadRequestException;
 import uk.gov.hmcts.bar.api.data.model.*;
-import uk.gov.hmcts.bar.api.data.service.PaymentInstructionService;
+import uk.gov.hmcts.bar.api.data.service.PaymentInstructionStatsCache;
 import uk.gov.hmcts.bar.api.integration.payhub.data.PayhubFullRemission;
 import uk.gov.hmcts.bar.api.integration.payhub.data.PayhubPartialRemission;
 import uk.gov.hmcts.bar.api.integration.payhub.data.PayhubPaymentInstruction;
+import uk.gov.hmcts.bar.api.integration.payhub.data.PayhubResult;
 import uk.gov.hmcts.bar.api.integration.payhub.exception.PayHubConnectionException;
+import uk.gov.hmcts.bar.api.integration.payhub.repository.PayhubResultRepository;
+import uk.gov.hmcts.bar.api.metrics.OutboundRequestMetrics;
 import uk.gov.hmcts.reform.authorisation.generators.AuthTokenGenerator;
 
 import javax.persistence.EntityManager;
@@ -36,11 +40,9 @@ import javax.validation.ValidatorFactory;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.text.MessageFormat;
-import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.function.BiFunction;
-import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static org.slf4j.LoggerFactory.getLogger;
@@ -54,10 +56,8 @@ public class PayHubService {
     private static final String REFERENCE_KEY = "reference";
     private static final String REMISSION_REFERENCE_KEY = "remission_reference";
     private static final String GROUP_REFERENCE_KEY = "payment_group_reference";
-    private static final String PAYHUB_FEATURE_KEY = "send-to-payhub";
-
-    @Autowired
-    private final PaymentInstructionService paymentInstructionService;
+    public static final String CIRCUIT_BREAKER_NAME = "sendToPayhub";
+    public static final String INTERRUPTED_ERROR = "Sending to PayHub was interrupted, check PayHub before sending it again";
 
     @Autowired
     private final AuthTokenGenerator serviceAuthTokenGenerator;
@@ -72,59 +72,67 @@ public class PayHubService {
 
     private final Validator validator;
 
-    private final CircuitBreaker circuitBreaker = CircuitBreaker.ofDefaults("sendToPayhub");
+    private final CircuitBreaker circuitBreaker;
+
+    private final MeterRegistry meterRegistry;
+
+    private final PayHubDispatcher payHubDispatcher;
+
+    private final PayhubResultRepository payhubResultRepository;
+
+    private final PaymentInstructionStatsCache statsCache;
 
     public PayHubService(AuthTokenGenerator authTokenGenerator,
-                         PaymentInstructionService paymentInstructionService,
-                         CloseableHttpClient httpClient,
+                         @Qualifier("payHubHttpClient") CloseableHttpClient httpClient,
                          @Value("${payment.api.url}") String payHubUrl,
-                         EntityManager entityManager) {
+                         EntityManager entityManager,
+                         CircuitBreakerRegistry circuitBreakerRegistry,
+                         MeterRegistry meterRegistry,
+                         PayHubDispatcher payHubDispatcher,
+                         PayhubResultRepository payhubResultRepository,
+                         PaymentInstructionStatsCache statsCache) {
         this.serviceAuthTokenGenerator = authTokenGenerator;
-        this.paymentInstructionService = paymentInstructionService;
         this.httpClient = httpClient;
         this.payHubUrl = payHubUrl;
         this.entityManager = entityManager;
+        this.circuitBreaker = circuitBreakerRegistry.circuitBreaker(CIRCUIT_BREAKER_NAME);
+        this.meterRegistry = meterRegistry;
+        this.payHubDispatcher = payHubDispatcher;
+        this.payhubResultRepository = payhubResultRepository;
+        this.statsCache = statsCache;
         ValidatorFactory factory = Validation.buildDefaultValidatorFactory();
         validator = factory.getValidator();
     }
 
-    @PreAuthorize("hasAuthority(T(uk.gov.hmcts.bar.api.data.enums.BarUserRoleEnum).BAR_DELIVERY_MANAGER.getIdamRole())")
-    @Featured(featureKey = PAYHUB_FEATURE_KEY)
-    public PayHubResponseReport sendPaymentInstructionToPayHub(BarUser barUser, String userToken, LocalDateTime reportDate) {
-        validateReportDate(reportDate);
-
+    /**
+     * Sends the given payment instructions and full remissions, and the partial remissions found on the accepted
+     * payment instructions, to PayHub and marks them as sent. The outcomes are written back in one batch once every
+     * call returned. Runs in the caller's transaction.
+     */
+    public PayHubResponseReport sendToPayHub(BarUser barUser,
+                                             String userToken,
+                                             LocalDateTime reportDate,
+                                             List<PayhubPaymentInstruction> paymentsPayload,
+                                             List<PayhubFullRemission> remissionsPayload) {
         PayHubResponseReport resp = new PayHubResponseReport();
 
         // oneTimePassword for s2s auth
         String oneTimePassword = this.serviceAuthTokenGenerator.generate();
 
-        // collect payment instructions
-        List<PayhubPaymentInstruction> paymentsPayload = collectPaymentInstructions(barUser);
-
-        // collect full-remissions
-        List<PayhubFullRemission> remissionsPayload = collectFullRemissions(barUser);
-
         // send to payhub
         ObjectMapper objectMapper = new ObjectMapper();
         resp.setTotal(paymentsPayload.size() + remissionsPayload.size());
 
-        BiFunction<HttpPost, Boolean, Function<BasePaymentInstruction, List<PayhubPartialRemission>>> createPaymentHandler = (httpPost, shouldUpdate) -> payHubPayload -> {
-            payHubPayload.setReportDate(reportDate);
-            StringBuilder payHubErrorMessage = new StringBuilder();
-            PaymentInstructionPayhubReference reference = null;
-            try {
-                String payload = objectMapper.writeValueAsString(payHubPayload);
-                StringEntity entity = new StringEntity(payload);
-                CloseableHttpResponse response = sendWithProtection(httpPost, entity, circuitBreaker);
-                reference = handlePayHubResponse(response, objectMapper, payHubErrorMessage, payHubPayload);
-                response.close();
-            } catch (JsonProcessingException e) {
-                LOG.error("Failed to parse message: " + e.getMessage(), e);
-                payHubErrorMessage.append("Failed to parse request payload: " + e.getMessage());
-            } catch (Exception e) {
-                LOG.error("Failed to send payment instruction to PayHub" + e.getMessage(), e);
-                payHubErrorMessage.append("Failed to send payment instruction to PayHub: " + e.getMessage());
-            }
+        // the http calls run in parallel, everything touching the database happens on this thread
+        BiFunction<String, List<? extends BasePaymentInstruction>, List<PayHubCall>> dispatch = (uri, payloads) -> payHubDispatcher.dispatch(
+            payloads.stream().map(payHubPayload -> prepareCall(payHubPayload, reportDate, objectMapper)).collect(Collectors.toList()),
+            call -> send(call, uri, userToken, oneTimePassword, objectMapper));
+
+        List<PayhubResult> results = new ArrayList<>();
+        BiFunction<PayHubCall, Boolean, List<PayhubPartialRemission>> completeCall = (call, shouldUpdate) -> {
+            BasePaymentInstruction payHubPayload = call.payload;
+            StringBuilder payHubErrorMessage = call.errorMessage;
+            PaymentInstructionPayhubReference reference = call.reference;
             boolean payHubStatus = false;
             List<PayhubPartialRemission> partialRemission = new ArrayList<>();
             if (reference != null) {
@@ -133,56 +141,108 @@ public class PayHubService {
                     violations.stream().map(ConstraintViolation::getMessage).forEach(payHubErrorMessage::append);
                 } else {
                     payHubStatus = true;
-                    if (shouldUpdate) {
-                        entityManager.merge(reference);
-                    }
                     resp.increaseSuccess();
-                    PaymentInstructionPayhubReference finalReference = reference;
                     payHubPayload.getCaseFeeDetails()
-                        .forEach(it -> partialRemission.add(createPayhubPartialRemission(it, finalReference.getPaymentGroupReference(), payHubPayload)));
+                        .forEach(it -> partialRemission.add(createPayhubPartialRemission(it, reference.getPaymentGroupReference(), payHubPayload)));
                 }
             }
             if (shouldUpdate) {
-                updatePaymentInstruction(barUser,
-                    payHubPayload,
-                    payHubStatus,
-                    payHubErrorMessage.substring(0, payHubErrorMessage.length() > 1024 ? 1024 : payHubErrorMessage.length()),
-                    reportDate);
+                String error = payHubErrorMessage.substring(0, payHubErrorMessage.length() > 1024 ? 1024 : payHubErrorMessage.length());
+                updatePaymentInstruction(payHubPayload, payHubStatus, error, reportDate);
+                results.add(payHubStatus
+                    ? PayhubResult.accepted(payHubPayload.getId(), reference)
+                    : PayhubResult.rejected(payHubPayload.getId(), error));
             }
             return partialRemission;
         };
 
         // Run for payment instructions
-        HttpPost httpPost = prepareHttpPost("/payment-records", userToken, oneTimePassword);
-        Function<BasePaymentInstruction, List<PayhubPartialRemission>> handler = createPaymentHandler.apply(httpPost, true);
-        List<PayhubPartialRemission> partialRemissions = paymentsPayload.stream()
-            .map(handler)
+        List<PayHubCall> paymentCalls = dispatch.apply("/payment-records", paymentsPayload);
+        // Run for full remissions
+        List<PayHubCall> remissionCalls = dispatch.apply("/remission", remissionsPayload);
+
+        List<PayhubPartialRemission> partialRemissions = paymentCalls.stream()
+            .map(call -> completeCall.apply(call, true))
             .flatMap(Collection::stream)
             .filter(Objects::nonNull)
             .collect(Collectors.toList());
+        remissionCalls.forEach(call -> completeCall.apply(call, true));
 
-        // Run for full remissions
-        httpPost = prepareHttpPost("/remission", userToken, oneTimePassword);
-        handler = createPaymentHandler.apply(httpPost, true);
-        remissionsPayload.stream().map(handler).collect(Collectors.toList());
+        // the payloads are written back with set based statements, don't let hibernate flush them one by one as well
+        paymentsPayload.forEach(this::detach);
+        remissionsPayload.forEach(this::detach);
+        payhubResultRepository.save(results, barUser.getId(), reportDate);
+        statsCache.evictSite(barUser.getSelectedSiteId());
 
         // Partial remission
-        handler = createPaymentHandler.apply(httpPost, false);
         resp.setTotal(resp.getTotal() + partialRemissions.size());
-        partialRemissions.stream().map(handler).collect(Collectors.toList());
+        dispatch.apply("/remission", partialRemissions).forEach(call -> completeCall.apply(call, false));
         return resp;
     }
 
+    /**
+     * Marks the payment instructions of the site whose send was cut short as failed. They are not sent again as
+     * PayHub may already have taken them. Runs in the caller's transaction.
+     *
+     * @return the number of payment instructions marked as failed
+     */
+    public int rejectInterrupted(BarUser barUser, String siteId, LocalDateTime reportDate) {
+        List<PayhubResult> results = payhubResultRepository.findInterrupted(siteId).stream()
+            .map(id -> PayhubResult.rejected(id, INTERRUPTED_ERROR))
+            .collect(Collectors.toList());
+        if (!results.isEmpty()) {
+            LOG.warn("Sending {} payment instructions of site {} to PayHub was interrupted, marking them as failed",
+                results.size(), siteId);
+            payhubResultRepository.save(results, barUser.getId(), reportDate);
+            statsCache.evictSite(siteId);
+        }
+        return results.size();
+    }
+
+    private PayHubCall prepareCall(BasePaymentInstruction payHubPayload, LocalDateTime reportDate, ObjectMapper objectMapper) {
+        payHubPayload.setReportDate(reportDate);
+        PayHubCall call = new PayHubCall(payHubPayload);
+        try {
+            call.body = objectMapper.writeValueAsString(payHubPayload);
+        } catch (JsonProcessingException e) {
+            LOG.error("Failed to parse message: " + e.getMessage(), e);
+            call.errorMessage.append("Failed to parse request payload: " + e.getMessage());
+        }
+        return call;
+    }
+
+    private PayHubCall send(PayHubCall call, String uri, String userToken, String oneTimePassword, ObjectMapper objectMapper) {
+        if (call.body == null) {
+            return call;
+        }
+        try {
+            HttpPost httpPost = prepareHttpPost(uri, userToken, oneTimePassword);
+            try (CloseableHttpResponse response = sendWithProtection(httpPost, new StringEntity(call.body), circuitBreaker)) {
+                call.reference = handlePayHubResponse(response, objectMapper, call.errorMessage, call.payload);
+            }
+        } catch (Exception e) {
+            LOG.error("Failed to send payment instruction to PayHub" + e.getMessage(), e);
+            call.errorMessage.append("Failed to send payment instruction to PayHub: " + e.getMessage());
+        }
+        return call;
+    }
+
     private CloseableHttpResponse sendWithProtection(HttpPost httpPost, StringEntity entity, CircuitBreaker circuitBreaker) {
         return circuitBreaker.executeSupplier(() -> send(httpPost, entity));
     }
 
     private CloseableHttpResponse send(HttpPost httpPost, StringEntity entity) {
         httpPost.setEntity(entity);
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "ERROR";
         try {
-            return httpClient.execute(httpPost);
+            CloseableHttpResponse response = httpClient.execute(httpPost);
+            outcome = OutboundRequestMetrics.outcome(response.getStatusLine().getStatusCode());
+            return response;
         } catch (IOException e) {
             throw new PayHubConnectionException(e);
+        } finally {
+            sample.stop(OutboundRequestMetrics.timer(meterRegistry, OutboundRequestMetrics.PAYHUB, outcome));
         }
     }
 
@@ -194,21 +254,7 @@ public class PayHubService {
         return httpPost;
     }
 
-    private List<PayhubPaymentInstruction> collectPaymentInstructions(BarUser barUser) {
-        PaymentInstructionSearchCriteriaDto criteriaDto = new PaymentInstructionSearchCriteriaDto();
-        criteriaDto.setStatus("TTB");
-        criteriaDto.setTransferredToPayhub(false);
-        criteriaDto.setPaymentType("CARD,CHEQUE,CASH,POSTAL_ORDER");
-        return paymentInstructionService.getAllPaymentInstructionsForPayhub(barUser, criteriaDto);
-    }
 
-    private List<PayhubFullRemission> collectFullRemissions(BarUser barUser) {
-        PaymentInstructionSearchCriteriaDto criteriaDto = new PaymentInstructionSearchCriteriaDto();
-        criteriaDto.setStatus("TTB");
-        criteriaDto.setTransferredToPayhub(false);
-        criteriaDto.setPaymentType("FULL_REMISSION");
-        return paymentInstructionService.getAllRemissionsForPayhub(barUser, criteriaDto);
-    }
 
     private PaymentInstructionPayhubReference handlePayHubResponse(CloseableHttpResponse response,
                                          ObjectMapper objectMapper,
@@ -258,23 +304,16 @@ public class PayHubService {
         return objectMapper.readValue(rawMessage, typeRef);
     }
 
-    private void updatePaymentInstruction(BarUser barUser,BasePaymentInstruction pi, boolean status, String errorMessage, LocalDateTime reportDate) {
+    private void updatePaymentInstruction(BasePaymentInstruction pi, boolean status, String errorMessage, LocalDateTime reportDate) {
         pi.setTransferredToPayhub(status);
         pi.setPayhubError(status ? null : errorMessage);
         pi.setReportDate(reportDate);
-
-
-        PaymentInstruction paymentInstruction = paymentInstructionService.getPaymentInstruction(pi.getId(),pi.getSiteId());
-        paymentInstruction.setStatus("STP");
-        paymentInstructionService.savePaymentInstructionStatus(paymentInstruction,barUser.getId());
-
+        pi.setStatus("STP");
     }
 
-    private void validateReportDate(LocalDateTime reportDate) {
-        LocalDateTime now = LocalDate.now().atTime(23, 59, 59);
-        if (reportDate.isAfter(now)) {
-            LOG.error("transfer date validation failed. It can not be in a future date.");
-            throw new BadRequestException("The transfer date can not be a future date: " + reportDate.toString());
+    private void detach(BasePaymentInstruction payload) {
+        if (entityManager.contains(payload)) {
+            entityManager.detach(payload);
         }
     }
 
@@ -294,4 +333,17 @@ public class PayHubService {
         }
     }
 
+    /**
+     * A single payment instruction on its way to PayHub, filled in by the dispatching thread.
+     */
+    private static class PayHubCall {
+        private final BasePaymentInstruction payload;
+        private final StringBuilder errorMessage = new StringBuilder();
+        private String body;
+        private PaymentInstructionPayhubReference reference;
+
+        PayHubCall(BasePaymentInstruction payload) {
+            this.payload = payload;
+        }
+    }
 }
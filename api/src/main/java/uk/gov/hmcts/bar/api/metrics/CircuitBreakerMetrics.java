@@ -0,0 +1,48 @@
+package uk.gov.hmcts.bar.api.metrics;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Publishes the state of the named circuit breakers. bar.circuitbreaker.state has one series per state which is 1
+ * for the current state and 0 otherwise.
+ */
+public class CircuitBreakerMetrics implements MeterBinder {
+
+    private final CircuitBreakerRegistry circuitBreakerRegistry;
+    private final List<String> names;
+
+    public CircuitBreakerMetrics(CircuitBreakerRegistry circuitBreakerRegistry, List<String> names) {
+        this.circuitBreakerRegistry = circuitBreakerRegistry;
+        this.names = names;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (String name : names) {
+            CircuitBreaker circuitBreaker = circuitBreakerRegistry.circuitBreaker(name);
+            for (CircuitBreaker.State state : CircuitBreaker.State.values()) {
+                Gauge.builder("bar.circuitbreaker.state", circuitBreaker, cb -> cb.getState() == state ? 1 : 0)
+                    .tag("name", name)
+                    .tag("state", state.name().toLowerCase(Locale.ROOT))
+                    .strongReference(true)
+                    .register(registry);
+            }
+            Gauge.builder("bar.circuitbreaker.failure.rate", circuitBreaker, cb -> cb.getMetrics().getFailureRate())
+                .tag("name", name)
+                .strongReference(true)
+                .register(registry);
+            FunctionCounter.builder("bar.circuitbreaker.not.permitted.calls", circuitBreaker,
+                cb -> cb.getMetrics().getNumberOfNotPermittedCalls())
+                .tag("name", name)
+                .register(registry);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package uk.gov.hmcts.bar.api.metrics;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.autoconfigure.metrics.MeterRegistryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import uk.gov.hmcts.bar.api.health.PayHubHealthCheck;
+import uk.gov.hmcts.bar.api.integration.payhub.service.PayHubService;
+
+import java.util.Arrays;
+
+@Configuration
+public class MetricsConfiguration {
+
+    @Bean
+    public MeterRegistryCustomizer<MeterRegistry> commonTags(@Value("${spring.application.name}") String application) {
+        return registry -> registry.config().commonTags("application", application);
+    }
+
+    @Bean
+    public SiteWebMvcTagsContributor siteWebMvcTagsContributor() {
+        return new SiteWebMvcTagsContributor();
+    }
+
+    @Bean
+    public static RepositoryMetricsPostProcessor repositoryMetricsPostProcessor(ObjectProvider<MeterRegistry> meterRegistry) {
+        return new RepositoryMetricsPostProcessor(meterRegistry);
+    }
+
+    @Bean
+    public CircuitBreakerRegistry circuitBreakerRegistry() {
+        return CircuitBreakerRegistry.ofDefaults();
+    }
+
+    @Bean
+    public CircuitBreakerMetrics circuitBreakerMetrics(CircuitBreakerRegistry circuitBreakerRegistry) {
+        return new CircuitBreakerMetrics(circuitBreakerRegistry,
+            Arrays.asList(PayHubService.CIRCUIT_BREAKER_NAME, PayHubHealthCheck.CIRCUIT_BREAKER_NAME));
+    }
+}
@@ -0,0 +1,45 @@
+package uk.gov.hmcts.bar.api.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Names and tags of the timer recorded around calls to other services, shared so that every client reports under
+ * the same metric: bar.http.client.requests{client, outcome}.
+ */
+public final class OutboundRequestMetrics {
+
+    public static final String METRIC_NAME = "bar.http.client.requests";
+
+    public static final String PAYHUB = "payhub";
+    public static final String IDAM = "idam";
+
+    private OutboundRequestMetrics() {
+    }
+
+    public static Timer timer(MeterRegistry meterRegistry, String client, String outcome) {
+        return Timer.builder(METRIC_NAME)
+            .tag("client", client)
+            .tag("outcome", outcome)
+            .register(meterRegistry);
+    }
+
+    /**
+     * Groups an http status code the same way the actuator does for http.server.requests.
+     */
+    public static String outcome(int statusCode) {
+        if (statusCode >= 500) {
+            return "SERVER_ERROR";
+        }
+        if (statusCode >= 400) {
+            return "CLIENT_ERROR";
+        }
+        if (statusCode >= 300) {
+            return "REDIRECTION";
+        }
+        if (statusCode >= 200) {
+            return "SUCCESS";
+        }
+        return "UNKNOWN";
+    }
+}
@@ -0,0 +1,37 @@
+package uk.gov.hmcts.bar.api.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.aop.framework.Advised;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.data.repository.Repository;
+
+import java.util.Arrays;
+
+/**
+ * Times every call made through a Spring Data repository proxy as bar.repository.invocations, tagged with the
+ * repository interface and method name. The registry is looked up on first use because repositories are created
+ * before the actuator has finished configuring it.
+ */
+public class RepositoryMetricsPostProcessor implements BeanPostProcessor {
+
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    public RepositoryMetricsPostProcessor(ObjectProvider<MeterRegistry> meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof Repository && bean instanceof Advised) {
+            Advised advised = (Advised) bean;
+            String repository = Arrays.stream(advised.getProxiedInterfaces())
+                .filter(Repository.class::isAssignableFrom)
+                .findFirst()
+                .map(Class::getSimpleName)
+                .orElse(beanName);
+            advised.addAdvice(0, new TimedRepositoryInterceptor(meterRegistry::getObject, repository));
+        }
+        return bean;
+    }
+}
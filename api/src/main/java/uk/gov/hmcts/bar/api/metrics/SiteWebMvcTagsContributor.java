@@ -0,0 +1,30 @@
+package uk.gov.hmcts.bar.api.metrics;
+
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.boot.actuate.metrics.web.servlet.WebMvcTagsContributor;
+import uk.gov.hmcts.bar.api.auth.SiteValidationFilter;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Adds the site to the http.server.requests metrics. Only the site a request has been validated against is used, so
+ * an arbitrary SiteId header can not blow up the number of time series.
+ */
+public class SiteWebMvcTagsContributor implements WebMvcTagsContributor {
+
+    static final String SITE_TAG = "site";
+    static final String NO_SITE = "none";
+
+    @Override
+    public Iterable<Tag> getTags(HttpServletRequest request, HttpServletResponse response, Object handler, Throwable exception) {
+        Object site = request.getAttribute(SiteValidationFilter.VALIDATED_SITE_ATTRIBUTE);
+        return Tags.of(SITE_TAG, site == null ? NO_SITE : site.toString());
+    }
+
+    @Override
+    public Iterable<Tag> getLongRequestTags(HttpServletRequest request, Object handler) {
+        return Tags.empty();
+    }
+}
@@ -0,0 +1,40 @@
+package uk.gov.hmcts.bar.api.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+
+import java.util.function.Supplier;
+
+public class TimedRepositoryInterceptor implements MethodInterceptor {
+
+    public static final String METRIC_NAME = "bar.repository.invocations";
+
+    private final Supplier<MeterRegistry> meterRegistry;
+    private final String repository;
+
+    public TimedRepositoryInterceptor(Supplier<MeterRegistry> meterRegistry, String repository) {
+        this.meterRegistry = meterRegistry;
+        this.repository = repository;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        MeterRegistry registry = meterRegistry.get();
+        Timer.Sample sample = Timer.start(registry);
+        String exception = "none";
+        try {
+            return invocation.proceed();
+        } catch (Throwable t) {
+            exception = t.getClass().getSimpleName();
+            throw t;
+        } finally {
+            sample.stop(Timer.builder(METRIC_NAME)
+                .tag("repository", repository)
+                .tag("method", invocation.getMethod().getName())
+                .tag("exception", exception)
+                .register(registry));
+        }
+    }
+}
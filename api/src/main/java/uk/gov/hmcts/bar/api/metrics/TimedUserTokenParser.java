@@ -0,0 +1,32 @@
+package uk.gov.hmcts.bar.api.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import uk.gov.hmcts.reform.auth.parser.idam.core.user.token.UserTokenParser;
+
+/**
+ * Records the time spent resolving a user token against IDAM.
+ */
+public class TimedUserTokenParser<T> implements UserTokenParser<T> {
+
+    private final UserTokenParser<T> delegate;
+    private final MeterRegistry meterRegistry;
+
+    public TimedUserTokenParser(UserTokenParser<T> delegate, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public T parse(String jwt) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "ERROR";
+        try {
+            T details = delegate.parse(jwt);
+            outcome = "SUCCESS";
+            return details;
+        } finally {
+            sample.stop(OutboundRequestMetrics.timer(meterRegistry, OutboundRequestMetrics.IDAM, outcome));
+        }
+    }
+}
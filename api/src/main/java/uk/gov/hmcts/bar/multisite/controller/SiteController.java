@@ -16,6 +16,7 @@ import uk.gov.hmcts.bar.api.data.service.BarUserService;
 import uk.gov.hmcts.bar.multisite.aop.ToUpperCase;
 import uk.gov.hmcts.bar.multisite.model.Site;
 import uk.gov.hmcts.bar.multisite.model.SiteRequest;
+import uk.gov.hmcts.bar.multisite.service.SiteMembershipResolver;
 import uk.gov.hmcts.bar.multisite.service.SiteService;
 
 import javax.validation.Valid;
@@ -32,13 +33,15 @@ public class SiteController {
 
     private final SiteService siteService;
     private final BarUserService barUserService;
+    private final SiteMembershipResolver siteMembershipResolver;
 
     private Supplier<? extends RuntimeException> createNoSelectedSiteError = () -> new BadRequestException("Can't find the user's selected site");
 
     @Autowired
-    public SiteController(SiteService siteService, BarUserService barUserService) {
+    public SiteController(SiteService siteService, BarUserService barUserService, SiteMembershipResolver siteMembershipResolver) {
         this.siteService = siteService;
         this.barUserService = barUserService;
+        this.siteMembershipResolver = siteMembershipResolver;
     }
 
 
@@ -74,7 +77,9 @@ public class SiteController {
             throw new BadRequestException("The site id already exists: " + siteRequest.getId());
         }
         Site site = Site.siteWith().id(siteRequest.getId()).description(siteRequest.getDescription()).build();
-        return new ResponseEntity<>(siteService.saveSite(site), HttpStatus.CREATED);
+        Site savedSite = siteService.saveSite(site);
+        siteService.evictFromCache(savedSite.getId());
+        return new ResponseEntity<>(savedSite, HttpStatus.CREATED);
     }
 
     @ApiOperation(value = "Update a site in the database",
@@ -89,7 +94,9 @@ public class SiteController {
     public ResponseEntity<Site> updateSite(@PathVariable("id") String id, @Valid @RequestBody SiteRequest siteRequest) {
         Site site = isSiteIdExists(id);
         site.setDescription(siteRequest.getDescription());
-        return new ResponseEntity<>(siteService.saveSite(site), HttpStatus.OK);
+        Site savedSite = siteService.saveSite(site);
+        siteService.evictFromCache(savedSite.getId());
+        return new ResponseEntity<>(savedSite, HttpStatus.OK);
     }
 
     @ApiOperation(value = "List the assigned users for site",
@@ -119,6 +126,7 @@ public class SiteController {
     public ResponseEntity<Void> assignUserToSite(@PathVariable("id") String id, @PathVariable("email") String email) {
         Site site = isSiteIdExists(id);
         siteService.assignUserToSite(site, email);
+        siteMembershipResolver.evict(site.getId(), email);
         return new ResponseEntity<>(HttpStatus.CREATED);
     }
 
@@ -135,6 +143,7 @@ public class SiteController {
     public ResponseEntity<Void> removeUserFromSite(@PathVariable("id") String id, @PathVariable("email") String email) {
         Site site = isSiteIdExists(id);
         siteService.deleteUserFromSite(site, email);
+        siteMembershipResolver.evict(site.getId(), email);
         return new ResponseEntity<>(HttpStatus.OK);
     }
 
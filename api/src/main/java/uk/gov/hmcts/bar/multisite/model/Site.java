@@ -1,8 +1,11 @@
 package uk.gov.hmcts.bar.multisite.model;
 
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import uk.gov.hmcts.bar.multisite.aop.ToUpperCase;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Entity;
 import javax.persistence.Id;
 import javax.persistence.Transient;
@@ -13,6 +16,8 @@ import java.util.List;
 
 @Data
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE)
 @NoArgsConstructor
 @Builder(builderMethodName = "siteWith")
 @EqualsAndHashCode
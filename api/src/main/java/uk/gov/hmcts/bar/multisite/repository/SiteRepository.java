@@ -2,18 +2,26 @@ package uk.gov.hmcts.bar.multisite.repository;
 
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import uk.gov.hmcts.bar.multisite.model.Site;
 import uk.gov.hmcts.bar.multisite.model.SiteUserDto;
 
+import javax.persistence.QueryHint;
 import java.util.List;
 import java.util.Optional;
 
+import static org.hibernate.annotations.QueryHints.CACHEABLE;
+
 @Repository
 public interface SiteRepository extends CrudRepository<Site, String> {
 
+    @Override
+    @QueryHints(@QueryHint(name = CACHEABLE, value = "true"))
+    Iterable<Site> findAll();
+
     @Query(value = "SELECT us.user_email as email, bu.forename, bu.surname , bu.roles from user_site us left join bar_user bu on us.user_email = upper(bu.email) where us.site_id=:siteId", nativeQuery = true)
     List<SiteUserDto> findAllEmailsToSite(@Param("siteId") String siteId);
 
@@ -0,0 +1,77 @@
+package uk.gov.hmcts.bar.multisite.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import uk.gov.hmcts.bar.api.data.utils.Util;
+
+import java.util.Objects;
+
+/**
+ * Checks whether a user is assigned to a site without leaving the process. The answers are kept in the
+ * siteMembership cache for a short time; the site/user assignment endpoints evict the affected entry so the change
+ * is visible straight away on this node, other nodes pick it up once their entry is refreshed or expires.
+ */
+@Component
+public class SiteMembershipResolver {
+
+    public static final String CACHE_NAME = "siteMembership";
+
+    private final SiteService siteService;
+    private final Cache cache;
+
+    @Autowired
+    public SiteMembershipResolver(SiteService siteService, CacheManager cacheManager) {
+        this.siteService = siteService;
+        this.cache = cacheManager.getCache(CACHE_NAME);
+    }
+
+    public boolean isUserAssignedToSite(String siteId, String email) {
+        if (Util.StringUtils.isAnyBlank(siteId, email)) {
+            return false;
+        }
+        MembershipKey key = new MembershipKey(siteId, email);
+        return Boolean.TRUE.equals(cache.get(key, () -> siteService.validateUserAgainstSite(key.siteId, key.email)));
+    }
+
+    public void evict(String siteId, String email) {
+        if (!Util.StringUtils.isAnyBlank(siteId, email)) {
+            cache.evict(new MembershipKey(siteId, email));
+        }
+    }
+
+    public void evictAll() {
+        cache.clear();
+    }
+
+    /**
+     * Site ids and emails are stored upper-cased in user_site, the same normalisation the site endpoints apply.
+     */
+    private static final class MembershipKey {
+        private final String siteId;
+        private final String email;
+
+        private MembershipKey(String siteId, String email) {
+            this.siteId = siteId.trim().toUpperCase();
+            this.email = email.trim().toUpperCase();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            MembershipKey that = (MembershipKey) o;
+            return siteId.equals(that.siteId) && email.equals(that.email);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(siteId, email);
+        }
+    }
+}
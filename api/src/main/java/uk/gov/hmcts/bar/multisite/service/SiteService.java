@@ -6,6 +6,8 @@ import uk.gov.hmcts.bar.api.data.exceptions.BadRequestException;
 import uk.gov.hmcts.bar.multisite.model.Site;
 import uk.gov.hmcts.bar.multisite.model.SiteUserDto;
 import uk.gov.hmcts.bar.multisite.repository.SiteRepository;
+
+import javax.persistence.EntityManagerFactory;
 import javax.transaction.Transactional;
 import java.util.ArrayList;
 import java.util.List;
@@ -16,10 +18,12 @@ import java.util.Optional;
 public class SiteService {
 
     private final SiteRepository siteRepository;
+    private final EntityManagerFactory entityManagerFactory;
 
     @Autowired
-    public SiteService(SiteRepository siteRepository) {
+    public SiteService(SiteRepository siteRepository, EntityManagerFactory entityManagerFactory) {
         this.siteRepository = siteRepository;
+        this.entityManagerFactory = entityManagerFactory;
     }
 
     public Iterable<Site> getAllSites() {
@@ -96,6 +100,16 @@ private SiteUserDto createUser(String email, String forname, String surname, Str
         return siteRepository.save(site);
     }
 
+    /**
+     * Drops the site and the cached site lists from the second level cache once a change has been committed, so that
+     * a read that raced with the change can't keep serving the old description.
+     */
+    public void evictFromCache(String id) {
+        org.hibernate.Cache cache = entityManagerFactory.getCache().unwrap(org.hibernate.Cache.class);
+        cache.evictEntityData(Site.class, id);
+        cache.evictDefaultQueryRegion();
+    }
+
     public Optional<Site> findById(String id) {
         return siteRepository.findById(id);
     }
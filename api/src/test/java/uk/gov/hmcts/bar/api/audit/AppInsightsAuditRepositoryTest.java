@@ -4,6 +4,7 @@ import com.microsoft.applicationinsights.TelemetryClient;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 import org.mockito.junit.MockitoJUnitRunner;
 import uk.gov.hmcts.bar.api.data.model.BarUser;
@@ -15,12 +16,15 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 
+import static org.junit.Assert.assertEquals;
 import static org.mockito.Mockito.*;
 
 @RunWith(MockitoJUnitRunner.class)
 public class AppInsightsAuditRepositoryTest {
     TelemetryClient telemetry;
 
+    AuditEventDispatcher dispatcher;
+
     AppInsightsAuditRepository appInsightsAuditRepository;
 
     BarUser barUser = BarUser.builder()
@@ -31,7 +35,8 @@ public class AppInsightsAuditRepositoryTest {
     @Before
     public void setUp(){
         telemetry = spy(TelemetryClient.class);
-        appInsightsAuditRepository = new AppInsightsAuditRepository("key",telemetry);
+        dispatcher = mock(AuditEventDispatcher.class);
+        appInsightsAuditRepository = new AppInsightsAuditRepository("key",telemetry,dispatcher);
     }
 
     @Test
@@ -44,7 +49,12 @@ public class AppInsightsAuditRepositoryTest {
         when(paymentInstruction.getBgcNumber()).thenReturn("bgc-number");
 
         appInsightsAuditRepository.trackPaymentInstructionEvent("name",paymentInstruction,barUser);
-        verify(telemetry).trackEvent(anyString(),anyMap(),any());
+        ArgumentCaptor<AuditEvent> captor = ArgumentCaptor.forClass(AuditEvent.class);
+        verify(dispatcher).submit(captor.capture());
+        assertEquals("name", captor.getValue().getName());
+        assertEquals("1", captor.getValue().getProperties().get("Payment instruction id"));
+        assertEquals("bgc-number", captor.getValue().getProperties().get("BGC Number"));
+        verify(telemetry, never()).trackEvent(anyString(),anyMap(),any());
         Mockito.reset(paymentInstruction);
 
     }
@@ -56,14 +66,14 @@ public class AppInsightsAuditRepositoryTest {
                                                         .feeCode("fee-code")
                                                         .build();
         appInsightsAuditRepository.trackCaseEvent("name",caseFeeDetailRequest,barUser);
-        verify(telemetry).trackEvent(anyString(),anyMap(),any());
+        verify(dispatcher).submit(any(AuditEvent.class));
     }
     @Test
     public void trackEvent(){
         Map mockMap = new HashMap<String,String>();
         mockMap.put("key","value");
         appInsightsAuditRepository.trackEvent("name",mockMap);
-        verify(telemetry).trackEvent(anyString(),Mockito.anyMap(),any());
+        verify(dispatcher).submit(any(AuditEvent.class));
     }
 
 }
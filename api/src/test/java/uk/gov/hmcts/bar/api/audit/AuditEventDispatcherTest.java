@@ -0,0 +1,81 @@
+package uk.gov.hmcts.bar.api.audit;
+
+import com.google.common.collect.ImmutableMap;
+import com.microsoft.applicationinsights.TelemetryClient;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class AuditEventDispatcherTest {
+
+    private TelemetryClient telemetry;
+    private SimpleMeterRegistry meterRegistry;
+    private AuditEventDispatcher dispatcher;
+
+    @Before
+    public void setUp() {
+        telemetry = mock(TelemetryClient.class);
+        meterRegistry = new SimpleMeterRegistry();
+        dispatcher = new AuditEventDispatcher(telemetry, meterRegistry, 100, 10, 5000);
+    }
+
+    @Test
+    public void testEventsArePublishedAndFlushedOnShutdown() throws InterruptedException {
+        for (int i = 0; i < 25; i++) {
+            dispatcher.submit(new AuditEvent("EVENT_" + i, ImmutableMap.of("key", "value")));
+        }
+        dispatcher.destroy();
+
+        verify(telemetry, times(25)).trackEvent(any(), anyMap(), any());
+        verify(telemetry, times(1)).flush();
+        assertEquals(25.0, meterRegistry.counter("bar.audit.events", "result", "published").count(), 0.0);
+    }
+
+    @Test
+    public void testEventIsDroppedAndCountedWhenDispatcherIsClosed() throws InterruptedException {
+        dispatcher.destroy();
+        dispatcher.submit(new AuditEvent("LATE_EVENT", ImmutableMap.of()));
+
+        verify(telemetry, never()).trackEvent(eq("LATE_EVENT"), anyMap(), any());
+        assertEquals(1.0, meterRegistry.counter("bar.audit.events", "result", "dropped").count(), 0.0);
+    }
+
+    @Test
+    public void testEventsLeftAfterShutdownTimeoutAreCountedAsDropped() throws InterruptedException {
+        dispatcher.destroy();
+        dispatcher = new AuditEventDispatcher(telemetry, meterRegistry, 100, 1, 50);
+        doAnswer(invocation -> {
+            LockSupport.parkNanos(TimeUnit.SECONDS.toNanos(1));
+            return null;
+        }).when(telemetry).trackEvent(eq("SLOW_EVENT"), anyMap(), any());
+
+        dispatcher.submit(new AuditEvent("SLOW_EVENT", ImmutableMap.of()));
+        dispatcher.submit(new AuditEvent("WAITING_EVENT", ImmutableMap.of()));
+        dispatcher.submit(new AuditEvent("WAITING_EVENT", ImmutableMap.of()));
+        dispatcher.destroy();
+
+        verify(telemetry, never()).trackEvent(eq("WAITING_EVENT"), anyMap(), any());
+        assertEquals(2.0, meterRegistry.counter("bar.audit.events", "result", "dropped").count(), 0.0);
+    }
+
+    @Test
+    public void testFailingEventDoesNotStopTheDispatcher() throws InterruptedException {
+        doThrow(new IllegalStateException("boom")).when(telemetry).trackEvent(eq("BAD_EVENT"), anyMap(), any());
+
+        dispatcher.submit(new AuditEvent("BAD_EVENT", ImmutableMap.of()));
+        dispatcher.submit(new AuditEvent("GOOD_EVENT", ImmutableMap.of()));
+        dispatcher.destroy();
+
+        verify(telemetry, times(1)).trackEvent(eq("GOOD_EVENT"), anyMap(), any());
+        assertEquals(1.0, meterRegistry.counter("bar.audit.events", "result", "failed").count(), 0.0);
+    }
+}
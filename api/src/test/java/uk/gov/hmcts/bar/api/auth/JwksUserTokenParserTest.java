@@ -0,0 +1,157 @@
+package uk.gov.hmcts.bar.api.auth;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import uk.gov.hmcts.reform.auth.parser.idam.core.user.token.UserTokenParser;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class JwksUserTokenParserTest {
+
+    private static final String ISSUER = "https://idam.hmcts.net/o";
+    private static final String AUDIENCE = "bar_frontend";
+
+    @Mock
+    private UserTokenParser<UserTokenDetails> remoteParser;
+
+    private RSAKey idamKey;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private JwksUserTokenParser parser;
+
+    private UserTokenDetails remoteDetails;
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        idamKey = new RSAKeyGenerator(2048).keyID("idam-key").generate();
+        meterRegistry = new SimpleMeterRegistry();
+        parser = new JwksUserTokenParser(new ImmutableJWKSet<>(new JWKSet(idamKey.toPublicJWK())), ISSUER, AUDIENCE,
+            remoteParser, meterRegistry);
+        remoteDetails = UserTokenDetails.builder().id("remote").roles(Collections.emptySet()).build();
+        when(remoteParser.parse(anyString())).thenReturn(remoteDetails);
+    }
+
+    @Test
+    public void testSignedTokenIsResolvedWithoutCallingIdam() throws Exception {
+        String token = sign(idamKey, claims().build());
+
+        UserTokenDetails details = parser.parse("Bearer " + token);
+
+        assertThat(details.getId(), is("1234"));
+        assertThat(details.getRoles(), is(new HashSet<>(Arrays.asList("bar-fee-clerk", "bar-post-clerk"))));
+        assertThat(details.getEmail(), is("fee.clerk@hmcts.net"));
+        assertThat(details.getForename(), is("Fee"));
+        assertThat(details.getSurname(), is("Clerk"));
+        verify(remoteParser, never()).parse(anyString());
+        assertThat(resolutions(JwksUserTokenParser.LOCAL), is(1.0));
+    }
+
+    @Test
+    public void testTokenSignedWithUnknownKeyGoesToIdam() throws Exception {
+        String token = sign(new RSAKeyGenerator(2048).keyID("other-key").generate(), claims().build());
+
+        assertThat(parser.parse(token), is(remoteDetails));
+        assertThat(resolutions(JwksUserTokenParser.REMOTE), is(1.0));
+    }
+
+    @Test
+    public void testExpiredTokenGoesToIdam() throws Exception {
+        String token = sign(idamKey, claims().expirationTime(new Date(System.currentTimeMillis() - 600_000)).build());
+
+        assertThat(parser.parse(token), is(remoteDetails));
+    }
+
+    @Test
+    public void testTokenFromAnotherIssuerGoesToIdam() throws Exception {
+        String token = sign(idamKey, claims().issuer("https://someone.else.net/o").build());
+
+        assertThat(parser.parse(token), is(remoteDetails));
+        assertThat(resolutions(JwksUserTokenParser.REMOTE), is(1.0));
+    }
+
+    @Test
+    public void testTokenWithoutIssuerGoesToIdam() throws Exception {
+        String token = sign(idamKey, claims().issuer(null).build());
+
+        assertThat(parser.parse(token), is(remoteDetails));
+    }
+
+    @Test
+    public void testTokenForAnotherAudienceGoesToIdam() throws Exception {
+        String token = sign(idamKey, claims().audience("another_service").build());
+
+        assertThat(parser.parse(token), is(remoteDetails));
+    }
+
+    @Test
+    public void testAudienceIsNotCheckedWhenNotConfigured() throws Exception {
+        parser = new JwksUserTokenParser(new ImmutableJWKSet<>(new JWKSet(idamKey.toPublicJWK())), ISSUER, "",
+            remoteParser, meterRegistry);
+        String token = sign(idamKey, claims().audience((String) null).build());
+
+        assertThat(parser.parse(token).getId(), is("1234"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testIssuerMustBeConfigured() {
+        new JwksUserTokenParser(new ImmutableJWKSet<>(new JWKSet(idamKey.toPublicJWK())), " ", AUDIENCE,
+            remoteParser, meterRegistry);
+    }
+
+    @Test
+    public void testTokenWithoutRolesGoesToIdam() throws Exception {
+        String token = sign(idamKey, claims().claim("roles", null).build());
+
+        assertThat(parser.parse(token), is(remoteDetails));
+    }
+
+    @Test
+    public void testOpaqueTokenGoesToIdam() {
+        assertThat(parser.parse("not-a-jwt"), is(remoteDetails));
+        verify(remoteParser).parse("not-a-jwt");
+    }
+
+    private double resolutions(String source) {
+        return meterRegistry.get(JwksUserTokenParser.METRIC_NAME).tag("source", source).counter().count();
+    }
+
+    private static JWTClaimsSet.Builder claims() {
+        return new JWTClaimsSet.Builder()
+            .issuer(ISSUER)
+            .audience(AUDIENCE)
+            .subject("fee.clerk@hmcts.net")
+            .claim("uid", "1234")
+            .claim("roles", Arrays.asList("bar-fee-clerk", "bar-post-clerk"))
+            .claim("given_name", "Fee")
+            .claim("family_name", "Clerk")
+            .expirationTime(new Date(System.currentTimeMillis() + 600_000));
+    }
+
+    private static String sign(RSAKey key, JWTClaimsSet claims) throws Exception {
+        SignedJWT jwt = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(key.getKeyID()).build(), claims);
+        jwt.sign(new RSASSASigner(key));
+        return jwt.serialize();
+    }
+}
@@ -6,6 +6,7 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import uk.gov.hmcts.bar.api.data.model.BarUser;
 import uk.gov.hmcts.bar.api.data.service.BarUserService;
+import uk.gov.hmcts.bar.multisite.service.SiteMembershipResolver;
 
 import javax.servlet.FilterChain;
 import javax.servlet.ServletException;
@@ -30,6 +31,9 @@ public class SiteValidationFilterTest {
     @Mock
     private BarUserService barUserService;
 
+    @Mock
+    private SiteMembershipResolver siteMembershipResolver;
+
     @Mock
     private BarUser barUser;
 
@@ -38,7 +42,7 @@ public class SiteValidationFilterTest {
     @Before
     public void setUp() {
         MockitoAnnotations.initMocks(this);
-        filter = new SiteValidationFilter(barUserService);
+        filter = new SiteValidationFilter(barUserService, siteMembershipResolver);
     }
 
     @Test
@@ -51,10 +55,9 @@ public class SiteValidationFilterTest {
     @Test
     public void testFilterWhenTheUrlShouldBeFilteredHappyPath() throws IOException, ServletException {
         when(request.getServletPath()).thenReturn("/some/path/to/filter");
-        when(request.getHeader("Authorization")).thenReturn("token");
         when(request.getHeader("SiteId")).thenReturn("siteId");
         when(barUserService.getBarUser()).thenReturn(Optional.of(barUser));
-        when(barUserService.validateUserAgainstSite(anyString(), anyString(), anyString())).thenReturn(true);
+        when(siteMembershipResolver.isUserAssignedToSite("siteId", "user@mail.com")).thenReturn(true);
         when(barUser.getEmail()).thenReturn("user@mail.com");
 
         filter.doFilter(request, response, chain);
@@ -64,10 +67,9 @@ public class SiteValidationFilterTest {
     @Test
     public void testFilterWhenTheUrlShouldBeFilteredButValidationFailed() throws IOException, ServletException {
         when(request.getServletPath()).thenReturn("/some/path/to/filter");
-        when(request.getHeader("Authorization")).thenReturn("token");
         when(request.getHeader("SiteId")).thenReturn("siteId");
         when(barUserService.getBarUser()).thenReturn(Optional.of(barUser));
-        when(barUserService.validateUserAgainstSite(anyString(), anyString(), anyString())).thenReturn(false);
+        when(siteMembershipResolver.isUserAssignedToSite("siteId", "user@mail.com")).thenReturn(false);
         when(barUser.getEmail()).thenReturn("user@mail.com");
 
         filter.doFilter(request, response, chain);
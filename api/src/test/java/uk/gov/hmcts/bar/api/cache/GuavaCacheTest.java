@@ -0,0 +1,148 @@
+package uk.gov.hmcts.bar.api.cache;
+
+import com.google.common.base.Ticker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.cache.Cache;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class GuavaCacheTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final Ticker ticker = new Ticker() {
+        @Override
+        public long read() {
+            return now.get();
+        }
+    };
+
+    private CacheSpec spec;
+
+    @Before
+    public void setUp() {
+        spec = new CacheSpec();
+        spec.setMaximumSize(2);
+        spec.setExpireAfterWrite(Duration.ofMinutes(10));
+    }
+
+    @Test
+    public void testEntriesExpireAfterWrite() {
+        GuavaCache cache = newCache();
+        cache.put("key", "value");
+        assertEquals("value", cache.get("key", String.class));
+
+        advance(Duration.ofMinutes(11));
+        assertNull(cache.get("key"));
+    }
+
+    @Test
+    public void testCacheIsBounded() {
+        GuavaCache cache = newCache();
+        cache.put("one", "1");
+        cache.put("two", "2");
+        cache.put("three", "3");
+
+        assertEquals(2, cache.getNativeCache().size());
+    }
+
+    @Test
+    public void testNullIsNotStoredByDefault() {
+        GuavaCache cache = newCache();
+        AtomicInteger loads = new AtomicInteger();
+
+        try {
+            cache.get("key", () -> {
+                loads.incrementAndGet();
+                return null;
+            });
+        } catch (Cache.ValueRetrievalException e) {
+            // null values are rejected when the cache does not allow them
+        }
+        assertNull(cache.get("key"));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void testNegativeResultExpiresEarlierThanRegularEntries() {
+        spec.setAllowNullValues(true);
+        spec.setExpireNullValuesAfter(Duration.ofSeconds(30));
+        GuavaCache cache = newCache();
+        AtomicInteger loads = new AtomicInteger();
+
+        assertNull(cache.get("key", () -> {
+            loads.incrementAndGet();
+            return null;
+        }));
+        assertNull(cache.get("key", loads::incrementAndGet));
+        assertEquals(1, loads.get());
+
+        advance(Duration.ofSeconds(31));
+        assertEquals(Integer.valueOf(2), cache.get("key", loads::incrementAndGet));
+    }
+
+    @Test
+    public void testStaleEntryIsRefreshedInBackgroundWhileServingOldValue() {
+        spec.setRefreshAfterWrite(Duration.ofMinutes(1));
+        GuavaCache cache = new GuavaCache("test", spec, Runnable::run, ticker);
+        AtomicInteger loads = new AtomicInteger();
+
+        assertEquals(Integer.valueOf(1), cache.get("key", loads::incrementAndGet));
+        assertEquals(Integer.valueOf(1), cache.get("key", loads::incrementAndGet));
+
+        advance(Duration.ofMinutes(2));
+        assertEquals(Integer.valueOf(1), cache.get("key", loads::incrementAndGet));
+        assertEquals(Integer.valueOf(2), cache.get("key", loads::incrementAndGet));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void testRefreshUnderWayWhenTheKeyIsEvictedDoesNotBringTheValueBack() {
+        spec.setRefreshAfterWrite(Duration.ofMinutes(1));
+        List<Runnable> refreshes = new ArrayList<>();
+        GuavaCache cache = new GuavaCache("test", spec, refreshes::add, ticker);
+        AtomicInteger loads = new AtomicInteger();
+
+        assertEquals(Integer.valueOf(1), cache.get("key", loads::incrementAndGet));
+        advance(Duration.ofMinutes(2));
+        assertEquals(Integer.valueOf(1), cache.get("key", loads::incrementAndGet));
+        cache.evict("key");
+        refreshes.forEach(Runnable::run);
+
+        assertNull(cache.get("key"));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void testStatisticsArePublished() {
+        GuavaCache cache = newCache();
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        new GuavaCacheMeterBinderProvider().getMeterBinder(cache, Collections.emptyList()).bindTo(registry);
+
+        cache.get("key");
+        cache.put("key", "value");
+        cache.get("key");
+
+        assertEquals(1.0, registry.get("cache.gets").tag("cache", "test").tag("result", "hit")
+            .functionCounter().count(), 0.0);
+        assertEquals(1.0, registry.get("cache.gets").tag("cache", "test").tag("result", "miss")
+            .functionCounter().count(), 0.0);
+    }
+
+    private GuavaCache newCache() {
+        return new GuavaCache("test", spec, Runnable::run, ticker);
+    }
+
+    private void advance(Duration duration) {
+        now.addAndGet(duration.toNanos());
+    }
+}
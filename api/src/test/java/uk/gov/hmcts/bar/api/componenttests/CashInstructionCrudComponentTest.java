@@ -4,11 +4,14 @@ import org.json.JSONArray;
 import org.json.JSONObject;
 import org.junit.Test;
 import org.skyscreamer.jsonassert.JSONParser;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.test.web.servlet.MvcResult;
+import uk.gov.hmcts.bar.api.componenttests.utils.DbTestUtil;
 import uk.gov.hmcts.bar.api.data.model.*;
 
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -95,6 +98,41 @@ public class CashInstructionCrudComponentTest extends ComponentTestBase {
             }));
     }
 
+    @Test
+    public void givenFeeClerk_createdCashPaymentInstructionIsPendingWithItsPaymentType() throws Exception {
+        Cash proposedCashPaymentInstructionRequest = cashPaymentInstructionRequestWith()
+            .payerName("Mr Payer Payer").amount(500).currency("GBP").status("D").build();
+
+        restActionsForFeeClerk.post("/cash", proposedCashPaymentInstructionRequest)
+            .andExpect(status().isCreated())
+            .andExpect(body().as(Map.class, (pi) -> {
+                assertEquals("P", pi.get("status"));
+                assertEquals("CASH", ((Map) pi.get("payment_type")).get("id"));
+            }));
+
+        restActionsForFeeClerk.get("/payment-instructions/1").andExpect(status().isOk())
+            .andExpect(body().as(CashPaymentInstruction.class, (pi) -> {
+                assertEquals("P", pi.getStatus());
+            }));
+    }
+
+    @Test
+    public void givenCashPaymentInstruction_listShowsStatusDisplayValueWhileSingleShowsStatusCode() throws Exception {
+        Cash proposedCashPaymentInstructionRequest = cashPaymentInstructionRequestWith()
+            .payerName("Mr Payer Payer").amount(500).currency("GBP").status("D").build();
+
+        restActions.post("/cash", proposedCashPaymentInstructionRequest).andExpect(status().isCreated());
+
+        restActions.get("/payment-instructions").andExpect(status().isOk())
+            .andExpect(body().as(List.class, (piList) -> {
+                assertEquals("Draft", ((Map) piList.get(0)).get("status"));
+            }));
+        restActions.get("/payment-instructions/1").andExpect(status().isOk())
+            .andExpect(body().as(CashPaymentInstruction.class, (pi) -> {
+                assertEquals("D", pi.getStatus());
+            }));
+    }
+
     @Test
     public void givenCashPaymentInstructionDetails_retrieveOneOfThemWithWrongId() throws Exception {
         Cash proposedCashPaymentInstructionRequest = cashPaymentInstructionRequestWith()
@@ -625,6 +663,88 @@ public class CashInstructionCrudComponentTest extends ComponentTestBase {
                 assertThat(count.equals(1));
             }));
     }
+    @Test
+    public void givenCashPIsDeleted_theirStatusesAreNoLongerCounted() throws Exception {
+        Cash proposedCashPaymentInstructionRequest = cashPaymentInstructionRequestWith()
+            .payerName("Mr Payer Payer")
+            .amount(500)
+            .currency("GBP").status("D").build();
+
+        restActions
+            .post("/cash",  proposedCashPaymentInstructionRequest)
+            .andExpect(status().isCreated());
+
+        DateTimeFormatter dtf = DateTimeFormatter.ofPattern("ddMMyyyy");
+        String today = LocalDate.now().format(dtf);
+        String countUrl = "/payment-instructions/count?status=D&startDate=" + today + "&endDate=" + today;
+        restActions.get(countUrl).andExpect(status().isOk())
+            .andExpect(body().as(Long.class, count -> assertEquals(1L, (long) count)));
+
+        restActions
+            .delete("/payment-instructions/1")
+            .andExpect(status().isNoContent());
+        restActions.get(countUrl).andExpect(status().isOk())
+            .andExpect(body().as(Long.class, count -> assertEquals(0L, (long) count)));
+    }
+
+    @Test
+    public void whenStatusCountersAreRebuilt_theyAreDerivedFromTheStatusHistory() throws Exception {
+        DbTestUtil.insertPaymentInstructions(getWebApplicationContext());
+        DbTestUtil.emptyTable(getWebApplicationContext(), "payment_instruction_status_counter");
+
+        restActionsForFeeClerk
+            .post("/payment-instructions/counters/rebuild", null)
+            .andExpect(status().isForbidden());
+        restActionsForDM
+            .post("/payment-instructions/counters/rebuild", null)
+            .andExpect(status().isNoContent());
+
+        restActions.get("/payment-instructions/count?status=TTB&userId=1234&startDate=21012019&endDate=21012019")
+            .andExpect(status().isOk())
+            .andExpect(body().as(Long.class, count -> assertEquals(3L, (long) count)));
+    }
+
+    @Test
+    public void whenAPaymentInstructionIsUpdated_theIncrementalCountersMatchARebuild() throws Exception {
+        Cash proposedCashPaymentInstructionRequest = cashPaymentInstructionRequestWith()
+            .payerName("Mr Payer Payer")
+            .amount(500)
+            .currency("GBP").status("D").build();
+        Cash validatedCashPaymentInstructionRequest = cashPaymentInstructionRequestWith()
+            .payerName("Mr Payer Payer")
+            .amount(700)
+            .currency("GBP").status("V").build();
+        Cash correctedCashPaymentInstructionRequest = cashPaymentInstructionRequestWith()
+            .payerName("Mr Payer Payer")
+            .amount(800)
+            .currency("GBP").status("V").build();
+
+        restActions
+            .post("/cash", proposedCashPaymentInstructionRequest)
+            .andExpect(status().isCreated());
+        restActions
+            .put("/cash/1", validatedCashPaymentInstructionRequest)
+            .andExpect(status().isOk());
+        restActions
+            .put("/cash/1", correctedCashPaymentInstructionRequest)
+            .andExpect(status().isOk());
+
+        List<Map<String, Object>> incrementalCounters = statusCounters();
+        assertThat(incrementalCounters).isNotEmpty();
+
+        restActionsForDM
+            .post("/payment-instructions/counters/rebuild", null)
+            .andExpect(status().isNoContent());
+
+        assertEquals(statusCounters(), incrementalCounters);
+    }
+
+    private List<Map<String, Object>> statusCounters() {
+        return getWebApplicationContext().getBean(NamedParameterJdbcTemplate.class).queryForList(
+            "SELECT site_id, status, bar_user_id, status_date, status_count, total_amount FROM payment_instruction_status_counter " +
+                "WHERE status_count > 0 ORDER BY site_id, status, bar_user_id, status_date", Collections.emptyMap());
+    }
+
     @Test
     public void givenCashPIsSubmitted_getResetCount() throws Exception {
         Cash proposedCashPaymentInstructionRequest = cashPaymentInstructionRequestWith()
@@ -19,15 +19,17 @@ import uk.gov.hmcts.bar.api.componenttests.sugar.CustomResultMatcher;
 import uk.gov.hmcts.bar.api.componenttests.sugar.RestActions;
 import uk.gov.hmcts.bar.api.componenttests.utils.DbTestUtil;
 import uk.gov.hmcts.bar.api.data.service.BarUserService;
+import uk.gov.hmcts.bar.api.data.utils.PaymentInstructionIdGenerator;
 import uk.gov.hmcts.bar.multisite.MultisiteConfiguration;
+import uk.gov.hmcts.bar.multisite.service.SiteMembershipResolver;
 import uk.gov.hmcts.reform.auth.checker.spring.useronly.UserDetails;
 import uk.gov.hmcts.reform.authorisation.generators.AuthTokenGenerator;
 
-import javax.ws.rs.core.MediaType;
 import java.util.Collections;
 
-import static com.github.tomakehurst.wiremock.client.WireMock.*;
 import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
 import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.MOCK;
 import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
 import static org.springframework.test.web.servlet.setup.MockMvcBuilders.webAppContextSetup;
@@ -52,6 +54,9 @@ public class ComponentTestBase {
     @Autowired
     private BarUserService barUserService;
 
+    @MockBean
+    private SiteMembershipResolver siteMembershipResolver;
+
     public final UserDetails userDetails =
         new UserDetails("1234", "abc123", Collections.singletonList("bar-post-clerk"));
     public final UserDetails feeClerkUserDetails =
@@ -88,17 +93,19 @@ public class ComponentTestBase {
     @Before
     public void setUp() throws Exception {
         DefaultMockMvcBuilder mvc = webAppContextSetup(webApplicationContext).apply(springSecurity());
-        this.restActions = new RestActions(mvc.addFilter(new SiteValidationFilter(barUserService)).build(), objectMapper, userDetails);
-        this.restActionsForFeeClerk = new RestActions(mvc.addFilter(new SiteValidationFilter(barUserService)).build(), objectMapper, feeClerkUserDetails);
-        this.restActionsForSrFeeClerk = new RestActions(mvc.addFilter(new SiteValidationFilter(barUserService)).build(), objectMapper, srFeeClerkUserDetails);
-        this.restActionsForDM = new RestActions(mvc.addFilter(new SiteValidationFilter(barUserService)).build(), objectMapper, dmUserDetails);
-        this.restActionsForAdmin = new RestActions(mvc.addFilter(new SiteValidationFilter(barUserService)).build(), objectMapper, adminUserDetails);
-        this.restActionsPostClerkSite2 = new RestActions(mvc.addFilter(new SiteValidationFilter(barUserService)).build(), objectMapper, postClerkUserDetailsSite2);
-        this.restActionsForFeeClerkSite2 = new RestActions(mvc.addFilter(new SiteValidationFilter(barUserService)).build(), objectMapper, feeClerkUserDetailsSite2);
-        this.restActionsForSrFeeClerkSite2 = new RestActions(mvc.addFilter(new SiteValidationFilter(barUserService)).build(), objectMapper, srFeeClerkUserDetailsSite2);
-        this.restActionsForDMSite2 = new RestActions(mvc.addFilter(new SiteValidationFilter(barUserService)).build(), objectMapper, dmUserUserDetailsSite2);
-        this.restActionsForAdminSite2 = new RestActions(mvc.addFilter(new SiteValidationFilter(barUserService)).build(), objectMapper, adminUserDetailsSite2);
-
+        this.restActions = new RestActions(mvc.addFilter(new SiteValidationFilter(barUserService, siteMembershipResolver)).build(), objectMapper, userDetails);
+        this.restActionsForFeeClerk = new RestActions(mvc.addFilter(new SiteValidationFilter(barUserService, siteMembershipResolver)).build(), objectMapper, feeClerkUserDetails);
+        this.restActionsForSrFeeClerk = new RestActions(mvc.addFilter(new SiteValidationFilter(barUserService, siteMembershipResolver)).build(), objectMapper, srFeeClerkUserDetails);
+        this.restActionsForDM = new RestActions(mvc.addFilter(new SiteValidationFilter(barUserService, siteMembershipResolver)).build(), objectMapper, dmUserDetails);
+        this.restActionsForAdmin = new RestActions(mvc.addFilter(new SiteValidationFilter(barUserService, siteMembershipResolver)).build(), objectMapper, adminUserDetails);
+        this.restActionsPostClerkSite2 = new RestActions(mvc.addFilter(new SiteValidationFilter(barUserService, siteMembershipResolver)).build(), objectMapper, postClerkUserDetailsSite2);
+        this.restActionsForFeeClerkSite2 = new RestActions(mvc.addFilter(new SiteValidationFilter(barUserService, siteMembershipResolver)).build(), objectMapper, feeClerkUserDetailsSite2);
+        this.restActionsForSrFeeClerkSite2 = new RestActions(mvc.addFilter(new SiteValidationFilter(barUserService, siteMembershipResolver)).build(), objectMapper, srFeeClerkUserDetailsSite2);
+        this.restActionsForDMSite2 = new RestActions(mvc.addFilter(new SiteValidationFilter(barUserService, siteMembershipResolver)).build(), objectMapper, dmUserUserDetailsSite2);
+        this.restActionsForAdminSite2 = new RestActions(mvc.addFilter(new SiteValidationFilter(barUserService, siteMembershipResolver)).build(), objectMapper, adminUserDetailsSite2);
+
+        DbTestUtil.emptyTable(webApplicationContext, "payment_instruction_latest_status");
+        DbTestUtil.emptyTable(webApplicationContext, "payment_instruction_status_counter");
         DbTestUtil.emptyTable(webApplicationContext, "payment_instruction_status");
         DbTestUtil.emptyTable(webApplicationContext, "case_fee_detail");
         DbTestUtil.emptyTable(webApplicationContext, "payment_instruction_status");
@@ -106,9 +113,11 @@ public class ComponentTestBase {
         DbTestUtil.emptyTable(webApplicationContext, "payment_instruction_payhub_reference");
         DbTestUtil.emptyTable(webApplicationContext, "payment_instruction_status");
         DbTestUtil.emptyTable(webApplicationContext, "payment_instruction");
+        DbTestUtil.emptyTable(webApplicationContext, "payhub_job");
         DbTestUtil.emptyTable(webApplicationContext, "user_site");
         DbTestUtil.emptyTable(webApplicationContext, "site");
         DbTestUtil.resetAutoIncrementColumns(webApplicationContext, "payment_instruction");
+        DbTestUtil.restartSequence(webApplicationContext, PaymentInstructionIdGenerator.SEQUENCE_NAME, 1);
         DbTestUtil.addTestUser(webApplicationContext, userDetails);
         DbTestUtil.addTestUser(webApplicationContext, feeClerkUserDetails);
         DbTestUtil.addTestUser(webApplicationContext, srFeeClerkUserDetails);
@@ -116,13 +125,7 @@ public class ComponentTestBase {
         DbTestUtil.addTestUser(webApplicationContext, adminUserDetails);
         DbTestUtil.addTestSiteUser(webApplicationContext);
 
-        wireMockRule.stubFor(get(urlPathMatching("/sites/(.+)/users/(.+)"))
-            .willReturn(aResponse()
-                .withStatus(200)
-                .withHeader("Content-Type", MediaType.TEXT_PLAIN)
-                .withBody("true")
-            )
-        );
+        when(siteMembershipResolver.isUserAssignedToSite(anyString(), anyString())).thenReturn(true);
     }
 
 
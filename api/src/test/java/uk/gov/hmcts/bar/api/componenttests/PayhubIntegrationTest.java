@@ -49,13 +49,10 @@ public class PayhubIntegrationTest extends ComponentTestBase {
     public void testSendPaymentInstrucitonToPayhub() throws Exception {
         DbTestUtil.insertBGCNumber(getWebApplicationContext());
         DbTestUtil.insertPaymentInstructions(getWebApplicationContext());
-        restActionsForDM
-            .get("/payment-instructions/send-to-payhub/")
-            .andExpect(status().isOk())
-            .andExpect(body().as(Map.class, map -> {
-                Assert.assertEquals(4, map.get("total"));
-                Assert.assertEquals(4, map.get("success"));
-            }));
+        Map job = awaitJob(startJob("/payment-instructions/send-to-payhub/"));
+        Assert.assertEquals("COMPLETED", job.get("status"));
+        Assert.assertEquals(4, job.get("total"));
+        Assert.assertEquals(4, job.get("success"));
     }
 
     @Test
@@ -63,13 +60,10 @@ public class PayhubIntegrationTest extends ComponentTestBase {
         Long reportDate = LocalDateTime.now().toInstant(ZoneOffset.UTC).toEpochMilli();
         DbTestUtil.insertBGCNumber(getWebApplicationContext());
         DbTestUtil.insertPaymentInstructions(getWebApplicationContext());
-        restActionsForDM
-            .get("/payment-instructions/send-to-payhub/" + reportDate)
-            .andExpect(status().isOk())
-            .andExpect(body().as(Map.class, map -> {
-                Assert.assertEquals(4, map.get("total"));
-                Assert.assertEquals(4, map.get("success"));
-            }));
+        Map job = awaitJob(startJob("/payment-instructions/send-to-payhub/" + reportDate));
+        Assert.assertEquals("COMPLETED", job.get("status"));
+        Assert.assertEquals(4, job.get("total"));
+        Assert.assertEquals(4, job.get("success"));
     }
 
         @Test
@@ -104,4 +98,49 @@ public class PayhubIntegrationTest extends ComponentTestBase {
                         "Please contact support.", resp.get("message"));
                 }));
         }
+
+    @Test
+    public void testNewJobIsStartedOnceThePreviousOneHasFinished() throws Exception {
+        DbTestUtil.insertBGCNumber(getWebApplicationContext());
+        DbTestUtil.insertPaymentInstructions(getWebApplicationContext());
+        Integer first = startJob("/payment-instructions/send-to-payhub/");
+        Map job = awaitJob(first);
+        Assert.assertEquals("COMPLETED", job.get("status"));
+
+        Integer second = startJob("/payment-instructions/send-to-payhub/");
+        Assert.assertNotEquals(first, second);
+        job = awaitJob(second);
+        Assert.assertEquals(0, job.get("total"));
+    }
+
+    @Test
+    public void testUnknownJob() throws Exception {
+        restActionsForDM
+            .get("/payment-instructions/send-to-payhub/jobs/999")
+            .andExpect(status().isNotFound());
+    }
+
+    private Integer startJob(String url) throws Exception {
+        String response = restActionsForDM
+            .get(url)
+            .andExpect(status().isAccepted())
+            .andReturn().getResponse().getContentAsString();
+        return (Integer) getObjectMapper().readValue(response, Map.class).get("id");
+    }
+
+    private Map awaitJob(Integer id) throws Exception {
+        Map job = null;
+        for (int i = 0; i < 100; i++) {
+            String response = restActionsForDM
+                .get("/payment-instructions/send-to-payhub/jobs/" + id)
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+            job = getObjectMapper().readValue(response, Map.class);
+            if (!"RUNNING".equals(job.get("status"))) {
+                return job;
+            }
+            Thread.sleep(100);
+        }
+        return job;
+    }
 }
@@ -0,0 +1,103 @@
+package uk.gov.hmcts.bar.api.componenttests;
+
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import uk.gov.hmcts.bar.api.componenttests.utils.DbTestUtil;
+import uk.gov.hmcts.bar.api.data.model.PayHubJob;
+import uk.gov.hmcts.bar.api.data.model.PaymentInstructionPayhubReference;
+import uk.gov.hmcts.bar.api.integration.payhub.data.PayhubResult;
+import uk.gov.hmcts.bar.api.integration.payhub.repository.PayHubJobRepository;
+import uk.gov.hmcts.bar.api.integration.payhub.repository.PayhubResultRepository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class PayhubResultRepositoryTest extends ComponentTestBase {
+
+    private static final String PAYMENT_INSTRUCTION = "SELECT status, report_date, transferred_to_payhub, payhub_error, payhub_job_id "
+        + "FROM payment_instruction WHERE id = :id";
+    private static final String STATUSES = "SELECT status FROM payment_instruction_status WHERE payment_instruction_id = :id "
+        + "ORDER BY status";
+    private static final String CURRENT_STATUS = "SELECT status FROM payment_instruction_latest_status "
+        + "WHERE payment_instruction_id = :id AND is_current = true";
+    private static final String REFERENCES = "SELECT reference, payment_group_reference FROM payment_instruction_payhub_reference "
+        + "WHERE payment_instruction_id = :id";
+
+    @Autowired
+    private PayhubResultRepository payhubResultRepository;
+
+    @Autowired
+    private PayHubJobRepository payHubJobRepository;
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    public void whenAcceptedAndRejectedResultsAreSaved_thenBothMoveToStpWithTheirOutcome() throws Exception {
+        DbTestUtil.insertTransferredToBarPaymentInstructions(getWebApplicationContext(), 2);
+        LocalDateTime reportDate = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        PayHubJob job = transactionTemplate.execute(status -> payHubJobRepository.saveAndFlush(PayHubJob.builder()
+            .siteId("Y431").barUserId("1234").reportDate(reportDate).status(PayHubJob.Status.RUNNING)
+            .startTime(reportDate).updateTime(reportDate).build()));
+
+        transactionTemplate.execute(status -> {
+            payhubResultRepository.markSending(Arrays.asList(1, 2), job.getId());
+            return null;
+        });
+        assertEquals(Arrays.asList(1, 2), payhubResultRepository.findInterrupted("Y431"));
+
+        transactionTemplate.execute(status -> {
+            payhubResultRepository.save(Arrays.asList(
+                PayhubResult.accepted(1, PaymentInstructionPayhubReference.builder()
+                    .paymentInstructionId(1).reference("RC-1534-8634-8352-6509").paymentGroupReference("2018-15348634835").build()),
+                PayhubResult.rejected(2, "Failed(403): Access Denied")), "1234", reportDate);
+            return null;
+        });
+
+        Map<String, Object> accepted = paymentInstruction(1);
+        assertEquals("STP", accepted.get("status"));
+        assertEquals(Timestamp.valueOf(reportDate), accepted.get("report_date"));
+        assertEquals(Boolean.TRUE, accepted.get("transferred_to_payhub"));
+        assertNull(accepted.get("payhub_error"));
+        assertNull(accepted.get("payhub_job_id"));
+        List<Map<String, Object>> references = jdbcTemplate.queryForList(REFERENCES, new MapSqlParameterSource("id", 1));
+        assertEquals(1, references.size());
+        assertEquals("RC-1534-8634-8352-6509", references.get(0).get("reference"));
+        assertEquals("2018-15348634835", references.get(0).get("payment_group_reference"));
+
+        Map<String, Object> rejected = paymentInstruction(2);
+        assertEquals("STP", rejected.get("status"));
+        assertEquals(Timestamp.valueOf(reportDate), rejected.get("report_date"));
+        assertEquals(Boolean.FALSE, rejected.get("transferred_to_payhub"));
+        assertEquals("Failed(403): Access Denied", rejected.get("payhub_error"));
+        assertNull(rejected.get("payhub_job_id"));
+        assertEquals(Collections.emptyList(), jdbcTemplate.queryForList(REFERENCES, new MapSqlParameterSource("id", 2)));
+
+        for (int id : new int[] {1, 2}) {
+            MapSqlParameterSource byId = new MapSqlParameterSource("id", id);
+            assertEquals(Arrays.asList("D", "STP", "TTB"), jdbcTemplate.queryForList(STATUSES, byId, String.class));
+            assertEquals(Collections.singletonList("STP"), jdbcTemplate.queryForList(CURRENT_STATUS, byId, String.class));
+        }
+        assertEquals(Collections.emptyList(), payhubResultRepository.findInterrupted("Y431"));
+    }
+
+    private Map<String, Object> paymentInstruction(int id) {
+        return jdbcTemplate.queryForMap(PAYMENT_INSTRUCTION, new MapSqlParameterSource("id", id));
+    }
+}
@@ -0,0 +1,146 @@
+package uk.gov.hmcts.bar.api.componenttests;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.skyscreamer.jsonassert.JSONParser;
+import uk.gov.hmcts.bar.api.data.model.PaymentInstructionBulkItem;
+import uk.gov.hmcts.bar.api.data.model.PaymentInstructionSelector;
+import uk.gov.hmcts.bar.api.data.model.PaymentInstructionTransitionRequest;
+import uk.gov.hmcts.bar.api.data.model.PaymentInstructionUpdateRequest;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static uk.gov.hmcts.bar.api.data.model.Cheque.chequePaymentInstructionRequestWith;
+import static uk.gov.hmcts.bar.api.data.model.PostalOrder.postalOrderPaymentInstructionRequestWith;
+
+public class PaymentInstructionBulkComponentTest extends ComponentTestBase {
+
+    @Test
+    public void whenPaymentInstructionsAreValid_thenCreateThemAll() throws Exception {
+        PaymentInstructionBulkItem cheque = new PaymentInstructionBulkItem(chequePaymentInstructionRequestWith()
+            .payerName("Mr Payer Payer").amount(500).currency("GBP").chequeNumber("000000").build());
+        PaymentInstructionBulkItem postalOrder = new PaymentInstructionBulkItem(postalOrderPaymentInstructionRequestWith()
+            .payerName("Mr Payer Payer").amount(300).currency("GBP").postalOrderNumber("000000").build());
+
+        String jsonResponse = restActionsForFeeClerk
+            .post("/payment-instructions/bulk", Arrays.asList(cheque, postalOrder))
+            .andExpect(status().isCreated())
+            .andReturn().getResponse().getContentAsString();
+        JSONArray created = (JSONArray) JSONParser.parseJSON(jsonResponse);
+        assertEquals(2, created.length());
+        assertEquals("P", created.getJSONObject(0).get("status"));
+        assertEquals("CHEQUE", created.getJSONObject(0).getJSONObject("payment_type").get("id"));
+        assertEquals("POSTAL_ORDER", created.getJSONObject(1).getJSONObject("payment_type").get("id"));
+        assertNotEquals(created.getJSONObject(0).get("daily_sequence_id"), created.getJSONObject(1).get("daily_sequence_id"));
+
+        restActionsForFeeClerk
+            .get("/payment-instructions/" + created.getJSONObject(1).get("id"))
+            .andExpect(status().isOk());
+    }
+
+    @Test
+    public void whenAnyPaymentInstructionIsInvalid_thenCreateNoneAndReportTheItem() throws Exception {
+        PaymentInstructionBulkItem cheque = new PaymentInstructionBulkItem(chequePaymentInstructionRequestWith()
+            .payerName("Mr Payer Payer").amount(500).currency("GBP").chequeNumber("000000").build());
+        PaymentInstructionBulkItem invalidCheque = new PaymentInstructionBulkItem(chequePaymentInstructionRequestWith()
+            .payerName("Mr Payer Payer").amount(500).currency("GBP").chequeNumber("xxxxxx").build());
+
+        String jsonResponse = restActions
+            .post("/payment-instructions/bulk", Arrays.asList(cheque, invalidCheque))
+            .andExpect(status().isBadRequest())
+            .andReturn().getResponse().getContentAsString();
+        JSONArray errors = ((JSONObject) JSONParser.parseJSON(jsonResponse)).getJSONArray("errors");
+        assertEquals(1, errors.length());
+        assertEquals(1, errors.getJSONObject(0).get("index"));
+        assertEquals("chequeNumber: invalid cheque number", errors.getJSONObject(0).get("message"));
+
+        restActions
+            .get("/payment-instructions/1")
+            .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void whenAnyPaymentInstructionMissesMandatoryFields_thenReportEachOfThemForTheItem() throws Exception {
+        PaymentInstructionBulkItem cheque = new PaymentInstructionBulkItem(chequePaymentInstructionRequestWith()
+            .payerName("Mr Payer Payer").amount(500).currency("GBP").chequeNumber("000000").build());
+        PaymentInstructionBulkItem incompleteCheque = new PaymentInstructionBulkItem(chequePaymentInstructionRequestWith()
+            .currency("GBP").chequeNumber("000000").build());
+
+        String jsonResponse = restActions
+            .post("/payment-instructions/bulk", Arrays.asList(cheque, incompleteCheque))
+            .andExpect(status().isBadRequest())
+            .andReturn().getResponse().getContentAsString();
+        JSONArray errors = ((JSONObject) JSONParser.parseJSON(jsonResponse)).getJSONArray("errors");
+        assertEquals(2, errors.length());
+        Set<Object> messages = new HashSet<>();
+        for (int i = 0; i < errors.length(); i++) {
+            assertEquals(1, errors.getJSONObject(i).get("index"));
+            messages.add(errors.getJSONObject(i).get("message"));
+        }
+        assertEquals(new HashSet<>(Arrays.asList("payerName: must not be null", "amount: must not be null")), messages);
+
+        restActions
+            .get("/payment-instructions/1")
+            .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void whenTransitioningBySelector_thenSubmitTheMatchingPaymentInstructions() throws Exception {
+        PaymentInstructionBulkItem cheque = new PaymentInstructionBulkItem(chequePaymentInstructionRequestWith()
+            .payerName("Mr Payer Payer").amount(500).currency("GBP").chequeNumber("000000").build());
+        restActions
+            .post("/payment-instructions/bulk", Arrays.asList(cheque, cheque))
+            .andExpect(status().isCreated());
+        PaymentInstructionTransitionRequest request = PaymentInstructionTransitionRequest.paymentInstructionTransitionRequestWith()
+            .selector(PaymentInstructionSelector.paymentInstructionSelectorWith().userId("1234").status("D").build())
+            .transition(PaymentInstructionUpdateRequest.paymentInstructionUpdateRequestWith().status("D").build())
+            .build();
+
+        String jsonResponse = restActions
+            .post("/payment-instructions/transitions", request)
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getContentAsString();
+        JSONArray results = (JSONArray) JSONParser.parseJSON(jsonResponse);
+        assertEquals(2, results.length());
+        assertTrue(results.getJSONObject(0).getBoolean("success"));
+        assertTrue(results.getJSONObject(1).getBoolean("success"));
+
+        String paymentInstruction = restActions
+            .get("/payment-instructions/" + results.getJSONObject(1).get("id"))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getContentAsString();
+        assertEquals("P", ((JSONObject) JSONParser.parseJSON(paymentInstruction)).get("status"));
+    }
+
+    @Test
+    public void whenTransitioningUnknownIds_thenReportThemPerId() throws Exception {
+        PaymentInstructionTransitionRequest request = PaymentInstructionTransitionRequest.paymentInstructionTransitionRequestWith()
+            .ids(Collections.singletonList(1000))
+            .transition(PaymentInstructionUpdateRequest.paymentInstructionUpdateRequestWith().status("D").build())
+            .build();
+
+        String jsonResponse = restActions
+            .post("/payment-instructions/transitions", request)
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getContentAsString();
+        JSONObject result = ((JSONArray) JSONParser.parseJSON(jsonResponse)).getJSONObject(0);
+        assertEquals(1000, result.get("id"));
+        assertFalse(result.getBoolean("success"));
+    }
+
+    @Test
+    public void whenNoPaymentInstructionsAreSent_thenReturn400() throws Exception {
+        restActions
+            .post("/payment-instructions/bulk", Collections.emptyList())
+            .andExpect(status().isBadRequest());
+    }
+}
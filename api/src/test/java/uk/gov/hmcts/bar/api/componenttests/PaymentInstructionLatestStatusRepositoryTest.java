@@ -0,0 +1,61 @@
+package uk.gov.hmcts.bar.api.componenttests;
+
+import org.json.JSONObject;
+import org.junit.Test;
+import org.skyscreamer.jsonassert.JSONParser;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import uk.gov.hmcts.bar.api.data.repository.PaymentInstructionLatestStatusRepository;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static uk.gov.hmcts.bar.api.data.model.Cheque.chequePaymentInstructionRequestWith;
+
+public class PaymentInstructionLatestStatusRepositoryTest extends ComponentTestBase {
+
+    private static final String LATEST_STATUSES = "SELECT status, bar_user_id, is_current FROM payment_instruction_latest_status "
+        + "WHERE payment_instruction_id = :id ORDER BY status";
+
+    @Autowired
+    private PaymentInstructionLatestStatusRepository latestStatusRepository;
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    public void whenAStatusIsRecordedAgain_thenItsEntryIsUpdatedInPlace() throws Exception {
+        String jsonResponse = restActions
+            .post("/cheques", chequePaymentInstructionRequestWith()
+                .payerName("Mr Payer Payer").amount(500).currency("GBP").chequeNumber("000000").build())
+            .andExpect(status().isCreated())
+            .andReturn().getResponse().getContentAsString();
+        Integer id = (Integer) ((JSONObject) JSONParser.parseJSON(jsonResponse)).get("id");
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+
+        new TransactionTemplate(transactionManager).execute(status -> {
+            latestStatusRepository.recordLatestStatus(Collections.singletonList(id), "P", "fee-clerk", now);
+            latestStatusRepository.recordLatestStatus(Collections.singletonList(id), "D", "1234", now.plusSeconds(1));
+            return null;
+        });
+
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(LATEST_STATUSES, new MapSqlParameterSource("id", id));
+        assertEquals(2, rows.size());
+        assertEquals("D", rows.get(0).get("status"));
+        assertEquals(Boolean.TRUE, rows.get(0).get("is_current"));
+        assertEquals("P", rows.get(1).get("status"));
+        assertEquals("fee-clerk", rows.get(1).get("bar_user_id"));
+        assertEquals(Boolean.FALSE, rows.get(1).get("is_current"));
+    }
+}
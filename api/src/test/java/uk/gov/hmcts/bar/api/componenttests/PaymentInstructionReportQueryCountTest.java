@@ -0,0 +1,62 @@
+package uk.gov.hmcts.bar.api.componenttests;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import uk.gov.hmcts.bar.api.componenttests.utils.DbTestUtil;
+import uk.gov.hmcts.bar.api.data.model.PaymentInstructionReportLine;
+import uk.gov.hmcts.bar.api.data.service.PaymentInstructionService;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class PaymentInstructionReportQueryCountTest extends ComponentTestBase {
+
+    @Autowired
+    private PaymentInstructionService paymentInstructionService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    public void ttbReportQueryCountDoesNotGrowWithTheNumberOfPaymentInstructions() throws Exception {
+        long queriesForSmallReport = countQueriesForReport(3);
+        long queriesForLargeReport = countQueriesForReport(30);
+
+        assertEquals(queriesForSmallReport, queriesForLargeReport);
+    }
+
+    private long countQueriesForReport(int paymentInstructionCount) throws Exception {
+        DbTestUtil.emptyTable(getWebApplicationContext(), "case_fee_detail");
+        DbTestUtil.emptyTable(getWebApplicationContext(), "payment_instruction_latest_status");
+        DbTestUtil.emptyTable(getWebApplicationContext(), "payment_instruction_status");
+        DbTestUtil.emptyTable(getWebApplicationContext(), "payment_instruction");
+        DbTestUtil.insertTransferredToBarPaymentInstructions(getWebApplicationContext(), paymentInstructionCount);
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<Integer> reportLines = new ArrayList<>();
+        new TransactionTemplate(transactionManager).execute(status -> {
+            paymentInstructionService.forEachPaymentInstructionByTTB(LocalDate.now(), null, "Y431", paymentInstruction -> {
+                List<PaymentInstructionReportLine> flattened = paymentInstruction.flattenPaymentInstruction();
+                reportLines.add(flattened.size());
+            });
+            return null;
+        });
+
+        assertEquals(paymentInstructionCount, reportLines.size());
+        assertEquals(paymentInstructionCount * 2, reportLines.stream().mapToInt(Integer::intValue).sum());
+        return statistics.getPrepareStatementCount();
+    }
+}
@@ -0,0 +1,56 @@
+package uk.gov.hmcts.bar.api.componenttests;
+
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import uk.gov.hmcts.bar.api.componenttests.utils.DbTestUtil;
+import uk.gov.hmcts.bar.api.data.repository.PaymentInstructionTransitionRepository;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class PaymentInstructionTransitionRepositoryTest extends ComponentTestBase {
+
+    private static final String HISTORY = "SELECT COUNT(*) FROM payment_instruction_status "
+        + "WHERE payment_instruction_id IN (:ids) AND status = :status";
+    private static final String COUNTED = "SELECT COALESCE(SUM(status_count), 0) FROM payment_instruction_status_counter "
+        + "WHERE status = :status";
+    private static final String CURRENT_STATUS = "SELECT status FROM payment_instruction_latest_status "
+        + "WHERE payment_instruction_id = :id AND is_current = true";
+
+    @Autowired
+    private PaymentInstructionTransitionRepository transitionRepository;
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    public void whenTheSameStatusIsAppliedTwice_thenTheHistoryAndTheCountersStayInStep() throws Exception {
+        DbTestUtil.insertTransferredToBarPaymentInstructions(getWebApplicationContext(), 2);
+        List<Integer> ids = Arrays.asList(1, 2);
+
+        new TransactionTemplate(transactionManager).execute(status -> {
+            transitionRepository.transition(ids, "A", false, null, null, null, "1234");
+            transitionRepository.transition(ids, "A", false, null, null, null, "fee-clerk");
+            return null;
+        });
+
+        MapSqlParameterSource byStatus = new MapSqlParameterSource("ids", ids).addValue("status", "A");
+        Long historyRows = jdbcTemplate.queryForObject(HISTORY, byStatus, Long.class);
+        Long counted = jdbcTemplate.queryForObject(COUNTED, byStatus, Long.class);
+        assertEquals(historyRows, counted);
+        for (Integer id : ids) {
+            assertEquals(Collections.singletonList("A"),
+                jdbcTemplate.queryForList(CURRENT_STATUS, new MapSqlParameterSource("id", id), String.class));
+        }
+    }
+}
@@ -1,12 +1,19 @@
 package uk.gov.hmcts.bar.api.componenttests;
 
 import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletResponse;
 import uk.gov.hmcts.bar.api.componenttests.utils.DbTestUtil;
 import uk.gov.hmcts.bar.api.data.model.CardPaymentInstruction;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static uk.gov.hmcts.bar.api.controllers.payment.PaymentInstructionController.NEXT_CURSOR_HEADER;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 public class PaymentInstructionUserFilterTest extends ComponentTestBase {
@@ -76,4 +83,42 @@ public class PaymentInstructionUserFilterTest extends ComponentTestBase {
                 assertTrue(item.size() == 0);
             }));
     }
+
+    @Test
+    public void testWalkingPaymentInstructionsPageByPage() throws Exception {
+        DbTestUtil.insertBGCNumber(getWebApplicationContext());
+        DbTestUtil.insertPaymentInstructions(getWebApplicationContext());
+
+        List<Object> ids = new ArrayList<>();
+        List<Integer> pageSizes = new ArrayList<>();
+        String url = "/payment-instructions?pageSize=2";
+        String cursor;
+        do {
+            MockHttpServletResponse response = restActions
+                .get(url)
+                .andExpect(status().isOk())
+                .andExpect(body().as(List.class, page -> {
+                    pageSizes.add(page.size());
+                    page.forEach(item -> ids.add(((Map) item).get("id")));
+                }))
+                .andReturn().getResponse();
+            cursor = response.getHeader(NEXT_CURSOR_HEADER);
+            url = "/payment-instructions?pageSize=2&cursor=" + cursor;
+        } while (cursor != null);
+
+        assertEquals(List.of(2, 2, 1), pageSizes);
+        assertEquals(5, new HashSet<>(ids).size());
+    }
+
+    @Test
+    public void testLastPageHasNoCursor() throws Exception {
+        DbTestUtil.insertBGCNumber(getWebApplicationContext());
+        DbTestUtil.insertPaymentInstructions(getWebApplicationContext());
+
+        MockHttpServletResponse response = restActions
+            .get("/payment-instructions?pageSize=5")
+            .andExpect(status().isOk())
+            .andReturn().getResponse();
+        assertNull(response.getHeader(NEXT_CURSOR_HEADER));
+    }
 }
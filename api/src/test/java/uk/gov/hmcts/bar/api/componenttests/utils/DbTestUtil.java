@@ -2,10 +2,15 @@ package uk.gov.hmcts.bar.api.componenttests.utils;
 
 import org.springframework.context.ApplicationContext;
 import org.springframework.core.env.Environment;
+import uk.gov.hmcts.bar.api.configuration.FeatureCacheRefresher;
+import uk.gov.hmcts.bar.api.data.service.PaymentInstructionStatsCache;
+import uk.gov.hmcts.bar.api.data.utils.PaymentInstructionIdGenerator;
 import uk.gov.hmcts.reform.auth.checker.spring.useronly.UserDetails;
 
+import javax.persistence.EntityManagerFactory;
 import javax.sql.DataSource;
 import java.sql.Connection;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.Arrays;
@@ -14,6 +19,7 @@ import java.util.stream.Collectors;
 public final class DbTestUtil {
 
     private static final String PROPERTY_KEY_RESET_SQL_TEMPLATE = "test.reset.sql.template";
+    private static final String PROPERTY_KEY_RESET_SEQUENCE_SQL_TEMPLATE = "test.reset.sequence.sql.template";
     private static final String PROPERTY_KEY_INSERT_USER_SQL_TAMPLATE = "test.user.sql.template";
 
     private static final String INSERT_PI_QUERY_PI_STATS =
@@ -57,6 +63,26 @@ public final class DbTestUtil {
         "INSERT INTO payment_instruction_status (payment_instruction_id,status,bar_user_id,update_time) VALUES (4,'A','1234',{ts '2019-01-21 20:48:40.0'});" +
         "INSERT INTO payment_instruction_status (payment_instruction_id,status,bar_user_id,update_time) VALUES (4,'RDM','dm-manager',{ts '2019-01-21 20:48:40.0'});" +
         "INSERT INTO payment_instruction_status (payment_instruction_id,status,bar_user_id,update_time) VALUES (891,'TTB','1234',{ts '2019-01-21 20:48:40.0'});";
+    private static final String INSERT_TTB_CASH_PI_TEMPLATE =
+        "INSERT INTO payment_instruction (id,payer_name,payment_type_id,payment_date,amount,currency,status,site_id,daily_sequence_id,action,user_id) VALUES (%d,'John Doe','CASH',CURRENT_TIMESTAMP,1000,'GBP','TTB','Y431',%d,'Process','1234');";
+    private static final String INSERT_CASE_FEE_DETAIL_TEMPLATE =
+        "INSERT INTO case_fee_detail (case_fee_id,payment_instruction_id,fee_code,amount,fee_description,fee_version,case_reference) VALUES (%d,%d,'X0165',500,'Some fee','1','12345');";
+    private static final String INSERT_STATUS_TEMPLATE =
+        "INSERT INTO payment_instruction_status (payment_instruction_id,status,bar_user_id,update_time) VALUES (%d,'%s','1234',CURRENT_TIMESTAMP);";
+    private static final String REBUILD_LATEST_STATUS =
+        "DELETE FROM payment_instruction_latest_status;" +
+        "INSERT INTO payment_instruction_latest_status (payment_instruction_id,status,bar_user_id,update_time,is_current) " +
+            "SELECT pis.payment_instruction_id, pis.status, pis.bar_user_id, pis.update_time, false FROM payment_instruction_status pis " +
+            "JOIN (SELECT payment_instruction_id, status, max(update_time) AS update_time FROM payment_instruction_status GROUP BY payment_instruction_id, status) latest " +
+            "ON pis.payment_instruction_id = latest.payment_instruction_id AND pis.status = latest.status AND pis.update_time = latest.update_time;" +
+        "UPDATE payment_instruction_latest_status SET is_current = true WHERE update_time = " +
+            "(SELECT max(l.update_time) FROM payment_instruction_latest_status l WHERE l.payment_instruction_id = payment_instruction_latest_status.payment_instruction_id);";
+    private static final String REBUILD_STATUS_COUNTERS =
+        "DELETE FROM payment_instruction_status_counter;" +
+        "INSERT INTO payment_instruction_status_counter (site_id,status,bar_user_id,status_date,status_count,total_amount) " +
+            "SELECT pi.site_id, pis.status, COALESCE(pis.bar_user_id, ''), CAST(pis.update_time AS DATE), COUNT(*), COALESCE(SUM(pi.amount), 0) " +
+            "FROM payment_instruction_status pis JOIN payment_instruction pi ON pi.id = pis.payment_instruction_id " +
+            "GROUP BY pi.site_id, pis.status, COALESCE(pis.bar_user_id, ''), CAST(pis.update_time AS DATE);";
     /**
      * This method reads the invoked SQL statement template from a properties file, creates
      * the invoked SQL statements, and invokes them.
@@ -81,6 +107,30 @@ public final class DbTestUtil {
         }
     }
 
+    /**
+     * Restarts a sequence, so the next value it hands out is the given one.
+     */
+    public static void restartSequence(ApplicationContext applicationContext, String sequenceName, long nextValue) throws SQLException {
+        DataSource dataSource = applicationContext.getBean(DataSource.class);
+        try (Connection dbConnection = dataSource.getConnection(); Statement stmt = dbConnection.createStatement()) {
+            stmt.execute(String.format(getSqlTemplate(applicationContext, PROPERTY_KEY_RESET_SEQUENCE_SQL_TEMPLATE), sequenceName, nextValue));
+        }
+    }
+
+    /**
+     * The fixtures insert payment instructions with their ids given, so the sequence is moved past them for the
+     * payment instructions the tests create afterwards.
+     */
+    private static void restartPaymentInstructionIdSequence(ApplicationContext applicationContext, Statement stmt) throws SQLException {
+        long nextValue;
+        try (ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(id), 0) + 1 FROM payment_instruction")) {
+            rs.next();
+            nextValue = rs.getLong(1);
+        }
+        stmt.execute(String.format(getSqlTemplate(applicationContext, PROPERTY_KEY_RESET_SEQUENCE_SQL_TEMPLATE),
+            PaymentInstructionIdGenerator.SEQUENCE_NAME, nextValue));
+    }
+
     private static String getSqlTemplate(ApplicationContext applicationContext, String key) {
         //Read the SQL template from the properties file
         Environment environment = applicationContext.getBean(Environment.class);
@@ -132,11 +182,15 @@ public final class DbTestUtil {
         try (Connection dbConnection = dataSource.getConnection(); Statement stmt = dbConnection.createStatement()) {
 
             emptyTable(applicationContext, "case_fee_detail");
+            emptyTable(applicationContext, "payment_instruction_latest_status");
             emptyTable(applicationContext, "payment_instruction_status");
             emptyTable(applicationContext, "payment_instruction");
             insertBGCNumber(applicationContext);
             stmt.executeQuery(INSERT_PI_QUERY);
             stmt.executeQuery(INSERT_STATUS_HISTORY);
+            stmt.executeQuery(REBUILD_LATEST_STATUS);
+            stmt.executeQuery(REBUILD_STATUS_COUNTERS);
+            restartPaymentInstructionIdSequence(applicationContext, stmt);
         }
     }
 
@@ -151,6 +205,7 @@ public final class DbTestUtil {
     public static void insertCardPaymentInstructionWhichIsSentToPayhub(ApplicationContext applicationContext) throws SQLException {
         DataSource dataSource = applicationContext.getBean(DataSource.class);
         try (Connection dbConnection = dataSource.getConnection(); Statement stmt = dbConnection.createStatement()) {
+            emptyTable(applicationContext, "payment_instruction_latest_status");
             emptyTable(applicationContext, "payment_instruction_status");
             emptyTable(applicationContext, "bar_user");
             emptyTable(applicationContext, "payment_instruction");
@@ -158,11 +213,15 @@ public final class DbTestUtil {
             stmt.executeQuery(INSERT_CARD_PI_QUERY_TRANSFERRED_TO_PAYHUB_YES);
             stmt.executeQuery(INSERT_BAR_USER);
             stmt.executeQuery(INSERT_PIS_QUERY);
+            stmt.executeQuery(REBUILD_LATEST_STATUS);
+            stmt.executeQuery(REBUILD_STATUS_COUNTERS);
+            restartPaymentInstructionIdSequence(applicationContext, stmt);
         }
     }
     public static void insertCardPaymentInstructionWhichIsSentToPayhubAndFailed(ApplicationContext applicationContext) throws SQLException {
         DataSource dataSource = applicationContext.getBean(DataSource.class);
         try (Connection dbConnection = dataSource.getConnection(); Statement stmt = dbConnection.createStatement()) {
+            emptyTable(applicationContext, "payment_instruction_latest_status");
             emptyTable(applicationContext, "payment_instruction_status");
             emptyTable(applicationContext, "bar_user");
             emptyTable(applicationContext, "payment_instruction");
@@ -170,12 +229,16 @@ public final class DbTestUtil {
             stmt.executeQuery(INSERT_CARD_PI_QUERY_TRANSFERRED_TO_PAYHUB_FAIL);
             stmt.executeQuery(INSERT_BAR_USER);
             stmt.executeQuery(INSERT_PIS_QUERY);
+            stmt.executeQuery(REBUILD_LATEST_STATUS);
+            stmt.executeQuery(REBUILD_STATUS_COUNTERS);
+            restartPaymentInstructionIdSequence(applicationContext, stmt);
         }
     }
 
     public static void insertCardPaymentInstructionWithActionReturned(ApplicationContext applicationContext) throws SQLException {
         DataSource dataSource = applicationContext.getBean(DataSource.class);
         try (Connection dbConnection = dataSource.getConnection(); Statement stmt = dbConnection.createStatement()) {
+            emptyTable(applicationContext, "payment_instruction_latest_status");
             emptyTable(applicationContext, "payment_instruction_status");
             emptyTable(applicationContext, "bar_user");
             emptyTable(applicationContext, "payment_instruction");
@@ -183,12 +246,16 @@ public final class DbTestUtil {
             stmt.executeQuery(INSERT_CARD_PI_QUERY_RETURNED_PAYMENT);
             stmt.executeQuery(INSERT_BAR_USER);
             stmt.executeQuery(INSERT_PIS_QUERY);
+            stmt.executeQuery(REBUILD_LATEST_STATUS);
+            stmt.executeQuery(REBUILD_STATUS_COUNTERS);
+            restartPaymentInstructionIdSequence(applicationContext, stmt);
         }
     }
 
     public static void insertPOPaymentInstructionWhichIsSenttoPayhub(ApplicationContext applicationContext) throws SQLException {
         DataSource dataSource = applicationContext.getBean(DataSource.class);
         try (Connection dbConnection = dataSource.getConnection(); Statement stmt = dbConnection.createStatement()) {
+            emptyTable(applicationContext, "payment_instruction_latest_status");
             emptyTable(applicationContext, "payment_instruction_status");
             emptyTable(applicationContext, "bar_user");
             emptyTable(applicationContext, "payment_instruction");
@@ -196,12 +263,16 @@ public final class DbTestUtil {
             stmt.executeQuery(INSERT_PO_PI_QUERY_TRANSFERRED_TO_PAYHUB_YES);
             stmt.executeQuery(INSERT_BAR_USER);
             stmt.executeQuery(INSERT_PIS_QUERY);
+            stmt.executeQuery(REBUILD_LATEST_STATUS);
+            stmt.executeQuery(REBUILD_STATUS_COUNTERS);
+            restartPaymentInstructionIdSequence(applicationContext, stmt);
         }
     }
 
     public static void insertPaymentInstructionForPIStats(ApplicationContext applicationContext) throws SQLException {
         DataSource dataSource = applicationContext.getBean(DataSource.class);
         try (Connection dbConnection = dataSource.getConnection(); Statement stmt = dbConnection.createStatement()) {
+            emptyTable(applicationContext, "payment_instruction_latest_status");
             emptyTable(applicationContext, "payment_instruction_status");
             emptyTable(applicationContext, "bar_user");
             emptyTable(applicationContext, "payment_instruction");
@@ -209,12 +280,16 @@ public final class DbTestUtil {
             stmt.executeQuery(INSERT_PI_QUERY_PI_STATS);
             stmt.executeQuery(INSERT_BAR_USER);
             stmt.executeQuery(INSERT_PIS_QUERY_PI_STATS);
+            stmt.executeQuery(REBUILD_LATEST_STATUS);
+            stmt.executeQuery(REBUILD_STATUS_COUNTERS);
+            restartPaymentInstructionIdSequence(applicationContext, stmt);
         }
     }
 
     public static void insertFRPaymentInstructionWhichIsSentToPayhub(ApplicationContext applicationContext) throws SQLException {
         DataSource dataSource = applicationContext.getBean(DataSource.class);
         try (Connection dbConnection = dataSource.getConnection(); Statement stmt = dbConnection.createStatement()) {
+            emptyTable(applicationContext, "payment_instruction_latest_status");
             emptyTable(applicationContext, "payment_instruction_status");
             emptyTable(applicationContext, "bar_user");
             emptyTable(applicationContext, "payment_instruction");
@@ -222,6 +297,25 @@ public final class DbTestUtil {
             stmt.executeQuery(INSERT_FR_PI_QUERY_TRANSFERRED_TO_PAYHUB_YES);
             stmt.executeQuery(INSERT_BAR_USER);
             stmt.executeQuery(INSERT_PIS_QUERY);
+            stmt.executeQuery(REBUILD_LATEST_STATUS);
+            stmt.executeQuery(REBUILD_STATUS_COUNTERS);
+            restartPaymentInstructionIdSequence(applicationContext, stmt);
+        }
+    }
+
+    public static void insertTransferredToBarPaymentInstructions(ApplicationContext applicationContext, int count) throws SQLException {
+        DataSource dataSource = applicationContext.getBean(DataSource.class);
+        try (Connection dbConnection = dataSource.getConnection(); Statement stmt = dbConnection.createStatement()) {
+            for (int id = 1; id <= count; id++) {
+                stmt.executeQuery(String.format(INSERT_TTB_CASH_PI_TEMPLATE, id, id));
+                stmt.executeQuery(String.format(INSERT_CASE_FEE_DETAIL_TEMPLATE, id * 2 - 1, id));
+                stmt.executeQuery(String.format(INSERT_CASE_FEE_DETAIL_TEMPLATE, id * 2, id));
+                stmt.executeQuery(String.format(INSERT_STATUS_TEMPLATE, id, "D"));
+                stmt.executeQuery(String.format(INSERT_STATUS_TEMPLATE, id, "TTB"));
+            }
+            stmt.executeQuery(REBUILD_LATEST_STATUS);
+            stmt.executeQuery(REBUILD_STATUS_COUNTERS);
+            restartPaymentInstructionIdSequence(applicationContext, stmt);
         }
     }
 
@@ -239,6 +333,8 @@ public final class DbTestUtil {
         try (Connection dbConnection = dataSource.getConnection();Statement stmt = dbConnection.createStatement()) {
             stmt.executeQuery("truncate table " + tableName);
         }
+        applicationContext.getBean(PaymentInstructionStatsCache.class).evictAll();
+        applicationContext.getBean(EntityManagerFactory.class).getCache().evictAll();
     }
 
     public static void toggleSendToPayhub(ApplicationContext applicationContext, boolean enabled) throws SQLException {
@@ -246,6 +342,7 @@ public final class DbTestUtil {
         try (Connection dbConnection = dataSource.getConnection();Statement stmt = dbConnection.createStatement()) {
             stmt.executeQuery("update ff4j_features set enable = " + (enabled ? 1 : 0) + " where feat_uid = 'send-to-payhub';");
         }
+        applicationContext.getBean(FeatureCacheRefresher.class).refresh();
     }
 }
 
@@ -0,0 +1,52 @@
+package uk.gov.hmcts.bar.api.configuration;
+
+import org.ff4j.FF4j;
+import org.ff4j.cache.InMemoryCacheManager;
+import org.ff4j.core.Feature;
+import org.ff4j.core.FeatureStore;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.*;
+
+public class FeatureCacheRefresherTest {
+
+    private FeatureStore featureStore;
+
+    private FF4j ff4j;
+
+    private FeatureCacheRefresher refresher;
+
+    @Before
+    public void setUp() {
+        featureStore = mock(FeatureStore.class);
+        when(featureStore.exist("send-to-payhub")).thenReturn(true);
+        when(featureStore.read("send-to-payhub")).thenReturn(new Feature("send-to-payhub", true));
+        InMemoryCacheManager cacheManager = new InMemoryCacheManager();
+        ff4j = new FF4j();
+        ff4j.setFeatureStore(featureStore);
+        ff4j.cache(cacheManager);
+        refresher = new FeatureCacheRefresher(cacheManager, 3_600_000);
+    }
+
+    @After
+    public void tearDown() {
+        refresher.destroy();
+    }
+
+    @Test
+    public void testChecksAreServedFromTheCacheUntilRefreshed() {
+        assertTrue(ff4j.check("send-to-payhub"));
+        assertTrue(ff4j.check("send-to-payhub"));
+        verify(featureStore, times(1)).read("send-to-payhub");
+
+        when(featureStore.read("send-to-payhub")).thenReturn(new Feature("send-to-payhub", false));
+        refresher.refresh();
+
+        assertFalse(ff4j.check("send-to-payhub"));
+        verify(featureStore, times(2)).read("send-to-payhub");
+    }
+}
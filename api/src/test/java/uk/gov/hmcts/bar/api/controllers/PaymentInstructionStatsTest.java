@@ -9,6 +9,7 @@ import java.util.HashMap;
 import java.util.Map;
 
 import static org.junit.Assert.*;
+import static uk.gov.hmcts.bar.api.data.model.Cash.cashPaymentInstructionRequestWith;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 public class PaymentInstructionStatsTest extends ComponentTestBase {
@@ -64,4 +65,29 @@ public class PaymentInstructionStatsTest extends ComponentTestBase {
                 assertEquals("CHEQUE", stats.get("payment_type"));
             }));
     }
+
+    @Test
+    public void testCountingPaymentInstructionsByCurrentStatus() throws Exception {
+        restActions
+            .post("/cash", cashPaymentInstructionRequestWith()
+                .payerName("Mr Payer Payer").amount(500).currency("GBP").status("D").build())
+            .andExpect(status().isCreated());
+        restActions
+            .put("/cash/1", cashPaymentInstructionRequestWith()
+                .payerName("Mr Payer Payer").amount(500).currency("GBP").status("V").build())
+            .andExpect(status().isOk());
+        restActions
+            .put("/cash/1", cashPaymentInstructionRequestWith()
+                .payerName("Mr Payer Payer").amount(500).currency("GBP").status("PA").build())
+            .andExpect(status().isOk());
+
+        restActions
+            .get("/payment-instructions/count?status=PA")
+            .andExpect(status().isOk())
+            .andExpect(body().as(Long.class, count -> assertEquals(Long.valueOf(1), count)));
+        restActions
+            .get("/payment-instructions/count?status=V")
+            .andExpect(status().isOk())
+            .andExpect(body().as(Long.class, count -> assertEquals(Long.valueOf(0), count)));
+    }
 }
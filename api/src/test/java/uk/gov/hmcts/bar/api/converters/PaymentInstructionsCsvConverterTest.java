@@ -0,0 +1,65 @@
+package uk.gov.hmcts.bar.api.converters;
+
+import org.junit.Test;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.mock.http.MockHttpOutputMessage;
+import uk.gov.hmcts.bar.api.data.TestUtils;
+import uk.gov.hmcts.bar.api.data.model.PaymentInstruction;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PaymentInstructionsCsvConverterTest {
+
+    private static final java.lang.reflect.Type LIST_OF_PAYMENT_INSTRUCTIONS =
+        new ParameterizedTypeReference<List<PaymentInstruction>>() {}.getType();
+
+    private final PaymentInstructionsCsvConverter converter = new PaymentInstructionsCsvConverter();
+
+    @Test
+    public void testEachReportLineIsWrittenWithQuotedCells() throws IOException {
+        PaymentInstruction card = TestUtils.createSamplePaymentInstruction("CARD", 10050, new int[][] {{5000, 0, 0}, {5050, 0, 0}});
+        card.setPayerName("John \"JD\" Doe");
+
+        String csv = write(Collections.singletonList(card));
+        String[] lines = csv.split(PaymentInstructionsCsvConverter.EOL);
+
+        assertEquals(3, lines.length);
+        assertTrue(lines[0].startsWith("\"Daily sequential payment ID\",\"Date\","));
+        assertTrue(lines[1].contains("\"John \"\"JD\"\" Doe\""));
+        assertTrue(lines[1].contains("\"100.50\""));
+        assertTrue(lines[2].contains("\"50.50\""));
+        assertEquals(PaymentInstruction.CSV_TABLE_HEADER.length, lines[1].split("\",\"", -1).length);
+    }
+
+    @Test
+    public void testNullCellsAreWrittenAsEmptyQuotes() throws IOException {
+        PaymentInstruction cash = TestUtils.createSamplePaymentInstruction("CASH", 1, new int[][] {{1, 0, 0}});
+
+        String csv = write(Arrays.asList(cash));
+        String firstLine = csv.split(PaymentInstructionsCsvConverter.EOL)[1];
+
+        assertTrue(firstLine.startsWith("\"\","));
+        assertTrue(firstLine.contains("\"0.01\""));
+    }
+
+    @Test
+    public void testOnlyHeaderIsWrittenForEmptyReport() throws IOException {
+        String csv = write(Collections.emptyList());
+
+        assertEquals(1, csv.split(PaymentInstructionsCsvConverter.EOL).length);
+        assertTrue(csv.endsWith(PaymentInstructionsCsvConverter.EOL));
+    }
+
+    private String write(List<PaymentInstruction> paymentInstructions) throws IOException {
+        MockHttpOutputMessage outputMessage = new MockHttpOutputMessage();
+        converter.write(paymentInstructions, LIST_OF_PAYMENT_INSTRUCTIONS, PaymentInstructionsCsvConverter.CSV_MEDIA_TYPE, outputMessage);
+        return outputMessage.getBodyAsString(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,45 @@
+package uk.gov.hmcts.bar.api.converters;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ser.FilterProvider;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.Test;
+import uk.gov.hmcts.bar.api.data.model.AllPayPaymentInstruction;
+import uk.gov.hmcts.bar.api.data.model.PaymentInstruction;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class StatusDisplayValueFilterTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    @Test
+    public void testStatusIsWrittenAsDisplayValue() throws Exception {
+        PaymentInstruction pi = paymentInstruction("D");
+
+        assertEquals("Draft", write(pi, StatusDisplayValueFilter.STATUS_DISPLAY_VALUES).get("status"));
+        assertEquals("D", pi.getStatus());
+    }
+
+    @Test
+    public void testStatusCodeIsWrittenByDefault() throws Exception {
+        assertEquals("P", write(paymentInstruction("P"), StatusDisplayValueFilter.STATUS_CODES).get("status"));
+    }
+
+    @Test
+    public void testUnknownStatusIsWrittenAsItIs() throws Exception {
+        assertEquals("XYZ", write(paymentInstruction("XYZ"), StatusDisplayValueFilter.STATUS_DISPLAY_VALUES).get("status"));
+    }
+
+    private Map<?, ?> write(PaymentInstruction pi, FilterProvider filters) throws Exception {
+        return objectMapper.readValue(objectMapper.writer(filters).writeValueAsString(pi), Map.class);
+    }
+
+    private static PaymentInstruction paymentInstruction(String status) {
+        PaymentInstruction pi = new AllPayPaymentInstruction();
+        pi.setStatus(status);
+        return pi;
+    }
+}
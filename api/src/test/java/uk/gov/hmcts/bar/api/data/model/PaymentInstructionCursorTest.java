@@ -0,0 +1,41 @@
+package uk.gov.hmcts.bar.api.data.model;
+
+import org.junit.Test;
+import uk.gov.hmcts.bar.api.data.exceptions.BadRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.junit.Assert.assertEquals;
+
+public class PaymentInstructionCursorTest {
+
+    @Test
+    public void testCursorSurvivesEncoding() {
+        PaymentInstructionCursor cursor = new PaymentInstructionCursor(LocalDateTime.of(2020, 1, 17, 10, 15, 30, 123000000), 42);
+
+        assertEquals(cursor, PaymentInstructionCursor.decode(cursor.encode()));
+    }
+
+    @Test
+    public void testCursorIsTakenFromPaymentInstruction() {
+        PaymentInstruction paymentInstruction = new CashPaymentInstruction("John Doe", 100, "GBP", "P");
+        paymentInstruction.setId(7);
+
+        PaymentInstructionCursor cursor = PaymentInstructionCursor.after(paymentInstruction);
+
+        assertEquals(paymentInstruction.getPaymentDate(), cursor.getPaymentDate());
+        assertEquals(Integer.valueOf(7), cursor.getId());
+    }
+
+    @Test(expected = BadRequestException.class)
+    public void testGarbageIsRejected() {
+        PaymentInstructionCursor.decode("not-a-cursor");
+    }
+
+    @Test(expected = BadRequestException.class)
+    public void testCursorWithoutIdIsRejected() {
+        PaymentInstructionCursor.decode(Base64.getUrlEncoder().encodeToString("2020-01-17T10:15:30".getBytes(StandardCharsets.UTF_8)));
+    }
+}
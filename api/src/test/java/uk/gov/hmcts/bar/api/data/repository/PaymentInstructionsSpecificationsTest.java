@@ -6,6 +6,7 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.data.jpa.domain.Specification;
 import uk.gov.hmcts.bar.api.data.model.PaymentInstruction;
+import uk.gov.hmcts.bar.api.data.model.PaymentInstructionCursor;
 import uk.gov.hmcts.bar.api.data.model.PaymentInstructionSearchCriteriaDto;
 import uk.gov.hmcts.bar.api.data.model.PaymentInstructionSearchCriteriaDto.PaymentInstructionSearchCriteriaDtoBuilder;
 import uk.gov.hmcts.bar.api.data.service.PaymentTypeService;
@@ -46,6 +47,9 @@ public class PaymentInstructionsSpecificationsTest {
 	@Mock
 	private Path<LocalDateTime> dateTimePath;
 
+	@Mock
+	private Path<Integer> integerPath;
+
 	@Before
     public void setupMock() {
         MockitoAnnotations.initMocks(this);
@@ -200,6 +204,26 @@ public class PaymentInstructionsSpecificationsTest {
 		assertNotNull(siteIdPredicate);
 	}
 
+	@Test
+	public void shouldReturnSeekPredicate_whenCursorIsProvided() {
+		PaymentInstructionCursor cursor = new PaymentInstructionCursor(LocalDateTime.now(), 10);
+		when(root.<LocalDateTime>get("paymentDate")).thenReturn(dateTimePath);
+		when(root.<Integer>get("id")).thenReturn(integerPath);
+		when(builder.lessThan(dateTimePath, cursor.getPaymentDate())).thenReturn(predicate);
+		when(builder.equal(dateTimePath, cursor.getPaymentDate())).thenReturn(predicate);
+		when(builder.lessThan(integerPath, cursor.getId())).thenReturn(predicate);
+		when(builder.and(predicate, predicate)).thenReturn(predicate);
+		when(builder.or(predicate, predicate)).thenReturn(predicate);
+		Predicate seekPredicate = getSeekSpec(cursor).toPredicate(root, query, builder);
+		assertNotNull(seekPredicate);
+	}
+
+	@Test
+	public void shouldReturnNoSeekPredicate_whenNoCursorIsProvided() {
+		Predicate seekPredicate = getSeekSpec(null).toPredicate(null, null, null);
+		assertNull(seekPredicate);
+	}
+
 	private Specification<PaymentInstruction> getStatusSpec(String status, LocalDateTime startDate,
 			LocalDateTime endDate) {
 		PaymentInstructionSearchCriteriaDto paymentInstructionSearchCriteriaDto = paymentInstructionSearchCriteriaDtoBuilder
@@ -244,4 +268,14 @@ public class PaymentInstructionsSpecificationsTest {
 		}.getSiteIdSpec();
 	}
 
+	private Specification<PaymentInstruction> getSeekSpec(PaymentInstructionCursor cursor) {
+		PaymentInstructionSearchCriteriaDto paymentInstructionSearchCriteriaDto = paymentInstructionSearchCriteriaDtoBuilder
+				.cursor(cursor).build();
+		return new PaymentInstructionsSpecifications(paymentInstructionSearchCriteriaDto,paymentTypeService) {
+			public Specification<PaymentInstruction> getSeekSpec() {
+				return this.seekSpec;
+			}
+		}.getSeekSpec();
+	}
+
 }
@@ -1,13 +1,5 @@
 package uk.gov.hmcts.bar.api.data.service;
 
-import org.apache.http.*;
-import org.apache.http.client.methods.CloseableHttpResponse;
-import org.apache.http.client.methods.HttpGet;
-import org.apache.http.entity.StringEntity;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.message.BasicStatusLine;
-import org.apache.http.params.HttpParams;
-import org.hamcrest.core.Is;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.InjectMocks;
@@ -26,14 +18,10 @@ import uk.gov.hmcts.bar.api.data.model.BarUser;
 import uk.gov.hmcts.bar.api.data.repository.BarUserRepository;
 import uk.gov.hmcts.reform.auth.checker.spring.useronly.UserDetails;
 
-import java.io.IOException;
-import java.io.UnsupportedEncodingException;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Locale;
 
-import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
 
@@ -46,21 +34,19 @@ public class BarUserServiceTest {
     private BarUserRepository barUserRepository;
 
     @Mock
-    private CloseableHttpClient httpClient;
+    private CacheManager cacheManager;
 
     @Mock
-    private CacheManager cacheManager;
+    private BarUserWriteBehind barUserWriteBehind;
 
     private SecurityContext securityContext;
     private BarUser barUser;
 
-    private String siteApi = "http://localhost:23444";
-
     @Before
     public void setUp() {
         MockitoAnnotations.initMocks(this);
         when(cacheManager.getCache(Mockito.anyString())).thenReturn(new ConcurrentMapCache("barusers"));
-        barUserService = new BarUserService(barUserRepository, httpClient, siteApi, cacheManager);
+        barUserService = new BarUserService(barUserRepository, cacheManager, barUserWriteBehind);
 
 
         Authentication authentication = new Authentication() {
@@ -147,223 +133,20 @@ public class BarUserServiceTest {
     }
 
     @Test
-    public void whenUserIsInTheDb_butModified_thenSaveIsCalledToUpdate() {
+    public void whenUserIsInTheDb_butModified_thenTheUpdateIsWrittenBehind() {
         BarUser modifiedUser = new BarUser("user1", Collections.emptySet(), "user1@mail.com", "user", "one plus one");
         when(barUserRepository.findBarUserById(Mockito.anyString())).thenReturn(barUser);
-        when(barUserRepository.save(modifiedUser)).thenReturn(modifiedUser);
-        barUserService.saveUser(modifiedUser);
+        assertEquals(modifiedUser, barUserService.saveUser(modifiedUser));
         verify(barUserRepository, times(1)).findBarUserById(anyString());
-        verify(barUserRepository, times(1)).save(any(BarUser.class));
-    }
-
-    @Test
-    public void testValidateUserAgainstSiteWhenValid() throws IOException {
-        String email = "user@gmail.com";
-        String token = "this_is_a_user_token";
-        String siteId = "siteId";
-        when(httpClient.execute(any(HttpGet.class))).thenAnswer(invocation -> new SiteHttpResponse(200, "true"));
-        assertTrue(barUserService.validateUserAgainstSite(email, token, siteId));
-    }
-
-    @Test
-    public void testValidateUserAgainstSiteWhenInValid() throws IOException {
-        String email = "user@gmail.com";
-        String token = "this_is_a_user_token";
-        String siteId = "siteId";
-        when(httpClient.execute(any(HttpGet.class))).thenAnswer(invocation -> new SiteHttpResponse(200, "false"));
-        assertFalse(barUserService.validateUserAgainstSite(email, token, siteId));
-    }
-
-    @Test
-    public void testValidateUserAgainstSiteWhenAnyParameterIsBlank() throws IOException {
-        String email = "user@gmail.com";
-        String token = "this_is_a_user_token";
-        String siteId = "siteId";
-        assertFalse(barUserService.validateUserAgainstSite("", token, siteId));
-        assertFalse(barUserService.validateUserAgainstSite(null, token, siteId));
-        assertFalse(barUserService.validateUserAgainstSite(" ", token, siteId));
-
-        assertFalse(barUserService.validateUserAgainstSite(email, " ", siteId));
-        assertFalse(barUserService.validateUserAgainstSite(email, "", siteId));
-        assertFalse(barUserService.validateUserAgainstSite(email, null, siteId));
-
-        assertFalse(barUserService.validateUserAgainstSite(email, token, ""));
-        assertFalse(barUserService.validateUserAgainstSite(email, token, " "));
-        assertFalse(barUserService.validateUserAgainstSite(email, token, null));
+        verify(barUserRepository, times(0)).save(any(BarUser.class));
+        verify(barUserWriteBehind, times(1)).enqueue(modifiedUser);
+        assertEquals(modifiedUser, barUserService.getBarUser("user1"));
     }
 
     @Test
-    public void checkSiteVaidationRequest() throws IOException {
-        String email = "user@gmail.com";
-        String token = "this_is_a_user_token";
-        String siteId = "siteId";
-        when(httpClient.execute(any(HttpGet.class))).thenAnswer(invocation -> {
-            HttpGet httpGet = invocation.getArgument(0);
-            assertThat(httpGet.getMethod(), Is.is("GET"));
-            assertThat(httpGet.getURI().toString(), Is.is("http://localhost:23444/sites/siteId/users/user@gmail.com"));
-            assertThat(httpGet.getHeaders("Authorization")[0].getValue(), Is.is("this_is_a_user_token"));
-            return new SiteHttpResponse(200, "true");
-        });
-        barUserService.validateUserAgainstSite(email, token, siteId);
-    }
-
-    public static class SiteHttpResponse implements CloseableHttpResponse {
-
-        private String message;
-        private int responseCode;
-
-        SiteHttpResponse(int responseCode, String message){
-            this.responseCode = responseCode;
-            this.message = message;
-        }
-
-        @Override
-        public void close() throws IOException {
-            // Not implemented
-        }
-
-        @Override
-        public StatusLine getStatusLine() {
-            return new BasicStatusLine(
-                new ProtocolVersion("http", 1, 1),
-                this.responseCode,
-                "OK"
-            );
-        }
-
-        @Override
-        public void setStatusLine(StatusLine statusLine) {
-            // Not implemented
-        }
-
-        @Override
-        public void setStatusLine(ProtocolVersion protocolVersion, int i) {
-            // Not implemented
-        }
-
-        @Override
-        public void setStatusLine(ProtocolVersion protocolVersion, int i, String s) {
-            // Not implemented
-        }
-
-        @Override
-        public void setStatusCode(int i) throws IllegalStateException {
-            // Not implemented
-        }
-
-        @Override
-        public void setReasonPhrase(String s) throws IllegalStateException {
-            // Not implemented
-        }
-
-        @Override
-        public HttpEntity getEntity() {
-            try {
-                return new StringEntity(this.message);
-            } catch (UnsupportedEncodingException e) {
-                e.printStackTrace();
-            }
-            return null;
-        }
-
-        @Override
-        public void setEntity(HttpEntity httpEntity) {
-            // Not implemented
-        }
-
-        @Override
-        public Locale getLocale() {
-            return null;
-        }
-
-        @Override
-        public void setLocale(Locale locale) {
-            // Not implemented
-        }
-
-        @Override
-        public ProtocolVersion getProtocolVersion() {
-            return null;
-        }
-
-        @Override
-        public boolean containsHeader(String s) {
-            return false;
-        }
-
-        @Override
-        public Header[] getHeaders(String s) {
-            return new Header[0];
-        }
-
-        @Override
-        public Header getFirstHeader(String s) {
-            return null;
-        }
-
-        @Override
-        public Header getLastHeader(String s) {
-            return null;
-        }
-
-        @Override
-        public Header[] getAllHeaders() {
-            return new Header[0];
-        }
-
-        @Override
-        public void addHeader(Header header) {
-            // Not implemented
-        }
-
-        @Override
-        public void addHeader(String s, String s1) {
-            // Not implemented
-        }
-
-        @Override
-        public void setHeader(Header header) {
-            // Not implemented
-        }
-
-        @Override
-        public void setHeader(String s, String s1) {
-            // Not implemented
-        }
-
-        @Override
-        public void setHeaders(Header[] headers) {
-            // Not implemented
-        }
-
-        @Override
-        public void removeHeader(Header header) {
-            // Not implemented
-        }
-
-        @Override
-        public void removeHeaders(String s) {
-            // Not implemented
-        }
-
-        @Override
-        public HeaderIterator headerIterator() {
-            return null;
-        }
-
-        @Override
-        public HeaderIterator headerIterator(String s) {
-            return null;
-        }
-
-        @Override
-        public HttpParams getParams() {
-            return null;
-        }
-
-        @Override
-        public void setParams(HttpParams httpParams) {
-            // Not implemented
-        }
+    public void whenUserIsNotInTheDb_shouldNotBeWrittenBehind() {
+        when(barUserRepository.save(barUser)).thenReturn(barUser);
+        barUserService.saveUser(barUser);
+        verify(barUserWriteBehind, never()).enqueue(any(BarUser.class));
     }
 }
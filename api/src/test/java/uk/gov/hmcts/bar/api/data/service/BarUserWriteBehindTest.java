@@ -0,0 +1,108 @@
+package uk.gov.hmcts.bar.api.data.service;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import uk.gov.hmcts.bar.api.data.model.BarUser;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+public class BarUserWriteBehindTest {
+
+    @Mock
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    private BarUserWriteBehind writeBehind;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        writeBehind = new BarUserWriteBehind(jdbcTemplate, 3_600_000, 2);
+    }
+
+    @After
+    public void tearDown() {
+        writeBehind.destroy();
+    }
+
+    @Test
+    public void testChangesAreCoalescedIntoOneBatch() {
+        writeBehind.enqueue(new BarUser("user1", Collections.emptySet(), "user1@mail.com", "user", "one"));
+        writeBehind.enqueue(new BarUser("user1", Collections.emptySet(), "user1@mail.com", "user", "one plus one"));
+        writeBehind.enqueue(new BarUser("user2", Collections.emptySet(), "user2@mail.com", "user", "two"));
+
+        writeBehind.flush();
+
+        ArgumentCaptor<SqlParameterSource[]> rows = ArgumentCaptor.forClass(SqlParameterSource[].class);
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), rows.capture());
+        assertEquals(2, rows.getValue().length);
+        for (SqlParameterSource row : rows.getValue()) {
+            if ("user1".equals(row.getValue("id"))) {
+                assertEquals("one plus one", row.getValue("surname"));
+            }
+        }
+    }
+
+    @Test
+    public void testNothingIsWrittenWithoutChanges() {
+        writeBehind.flush();
+
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), any(SqlParameterSource[].class));
+    }
+
+    @Test
+    public void testFailedBatchIsWrittenOneByOneAndOnlyTheFailedChangeIsRetried() {
+        when(jdbcTemplate.batchUpdate(anyString(), any(SqlParameterSource[].class)))
+            .thenThrow(new IllegalStateException("user2 is locked"))
+            .thenReturn(new int[] {1});
+        when(jdbcTemplate.update(anyString(), argThat((SqlParameterSource row) -> "user2".equals(row.getValue("id")))))
+            .thenThrow(new IllegalStateException("user2 is locked"));
+        writeBehind.enqueue(new BarUser("user1", Collections.emptySet(), "user1@mail.com", "user", "one"));
+        writeBehind.enqueue(new BarUser("user2", Collections.emptySet(), "user2@mail.com", "user", "two"));
+
+        writeBehind.flush();
+        writeBehind.flush();
+
+        verify(jdbcTemplate, times(2)).update(anyString(), any(SqlParameterSource.class));
+        ArgumentCaptor<SqlParameterSource[]> rows = ArgumentCaptor.forClass(SqlParameterSource[].class);
+        verify(jdbcTemplate, times(2)).batchUpdate(anyString(), rows.capture());
+        assertEquals(1, rows.getValue().length);
+        assertEquals("user2", rows.getValue()[0].getValue("id"));
+    }
+
+    @Test
+    public void testChangeIsDroppedAfterTheLastAttempt() {
+        when(jdbcTemplate.batchUpdate(anyString(), any(SqlParameterSource[].class)))
+            .thenThrow(new IllegalStateException("database is gone"));
+        when(jdbcTemplate.update(anyString(), any(SqlParameterSource.class)))
+            .thenThrow(new IllegalStateException("database is gone"));
+        writeBehind.enqueue(new BarUser("user1", Collections.emptySet(), "user1@mail.com", "user", "one"));
+
+        writeBehind.flush();
+        writeBehind.flush();
+        writeBehind.flush();
+
+        verify(jdbcTemplate, times(2)).batchUpdate(anyString(), any(SqlParameterSource[].class));
+        verify(jdbcTemplate, times(2)).update(anyString(), any(SqlParameterSource.class));
+    }
+
+    @Test
+    public void testPendingChangesAreWrittenOnShutdown() {
+        writeBehind.enqueue(new BarUser("user1", Collections.emptySet(), "user1@mail.com", "user", "one"));
+
+        writeBehind.destroy();
+
+        verify(jdbcTemplate).batchUpdate(anyString(), any(SqlParameterSource[].class));
+    }
+}
@@ -10,7 +10,6 @@ import uk.gov.hmcts.bar.api.data.model.BarUser;
 import uk.gov.hmcts.bar.api.data.model.FullRemission;
 import uk.gov.hmcts.bar.api.data.model.PaymentInstruction;
 import uk.gov.hmcts.bar.api.data.repository.PaymentInstructionRepository;
-import uk.gov.hmcts.bar.api.data.repository.PaymentInstructionStatusRepository;
 
 import java.util.Optional;
 
@@ -36,10 +35,10 @@ public class FullRemissionServiceTest {
     private BarUser barUserMock;
 
     @Mock
-    private PaymentInstructionStatusRepository paymentInstructionStatusRepositoryMock;
+    private AuditRepository auditRepository;
 
     @Mock
-    private AuditRepository auditRepository;
+    private PaymentInstructionStatusRecorder statusRecorder;
 
     private FullRemissionService fullRemissionService;
 
@@ -47,7 +46,7 @@ public class FullRemissionServiceTest {
     public void setupMock() {
         MockitoAnnotations.initMocks(this);
         fullRemissionService = new FullRemissionService( paymentInstructionRepository,
-            barUserServiceMock,paymentInstructionStatusRepositoryMock,auditRepository);
+            barUserServiceMock,auditRepository,statusRecorder);
     }
 
 
@@ -64,6 +63,7 @@ public class FullRemissionServiceTest {
         PaymentInstruction updatedPaymentInstruction = fullRemissionService.updateFullRemission(1,fullRemission);
         verify(paymentInstructionRepository, times(1)).findById(anyInt());
         verify(paymentInstructionRepository, times(1)).saveAndRefresh(paymentInstructionMock);
+        verify(statusRecorder, times(1)).recordStatus(eq(paymentInstructionMock), any(), any());
         verify(auditRepository,times(1)).trackPaymentInstructionEvent("FULL_REMISSION_PI_UPDATE_EVENT",paymentInstructionMock,barUserMock);
 
     }
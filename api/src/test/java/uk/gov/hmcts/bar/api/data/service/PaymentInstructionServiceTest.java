@@ -8,22 +8,23 @@ import org.ff4j.exception.FeatureAccessException;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.*;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.hateoas.EntityModel;
 import uk.gov.hmcts.bar.api.audit.AuditRepository;
 import uk.gov.hmcts.bar.api.data.TestUtils;
 import uk.gov.hmcts.bar.api.data.enums.BarUserRoleEnum;
 import uk.gov.hmcts.bar.api.data.enums.PaymentActionEnum;
-import uk.gov.hmcts.bar.api.data.exceptions.MissingSiteIdException;
 import uk.gov.hmcts.bar.api.data.exceptions.PaymentInstructionNotFoundException;
 import uk.gov.hmcts.bar.api.data.exceptions.PaymentProcessException;
 import uk.gov.hmcts.bar.api.data.model.*;
 import uk.gov.hmcts.bar.api.data.model.PaymentInstructionSearchCriteriaDto.PaymentInstructionSearchCriteriaDtoBuilder;
 import uk.gov.hmcts.bar.api.data.repository.BankGiroCreditRepository;
 import uk.gov.hmcts.bar.api.data.repository.PaymentInstructionRepository;
+import uk.gov.hmcts.bar.api.data.repository.PaymentInstructionStatusCounterRepository;
 import uk.gov.hmcts.bar.api.data.repository.PaymentInstructionStatusRepository;
+import uk.gov.hmcts.bar.api.data.repository.PaymentInstructionTransitionRepository;
 import uk.gov.hmcts.bar.api.data.validators.ActionValidator;
 import uk.gov.hmcts.bar.api.data.validators.FullRemissionValidator;
 import uk.gov.hmcts.bar.api.data.validators.UnallocatedAmountValidator;
@@ -64,18 +65,9 @@ public class PaymentInstructionServiceTest {
     @Mock
     private PaymentReference paymentReferenceMock;
 
-    @Mock
-    private Page<PaymentInstruction> piPageMock;
-
     @Mock
     private Iterator<PaymentInstruction> piIteratorMock;
 
-    @Mock
-    private Page<PayhubPaymentInstruction> payhubPiPageMock;
-
-    @Mock
-    private Iterator<PayhubPaymentInstruction> payhubPiIteratorMock;
-
     @Mock
     private PaymentInstruction paymentInstructionMock;
 
@@ -109,6 +101,12 @@ public class PaymentInstructionServiceTest {
     @Mock
     private AuditRepository auditRepository;
 
+    @Mock
+    private PaymentInstructionStatusCounterRepository statusCounterRepository;
+
+    @Mock
+    private PaymentInstructionStatsCache statsCacheMock;
+
     @Mock
     private List<CaseFeeDetail> cfdList;
 
@@ -124,6 +122,7 @@ public class PaymentInstructionServiceTest {
 
     private PaymentInstructionStatusCriteriaDto.PaymentInstructionStatusCriteriaDtoBuilder paymentInstructionStatusCriteriaDtoBuilder;
 
+    @Mock
     private PaymentTypeService paymentTypeService;
     private static final String BAR_POST_CLERK_ROLE = BarUserRoleEnum.BAR_POST_CLERK.getIdamRole();
     private static final String BAR_FEE_CLERK_ROLE = BarUserRoleEnum.BAR_FEE_CLERK.getIdamRole();
@@ -132,6 +131,12 @@ public class PaymentInstructionServiceTest {
     @Mock
     private UnallocatedAmountService unallocatedAmountService;
 
+    @Mock
+    private PaymentInstructionTransitionRepository transitionRepository;
+
+    @Mock
+    private PaymentInstructionStatusRecorder statusRecorder;
+
     @Before
     public void setupMock() {
         MockitoAnnotations.initMocks(this);
@@ -147,7 +152,11 @@ public class PaymentInstructionServiceTest {
             validatorService,
             payhubPaymentInstructionRepository,
             payhubFullRemissionRepository,
-            auditRepository);
+            auditRepository,
+            statusCounterRepository,
+            new PaymentInstructionStatsCache(new ConcurrentMapCacheManager()),
+            transitionRepository,
+            statusRecorder);
         paymentInstructionSearchCriteriaDtoBuilder = PaymentInstructionSearchCriteriaDto.paymentInstructionSearchCriteriaDto()
             .siteId("Y431");
         paymentInstructionStatusCriteriaDtoBuilder = PaymentInstructionStatusCriteriaDto.paymentInstructionStatusCriteriaDto();
@@ -171,18 +180,17 @@ public class PaymentInstructionServiceTest {
         when(paymentReferenceService.getNextPaymentReference(anyString()))
             .thenReturn(paymentReferenceMock);
         when(paymentReferenceMock.getSequenceId()).thenReturn(1);
-        when(paymentInstructionRepository.saveAndFlush(any(ChequePaymentInstruction.class)))
-            .thenReturn(chequePaymentInstructionMock);
-        when(paymentInstructionRepository.saveAndRefresh(any(ChequePaymentInstruction.class)))
+        when(paymentInstructionRepository.save(any(ChequePaymentInstruction.class)))
             .thenReturn(paymentInstructionMock);
         when(paymentInstructionMock.getStatus()).thenReturn("status");
 
         PaymentInstruction createdPaymentInstruction = paymentInstructionServiceMock
             .createPaymentInstruction(barUserMock, chequePaymentInstructionMock);
         verify(paymentReferenceService, times(1)).getNextPaymentReference(anyString());
-        verify(paymentInstructionRepository, times(1)).saveAndRefresh(chequePaymentInstructionMock);
-        PaymentInstructionStatus status = new PaymentInstructionStatus(null, createdPaymentInstruction);
-        verify(paymentInstructionStatusRepositoryMock, times(1)).save(status);
+        verify(paymentInstructionRepository, times(1)).save(chequePaymentInstructionMock);
+        PaymentInstructionStatus status = new PaymentInstructionStatus(null, createdPaymentInstruction, "D");
+        verify(paymentInstructionStatusRepositoryMock, times(1)).persistAll(Collections.singletonList(status));
+        verify(paymentInstructionStatusRepositoryMock, times(1)).recordInitialStatuses(Collections.singletonList(status));
         verify(auditRepository,times(1)).trackPaymentInstructionEvent("CREATE_PAYMENT_INSTRUCTION_EVENT",chequePaymentInstructionMock,barUserMock);
     }
 
@@ -192,17 +200,15 @@ public class PaymentInstructionServiceTest {
         when(barUserMock.getRoles()).thenReturn(BAR_POST_CLERK_ROLE);
         when(paymentReferenceService.getNextPaymentReference(anyString()))
             .thenReturn(paymentReferenceMock);
-        when(paymentInstructionRepository.saveAndFlush(any(CashPaymentInstruction.class)))
-            .thenReturn(cashPaymentInstructionMock);
-        when(paymentInstructionRepository.saveAndRefresh(any(CashPaymentInstruction.class)))
+        when(paymentInstructionRepository.save(any(CashPaymentInstruction.class)))
             .thenReturn(paymentInstructionMock);
         when(paymentInstructionMock.getStatus()).thenReturn("status");
         PaymentInstruction createdPaymentInstruction = paymentInstructionServiceMock
             .createPaymentInstruction(barUserMock, cashPaymentInstructionMock);
         verify(paymentReferenceService, times(1)).getNextPaymentReference(anyString());
-        verify(paymentInstructionRepository, times(1)).saveAndRefresh(cashPaymentInstructionMock);
-        PaymentInstructionStatus status = new PaymentInstructionStatus(null, createdPaymentInstruction);
-        verify(paymentInstructionStatusRepositoryMock, times(1)).save(status);
+        verify(paymentInstructionRepository, times(1)).save(cashPaymentInstructionMock);
+        PaymentInstructionStatus status = new PaymentInstructionStatus(null, createdPaymentInstruction, "D");
+        verify(paymentInstructionStatusRepositoryMock, times(1)).persistAll(Collections.singletonList(status));
         verify(auditRepository,times(1)).trackPaymentInstructionEvent("CREATE_PAYMENT_INSTRUCTION_EVENT",cashPaymentInstructionMock,barUserMock);
 
 
@@ -214,15 +220,13 @@ public class PaymentInstructionServiceTest {
         when(barUserMock.getRoles()).thenReturn(BAR_POST_CLERK_ROLE);
         when(paymentReferenceService.getNextPaymentReference(barUserMock.getSelectedSiteId()))
             .thenReturn(paymentReferenceMock);
-        when(paymentInstructionRepository.saveAndFlush(any(PostalOrderPaymentInstruction.class)))
-            .thenReturn(postalOrderPaymentInstructionMock);
-        when(paymentInstructionRepository.saveAndRefresh(any(PostalOrderPaymentInstruction.class)))
+        when(paymentInstructionRepository.save(any(PostalOrderPaymentInstruction.class)))
             .thenReturn(paymentInstructionMock);
         when(paymentInstructionMock.getStatus()).thenReturn("status");
         PaymentInstruction createdPaymentInstruction = paymentInstructionServiceMock
             .createPaymentInstruction(barUserMock, postalOrderPaymentInstructionMock);
         verify(paymentReferenceService, times(1)).getNextPaymentReference(anyString());
-        verify(paymentInstructionRepository, times(1)).saveAndRefresh(postalOrderPaymentInstructionMock);
+        verify(paymentInstructionRepository, times(1)).save(postalOrderPaymentInstructionMock);
         verify(auditRepository,times(1)).trackPaymentInstructionEvent("CREATE_PAYMENT_INSTRUCTION_EVENT",postalOrderPaymentInstructionMock,barUserMock);
     }
 
@@ -233,9 +237,7 @@ public class PaymentInstructionServiceTest {
         when(paymentReferenceService.getNextPaymentReference(anyString()))
             .thenReturn(paymentReferenceMock);
         when(paymentReferenceMock.getSequenceId()).thenReturn(1);
-        when(paymentInstructionRepository.saveAndFlush(any(AllPayPaymentInstruction.class)))
-            .thenReturn(allpayPaymentInstructionMock);
-        when(paymentInstructionRepository.saveAndRefresh(any(AllPayPaymentInstruction.class)))
+        when(paymentInstructionRepository.save(any(AllPayPaymentInstruction.class)))
             .thenReturn(paymentInstructionMock);
         when(paymentInstructionMock.getStatus()).thenReturn("status");
 
@@ -243,9 +245,9 @@ public class PaymentInstructionServiceTest {
         PaymentInstruction createdPaymentInstruction = paymentInstructionServiceMock
             .createPaymentInstruction(barUserMock, allpayPaymentInstructionMock);
         verify(paymentReferenceService, times(1)).getNextPaymentReference(anyString());
-        verify(paymentInstructionRepository, times(1)).saveAndRefresh(allpayPaymentInstructionMock);
-        PaymentInstructionStatus status = new PaymentInstructionStatus(null, createdPaymentInstruction);
-        verify(paymentInstructionStatusRepositoryMock, times(1)).save(status);
+        verify(paymentInstructionRepository, times(1)).save(allpayPaymentInstructionMock);
+        PaymentInstructionStatus status = new PaymentInstructionStatus(null, createdPaymentInstruction, "D");
+        verify(paymentInstructionStatusRepositoryMock, times(1)).persistAll(Collections.singletonList(status));
 
         verify(auditRepository,times(1)).trackPaymentInstructionEvent("CREATE_PAYMENT_INSTRUCTION_EVENT",allpayPaymentInstructionMock,barUserMock);
     }
@@ -257,9 +259,7 @@ public class PaymentInstructionServiceTest {
         when(paymentReferenceService.getNextPaymentReference(anyString()))
             .thenReturn(paymentReferenceMock);
         when(paymentReferenceMock.getSequenceId()).thenReturn(1);
-        when(paymentInstructionRepository.saveAndFlush(any(AllPayPaymentInstruction.class)))
-            .thenReturn(allpayPaymentInstructionMock);
-        when(paymentInstructionRepository.saveAndRefresh(any(AllPayPaymentInstruction.class)))
+        when(paymentInstructionRepository.save(any(AllPayPaymentInstruction.class)))
             .thenReturn(paymentInstructionMock);
         when(paymentInstructionMock.getStatus()).thenReturn("status");
 
@@ -267,21 +267,61 @@ public class PaymentInstructionServiceTest {
         PaymentInstruction createdPaymentInstruction = paymentInstructionServiceMock
             .createPaymentInstruction(barUserMock, allpayPaymentInstructionMock);
         verify(paymentReferenceService, times(1)).getNextPaymentReference(anyString());
-        verify(paymentInstructionRepository, times(1)).saveAndRefresh(allpayPaymentInstructionMock);
-        PaymentInstructionStatus status = new PaymentInstructionStatus(null, createdPaymentInstruction);
-        verify(paymentInstructionStatusRepositoryMock, times(2)).save(status);
+        verify(paymentInstructionRepository, times(1)).save(allpayPaymentInstructionMock);
+        List<PaymentInstructionStatus> statuses = Arrays.asList(new PaymentInstructionStatus(null, createdPaymentInstruction, "D"),
+            new PaymentInstructionStatus(null, createdPaymentInstruction, "P"));
+        verify(paymentInstructionStatusRepositoryMock, times(1)).persistAll(statuses);
+        verify(paymentInstructionStatusRepositoryMock, times(1)).recordInitialStatuses(statuses);
+        verify(allpayPaymentInstructionMock).setStatus("P");
+        verify(paymentInstructionRepository, never()).saveAndRefresh(any());
 
         verify(auditRepository,times(1)).trackPaymentInstructionEvent("CREATE_PAYMENT_INSTRUCTION_EVENT",allpayPaymentInstructionMock,barUserMock);
     }
 
 
 
+    @Test
+    public void shouldCreateAllPaymentInstructions_whenCreatePaymentInstructionsIsCalled() {
+        when(barUserMock.getRoles()).thenReturn(BAR_FEE_CLERK_ROLE);
+        when(barUserMock.getSelectedSiteId()).thenReturn("Y431");
+        when(barUserMock.getId()).thenReturn("1234");
+        when(paymentReferenceService.getNextPaymentReferences("Y431", 2))
+            .thenReturn(Arrays.asList(new PaymentReference("Y431", 7, 'A'), new PaymentReference("Y431", 8, 'A')));
+        ChequePaymentInstruction cheque = ChequePaymentInstruction.chequePaymentInstructionWith()
+            .payerName("Mr Payer Payer").amount(550).currency("GBP").chequeNumber("000000").build();
+        PostalOrderPaymentInstruction postalOrder = PostalOrderPaymentInstruction.postalOrderPaymentInstructionWith()
+            .payerName("Mr Payer Payer").amount(300).currency("GBP").postalOrderNumber("000000").build();
+        List<PaymentInstruction> paymentInstructions = Arrays.asList(cheque, postalOrder);
+
+        List<PaymentInstruction> created = paymentInstructionServiceMock.createPaymentInstructions(barUserMock, paymentInstructions);
+
+        assertEquals(paymentInstructions, created);
+        String day = String.format("%02d", LocalDate.now().getDayOfMonth());
+        assertEquals(day + "A0007", cheque.getDailySequenceId());
+        assertEquals(day + "A0008", postalOrder.getDailySequenceId());
+        for (PaymentInstruction paymentInstruction : created) {
+            assertEquals("P", paymentInstruction.getStatus());
+            assertEquals("Y431", paymentInstruction.getSiteId());
+            assertEquals("1234", paymentInstruction.getUserId());
+        }
+        verify(paymentInstructionRepository).persistAll(paymentInstructions);
+        verify(paymentInstructionRepository, never()).save(any());
+        verify(paymentInstructionStatusRepositoryMock, times(2)).recordInitialStatuses(anyList());
+        verify(statusCounterRepository, times(1)).recordStatuses(argThat(statuses -> statuses.size() == 4));
+        verify(statsCacheMock, times(1)).evictSite("Y431");
+        verify(auditRepository).trackPaymentInstructionEvent("CREATE_PAYMENT_INSTRUCTION_EVENT", cheque, barUserMock);
+        verify(auditRepository).trackPaymentInstructionEvent("CREATE_PAYMENT_INSTRUCTION_EVENT", postalOrder, barUserMock);
+    }
+
     @Test
     public void shouldDeletePaymentInstruction_whenDeletePaymentInstructionIsCalled() throws Exception {
         when(paymentInstructionRepository.deleteByIdAndSiteId(anyInt(), anyString())).thenReturn(1);
         paymentInstructionServiceMock.deletePaymentInstruction(1, "Y431");
 
         verify(paymentInstructionRepository, times(1)).deleteByIdAndSiteId(1, "Y431");
+        InOrder inOrder = inOrder(statusCounterRepository, paymentInstructionStatusRepositoryMock);
+        inOrder.verify(statusCounterRepository).removePaymentInstruction(1, "Y431");
+        inOrder.verify(paymentInstructionStatusRepositoryMock).deleteByPaymentInstructionId(1, "Y431");
     }
 
     @Test(expected = PaymentInstructionNotFoundException.class)
@@ -306,9 +346,8 @@ public class PaymentInstructionServiceTest {
     public void shouldReturnPaymentInstructionList_whenGetAllPaymentInstructionsIsCalledWithNoParams()
         throws Exception {
 
-        when(paymentInstructionRepository.findAll(Mockito.any(Specification.class), Mockito.any(Pageable.class)))
-            .thenReturn(piPageMock);
-        when(piPageMock.iterator()).thenReturn(piIteratorMock);
+        when(paymentInstructionRepository.findAll(Mockito.any(Specification.class), Mockito.any(Sort.class), Mockito.anyInt()))
+            .thenReturn(Lists.newArrayList(piIteratorMock));
         PaymentInstructionSearchCriteriaDto paymentInstructionSearchCriteriaDto = PaymentInstructionSearchCriteriaDto
             .paymentInstructionSearchCriteriaDto().build();
 
@@ -317,13 +356,46 @@ public class PaymentInstructionServiceTest {
         assertEquals(Lists.newArrayList(piIteratorMock), retrievedPaymentInstructionList);
     }
 
+    @Test
+    public void shouldReturnNextCursor_whenMoreRowsThanPageSizeMatch() {
+        PaymentInstruction first = cashPaymentInstruction(1);
+        PaymentInstruction second = cashPaymentInstruction(2);
+        PaymentInstruction third = cashPaymentInstruction(3);
+        when(paymentInstructionRepository.findAll(Mockito.any(Specification.class), Mockito.any(Sort.class), eq(3)))
+            .thenReturn(Arrays.asList(first, second, third));
+
+        PaymentInstructionPage page = paymentInstructionService.getPaymentInstructionsPage(barUserMock,
+            PaymentInstructionSearchCriteriaDto.paymentInstructionSearchCriteriaDto().build(), 2);
+
+        assertEquals(Arrays.asList(first, second), page.getContent());
+        assertEquals(PaymentInstructionCursor.after(second), page.getNextCursor());
+    }
+
+    @Test
+    public void shouldNotReturnNextCursor_onLastPage() {
+        PaymentInstruction first = cashPaymentInstruction(1);
+        when(paymentInstructionRepository.findAll(Mockito.any(Specification.class), Mockito.any(Sort.class), eq(3)))
+            .thenReturn(Collections.singletonList(first));
+
+        PaymentInstructionPage page = paymentInstructionService.getPaymentInstructionsPage(barUserMock,
+            PaymentInstructionSearchCriteriaDto.paymentInstructionSearchCriteriaDto().build(), 2);
+
+        assertEquals(Collections.singletonList(first), page.getContent());
+        assertNull(page.getNextCursor());
+    }
+
+    private PaymentInstruction cashPaymentInstruction(int id) {
+        PaymentInstruction paymentInstruction = TestUtils.createPaymentInstructions("CASH", 100);
+        paymentInstruction.setId(id);
+        return paymentInstruction;
+    }
+
     @Test
     public void shouldReturnPaymentInstructionList_whenGetAllPaymentInstructionsIsCalledWithAllParams()
         throws Exception {
 
-        when(paymentInstructionRepository.findAll(Mockito.any(Specification.class), Mockito.any(Pageable.class)))
-            .thenReturn(piPageMock);
-        when(piPageMock.iterator()).thenReturn(piIteratorMock);
+        when(paymentInstructionRepository.findAll(Mockito.any(Specification.class), Mockito.any(Sort.class), Mockito.anyInt()))
+            .thenReturn(Lists.newArrayList(piIteratorMock));
         PaymentInstructionSearchCriteriaDto paymentInstructionSearchCriteriaDto = paymentInstructionSearchCriteriaDtoBuilder
             .status("D").action("Suspense").startDate(LocalDate.now().atStartOfDay()).endDate(LocalDate.now().atTime(LocalTime.now()))
             .build();
@@ -337,9 +409,8 @@ public class PaymentInstructionServiceTest {
     public void shouldReturnPaymentInstructionList_whenGetAllPaymentInstructionsIsCalledWithOnlyStatus()
         throws Exception {
 
-        when(paymentInstructionRepository.findAll(Mockito.any(Specification.class), Mockito.any(Pageable.class)))
-            .thenReturn(piPageMock);
-        when(piPageMock.iterator()).thenReturn(piIteratorMock);
+        when(paymentInstructionRepository.findAll(Mockito.any(Specification.class), Mockito.any(Sort.class), Mockito.anyInt()))
+            .thenReturn(Lists.newArrayList(piIteratorMock));
         PaymentInstructionSearchCriteriaDto paymentInstructionSearchCriteriaDto = paymentInstructionSearchCriteriaDtoBuilder
             .status("D").build();
 
@@ -352,9 +423,8 @@ public class PaymentInstructionServiceTest {
     public void shouldReturnPaymentInstructionList_whenGetAllPaymentInstructionsIsCalledWithOnlyStartDate()
         throws Exception {
 
-        when(paymentInstructionRepository.findAll(Mockito.any(Specification.class), Mockito.any(Pageable.class)))
-            .thenReturn(piPageMock);
-        when(piPageMock.iterator()).thenReturn(piIteratorMock);
+        when(paymentInstructionRepository.findAll(Mockito.any(Specification.class), Mockito.any(Sort.class), Mockito.anyInt()))
+            .thenReturn(Lists.newArrayList(piIteratorMock));
         PaymentInstructionSearchCriteriaDto paymentInstructionSearchCriteriaDto = paymentInstructionSearchCriteriaDtoBuilder
             .startDate(LocalDate.now().atStartOfDay()).build();
 
@@ -367,9 +437,8 @@ public class PaymentInstructionServiceTest {
     public void shouldReturnPaymentInstructionList_whenGetAllPaymentInstructionsIsCalledWithOnlyEndDate()
         throws Exception {
 
-        when(paymentInstructionRepository.findAll(Mockito.any(Specification.class), Mockito.any(Pageable.class)))
-            .thenReturn(piPageMock);
-        when(piPageMock.iterator()).thenReturn(piIteratorMock);
+        when(paymentInstructionRepository.findAll(Mockito.any(Specification.class), Mockito.any(Sort.class), Mockito.anyInt()))
+            .thenReturn(Lists.newArrayList(piIteratorMock));
         PaymentInstructionSearchCriteriaDto paymentInstructionSearchCriteriaDto = paymentInstructionSearchCriteriaDtoBuilder
             .endDate(LocalDate.now().atTime(LocalTime.now())).build();
 
@@ -382,9 +451,8 @@ public class PaymentInstructionServiceTest {
     public void shouldReturnPaymentInstructionList_whenGetAllPaymentInstructionsIsCalledWithOnlyPayerName()
         throws Exception {
 
-        when(paymentInstructionRepository.findAll(Mockito.any(Specification.class), Mockito.any(Pageable.class)))
-            .thenReturn(piPageMock);
-        when(piPageMock.iterator()).thenReturn(piIteratorMock);
+        when(paymentInstructionRepository.findAll(Mockito.any(Specification.class), Mockito.any(Sort.class), Mockito.anyInt()))
+            .thenReturn(Lists.newArrayList(piIteratorMock));
         PaymentInstructionSearchCriteriaDto paymentInstructionSearchCriteriaDto = paymentInstructionSearchCriteriaDtoBuilder
             .payerName("Mr Payer Payer").build();
 
@@ -397,9 +465,8 @@ public class PaymentInstructionServiceTest {
     public void shouldReturnPaymentInstructionList_whenGetAllPaymentInstructionsIsCalledWithOnlyChequeNumber()
         throws Exception {
 
-        when(paymentInstructionRepository.findAll(Mockito.any(Specification.class), Mockito.any(Pageable.class)))
-            .thenReturn(piPageMock);
-        when(piPageMock.iterator()).thenReturn(piIteratorMock);
+        when(paymentInstructionRepository.findAll(Mockito.any(Specification.class), Mockito.any(Sort.class), Mockito.anyInt()))
+            .thenReturn(Lists.newArrayList(piIteratorMock));
         PaymentInstructionSearchCriteriaDto paymentInstructionSearchCriteriaDto = paymentInstructionSearchCriteriaDtoBuilder
             .chequeNumber("000000").build();
 
@@ -413,9 +480,8 @@ public class PaymentInstructionServiceTest {
     public void shouldReturnPaymentInstructionList_whenGetAllPaymentInstructionsIsCalledWithOnlyStartDateAndEndDate()
         throws Exception {
 
-        when(paymentInstructionRepository.findAll(Mockito.any(Specification.class), Mockito.any(Pageable.class)))
-            .thenReturn(piPageMock);
-        when(piPageMock.iterator()).thenReturn(piIteratorMock);
+        when(paymentInstructionRepository.findAll(Mockito.any(Specification.class), Mockito.any(Sort.class), Mockito.anyInt()))
+            .thenReturn(Lists.newArrayList(piIteratorMock));
         PaymentInstructionSearchCriteriaDto paymentInstructionSearchCriteriaDto = paymentInstructionSearchCriteriaDtoBuilder
             .startDate(LocalDate.now().atStartOfDay()).endDate(LocalDate.now().atTime(LocalTime.now())).build();
 
@@ -428,9 +494,8 @@ public class PaymentInstructionServiceTest {
     public void shouldReturnPaymentInstructionList_whenGetAllPaymentInstructionsIsCalledWithOnlyStatusAndEndDate()
         throws Exception {
 
-        when(paymentInstructionRepository.findAll(Mockito.any(Specification.class), Mockito.any(Pageable.class)))
-            .thenReturn(piPageMock);
-        when(piPageMock.iterator()).thenReturn(piIteratorMock);
+        when(paymentInstructionRepository.findAll(Mockito.any(Specification.class), Mockito.any(Sort.class), Mockito.anyInt()))
+            .thenReturn(Lists.newArrayList(piIteratorMock));
         PaymentInstructionSearchCriteriaDto paymentInstructionSearchCriteriaDto = paymentInstructionSearchCriteriaDtoBuilder
             .endDate(LocalDate.now().atTime(LocalTime.now())).build();
 
@@ -443,9 +508,8 @@ public class PaymentInstructionServiceTest {
     public void shouldReturnPaymentInstructionList_whenGetAllPaymentInstructionsIsCalledWithOnlyStatusAndStartDate()
         throws Exception {
 
-        when(paymentInstructionRepository.findAll(Mockito.any(Specification.class), Mockito.any(Pageable.class)))
-            .thenReturn(piPageMock);
-        when(piPageMock.iterator()).thenReturn(piIteratorMock);
+        when(paymentInstructionRepository.findAll(Mockito.any(Specification.class), Mockito.any(Sort.class), Mockito.anyInt()))
+            .thenReturn(Lists.newArrayList(piIteratorMock));
         PaymentInstructionSearchCriteriaDto paymentInstructionSearchCriteriaDto = paymentInstructionSearchCriteriaDtoBuilder
             .startDate(LocalDate.now().atStartOfDay()).build();
 
@@ -458,9 +522,8 @@ public class PaymentInstructionServiceTest {
     public void shouldReturnPaymentInstructionList_whenGetAllPaymentInstructionsIsCalledWithOnlyDailySequenceId()
         throws Exception {
 
-        when(paymentInstructionRepository.findAll(Mockito.any(Specification.class), Mockito.any(Pageable.class)))
-            .thenReturn(piPageMock);
-        when(piPageMock.iterator()).thenReturn(piIteratorMock);
+        when(paymentInstructionRepository.findAll(Mockito.any(Specification.class), Mockito.any(Sort.class), Mockito.anyInt()))
+            .thenReturn(Lists.newArrayList(piIteratorMock));
         PaymentInstructionSearchCriteriaDto paymentInstructionSearchCriteriaDto = paymentInstructionSearchCriteriaDtoBuilder
             .dailySequenceId("1").build();
 
@@ -588,6 +651,38 @@ public class PaymentInstructionServiceTest {
         }
     }
 
+    @Test
+    public void shouldTransitionOnlyTheValidPaymentInstructions_whenTransitionPaymentInstructionsIsCalled() {
+        PaymentInstruction allocated = TestUtils.createSamplePaymentInstruction("CHEQUE", 10000, new int[][] {{10000, 0, 0}});
+        allocated.setSiteId("Y431");
+        PaymentInstruction unallocated = TestUtils.createPaymentInstructions("CASH", 10000);
+        unallocated.setId(2);
+        unallocated.setSiteId("Y431");
+        unallocated.setCaseFeeDetails(new ArrayList<>());
+        when(barUserMock.getId()).thenReturn("1234");
+        when(ff4jMock.check(anyString())).thenReturn(true);
+        when(paymentInstructionRepository.findAllWithCaseFeeDetailsByIdIn(Arrays.asList(1, 2, 3)))
+            .thenReturn(Arrays.asList(allocated, unallocated));
+        PaymentInstructionTransitionRequest request = PaymentInstructionTransitionRequest.paymentInstructionTransitionRequestWith()
+            .ids(Arrays.asList(1, 2, 3, 1))
+            .transition(PaymentInstructionUpdateRequest.paymentInstructionUpdateRequestWith().status("V").action("Process").build())
+            .build();
+
+        List<PaymentInstructionTransitionResult> results = paymentInstructionService.transitionPaymentInstructions(barUserMock, request);
+
+        assertEquals(3, results.size());
+        assertEquals(PaymentInstructionTransitionResult.succeeded(1), results.get(0));
+        assertEquals(PaymentInstructionTransitionResult.failed(2, "Please allocate all amount before processing."), results.get(1));
+        assertEquals(3, results.get(2).getId().intValue());
+        assertFalse(results.get(2).isSuccess());
+        verify(transitionRepository, times(1))
+            .transition(Collections.singletonList(1), "V", true, "Process", null, null, "1234");
+        verify(auditRepository, times(1)).trackPaymentInstructionEvent("PAYMENT_INSTRUCTION_UPDATE_EVENT", allocated, barUserMock);
+        verify(auditRepository, never()).trackPaymentInstructionEvent("PAYMENT_INSTRUCTION_UPDATE_EVENT", unallocated, barUserMock);
+        assertEquals("V", allocated.getStatus());
+        assertEquals("P", unallocated.getStatus());
+    }
+
     @Test
     public void shouldReturn200_whenUpdatePaymentInstructionForGivenPaymentInstructionIsCalled()
         throws Exception {
@@ -664,11 +759,13 @@ public class PaymentInstructionServiceTest {
 
 
     @Test
-    public void shouldReturnEmptyPaymentInstructionList_whengetAllPaymentInstructionsByTTBWithIncorrectDates()
+    public void shouldReturnNoPaymentInstructions_whenForEachPaymentInstructionByTTBWithIncorrectDates()
         throws Exception {
 
-        List<PaymentInstruction> paymentInstructionList = paymentInstructionService.getAllPaymentInstructionsByTTB(LocalDate.now(), LocalDate.now().minusDays(1),"Y431");
+        List<PaymentInstruction> paymentInstructionList = new ArrayList<>();
+        paymentInstructionService.forEachPaymentInstructionByTTB(LocalDate.now(), LocalDate.now().minusDays(1),"Y431", paymentInstructionList::add);
         assertTrue(paymentInstructionList.isEmpty());
+        verify(paymentInstructionStatusRepositoryMock, never()).streamPaymentInstructionStatusHistoryForTTB(any(), any(), anyString());
     }
 
     @Test
@@ -715,33 +812,32 @@ public class PaymentInstructionServiceTest {
     }
 
     @Test
-    public void testGetAllPaymentInstructionsForPayhub() {
-        when(payhubPaymentInstructionRepository.findAll(Mockito.any(Specification.class), Mockito.any(Pageable.class)))
-            .thenReturn(payhubPiPageMock);
-        when(payhubPiPageMock.iterator()).thenReturn(payhubPiIteratorMock);
+    public void testPayhubChunkIsLoadedWithItsFees() {
+        PayhubPaymentInstruction first = new PayhubPaymentInstruction();
+        first.setId(3);
+        PayhubPaymentInstruction second = new PayhubPaymentInstruction();
+        second.setId(5);
+        when(payhubPaymentInstructionRepository.findAll(Mockito.any(Specification.class), Mockito.any(Sort.class), eq(2)))
+            .thenReturn(Arrays.asList(first, second));
+        when(payhubPaymentInstructionRepository.findAllWithCaseFeeDetailsByIdIn(Arrays.asList(3, 5)))
+            .thenReturn(Arrays.asList(first, second));
 
         PaymentInstructionSearchCriteriaDto dto = new PaymentInstructionSearchCriteriaDto();
         dto.setStatus("TTB");
         dto.setTransferredToPayhub(false);
 
-        List<PayhubPaymentInstruction> pis = paymentInstructionService.getAllPaymentInstructionsForPayhub(barUserMock, dto);
-        assertEquals(Lists.newArrayList(payhubPiIteratorMock), pis);
+        List<PayhubPaymentInstruction> pis = paymentInstructionService.getPaymentInstructionsForPayhub("Y431", dto, 2, 2);
+        assertEquals(Arrays.asList(first, second), pis);
+        assertEquals("Y431", dto.getSiteId());
     }
 
-    @Test(expected = MissingSiteIdException.class)
-    public void testGetAllPaymentInstructionsForPayhubWhenSiteIdNotProvided() {
-
-        BarUser userWithMissingSite = BarUser.builder().email("nosite@mail.com").forename("no").surname("site").id("1").build();
-        when(payhubPaymentInstructionRepository.findAll(Mockito.any(Specification.class), Mockito.any(Pageable.class)))
-            .thenReturn(payhubPiPageMock);
-        when(payhubPiPageMock.iterator()).thenReturn(payhubPiIteratorMock);
-
-        PaymentInstructionSearchCriteriaDto dto = new PaymentInstructionSearchCriteriaDto();
-        dto.setStatus("TTB");
-        dto.setTransferredToPayhub(false);
+    @Test
+    public void testEmptyPayhubChunkSkipsLoadingFees() {
+        when(payhubFullRemissionRepository.findAll(Mockito.any(Specification.class), Mockito.any(Sort.class), eq(2)))
+            .thenReturn(Collections.emptyList());
 
-        List<PayhubPaymentInstruction> pis = paymentInstructionService.getAllPaymentInstructionsForPayhub(userWithMissingSite, dto);
-        assertEquals(Lists.newArrayList(payhubPiIteratorMock), pis);
+        assertTrue(paymentInstructionService.getRemissionsForPayhub("Y431", new PaymentInstructionSearchCriteriaDto(), 0, 2).isEmpty());
+        verify(payhubFullRemissionRepository, never()).findAllWithCaseFeeDetailsByIdIn(anyCollection());
     }
 
     private List<PaymentInstructionStats> createStats() {
@@ -805,14 +901,6 @@ public class PaymentInstructionServiceTest {
         assertFalse(paymentInstructionList.isEmpty());
     }
 
-    @Test
-    public void shouldReturnEmptyMap_whenGetStatusHistortMapForTTBCalledWithStartdateGreaterThanEndDate()
-        throws Exception {
-        Map<Integer, List<PaymentInstructionStatusHistory>> pishMap = paymentInstructionService
-            .getStatusHistoryMapForTTB(LocalDate.now(), LocalDate.now().minusDays(1),"Y431");
-        assertTrue(pishMap.isEmpty());
-    }
-
     @Test
     public void shouldReturnPICount_whenGetPICountIsCalled() {
 
@@ -826,6 +914,22 @@ public class PaymentInstructionServiceTest {
         assertEquals(1, count);
     }
 
+    @Test
+    public void shouldReturnPICountFromCounters_whenGetPICountIsCalledForWholeDays() {
+
+        when(statusCounterRepository.count("Y431", "PA", "1234", LocalDate.of(2019, 1, 21), LocalDate.of(2019, 1, 22)))
+            .thenReturn(3L);
+        PaymentInstructionStatusCriteriaDto paymentInstructionStatusCriteriaDto = paymentInstructionStatusCriteriaDtoBuilder
+            .status("PA").userId("1234").siteId("Y431")
+            .startDate(LocalDate.of(2019, 1, 21).atStartOfDay())
+            .endDate(LocalDate.of(2019, 1, 22).atTime(LocalTime.MAX)).build();
+
+        long count = paymentInstructionService
+            .getPaymentInstructionsCount(paymentInstructionStatusCriteriaDto);
+        assertEquals(3, count);
+        verify(paymentInstructionStatusRepositoryMock, never()).count(Mockito.any(Specification.class));
+    }
+
     @Test
     public void shouldReturnNonResetPICount_whenGetNonResetPaymentInstructionsCountIsCalled() {
 
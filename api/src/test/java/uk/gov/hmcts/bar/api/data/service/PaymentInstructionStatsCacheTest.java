@@ -0,0 +1,107 @@
+package uk.gov.hmcts.bar.api.data.service;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.cache.support.SimpleCacheManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import uk.gov.hmcts.bar.api.cache.CacheSpec;
+import uk.gov.hmcts.bar.api.cache.GuavaCache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+public class PaymentInstructionStatsCacheTest {
+
+    private PaymentInstructionStatsCache statsCache;
+
+    private AtomicInteger loads;
+
+    @Before
+    public void setUp() {
+        SimpleCacheManager cacheManager = new SimpleCacheManager();
+        cacheManager.setCaches(Collections.singletonList(new GuavaCache(PaymentInstructionStatsCache.CACHE_NAME, new CacheSpec())));
+        cacheManager.afterPropertiesSet();
+        statsCache = new PaymentInstructionStatsCache(cacheManager);
+        loads = new AtomicInteger();
+    }
+
+    @After
+    public void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void testRepeatedQueriesAreServedFromTheCache() {
+        assertEquals(1, load("Y431", "PA").intValue());
+        assertEquals(1, load("Y431", "PA").intValue());
+        assertEquals(2, load("Y431", "D").intValue());
+        assertEquals(3, load("Y610", "PA").intValue());
+    }
+
+    @Test
+    public void testConcurrentIdenticalQueriesShareOneComputation() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                results.add(executor.submit(() -> statsCache.get("Y431", "byUser", () -> {
+                    loading.countDown();
+                    release.await(5, TimeUnit.SECONDS);
+                    return loads.incrementAndGet();
+                }, "PA")));
+            }
+            loading.await(5, TimeUnit.SECONDS);
+            release.countDown();
+            for (Future<Integer> result : results) {
+                assertEquals(1, result.get(5, TimeUnit.SECONDS).intValue());
+            }
+            assertEquals(1, loads.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testWriteToSiteEvictsOnlyThatSite() {
+        load("Y431", "PA");
+        load("Y610", "PA");
+
+        statsCache.evictSite("Y431");
+
+        assertEquals(3, load("Y431", "PA").intValue());
+        assertEquals(2, load("Y610", "PA").intValue());
+    }
+
+    @Test
+    public void testEntriesCachedBeforeTheWriteCommitsAreDroppedOnCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        statsCache.evictSite("Y431");
+        // a concurrent read still sees the uncommitted state
+        assertEquals(1, load("Y431", "PA").intValue());
+
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+
+        assertEquals(2, load("Y431", "PA").intValue());
+    }
+
+    private Integer load(String siteId, String status) {
+        return statsCache.get(siteId, "byUser", loads::incrementAndGet, status);
+    }
+}
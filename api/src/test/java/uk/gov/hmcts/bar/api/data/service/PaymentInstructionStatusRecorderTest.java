@@ -0,0 +1,98 @@
+package uk.gov.hmcts.bar.api.data.service;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import uk.gov.hmcts.bar.api.data.TestUtils;
+import uk.gov.hmcts.bar.api.data.model.PaymentInstruction;
+import uk.gov.hmcts.bar.api.data.model.PaymentInstructionStatus;
+import uk.gov.hmcts.bar.api.data.repository.PaymentInstructionLatestStatusRepository;
+import uk.gov.hmcts.bar.api.data.repository.PaymentInstructionStatusCounterRepository;
+import uk.gov.hmcts.bar.api.data.repository.PaymentInstructionStatusRepository;
+
+import java.util.Optional;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class PaymentInstructionStatusRecorderTest {
+
+    @Mock
+    private PaymentInstructionStatusRepository paymentInstructionStatusRepository;
+
+    @Mock
+    private PaymentInstructionLatestStatusRepository latestStatusRepository;
+
+    @Mock
+    private PaymentInstructionStatusCounterRepository statusCounterRepository;
+
+    @Mock
+    private PaymentInstructionStatsCache statsCache;
+
+    private PaymentInstructionStatusRecorder statusRecorder;
+
+    private PaymentInstruction paymentInstruction;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        statusRecorder = new PaymentInstructionStatusRecorder(paymentInstructionStatusRepository, latestStatusRepository,
+            statusCounterRepository, statsCache);
+        paymentInstruction = TestUtils.createPaymentInstructions("CHEQUE", 10000);
+        paymentInstruction.setId(1);
+        paymentInstruction.setStatus("V");
+        paymentInstruction.setSiteId("Y431");
+        when(paymentInstructionStatusRepository.findById(any())).thenReturn(Optional.empty());
+    }
+
+    @Test
+    public void whenAStatusIsRecorded_thenTheHistoryReadModelsAndStatsAreUpdated() {
+        statusRecorder.recordStatus(paymentInstruction, 10000, "1234");
+
+        ArgumentCaptor<PaymentInstructionStatus> status = ArgumentCaptor.forClass(PaymentInstructionStatus.class);
+        verify(paymentInstructionStatusRepository).save(status.capture());
+        assertEquals("V", status.getValue().getPaymentInstructionStatusReferenceKey().getStatus());
+        assertEquals("1234", status.getValue().getBarUserId());
+        verify(latestStatusRepository).recordLatestStatus(status.getValue());
+        verify(statusCounterRepository).recordAmountChange(1, "Y431", 0);
+        verify(statusCounterRepository).recordStatus(status.getValue());
+        verify(statsCache).evictSite("Y431");
+    }
+
+    @Test
+    public void whenTheAmountChanged_thenTheCountersOfTheExistingStatusRowsMoveToTheNewAmount() {
+        statusRecorder.recordStatus(paymentInstruction, 7000, "1234");
+
+        verify(statusCounterRepository).recordAmountChange(1, "Y431", 3000);
+    }
+
+    @Test
+    public void whenTheSameStatusIsRecordedAgainWithinTheSecondBySameUser_thenItIsNotCountedAgain() {
+        when(paymentInstructionStatusRepository.findById(any())).thenReturn(Optional.of(new PaymentInstructionStatus("1234", paymentInstruction)));
+
+        statusRecorder.recordStatus(paymentInstruction, 10000, "1234");
+
+        verify(paymentInstructionStatusRepository).save(any(PaymentInstructionStatus.class));
+        verify(statusCounterRepository, never()).recordStatus(any(PaymentInstructionStatus.class));
+        verify(statusCounterRepository, never()).recordStatusReassigned(any(), anyString());
+    }
+
+    @Test
+    public void whenTheSameStatusIsRecordedAgainWithinTheSecondByAnotherUser_thenItsCountMovesToThatUser() {
+        when(paymentInstructionStatusRepository.findById(any())).thenReturn(Optional.of(new PaymentInstructionStatus("1234", paymentInstruction)));
+
+        statusRecorder.recordStatus(paymentInstruction, 10000, "fee-clerk");
+
+        ArgumentCaptor<PaymentInstructionStatus> status = ArgumentCaptor.forClass(PaymentInstructionStatus.class);
+        verify(statusCounterRepository).recordStatusReassigned(status.capture(), eq("1234"));
+        assertEquals("fee-clerk", status.getValue().getBarUserId());
+        verify(statusCounterRepository, never()).recordStatus(any(PaymentInstructionStatus.class));
+    }
+}
@@ -2,46 +2,47 @@ package uk.gov.hmcts.bar.api.data.service;
 
 import org.junit.Before;
 import org.junit.Test;
-import org.mockito.InjectMocks;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
 import uk.gov.hmcts.bar.api.data.model.PaymentReference;
 import uk.gov.hmcts.bar.api.data.repository.PaymentReferenceRepository;
 
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 
 public class PaymentReferenceServiceTest {
 
-    @InjectMocks
     private PaymentReferenceService paymentReferenceService;
 
     @Mock
     private PaymentReferenceRepository paymentReferenceRepository;
 
     @Mock
+    private PlatformTransactionManager transactionManager;
+
     private PaymentReference paymentReference1;
 
-    @Mock
     private PaymentReference paymentReference2;
 
-    @Mock
     private PaymentReference paymentReference3;
 
-    @Mock
     private PaymentReference paymentReference4;
 
-
-    @Mock
     private PaymentReference paymentReference5;
+
     @Before
     public void setupMock() {
         MockitoAnnotations.initMocks(this);
-        paymentReferenceService = new PaymentReferenceService(paymentReferenceRepository);
+        paymentReferenceService = new PaymentReferenceService(paymentReferenceRepository, transactionManager, 1);
         paymentReference1 = new PaymentReference("Y431",1, 'A' );
         paymentReference2 = new PaymentReference("Y431",2, 'A' );
         paymentReference3 = new PaymentReference("Y431",9999, 'A' );
@@ -94,5 +95,61 @@ public class PaymentReferenceServiceTest {
 
     }
 
+    @Test
+    public void shouldHandOutABlockFromMemory_whenBlockIsReserved() {
+        paymentReferenceService = new PaymentReferenceService(paymentReferenceRepository, transactionManager, 3);
+        when(paymentReferenceRepository.findOneForUpdate("Y431")).thenReturn(Optional.of(new PaymentReference("Y431", 9998, 'A')));
+
+        assertThat(paymentReferenceService.getNextPaymentReference("Y431")).isEqualTo(paymentReference3);
+        assertThat(paymentReferenceService.getNextPaymentReference("Y431")).isEqualTo(paymentReference4);
+        assertThat(paymentReferenceService.getNextPaymentReference("Y431")).isEqualTo(new PaymentReference("Y431", 2, 'B'));
+
+        verify(paymentReferenceRepository, times(1)).findOneForUpdate("Y431");
+        ArgumentCaptor<PaymentReference> reserved = ArgumentCaptor.forClass(PaymentReference.class);
+        verify(paymentReferenceRepository).save(reserved.capture());
+        assertThat(reserved.getValue()).isEqualTo(new PaymentReference("Y431", 2, 'B'));
+        verify(transactionManager, times(1)).commit(any());
+    }
+
+    @Test
+    public void shouldReserveNextBlock_whenBlockIsUsedUp() {
+        paymentReferenceService = new PaymentReferenceService(paymentReferenceRepository, transactionManager, 2);
+        when(paymentReferenceRepository.findOneForUpdate("Y431"))
+            .thenReturn(Optional.empty())
+            .thenReturn(Optional.of(new PaymentReference("Y431", 20, 'A')));
+
+        assertThat(paymentReferenceService.getNextPaymentReference("Y431")).isEqualTo(paymentReference1);
+        assertThat(paymentReferenceService.getNextPaymentReference("Y431")).isEqualTo(paymentReference2);
+        // another node took A0003 to A0020 meanwhile
+        assertThat(paymentReferenceService.getNextPaymentReference("Y431")).isEqualTo(new PaymentReference("Y431", 21, 'A'));
+
+        verify(paymentReferenceRepository, times(2)).findOneForUpdate("Y431");
+    }
+
+    @Test
+    public void shouldKeepABlockPerSite() {
+        paymentReferenceService = new PaymentReferenceService(paymentReferenceRepository, transactionManager, 5);
+        when(paymentReferenceRepository.findOneForUpdate(anyString())).thenReturn(Optional.empty());
+
+        assertThat(paymentReferenceService.getNextPaymentReference("Y431")).isEqualTo(paymentReference1);
+        assertThat(paymentReferenceService.getNextPaymentReference("Y610")).isEqualTo(new PaymentReference("Y610", 1, 'A'));
+        assertThat(paymentReferenceService.getNextPaymentReference("Y431")).isEqualTo(paymentReference2);
+    }
+
+    @Test
+    public void shouldReserveTheRestInOneBlock_whenMoreReferencesAreAskedForThanLeftInTheBlock() {
+        paymentReferenceService = new PaymentReferenceService(paymentReferenceRepository, transactionManager, 2);
+        when(paymentReferenceRepository.findOneForUpdate("Y431"))
+            .thenReturn(Optional.empty())
+            .thenReturn(Optional.of(new PaymentReference("Y431", 2, 'A')));
+
+        assertThat(paymentReferenceService.getNextPaymentReference("Y431")).isEqualTo(paymentReference1);
+        assertThat(paymentReferenceService.getNextPaymentReferences("Y431", 4)).containsExactly(paymentReference2,
+            new PaymentReference("Y431", 3, 'A'), new PaymentReference("Y431", 4, 'A'), new PaymentReference("Y431", 5, 'A'));
+
+        ArgumentCaptor<PaymentReference> reserved = ArgumentCaptor.forClass(PaymentReference.class);
+        verify(paymentReferenceRepository, times(2)).save(reserved.capture());
+        assertThat(reserved.getAllValues()).containsExactly(paymentReference2, new PaymentReference("Y431", 5, 'A'));
+    }
 
 }
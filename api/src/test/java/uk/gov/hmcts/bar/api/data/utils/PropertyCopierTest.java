@@ -0,0 +1,47 @@
+package uk.gov.hmcts.bar.api.data.utils;
+
+import org.junit.Test;
+import uk.gov.hmcts.bar.api.data.TestUtils;
+import uk.gov.hmcts.bar.api.data.model.CaseFeeDetail;
+import uk.gov.hmcts.bar.api.data.model.CaseFeeDetailRequest;
+import uk.gov.hmcts.bar.api.data.model.PaymentInstruction;
+import uk.gov.hmcts.bar.api.data.model.PaymentInstructionUpdateRequest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class PropertyCopierTest {
+
+    @Test
+    public void whenCopyingNonNullProperties_shouldKeepTheTargetValuesForNulls() {
+        PaymentInstruction pi = TestUtils.createPaymentInstructions("CHEQUE", 100);
+        pi.setAction("Process");
+        pi.setActionReason(2);
+        pi.setActionComment("comment");
+        PaymentInstructionUpdateRequest request = PaymentInstructionUpdateRequest.paymentInstructionUpdateRequestWith()
+            .status("V").build();
+
+        PropertyCopier.copyNonNullProperties(request, pi, "actionComment");
+
+        assertEquals("V", pi.getStatus());
+        assertEquals("Process", pi.getAction());
+        assertEquals(2, pi.getActionReason().intValue());
+        assertNull(pi.getActionComment());
+        assertEquals(100, pi.getAmount().intValue());
+    }
+
+    @Test
+    public void whenCopyingAllProperties_shouldCopyNullsToo() {
+        CaseFeeDetail caseFeeDetail = TestUtils.createCaseFeeDetail(new int[] {10000, 500, 300});
+        caseFeeDetail.setCaseReference("case101");
+        CaseFeeDetailRequest request = CaseFeeDetailRequest.caseFeeDetailRequestWith()
+            .paymentInstructionId(1).feeCode("X0033").amount(5000).build();
+
+        PropertyCopier.copyProperties(request, caseFeeDetail);
+
+        assertEquals("X0033", caseFeeDetail.getFeeCode());
+        assertEquals(5000, caseFeeDetail.getAmount().intValue());
+        assertNull(caseFeeDetail.getRemissionAmount());
+        assertNull(caseFeeDetail.getCaseReference());
+    }
+}
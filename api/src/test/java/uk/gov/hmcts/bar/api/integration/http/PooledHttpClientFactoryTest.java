@@ -0,0 +1,57 @@
+package uk.gov.hmcts.bar.api.integration.http;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.protocol.BasicHttpContext;
+import org.junit.Test;
+
+import java.time.Duration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+public class PooledHttpClientFactoryTest {
+
+    @Test
+    public void testEveryPoolPublishesItsOwnGauges() throws Exception {
+        HttpClientProperties properties = new HttpClientProperties();
+        HttpClientPoolSpec payHub = new HttpClientPoolSpec();
+        payHub.setMaxConnections(12);
+        properties.getPools().put("payhub", payHub);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        PooledHttpClientFactory factory = new PooledHttpClientFactory(properties, meterRegistry);
+
+        try (CloseableHttpClient payHubClient = factory.create("payhub");
+             CloseableHttpClient idamClient = factory.create("idam")) {
+            assertNotNull(payHubClient);
+            assertNotNull(idamClient);
+            assertEquals(12, meterRegistry.get("httpcomponents.httpclient.pool.total.max")
+                .tag("httpclient", "payhub").gauge().value(), 0);
+            assertEquals(new HttpClientPoolSpec().getMaxConnections(), meterRegistry.get("httpcomponents.httpclient.pool.total.max")
+                .tag("httpclient", "idam").gauge().value(), 0);
+            assertEquals(0, meterRegistry.get("httpcomponents.httpclient.pool.total.pending")
+                .tag("httpclient", "payhub").gauge().value(), 0);
+        }
+    }
+
+    @Test
+    public void testKeepAliveIsCappedAtTheConfiguredDuration() {
+        ConnectionKeepAliveStrategy strategy = PooledHttpClientFactory.keepAliveStrategy(Duration.ofSeconds(30));
+
+        assertEquals(30_000, strategy.getKeepAliveDuration(response(null), new BasicHttpContext()));
+        assertEquals(10_000, strategy.getKeepAliveDuration(response("timeout=10"), new BasicHttpContext()));
+        assertEquals(30_000, strategy.getKeepAliveDuration(response("timeout=120"), new BasicHttpContext()));
+    }
+
+    private static HttpResponse response(String keepAlive) {
+        HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+        if (keepAlive != null) {
+            response.addHeader("Keep-Alive", keepAlive);
+        }
+        return response;
+    }
+}
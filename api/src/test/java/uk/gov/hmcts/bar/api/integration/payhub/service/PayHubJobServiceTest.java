@@ -0,0 +1,251 @@
+package uk.gov.hmcts.bar.api.integration.payhub.service;
+
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.PlainJWT;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.beans.BeanUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import uk.gov.hmcts.bar.api.data.TestUtils;
+import uk.gov.hmcts.bar.api.data.exceptions.BadRequestException;
+import uk.gov.hmcts.bar.api.data.model.*;
+import uk.gov.hmcts.bar.api.data.service.PaymentInstructionService;
+import uk.gov.hmcts.bar.api.integration.payhub.data.PayhubFullRemission;
+import uk.gov.hmcts.bar.api.integration.payhub.data.PayhubPaymentInstruction;
+import uk.gov.hmcts.bar.api.integration.payhub.repository.PayHubJobRepository;
+import uk.gov.hmcts.bar.api.integration.payhub.repository.PayhubResultRepository;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class PayHubJobServiceTest {
+
+    private static final String SITE_ID = "Y431";
+
+    @Mock
+    private PayHubJobRepository payHubJobRepository;
+
+    @Mock
+    private PaymentInstructionService paymentInstructionService;
+
+    @Mock
+    private PayHubService payHubService;
+
+    @Mock
+    private PayhubResultRepository payhubResultRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private PayHubJobService payHubJobService;
+
+    private BarUser barUser;
+
+    private CountDownLatch finished;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        finished = new CountDownLatch(1);
+        when(payHubJobRepository.save(any(PayHubJob.class))).thenAnswer(invocation -> {
+            PayHubJob saved = invocation.getArgument(0);
+            if (saved.getStatus() != PayHubJob.Status.RUNNING) {
+                finished.countDown();
+            }
+            return saved;
+        });
+        when(payHubService.sendToPayHub(any(BarUser.class), anyString(), any(LocalDateTime.class), anyList(), anyList()))
+            .thenAnswer(invocation -> {
+                PayHubResponseReport report = new PayHubResponseReport();
+                report.setTotal(((List) invocation.getArgument(3)).size() + ((List) invocation.getArgument(4)).size());
+                report.setSuccess(report.getTotal());
+                return report;
+            });
+        payHubJobService = new PayHubJobService(payHubJobRepository, paymentInstructionService, payHubService,
+            payhubResultRepository, transactionManager, 2, 300, 1);
+        barUser = BarUser.builder().id("54321").email("dm@hmcts.net").build();
+        barUser.setSelectedSiteId(SITE_ID);
+    }
+
+    @Test
+    public void testJobSendsInChunksAndMovesTheCheckpoint() throws Exception {
+        PayhubPaymentInstruction first = paymentInstruction(1);
+        PayhubPaymentInstruction second = paymentInstruction(2);
+        PayhubPaymentInstruction fourth = paymentInstruction(4);
+        PayhubFullRemission third = fullRemission(3);
+        when(paymentInstructionService.getPaymentInstructionsForPayhub(eq(SITE_ID), any(PaymentInstructionSearchCriteriaDto.class), eq(0), eq(2)))
+            .thenReturn(Arrays.asList(first, second));
+        when(paymentInstructionService.getPaymentInstructionsForPayhub(eq(SITE_ID), any(PaymentInstructionSearchCriteriaDto.class), eq(2), eq(2)))
+            .thenReturn(Collections.singletonList(fourth));
+        when(paymentInstructionService.getRemissionsForPayhub(eq(SITE_ID), any(PaymentInstructionSearchCriteriaDto.class), anyInt(), eq(2)))
+            .thenAnswer(invocation -> (int) invocation.getArgument(2) < 3 ? Collections.singletonList(third) : Collections.emptyList());
+        PayHubJob job = mockJobCreation();
+
+        payHubJobService.startOrAttach(barUser, "1234ABCD", LocalDateTime.now());
+        awaitCompletion();
+
+        verify(payHubService).sendToPayHub(eq(barUser), eq("1234ABCD"), any(LocalDateTime.class),
+            eq(Arrays.asList(first, second)), eq(Collections.emptyList()));
+        verify(payHubService).sendToPayHub(eq(barUser), eq("1234ABCD"), any(LocalDateTime.class),
+            eq(Collections.singletonList(fourth)), eq(Collections.singletonList(third)));
+        assertThat(job.getStatus(), is(PayHubJob.Status.COMPLETED));
+        assertThat(job.getTotal(), is(4));
+        assertThat(job.getSuccess(), is(4));
+        assertThat(job.getLastProcessedId(), is(4));
+        assertThat(job.getActiveSiteId(), is((String) null));
+    }
+
+    @Test
+    public void testChunkIsMarkedAsBeingSentAndCommittedBeforeItIsSent() throws Exception {
+        PayhubPaymentInstruction first = paymentInstruction(1);
+        PayhubFullRemission second = fullRemission(2);
+        when(paymentInstructionService.getPaymentInstructionsForPayhub(eq(SITE_ID), any(PaymentInstructionSearchCriteriaDto.class), eq(0), eq(2)))
+            .thenReturn(Collections.singletonList(first));
+        when(paymentInstructionService.getRemissionsForPayhub(eq(SITE_ID), any(PaymentInstructionSearchCriteriaDto.class), eq(0), eq(2)))
+            .thenReturn(Collections.singletonList(second));
+        PayHubJob job = mockJobCreation();
+
+        payHubJobService.startOrAttach(barUser, "1234ABCD", LocalDateTime.now());
+        awaitCompletion();
+
+        InOrder inOrder = inOrder(payhubResultRepository, transactionManager, payHubService);
+        inOrder.verify(payhubResultRepository).markSending(Arrays.asList(1, 2), 1);
+        inOrder.verify(transactionManager, calls(1)).commit(any());
+        inOrder.verify(payHubService).sendToPayHub(eq(barUser), eq("1234ABCD"), any(LocalDateTime.class),
+            eq(Collections.singletonList(first)), eq(Collections.singletonList(second)));
+        assertThat(job.getLastProcessedId(), is(2));
+    }
+
+    @Test
+    public void testInterruptedPaymentInstructionsAreFailedNotSentAgain() throws Exception {
+        when(payHubService.rejectInterrupted(eq(barUser), eq(SITE_ID), any(LocalDateTime.class))).thenReturn(3);
+        PayHubJob job = mockJobCreation();
+
+        payHubJobService.startOrAttach(barUser, "1234ABCD", LocalDateTime.now());
+        awaitCompletion();
+
+        verify(payHubService, never()).sendToPayHub(any(BarUser.class), anyString(), any(LocalDateTime.class), anyList(), anyList());
+        assertThat(job.getStatus(), is(PayHubJob.Status.COMPLETED));
+        assertThat(job.getTotal(), is(3));
+        assertThat(job.getSuccess(), is(0));
+    }
+
+    @Test
+    public void testJobFailsWhenTheUserTokenIsAboutToExpire() throws Exception {
+        when(paymentInstructionService.getPaymentInstructionsForPayhub(eq(SITE_ID), any(PaymentInstructionSearchCriteriaDto.class), anyInt(), anyInt()))
+            .thenReturn(Collections.singletonList(paymentInstruction(1)));
+        PayHubJob job = mockJobCreation();
+        String token = "Bearer " + new PlainJWT(new JWTClaimsSet.Builder()
+            .expirationTime(Date.from(Instant.now().plusSeconds(10))).build()).serialize();
+
+        payHubJobService.startOrAttach(barUser, token, LocalDateTime.now());
+        awaitCompletion();
+
+        verify(payHubService, never()).sendToPayHub(any(BarUser.class), anyString(), any(LocalDateTime.class), anyList(), anyList());
+        assertThat(job.getStatus(), is(PayHubJob.Status.FAILED));
+        assertThat(job.getError(), is(PayHubJobService.TOKEN_EXPIRED_ERROR));
+        assertThat(job.getActiveSiteId(), is((String) null));
+    }
+
+    @Test
+    public void testFailedChunkFailsTheJob() throws Exception {
+        when(paymentInstructionService.getPaymentInstructionsForPayhub(eq(SITE_ID), any(PaymentInstructionSearchCriteriaDto.class), anyInt(), anyInt()))
+            .thenThrow(new IllegalStateException("database is gone"));
+        PayHubJob job = mockJobCreation();
+
+        payHubJobService.startOrAttach(barUser, "1234ABCD", LocalDateTime.now());
+        awaitCompletion();
+
+        assertThat(job.getStatus(), is(PayHubJob.Status.FAILED));
+        assertThat(job.getError(), is("database is gone"));
+        assertThat(job.getActiveSiteId(), is((String) null));
+    }
+
+    @Test
+    public void testRunningJobIsReturnedWhenStillMakingProgress() {
+        PayHubJob running = PayHubJob.builder().id(7).siteId(SITE_ID).activeSiteId(SITE_ID)
+            .status(PayHubJob.Status.RUNNING).updateTime(LocalDateTime.now()).build();
+        when(payHubJobRepository.findByActiveSiteId(SITE_ID)).thenReturn(Optional.of(running));
+
+        PayHubJob job = payHubJobService.startOrAttach(barUser, "1234ABCD", LocalDateTime.now());
+
+        assertThat(job.getId(), is(7));
+        verify(payHubJobRepository, never()).saveAndFlush(any(PayHubJob.class));
+        verify(payHubJobRepository, never()).claim(anyInt(), any(), any());
+    }
+
+    @Test
+    public void testAbandonedJobIsResumed() throws Exception {
+        LocalDateTime lastUpdate = LocalDateTime.now().minusHours(1);
+        PayHubJob abandoned = PayHubJob.builder().id(7).siteId(SITE_ID).activeSiteId(SITE_ID).lastProcessedId(12)
+            .reportDate(LocalDateTime.now()).status(PayHubJob.Status.RUNNING).updateTime(lastUpdate).build();
+        when(payHubJobRepository.findByActiveSiteId(SITE_ID)).thenReturn(Optional.of(abandoned));
+        when(payHubJobRepository.findById(7)).thenReturn(Optional.of(abandoned));
+        when(payHubJobRepository.claim(eq(7), eq(lastUpdate), any(LocalDateTime.class))).thenReturn(1);
+
+        payHubJobService.startOrAttach(barUser, "1234ABCD", LocalDateTime.now());
+        awaitCompletion();
+
+        verify(paymentInstructionService).getPaymentInstructionsForPayhub(eq(SITE_ID), any(PaymentInstructionSearchCriteriaDto.class), eq(12), eq(2));
+        assertThat(abandoned.getStatus(), is(PayHubJob.Status.COMPLETED));
+    }
+
+    @Test(expected = BadRequestException.class)
+    public void testInvalidTimeStamp() {
+        payHubJobService.startOrAttach(barUser, "1234ABCD", LocalDate.now().plusDays(3).atTime(20, 20));
+    }
+
+    private PayHubJob mockJobCreation() {
+        PayHubJob job = new PayHubJob();
+        when(payHubJobRepository.findByActiveSiteId(SITE_ID)).thenReturn(Optional.empty());
+        when(payHubJobRepository.saveAndFlush(any(PayHubJob.class))).thenAnswer(invocation -> {
+            PayHubJob created = invocation.getArgument(0);
+            created.setId(1);
+            BeanUtils.copyProperties(created, job);
+            return job;
+        });
+        when(payHubJobRepository.findById(1)).thenReturn(Optional.of(job));
+        return job;
+    }
+
+    private void awaitCompletion() throws InterruptedException {
+        assertTrue("job did not finish", finished.await(5, TimeUnit.SECONDS));
+    }
+
+    private static PayhubPaymentInstruction paymentInstruction(int id) {
+        PayhubPaymentInstruction paymentInstruction = TestUtils.createSamplePayhuPaymentInstruction(10000, new int[][] {{10000, 0, 0}});
+        paymentInstruction.setId(id);
+        paymentInstruction.setSiteId(SITE_ID);
+        return paymentInstruction;
+    }
+
+    private static PayhubFullRemission fullRemission(int id) {
+        PayhubFullRemission fullRemission = TestUtils.createSampleFullRemissionInstruction(new int[] {1000, 0, 0});
+        fullRemission.setId(id);
+        fullRemission.setSiteId(SITE_ID);
+        return fullRemission;
+    }
+}
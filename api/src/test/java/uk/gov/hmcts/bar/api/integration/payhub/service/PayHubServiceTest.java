@@ -3,6 +3,8 @@ package uk.gov.hmcts.bar.api.integration.payhub.service;
 import ch.qos.logback.core.db.dialect.DBUtil;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.apache.http.*;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpPost;
@@ -13,24 +15,28 @@ import org.apache.http.params.HttpParams;
 import org.hamcrest.core.AnyOf;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.mockito.internal.util.io.IOUtil;
 import uk.gov.hmcts.bar.api.data.TestUtils;
-import uk.gov.hmcts.bar.api.data.exceptions.BadRequestException;
 import uk.gov.hmcts.bar.api.data.model.*;
-import uk.gov.hmcts.bar.api.data.service.PaymentInstructionService;
+import uk.gov.hmcts.bar.api.data.service.PaymentInstructionStatsCache;
 import uk.gov.hmcts.bar.api.integration.payhub.data.PayhubFullRemission;
 import uk.gov.hmcts.bar.api.integration.payhub.data.PayhubPaymentInstruction;
+import uk.gov.hmcts.bar.api.integration.payhub.data.PayhubResult;
+import uk.gov.hmcts.bar.api.integration.payhub.repository.PayhubResultRepository;
+import uk.gov.hmcts.bar.api.metrics.OutboundRequestMetrics;
 import uk.gov.hmcts.reform.authorisation.generators.AuthTokenGenerator;
 
 import javax.persistence.EntityManager;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
-import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.Is.is;
@@ -50,7 +56,10 @@ public class PayHubServiceTest {
     private PayHubService payHubService;
 
     @Mock
-    private PaymentInstructionService paymentInstructionService;
+    private PayhubResultRepository payhubResultRepository;
+
+    @Mock
+    private PaymentInstructionStatsCache statsCache;
 
     @Mock
     private AuthTokenGenerator serviceAuthTokenGenerator;
@@ -66,14 +75,21 @@ public class PayHubServiceTest {
 
     private BarUser barUser;
 
+    private SimpleMeterRegistry meterRegistry;
+
     @Before
     public void setUp() {
         MockitoAnnotations.initMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
         payHubService = new PayHubService(serviceAuthTokenGenerator,
-                                            paymentInstructionService,
                                             httpClient,
                                             "http://localhost:8080",
-                                            entityManager);
+                                            entityManager,
+                                            CircuitBreakerRegistry.ofDefaults(),
+                                            meterRegistry,
+                                            new PayHubDispatcher(2),
+                                            payhubResultRepository,
+                                            statsCache);
         paymentInstructions = new ArrayList<>();
         fullRemissions = new ArrayList<>();
         paymentInstructions.add(
@@ -106,28 +122,10 @@ public class PayHubServiceTest {
             .roles(new HashSet<>(Arrays.asList("dummy_role1, dummy_role2"))).id("54321").build();
     }
 
-    private PaymentInstruction getPaymentInstruction(int id, String siteId){
-
-        PaymentInstruction pi = new PaymentInstruction() {
-            @Override
-            public void fillAmount(PaymentInstructionReportLine reportRow) {
-            }
-            @Override
-            public void setBgcNumber(String bgcNumber) {
-            }
-        };
-        pi.setId(id);
-        pi.setSiteId(siteId);
-        return pi;
-    }
-
    @Test
     public void testSendValidRequestToPayHub() throws Exception {
 
         when(serviceAuthTokenGenerator.generate()).thenReturn("this_is_a_one_time_password");
-        when(paymentInstructionService.getAllPaymentInstructionsForPayhub(eq(barUser), any(PaymentInstructionSearchCriteriaDto.class))).thenReturn(this.paymentInstructions);
-        when(paymentInstructionService.getPaymentInstruction(eq(1),eq("Y431"))).thenReturn(getPaymentInstruction(1,"Y431"));
-        when(paymentInstructionService.getPaymentInstruction(eq(2),eq("Y431"))).thenReturn(getPaymentInstruction(2,"Y431"));
 
         when(httpClient.execute(any(HttpPost.class))).thenAnswer(invocation -> {
             HttpPost httpPost = invocation.getArgument(0);
@@ -140,10 +138,10 @@ public class PayHubServiceTest {
             assertThat(httpPost.getHeaders("ServiceAuthorization")[0].getValue(), is("this_is_a_one_time_password"));
             return createPayhubResponse(httpPost.getURI().toString());
         });
-        PayHubResponseReport stat = payHubService.sendPaymentInstructionToPayHub(barUser, "1234ABCD", TRANSFER_DATE);
+        PayHubResponseReport stat = payHubService.sendToPayHub(barUser, "1234ABCD", TRANSFER_DATE, this.paymentInstructions, Collections.emptyList());
         assertThat(stat.getTotal(), is(2));
         assertThat(stat.getSuccess(), is(2));
-        verify(entityManager, times(2)).merge(any(PaymentInstructionPayhubReference.class));
+        assertAcceptedResults(2);
         this.paymentInstructions.forEach(it -> {
             assertThat(it.getReportDate(), is(TRANSFER_DATE));
             assertThat(it.isTransferredToPayhub(), is(true));
@@ -151,15 +149,25 @@ public class PayHubServiceTest {
         });
     }
 
+    @Test
+    public void testPaymentInstructionsAreSentInParallel() throws Exception {
+        when(serviceAuthTokenGenerator.generate()).thenReturn("this_is_a_one_time_password");
+        // both requests have to be in flight at the same time to get past the barrier
+        CyclicBarrier barrier = new CyclicBarrier(2);
+        when(httpClient.execute(any(HttpPost.class))).thenAnswer(invocation -> {
+            barrier.await(5, TimeUnit.SECONDS);
+            return createPayhubResponse("/payment-records");
+        });
+        PayHubResponseReport stat = payHubService.sendToPayHub(barUser, "1234ABCD", TRANSFER_DATE, this.paymentInstructions, Collections.emptyList());
+        assertThat(stat.getTotal(), is(2));
+        assertThat(stat.getSuccess(), is(2));
+        assertThat(savedResults().size(), is(2));
+    }
+
     @Test
     public void testSendValidRequestToPayHubWithFullRemission() throws Exception {
         when(serviceAuthTokenGenerator.generate()).thenReturn("this_is_a_one_time_password");
-        when(paymentInstructionService.getAllPaymentInstructionsForPayhub(eq(barUser), any(PaymentInstructionSearchCriteriaDto.class))).thenReturn(this.paymentInstructions);
-        when(paymentInstructionService.getAllRemissionsForPayhub(eq(barUser), any(PaymentInstructionSearchCriteriaDto.class))).thenReturn(this.fullRemissions);
 
-        when(paymentInstructionService.getPaymentInstruction(eq(1),eq("Y431"))).thenReturn(getPaymentInstruction(1,"Y431"));
-        when(paymentInstructionService.getPaymentInstruction(eq(2),eq("Y431"))).thenReturn(getPaymentInstruction(2,"Y431"));
-        when(paymentInstructionService.getPaymentInstruction(eq(3),eq("Y431"))).thenReturn(getPaymentInstruction(3,"Y431"));
 
         when(httpClient.execute(any(HttpPost.class))).thenAnswer(invocation -> {
             HttpPost httpPost = invocation.getArgument(0);
@@ -172,10 +180,10 @@ public class PayHubServiceTest {
             assertThat(httpPost.getHeaders("ServiceAuthorization")[0].getValue(), is("this_is_a_one_time_password"));
             return createPayhubResponse(httpPost.getURI().toString());
         });
-        PayHubResponseReport stat = payHubService.sendPaymentInstructionToPayHub(barUser, "1234ABCD", TRANSFER_DATE);
+        PayHubResponseReport stat = payHubService.sendToPayHub(barUser, "1234ABCD", TRANSFER_DATE, this.paymentInstructions, this.fullRemissions);
         assertThat(stat.getTotal(), is(3));
         assertThat(stat.getSuccess(), is(3));
-        verify(entityManager, times(3)).merge(any(PaymentInstructionPayhubReference.class));
+        assertAcceptedResults(3);
         this.paymentInstructions.forEach(it -> {
             assertThat(it.getReportDate(), is(TRANSFER_DATE));
             assertThat(it.isTransferredToPayhub(), is(true));
@@ -196,12 +204,7 @@ public class PayHubServiceTest {
         paymentInstructions.get(1).setAuthorizationCode("123456");
 
         when(serviceAuthTokenGenerator.generate()).thenReturn("this_is_a_one_time_password");
-        when(paymentInstructionService.getAllPaymentInstructionsForPayhub(eq(barUser), any(PaymentInstructionSearchCriteriaDto.class))).thenReturn(this.paymentInstructions);
-        when(paymentInstructionService.getAllRemissionsForPayhub(eq(barUser), any(PaymentInstructionSearchCriteriaDto.class))).thenReturn(this.fullRemissions);
 
-        when(paymentInstructionService.getPaymentInstruction(eq(1),eq("Y431"))).thenReturn(getPaymentInstruction(1,"Y431"));
-        when(paymentInstructionService.getPaymentInstruction(eq(2),eq("Y431"))).thenReturn(getPaymentInstruction(2,"Y431"));
-        when(paymentInstructionService.getPaymentInstruction(eq(3),eq("Y431"))).thenReturn(getPaymentInstruction(3,"Y431"));
 
         when(httpClient.execute(any(HttpPost.class))).thenAnswer(invocation -> {
             HttpPost httpPost = invocation.getArgument(0);
@@ -218,10 +221,10 @@ public class PayHubServiceTest {
             assertThat(httpPost.getHeaders("ServiceAuthorization")[0].getValue(), is("this_is_a_one_time_password"));
             return createPayhubResponse(httpPost.getURI().toString());
         });
-        PayHubResponseReport stat = payHubService.sendPaymentInstructionToPayHub(barUser, "1234ABCD", TRANSFER_DATE);
+        PayHubResponseReport stat = payHubService.sendToPayHub(barUser, "1234ABCD", TRANSFER_DATE, this.paymentInstructions, this.fullRemissions);
         assertThat(stat.getTotal(), is(5));
         assertThat(stat.getSuccess(), is(5));
-        verify(entityManager, times(3)).merge(any(PaymentInstructionPayhubReference.class));
+        assertAcceptedResults(3);
         this.paymentInstructions.forEach(it -> {
             assertThat(it.getReportDate(), is(TRANSFER_DATE));
             assertThat(it.isTransferredToPayhub(), is(true));
@@ -232,11 +235,8 @@ public class PayHubServiceTest {
     @Test
     public void testUpdatePaymentInstructionWhenFailedResponseReceived() throws Exception {
         when(serviceAuthTokenGenerator.generate()).thenReturn("this_is_a_one_time_password");
-        when(paymentInstructionService.getAllPaymentInstructionsForPayhub(eq(barUser), any(PaymentInstructionSearchCriteriaDto.class))).thenReturn(this.paymentInstructions);
         when(httpClient.execute(any(HttpPost.class))).thenAnswer(invocation -> new PayHubHttpResponse(403, "{\"timestamp\": \"2018-08-06T12:03:24.732+0000\",\"status\": 403, \"error\": \"Forbidden\", \"message\": \"Access Denied\", \"path\": \"/payment-records\"}"));
-        when(paymentInstructionService.getPaymentInstruction(eq(1),eq("Y431"))).thenReturn(getPaymentInstruction(1,"Y431"));
-        when(paymentInstructionService.getPaymentInstruction(eq(2),eq("Y431"))).thenReturn(getPaymentInstruction(2,"Y431"));
-       PayHubResponseReport stat = payHubService.sendPaymentInstructionToPayHub(barUser, "1234ABCD", TRANSFER_DATE);
+       PayHubResponseReport stat = payHubService.sendToPayHub(barUser, "1234ABCD", TRANSFER_DATE, this.paymentInstructions, Collections.emptyList());
         this.paymentInstructions.forEach(it -> {
             assertThat(it.getReportDate(), is(TRANSFER_DATE));
             assertThat(it.isTransferredToPayhub(), is(false));
@@ -244,56 +244,49 @@ public class PayHubServiceTest {
         });
         assertThat(stat.getTotal(), is(2));
         assertThat(stat.getSuccess(), is(0));
-        verify(entityManager, times(0)).merge(any(PaymentInstructionPayhubReference.class));
+        assertAcceptedResults(0);
+        assertThat(meterRegistry.get(OutboundRequestMetrics.METRIC_NAME)
+            .tag("client", OutboundRequestMetrics.PAYHUB).tag("outcome", "CLIENT_ERROR").timer().count(), is(2L));
     }
 
     @Test
     public void testUpdatePaymentInstructionWhenSendingMessageThrowsException() throws Exception {
         when(serviceAuthTokenGenerator.generate()).thenReturn("this_is_a_one_time_password");
-        when(paymentInstructionService.getAllPaymentInstructionsForPayhub(eq(barUser), any(PaymentInstructionSearchCriteriaDto.class))).thenReturn(this.paymentInstructions);
         when(httpClient.execute(any(HttpPost.class))).thenThrow(new RuntimeException("something went wrong"));
-        when(paymentInstructionService.getPaymentInstruction(eq(1),eq("Y431"))).thenReturn(getPaymentInstruction(1,"Y431"));
-        when(paymentInstructionService.getPaymentInstruction(eq(2),eq("Y431"))).thenReturn(getPaymentInstruction(2,"Y431"));
-        payHubService.sendPaymentInstructionToPayHub(barUser, "1234ABCD", TRANSFER_DATE);
+        payHubService.sendToPayHub(barUser, "1234ABCD", TRANSFER_DATE, this.paymentInstructions, Collections.emptyList());
         this.paymentInstructions.forEach(it -> {
             assertThat(it.getReportDate(), is(TRANSFER_DATE));
             assertThat(it.isTransferredToPayhub(), is(false));
             assertThat(it.getPayhubError(), is("Failed to send payment instruction to PayHub: something went wrong"));
         });
-        verify(entityManager, times(0)).merge(any(PaymentInstructionPayhubReference.class));
+        assertAcceptedResults(0);
     }
 
     @Test
     public void testWhenReceivedInvalidResponseFromPayhub() throws Exception {
         when(serviceAuthTokenGenerator.generate()).thenReturn("this_is_a_one_time_password");
-        when(paymentInstructionService.getAllPaymentInstructionsForPayhub(eq(barUser), any(PaymentInstructionSearchCriteriaDto.class))).thenReturn(this.paymentInstructions);
-        when(paymentInstructionService.getPaymentInstruction(eq(1),eq("Y431"))).thenReturn(getPaymentInstruction(1,"Y431"));
-        when(paymentInstructionService.getPaymentInstruction(eq(2),eq("Y431"))).thenReturn(getPaymentInstruction(2,"Y431"));
         when(httpClient.execute(any(HttpPost.class))).thenAnswer(invocation -> new PayHubHttpResponse(200, "{ \"somekey\" : \"somevalue\" }"));
-        payHubService.sendPaymentInstructionToPayHub(barUser, "1234ABCD", TRANSFER_DATE);
+        payHubService.sendToPayHub(barUser, "1234ABCD", TRANSFER_DATE, this.paymentInstructions, Collections.emptyList());
         this.paymentInstructions.forEach(it -> {
             assertThat(it.getReportDate(), is(TRANSFER_DATE));
             assertThat(it.isTransferredToPayhub(), is(false));
             assertThat(it.getPayhubError(), is("Reference id can not be null"));
         });
-        verify(entityManager, times(0)).merge(any(PaymentInstructionPayhubReference.class));
+        assertAcceptedResults(0);
     }
 
    @Test
     public void testWhenReceivedUnParsableResponseFromPayhub() throws Exception {
         when(serviceAuthTokenGenerator.generate()).thenReturn("this_is_a_one_time_password");
-        when(paymentInstructionService.getAllPaymentInstructionsForPayhub(eq(barUser), any(PaymentInstructionSearchCriteriaDto.class))).thenReturn(this.paymentInstructions);
-        when(paymentInstructionService.getPaymentInstruction(eq(1),eq("Y431"))).thenReturn(getPaymentInstruction(1,"Y431"));
-        when(paymentInstructionService.getPaymentInstruction(eq(2),eq("Y431"))).thenReturn(getPaymentInstruction(2,"Y431"));
         when(httpClient.execute(any(HttpPost.class))).thenAnswer(invocation -> new PayHubHttpResponse(200, "some unparsable message"));
-        payHubService.sendPaymentInstructionToPayHub(barUser, "1234ABCD", TRANSFER_DATE);
+        payHubService.sendToPayHub(barUser, "1234ABCD", TRANSFER_DATE, this.paymentInstructions, Collections.emptyList());
         this.paymentInstructions.forEach(it -> {
             assertThat(it.getReportDate(), is(TRANSFER_DATE));
             assertThat(it.isTransferredToPayhub(), is(false));
             assertThat(it.getPayhubError(), is("Failed to parse payhub response: \"some unparsable message\": Unrecognized token 'some': was expecting (JSON String, Number, Array, Object or token 'null', 'true' or 'false')\n" +
                 " at [Source: (String)\"some unparsable message\"; line: 1, column: 5]"));
         });
-        verify(entityManager, times(0)).merge(any(PaymentInstructionPayhubReference.class));
+        assertAcceptedResults(0);
     }
 
     @Test
@@ -322,26 +315,39 @@ public class PayHubServiceTest {
             "uQshnEZWSXM";
 
         when(serviceAuthTokenGenerator.generate()).thenReturn("this_is_a_one_time_password");
-        when(paymentInstructionService.getAllPaymentInstructionsForPayhub(eq(barUser), any(PaymentInstructionSearchCriteriaDto.class))).thenReturn(this.paymentInstructions);
-        when(paymentInstructionService.getPaymentInstruction(eq(1),eq("Y431"))).thenReturn(getPaymentInstruction(1,"Y431"));
-        when(paymentInstructionService.getPaymentInstruction(eq(2),eq("Y431"))).thenReturn(getPaymentInstruction(2,"Y431"));
         when(httpClient.execute(any(HttpPost.class))).thenAnswer(invocation -> new PayHubHttpResponse(500, tooLongErrorMessage));
-        payHubService.sendPaymentInstructionToPayHub(barUser, "1234ABCD", TRANSFER_DATE);
+        payHubService.sendToPayHub(barUser, "1234ABCD", TRANSFER_DATE, this.paymentInstructions, Collections.emptyList());
         this.paymentInstructions.forEach(it -> {
             assertThat(it.getReportDate(), is(TRANSFER_DATE));
             assertThat(it.isTransferredToPayhub(), is(false));
             assertThat(it.getPayhubError(), is(truncatedErrorMessage));
         });
-        verify(entityManager, times(0)).merge(any(PaymentInstructionPayhubReference.class));
+        assertAcceptedResults(0);
     }
 
-    @Test(expected = BadRequestException.class)
-    public void testInvalidTimeStamp() throws Exception {
-        LocalDateTime reportDate = LocalDate.now().plusDays(3).atTime(20, 20);
-        when(serviceAuthTokenGenerator.generate()).thenReturn("this_is_a_one_time_password");
-        when(paymentInstructionService.getAllPaymentInstructionsForPayhub(eq(barUser), any(PaymentInstructionSearchCriteriaDto.class))).thenReturn(this.paymentInstructions);
-        when(httpClient.execute(any(HttpPost.class))).thenAnswer(invocation -> createPayhubResponse("/payment-records"));
-        payHubService.sendPaymentInstructionToPayHub(barUser, "1234ABCD", reportDate);
+    @Test
+    public void testInterruptedPaymentInstructionsAreMarkedAsFailedWithoutSending() throws Exception {
+        when(payhubResultRepository.findInterrupted("Y431")).thenReturn(Arrays.asList(3, 5));
+
+        int interrupted = payHubService.rejectInterrupted(barUser, "Y431", TRANSFER_DATE);
+
+        assertThat(interrupted, is(2));
+        List<PayhubResult> results = savedResults();
+        assertThat(results, is(Arrays.asList(PayhubResult.rejected(3, PayHubService.INTERRUPTED_ERROR),
+            PayhubResult.rejected(5, PayHubService.INTERRUPTED_ERROR))));
+        verify(httpClient, never()).execute(any(HttpPost.class));
+        verify(statsCache).evictSite("Y431");
+    }
+
+
+    private List<PayhubResult> savedResults() {
+        ArgumentCaptor<List<PayhubResult>> results = ArgumentCaptor.forClass(List.class);
+        verify(payhubResultRepository).save(results.capture(), eq("54321"), eq(TRANSFER_DATE));
+        return results.getValue();
+    }
+
+    private void assertAcceptedResults(long expected) {
+        assertThat(savedResults().stream().filter(PayhubResult::isAccepted).count(), is(expected));
     }
 
     private PayHubHttpResponse createPayhubResponse(String uri) {
@@ -0,0 +1,77 @@
+package uk.gov.hmcts.bar.api.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.repository.Repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class RepositoryMetricsPostProcessorTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private RepositoryMetricsPostProcessor postProcessor;
+
+    @Before
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        @SuppressWarnings("unchecked")
+        ObjectProvider<MeterRegistry> provider = mock(ObjectProvider.class);
+        when(provider.getObject()).thenReturn(meterRegistry);
+        postProcessor = new RepositoryMetricsPostProcessor(provider);
+    }
+
+    @Test
+    public void testRepositoryCallsAreTimedPerMethod() {
+        SampleRepository repository = (SampleRepository) postProcessor.postProcessAfterInitialization(proxy(id -> "found"), "sampleRepository");
+
+        repository.findName(1);
+        repository.findName(2);
+
+        assertEquals(2, meterRegistry.get(TimedRepositoryInterceptor.METRIC_NAME)
+            .tag("repository", "SampleRepository")
+            .tag("method", "findName")
+            .tag("exception", "none")
+            .timer().count());
+    }
+
+    @Test
+    public void testFailedRepositoryCallsAreTaggedWithTheException() {
+        SampleRepository repository = (SampleRepository) postProcessor.postProcessAfterInitialization(proxy(id -> {
+            throw new IllegalStateException("db is down");
+        }), "sampleRepository");
+
+        try {
+            repository.findName(1);
+        } catch (IllegalStateException e) {
+            // expected
+        }
+
+        assertEquals(1, meterRegistry.get(TimedRepositoryInterceptor.METRIC_NAME)
+            .tag("exception", "IllegalStateException")
+            .timer().count());
+    }
+
+    @Test
+    public void testOtherBeansAreLeftAlone() {
+        Object bean = new Object();
+
+        assertEquals(bean, postProcessor.postProcessAfterInitialization(bean, "other"));
+        assertEquals(0, meterRegistry.getMeters().size());
+    }
+
+    private SampleRepository proxy(SampleRepository target) {
+        ProxyFactory proxyFactory = new ProxyFactory(target);
+        proxyFactory.setInterfaces(SampleRepository.class);
+        return (SampleRepository) proxyFactory.getProxy();
+    }
+
+    interface SampleRepository extends Repository<Object, Integer> {
+        String findName(Integer id);
+    }
+}
@@ -24,19 +24,22 @@ import uk.gov.hmcts.bar.api.componenttests.sugar.RestActions;
 import uk.gov.hmcts.bar.api.componenttests.utils.DbTestUtil;
 import uk.gov.hmcts.bar.api.data.model.*;
 import uk.gov.hmcts.bar.api.data.service.*;
+import uk.gov.hmcts.bar.api.controllers.payment.PaymentInstructionController;
 import uk.gov.hmcts.bar.multisite.MultisiteConfiguration;
+import uk.gov.hmcts.bar.multisite.service.SiteMembershipResolver;
 import uk.gov.hmcts.reform.auth.checker.spring.useronly.UserDetails;
 
-import javax.ws.rs.core.MediaType;
-import java.time.LocalDate;
 import java.util.*;
+import java.util.function.Consumer;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.*;
 import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.MOCK;
 import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.springframework.test.web.servlet.setup.MockMvcBuilders.webAppContextSetup;
 
@@ -68,6 +71,9 @@ public class PaymentInstructionControllerTest {
     @MockBean
     private PaymentInstructionService paymentInstructionService;
 
+    @MockBean
+    private SiteMembershipResolver siteMembershipResolver;
+
     public final UserDetails userDetails =
         new UserDetails("1234", "abc123", Collections.singletonList("bar-post-clerk"));
 
@@ -80,14 +86,9 @@ public class PaymentInstructionControllerTest {
     @Before
     public void setUp() throws Exception {
         DefaultMockMvcBuilder mvc = webAppContextSetup(webApplicationContext).apply(springSecurity());
-        this.restActions = new RestActions(mvc.addFilter(new SiteValidationFilter(barUserService)).build(), objectMapper, userDetails);
-        wireMockRule.stubFor(get(urlPathMatching("/sites/(.+)/users/(.+)"))
-            .willReturn(aResponse()
-                .withStatus(200)
-                .withHeader("Content-Type", MediaType.TEXT_PLAIN)
-                .withBody("true")
-            )
-        );
+        this.restActions = new RestActions(mvc.addFilter(new SiteValidationFilter(barUserService, siteMembershipResolver)).build(), objectMapper, userDetails);
+        when(siteMembershipResolver.isUserAssignedToSite(anyString(), anyString())).thenReturn(true);
+        DbTestUtil.emptyTable(webApplicationContext, "payment_instruction_latest_status");
         DbTestUtil.emptyTable(webApplicationContext, "payment_instruction_status");
         DbTestUtil.emptyTable(webApplicationContext, "case_fee_detail");
         DbTestUtil.emptyTable(webApplicationContext, "payment_instruction_status");
@@ -106,25 +107,52 @@ public class PaymentInstructionControllerTest {
     @Test
     public void testGettingPaymentInstructionStats() throws Exception {
 
-        when(paymentInstructionService.getAllPaymentInstructionsByTTB(any(LocalDate.class),any(LocalDate.class),anyString())).thenReturn(paymentInstructionList);
-        restActions.getCsv("/payment-instructions?status=RDM","AA09")
+        doAnswer(invocation -> {
+            Consumer<PaymentInstruction> consumer = invocation.getArgument(3);
+            paymentInstructionList.forEach(consumer);
+            return null;
+        }).when(paymentInstructionService).forEachPaymentInstructionByTTB(any(), any(), anyString(), any());
+        MvcResult result = restActions.getCsv("/payment-instructions?status=RDM","AA09")
             .andExpect(status().isOk())
             .andReturn();
+        assertTrue(result.getResponse().getContentType().startsWith("text/csv"));
+        assertTrue(result.getResponse().getContentAsString().startsWith("\"Daily sequential payment ID\""));
     }
 
     @Test
     public void testGettingPaymentInstructionStats_WithoutCsvHeaders() throws Exception {
-        when(paymentInstructionService.getAllPaymentInstructionsByTTB(any(LocalDate.class),any(LocalDate.class),anyString())).thenReturn(paymentInstructionList);
+        when(paymentInstructionService.getPaymentInstructionsPage(any(BarUser.class),any(),anyInt()))
+            .thenReturn(new PaymentInstructionPage(paymentInstructionList, null));
         restActions.get("/payment-instructions?status=RDM","AA09")
             .andExpect(status().isOk())
+            .andExpect(header().doesNotExist(PaymentInstructionController.NEXT_CURSOR_HEADER))
             .andReturn();
     }
 
+    @Test
+    public void testGettingPaymentInstructions_returnsNextCursorHeader() throws Exception {
+        paymentInstruction.setStatus("P");
+        paymentInstruction.setId(42);
+        PaymentInstructionCursor nextCursor = PaymentInstructionCursor.after(paymentInstruction);
+        when(paymentInstructionService.getPaymentInstructionsPage(any(BarUser.class),any(),eq(1)))
+            .thenReturn(new PaymentInstructionPage(Arrays.asList(paymentInstruction), nextCursor));
+        restActions.get("/payment-instructions?pageSize=1","AA09")
+            .andExpect(status().isOk())
+            .andExpect(header().string(PaymentInstructionController.NEXT_CURSOR_HEADER, nextCursor.encode()));
+    }
+
+    @Test
+    public void testGettingPaymentInstructions_withInvalidCursor() throws Exception {
+        restActions.get("/payment-instructions?cursor=not-a-cursor","AA09")
+            .andExpect(status().isBadRequest());
+    }
+
 
     @Test
     public void testGetPaymentInstructionsByIdamId() throws Exception {
         paymentInstruction.setStatus("P");
-        when(paymentInstructionService.getAllPaymentInstructions(any(BarUser.class),any())).thenReturn(Arrays.asList(paymentInstruction));
+        when(paymentInstructionService.getPaymentInstructionsPage(any(BarUser.class),any(),anyInt()))
+            .thenReturn(new PaymentInstructionPage(Arrays.asList(paymentInstruction), null));
         MvcResult mvcResult = restActions.get("/users/12345/payment-instructions?status=RDM&startDate=17012020&endDate=18012020","AA09")
                                 .andExpect(status().isOk())
                                 .andReturn();
@@ -11,6 +11,7 @@ import org.springframework.web.util.NestedServletException;
 import uk.gov.hmcts.bar.api.data.model.BarUser;
 import uk.gov.hmcts.bar.api.data.service.BarUserService;
 import uk.gov.hmcts.bar.multisite.model.Site;
+import uk.gov.hmcts.bar.multisite.service.SiteMembershipResolver;
 import uk.gov.hmcts.bar.multisite.service.SiteService;
 import uk.gov.hmcts.bar.multisite.utils.SiteUtils;
 
@@ -35,6 +36,9 @@ public class SiteControllerTest {
     @Mock
     private BarUserService barUserService;
 
+    @Mock
+    private SiteMembershipResolver siteMembershipResolver;
+
     @InjectMocks
     private SiteController siteController;
 
@@ -91,6 +95,7 @@ public class SiteControllerTest {
             .andExpect(jsonPath("$.description", is("one")));
 
         verify(siteService, times(1)).saveSite(site);
+        verify(siteService).evictFromCache("1");
     }
 
 
@@ -144,6 +149,7 @@ public class SiteControllerTest {
             .andExpect(status().isCreated());
 
         verify(siteService, times(1)).assignUserToSite(site, email);
+        verify(siteMembershipResolver, times(1)).evict("1", email);
     }
 
     @Test
@@ -167,6 +173,7 @@ public class SiteControllerTest {
             .andExpect(status().isOk());
 
         verify(siteService, times(1)).deleteUserFromSite(site, email);
+        verify(siteMembershipResolver, times(1)).evict("1", email);
     }
 
     @Test
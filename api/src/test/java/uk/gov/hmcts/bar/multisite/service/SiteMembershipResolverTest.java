@@ -0,0 +1,74 @@
+package uk.gov.hmcts.bar.multisite.service;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.cache.support.SimpleCacheManager;
+import uk.gov.hmcts.bar.api.cache.CacheSpec;
+import uk.gov.hmcts.bar.api.cache.GuavaCache;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class SiteMembershipResolverTest {
+
+    @Mock
+    private SiteService siteService;
+
+    private SiteMembershipResolver resolver;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        SimpleCacheManager cacheManager = new SimpleCacheManager();
+        cacheManager.setCaches(Collections.singletonList(new GuavaCache(SiteMembershipResolver.CACHE_NAME, new CacheSpec())));
+        cacheManager.afterPropertiesSet();
+        resolver = new SiteMembershipResolver(siteService, cacheManager);
+    }
+
+    @Test
+    public void testRepeatedLookupsHitTheCache() {
+        when(siteService.validateUserAgainstSite("Y431", "USER@MAIL.COM")).thenReturn(true);
+
+        assertTrue(resolver.isUserAssignedToSite("Y431", "user@mail.com"));
+        assertTrue(resolver.isUserAssignedToSite("y431 ", "USER@mail.com"));
+
+        verify(siteService, times(1)).validateUserAgainstSite(anyString(), anyString());
+    }
+
+    @Test
+    public void testNegativeAnswerIsCachedToo() {
+        when(siteService.validateUserAgainstSite("Y431", "USER@MAIL.COM")).thenReturn(false);
+
+        assertFalse(resolver.isUserAssignedToSite("Y431", "user@mail.com"));
+        assertFalse(resolver.isUserAssignedToSite("Y431", "user@mail.com"));
+
+        verify(siteService, times(1)).validateUserAgainstSite(anyString(), anyString());
+    }
+
+    @Test
+    public void testEvictForcesFreshLookup() {
+        when(siteService.validateUserAgainstSite("Y431", "USER@MAIL.COM")).thenReturn(false, true);
+
+        assertFalse(resolver.isUserAssignedToSite("Y431", "user@mail.com"));
+        resolver.evict("Y431", "user@mail.com");
+        assertTrue(resolver.isUserAssignedToSite("Y431", "user@mail.com"));
+
+        verify(siteService, times(2)).validateUserAgainstSite(anyString(), anyString());
+    }
+
+    @Test
+    public void testBlankParametersAreRejectedWithoutLookup() {
+        assertFalse(resolver.isUserAssignedToSite(null, "user@mail.com"));
+        assertFalse(resolver.isUserAssignedToSite(" ", "user@mail.com"));
+        assertFalse(resolver.isUserAssignedToSite("Y431", ""));
+        assertFalse(resolver.isUserAssignedToSite("Y431", null));
+
+        verify(siteService, never()).validateUserAgainstSite(anyString(), anyString());
+    }
+}
@@ -9,6 +9,7 @@ import uk.gov.hmcts.bar.multisite.model.Site;
 import uk.gov.hmcts.bar.multisite.repository.SiteRepository;
 import uk.gov.hmcts.bar.multisite.utils.SiteUtils;
 
+import javax.persistence.EntityManagerFactory;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Optional;
@@ -25,10 +26,13 @@ public class SiteServiceTest {
     @Mock
     private SiteRepository siteRepository;
 
+    @Mock
+    private EntityManagerFactory entityManagerFactory;
+
     @Before
     public void setUp() {
         MockitoAnnotations.initMocks(this);
-        service = new SiteService(siteRepository);
+        service = new SiteService(siteRepository, entityManagerFactory);
     }
 
     @Test